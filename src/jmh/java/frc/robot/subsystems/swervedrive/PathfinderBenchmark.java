@@ -0,0 +1,199 @@
+package frc.robot.subsystems.swervedrive;
+
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.pathfinding.LocalADStar;
+import com.pathplanner.lib.pathfinding.Pathfinder;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Filesystem;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of planning latency between random free start and goal positions on the deployed navgrid, the
+ * {@link NavGridPathfinder} against PathPlanner's default {@link LocalADStar}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathfinderBenchmark
+{
+
+  /**
+   * Number of start and goal pairs cycled through.
+   */
+  private static final int                 pairs       = 64;
+  /**
+   * Nanoseconds to wait for a pathfinder before giving up on a pair.
+   */
+  private static final long                timeout     = TimeUnit.SECONDS.toNanos(1);
+  /**
+   * Constraints of the requested paths.
+   */
+  private static final PathConstraints     constraints = new PathConstraints(3.0, 3.0, 2 * Math.PI, 4 * Math.PI);
+  /**
+   * End state of the requested paths.
+   */
+  private static final GoalEndState        endState    = new GoalEndState(0, Rotation2d.kZero);
+  /**
+   * Start positions, each paired with the goal at the same index.
+   */
+  private final        List<Translation2d> starts      = new ArrayList<>(pairs);
+  /**
+   * Goal positions.
+   */
+  private final        List<Translation2d> goals       = new ArrayList<>(pairs);
+  /**
+   * Output of {@link NavGridPlanner#plan}.
+   */
+  private final        List<Translation2d> path        = new ArrayList<>();
+  /**
+   * Synchronous planner on its own copy of the grid.
+   */
+  private              NavGridPlanner      planner;
+  /**
+   * Project pathfinder, planning on its own thread.
+   */
+  private              NavGridPathfinder   navGridPathfinder;
+  /**
+   * PathPlanner's default pathfinder, planning on its own thread.
+   */
+  private              LocalADStar         localADStar;
+  /**
+   * Next pair to plan.
+   */
+  private              int                 index;
+
+  /**
+   * Load the navgrid and pick the start and goal pairs, the same ones every fork.
+   *
+   * @throws IOException If the navgrid cannot be read.
+   */
+  @Setup
+  public void setup() throws IOException
+  {
+    HAL.initialize(500, 0);
+    File    file = new File(Filesystem.getDeployDirectory(), "pathplanner/navgrid.json");
+    NavGrid grid = NavGrid.load(file);
+    planner = new NavGridPlanner(grid);
+    navGridPathfinder = new NavGridPathfinder(NavGrid.load(file));
+    localADStar = new LocalADStar();
+
+    // Only pairs with a path, so every pathfinder has an answer to wait for.
+    Random random = new Random(2025);
+    while (starts.size() < pairs)
+    {
+      Translation2d start = randomFree(grid, random);
+      Translation2d goal  = randomFree(grid, random);
+      if (start.getDistance(goal) > 1.0 && planner.plan(start, goal, path))
+      {
+        starts.add(start);
+        goals.add(goal);
+      }
+    }
+  }
+
+  /**
+   * Pick a random position in a free node.
+   *
+   * @param grid   Grid to pick on.
+   * @param random Source of randomness.
+   * @return Position.
+   */
+  private static Translation2d randomFree(NavGrid grid, Random random)
+  {
+    while (true)
+    {
+      int column = random.nextInt(grid.getColumns());
+      int row    = random.nextInt(grid.getRows());
+      if (!grid.isBlocked(column, row))
+      {
+        return new Translation2d(grid.centerX(column), grid.centerY(row));
+      }
+    }
+  }
+
+  /**
+   * Theta* search alone, without the thread hand off or the path construction.
+   *
+   * @return Planned corners.
+   */
+  @Benchmark
+  public List<Translation2d> planNavGrid()
+  {
+    index = (index + 1) % pairs;
+    planner.plan(starts.get(index), goals.get(index), path);
+    return path;
+  }
+
+  /**
+   * Time from requesting a path from the {@link NavGridPathfinder} until it is available as a {@link PathPlannerPath}.
+   *
+   * @return Path.
+   */
+  @Benchmark
+  public PathPlannerPath navGridPathfinder()
+  {
+    return request(navGridPathfinder);
+  }
+
+  /**
+   * Time from requesting a path from {@link LocalADStar} until it is available as a {@link PathPlannerPath}.
+   *
+   * @return Path.
+   */
+  @Benchmark
+  public PathPlannerPath localADStar()
+  {
+    return request(localADStar);
+  }
+
+  /**
+   * Request the next pair from a pathfinder and spin until a path to its goal comes back.
+   *
+   * @param pathfinder Pathfinder to request from.
+   * @return Path, null if the pathfinder timed out.
+   */
+  private PathPlannerPath request(Pathfinder pathfinder)
+  {
+    index = (index + 1) % pairs;
+    Translation2d goal = goals.get(index);
+    pathfinder.setStartPosition(starts.get(index));
+    pathfinder.setGoalPosition(goal);
+    long deadline = System.nanoTime() + timeout;
+    while (System.nanoTime() < deadline)
+    {
+      if (pathfinder.isNewPathAvailable())
+      {
+        // A path finished for the previous pair may still come in, skip it.
+        PathPlannerPath result = pathfinder.getCurrentPath(constraints, endState);
+        if (result != null && result.getPoint(result.numPoints() - 1).position.getDistance(goal) < 0.5)
+        {
+          return result;
+        }
+      }
+      Thread.onSpinWait();
+    }
+    return null;
+  }
+}
@@ -0,0 +1,174 @@
+package frc.robot.subsystems.swervedrive;
+
+import com.pathplanner.lib.util.DriveFeedforwards;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.units.measure.Force;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import swervelib.SwerveDrive;
+import swervelib.math.SwerveMath;
+
+/**
+ * Benchmarks of the swerve drive paths run every loop, against the simulated drive built from the deploy directory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SwerveDriveBenchmark
+{
+
+  /**
+   * Subsystem under test.
+   */
+  private       SwerveSubsystem        swerve;
+  /**
+   * Drive of the subsystem.
+   */
+  private       SwerveDrive            swerveDrive;
+  /**
+   * {@link SwerveSubsystem#driveCommand} driven by angular velocity.
+   */
+  private       Command                driveCommandAngularVelocity;
+  /**
+   * {@link SwerveSubsystem#driveCommand} driven by a heading.
+   */
+  private       Command                driveCommandHeading;
+  /**
+   * Setpoint generator drive mode.
+   */
+  private       SetpointGeneratorDrive setpointGeneratorDrive;
+  /**
+   * Module feedforwards as PathPlanner passes them to the output lambda.
+   */
+  private       Force[]                feedforwards;
+  /**
+   * Chassis speeds to command.
+   */
+  private final ChassisSpeeds          speeds      = new ChassisSpeeds(1.5, 0.5, 0.8);
+  /**
+   * Angle for {@link SwerveSubsystem#getTargetSpeeds(double, double, Rotation2d)}.
+   */
+  private final Rotation2d             angle       = Rotation2d.fromDegrees(30);
+  /**
+   * Translation to limit.
+   */
+  private final Translation2d          translation = new Translation2d(2.0, 1.0);
+  /**
+   * Output of the tipping velocity limiter.
+   */
+  private final double[]               limited     = new double[2];
+  /**
+   * Simulated time for the setpoint generator.
+   */
+  private       double                 time;
+
+  /**
+   * Build the simulated drive once per fork.
+   */
+  @Setup
+  public void setup()
+  {
+    HAL.initialize(500, 0);
+    swerve = new SwerveSubsystem(new File(Filesystem.getDeployDirectory(), "swerve/neo"));
+    swerveDrive = swerve.getSwerveDrive();
+    driveCommandAngularVelocity = swerve.driveCommand(() -> 0.5, () -> -0.3, () -> 0.2);
+    driveCommandHeading = swerve.driveCommand(() -> 0.5, () -> -0.3, () -> 0.7, () -> 0.7);
+    driveCommandAngularVelocity.initialize();
+    driveCommandHeading.initialize();
+    setpointGeneratorDrive = swerve.getSetpointGeneratorDrive();
+    setpointGeneratorDrive.reset(time);
+    feedforwards = DriveFeedforwards.zeros(swerveDrive.getModules().length).linearForces();
+  }
+
+  @Benchmark
+  public ChassisSpeeds getTargetSpeedsHeading()
+  {
+    return swerve.getTargetSpeeds(0.5, -0.3, 0.7, 0.7);
+  }
+
+  @Benchmark
+  public ChassisSpeeds getTargetSpeedsAngle()
+  {
+    return swerve.getTargetSpeeds(0.5, -0.3, angle);
+  }
+
+  @Benchmark
+  public void driveCommandAngularVelocity()
+  {
+    driveCommandAngularVelocity.execute();
+  }
+
+  @Benchmark
+  public void driveCommandHeading()
+  {
+    driveCommandHeading.execute();
+  }
+
+  /**
+   * The velocity limiting {@code AbsoluteDriveAdv} did before {@link TippingVelocityLimiter}.
+   */
+  @Benchmark
+  public Translation2d limitVelocity()
+  {
+    return SwerveMath.limitVelocity(translation, swerve.getFieldVelocity(), swerve.getPose(),
+                                    Constants.LOOP_TIME, Constants.ROBOT_MASS, List.of(Constants.CHASSIS),
+                                    swerve.getSwerveDriveConfiguration());
+  }
+
+  /**
+   * The velocity limiting {@code AbsoluteDriveAdv} does now.
+   */
+  @Benchmark
+  public double[] tippingVelocityLimiter()
+  {
+    swerve.getVelocityLimiter().limit(translation.getX(), translation.getY(), swerve.getFieldVelocity(),
+                                      swerve.getHeading().getRadians(), limited);
+    return limited;
+  }
+
+  /**
+   * Kinematics of the PathPlanner output lambda.
+   */
+  @Benchmark
+  public SwerveModuleState[] pathPlannerKinematics()
+  {
+    return swerveDrive.kinematics.toSwerveModuleStates(speeds);
+  }
+
+  /**
+   * The whole PathPlanner output lambda with feedforwards enabled.
+   */
+  @Benchmark
+  public void pathPlannerOutput()
+  {
+    swerveDrive.drive(speeds, swerveDrive.kinematics.toSwerveModuleStates(speeds), feedforwards);
+  }
+
+  @Benchmark
+  public void setpointGeneratorDrive()
+  {
+    time += 0.02;
+    setpointGeneratorDrive.driveFieldRelative(speeds, 0.3, time);
+  }
+}
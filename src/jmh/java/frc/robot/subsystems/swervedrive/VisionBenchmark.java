@@ -0,0 +1,386 @@
+package frc.robot.subsystems.swervedrive;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.wpilibj.smartdashboard.Field2d;
+import frc.robot.subsystems.swervedrive.Vision.Cameras;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.photonvision.EstimatedRobotPose;
+import org.photonvision.PhotonPoseEstimator.PoseStrategy;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+/**
+ * Benchmarks of the vision paths run every loop, fed with synthetic camera results.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VisionBenchmark
+{
+
+  /**
+   * Sink ignoring the fused measurements.
+   */
+  private static final VisionFusion.Sink                noSink    = (pose, timestampSeconds, stdDevs) -> {
+  };
+  /**
+   * Latency of each camera in enum order. The center camera's frames are older than the right camera's, so submitting
+   * in enum order rewinds the pose estimator every loop, and they are close enough to the left camera's to merge.
+   */
+  private static final double[]                         latencies = {0.045, 0.030, 0.0445};
+  /**
+   * Camera the results are given to.
+   */
+  private final        Cameras                          camera    = Cameras.CENTER_CAM;
+  /**
+   * Fusion stage under test.
+   */
+  private final        VisionFusion                     fusion    = new VisionFusion(16, 0.01);
+  /**
+   * Two result batches seeing different tags, alternated to make the visible set change.
+   */
+  private final        List<List<PhotonPipelineResult>> results   = new ArrayList<>();
+  /**
+   * Vision under test.
+   */
+  private              Vision                           vision;
+  /**
+   * Targets of the first batch.
+   */
+  private              List<PhotonTrackedTarget>        targets;
+  /**
+   * Estimate using the targets of the first batch.
+   */
+  private              Optional<EstimatedRobotPose>     estimate;
+  /**
+   * Measurements fused each invocation, close enough in time to merge in pairs.
+   */
+  private              VisionMeasurement[]              measurements;
+  /**
+   * Pose estimator the submission benchmarks feed, like the one inside {@link swervelib.SwerveDrive}.
+   */
+  private              SwerveDrivePoseEstimator         estimator;
+  /**
+   * Module positions advanced every simulated loop.
+   */
+  private              SwerveModulePosition[]           modulePositions;
+  /**
+   * Sink counting how the submissions rewind {@link VisionBenchmark#estimator}.
+   */
+  private              CountingSink                     countingSink;
+  /**
+   * Pose the cameras see.
+   */
+  private              Pose3d                           cameraPose;
+  /**
+   * Simulated FPGA time of the submission benchmarks.
+   */
+  private              double                           time;
+  /**
+   * Invocation counter.
+   */
+  private              int                              invocation;
+
+  /**
+   * Pose estimator work caused by the submission benchmarks, reported next to their time.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class EstimatorCounters
+  {
+
+    /**
+     * Measurements submitted to the pose estimator.
+     */
+    public long submitted;
+    /**
+     * Submissions older than an earlier submission, each one rewinds the pose estimator.
+     */
+    public long rewinds;
+    /**
+     * Earlier vision updates the pose estimator threw away because an older measurement was inserted before them.
+     */
+    public long discarded;
+
+    /**
+     * Count each iteration on its own.
+     */
+    @Setup(Level.Iteration)
+    public void reset()
+    {
+      submitted = 0;
+      rewinds = 0;
+      discarded = 0;
+    }
+  }
+
+  /**
+   * Sink submitting to a pose estimator and counting the rewinds, mirrors how {@link SwerveDrivePoseEstimator} drops
+   * every vision update newer than an inserted one.
+   */
+  private static final class CountingSink implements VisionFusion.Sink
+  {
+
+    /**
+     * Pose estimator submitted to.
+     */
+    private final SwerveDrivePoseEstimator estimator;
+    /**
+     * Timestamps of the vision updates the estimator still holds, oldest first, the most recent ones only.
+     */
+    private final double[]                 held = new double[128];
+    /**
+     * Number of valid entries in {@link CountingSink#held}.
+     */
+    private       int                      heldCount;
+    /**
+     * Counters of the running benchmark.
+     */
+    private       EstimatorCounters        counters;
+
+    /**
+     * Create the sink.
+     *
+     * @param estimator Pose estimator to submit to.
+     */
+    private CountingSink(SwerveDrivePoseEstimator estimator)
+    {
+      this.estimator = estimator;
+    }
+
+    @Override
+    public void addVisionMeasurement(Pose2d pose, double timestampSeconds, Matrix<N3, N1> stdDevs)
+    {
+      int later = 0;
+      while (later < heldCount && held[heldCount - 1 - later] > timestampSeconds)
+      {
+        later++;
+      }
+      if (later > 0)
+      {
+        counters.rewinds++;
+        counters.discarded += later;
+        heldCount -= later;
+      }
+      if (heldCount == held.length)
+      {
+        System.arraycopy(held, 1, held, 0, heldCount - 1);
+        heldCount--;
+      }
+      held[heldCount++] = timestampSeconds;
+      counters.submitted++;
+      estimator.addVisionMeasurement(pose, timestampSeconds, stdDevs);
+    }
+  }
+
+  /**
+   * Build the vision and the synthetic results once per fork.
+   */
+  @Setup
+  public void setup()
+  {
+    HAL.initialize(500, 0);
+    Pose2d robotPose = new Pose2d(12, 4, Vision.tagTable.getPose2d(7).getRotation().unaryMinus());
+    vision = new Vision(() -> robotPose, new Field2d());
+    for (Cameras c : Cameras.values())
+    {
+      // Results are set by the benchmark, not polled from the camera.
+      c.stopIngestion();
+    }
+
+    targets = targets(6, 7, 8);
+    results.add(List.of(result(targets)));
+    results.add(List.of(result(targets(9, 10))));
+    camera.resultsList = results.get(0);
+    camera.getFiducialIndex().rebuild(camera.resultsList);
+
+    estimate = Optional.of(new EstimatedRobotPose(new Pose3d(robotPose), 1.0, targets,
+                                                  PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR));
+    Matrix<N3, N1> stdDevs = camera.curStdDevs;
+    measurements = new VisionMeasurement[4];
+    for (int i = 0; i < measurements.length; i++)
+    {
+      measurements[i] = new VisionMeasurement(camera,
+                                              new EstimatedRobotPose(new Pose3d(robotPose),
+                                                                     1.0 + i * 0.005,
+                                                                     targets,
+                                                                     PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR),
+                                              stdDevs);
+    }
+
+    SwerveDriveKinematics kinematics = new SwerveDriveKinematics(new Translation2d(0.3, 0.3),
+                                                                 new Translation2d(0.3, -0.3),
+                                                                 new Translation2d(-0.3, 0.3),
+                                                                 new Translation2d(-0.3, -0.3));
+    modulePositions = new SwerveModulePosition[4];
+    for (int i = 0; i < modulePositions.length; i++)
+    {
+      modulePositions[i] = new SwerveModulePosition();
+    }
+    estimator = new SwerveDrivePoseEstimator(kinematics, Rotation2d.kZero, modulePositions, robotPose);
+    countingSink = new CountingSink(estimator);
+    cameraPose = new Pose3d(robotPose);
+    time = 1.0;
+    // A second of odometry so the first measurements land inside the estimator's history.
+    for (int i = 0; i < 50; i++)
+    {
+      advanceOdometry();
+    }
+  }
+
+  @Benchmark
+  public Matrix<N3, N1> updateEstimationStdDevs()
+  {
+    camera.updateEstimationStdDevs(estimate, targets);
+    return camera.curStdDevs;
+  }
+
+  @Benchmark
+  public PhotonTrackedTarget getTargetFromId()
+  {
+    return vision.getTargetFromId(6 + (invocation++ & 3), camera);
+  }
+
+  /**
+   * Alternates between two sets of visible tags, so both the unchanged and the changed path run.
+   */
+  @Benchmark
+  public void updateVisionField()
+  {
+    camera.resultsList = results.get(invocation++ & 1);
+    vision.updateVisionField();
+  }
+
+  @Benchmark
+  public VisionMeasurement visionFusion()
+  {
+    for (VisionMeasurement measurement : measurements)
+    {
+      fusion.add(measurement);
+    }
+    return fusion.flush(noSink);
+  }
+
+  /**
+   * One loop of every camera's measurements submitted camera by camera in enum order, like vision did before
+   * {@link VisionFusion}.
+   *
+   * @param counters Pose estimator work counters.
+   * @return Estimated pose.
+   */
+  @Benchmark
+  public Pose2d submitEnumOrder(EstimatorCounters counters)
+  {
+    countingSink.counters = counters;
+    advanceOdometry();
+    for (Cameras c : Cameras.values())
+    {
+      VisionMeasurement measurement = measurement(c);
+      countingSink.addVisionMeasurement(measurement.pose, measurement.timestampSeconds, measurement.stdDevs);
+    }
+    return estimator.getEstimatedPosition();
+  }
+
+  /**
+   * The same loop of measurements sorted and merged by {@link VisionFusion} before submission.
+   *
+   * @param counters Pose estimator work counters.
+   * @return Estimated pose.
+   */
+  @Benchmark
+  public Pose2d submitFused(EstimatorCounters counters)
+  {
+    countingSink.counters = counters;
+    advanceOdometry();
+    for (Cameras c : Cameras.values())
+    {
+      fusion.add(measurement(c));
+    }
+    fusion.flush(countingSink);
+    return estimator.getEstimatedPosition();
+  }
+
+  /**
+   * Advance the simulated time by a loop and drive the estimator forward at 3 m/s.
+   */
+  private void advanceOdometry()
+  {
+    time += 0.02;
+    for (SwerveModulePosition position : modulePositions)
+    {
+      position.distanceMeters += 0.06;
+    }
+    estimator.updateWithTime(time, Rotation2d.kZero, modulePositions);
+  }
+
+  /**
+   * Create this loop's measurement of a camera, timestamped by the camera's latency.
+   *
+   * @param c Camera.
+   * @return Measurement.
+   */
+  private VisionMeasurement measurement(Cameras c)
+  {
+    EstimatedRobotPose pose = new EstimatedRobotPose(cameraPose, time - latencies[c.ordinal() % latencies.length],
+                                                     targets, PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR);
+    return new VisionMeasurement(c, pose, c.curStdDevs);
+  }
+
+  /**
+   * Create targets for AprilTags.
+   *
+   * @param ids AprilTag IDs.
+   * @return One target per ID.
+   */
+  private static List<PhotonTrackedTarget> targets(int... ids)
+  {
+    List<PhotonTrackedTarget> list = new ArrayList<>();
+    for (int id : ids)
+    {
+      Transform3d cameraToTarget = new Transform3d(3, 0.2 * id, 0.5, Vision.tagTable.getPose3d(id).getRotation());
+      list.add(new PhotonTrackedTarget(0, 0, 1, 0, id, -1, -1, cameraToTarget, cameraToTarget, 0.05,
+                                       List.of(), List.of()));
+    }
+    return list;
+  }
+
+  /**
+   * Create a result holding targets.
+   *
+   * @param targets Targets of the result.
+   * @return Pipeline result.
+   */
+  private static PhotonPipelineResult result(List<PhotonTrackedTarget> targets)
+  {
+    return new PhotonPipelineResult(1, 1_000_000, 1_035_000, 1000, targets, Optional.empty());
+  }
+}
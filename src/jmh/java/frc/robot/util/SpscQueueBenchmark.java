@@ -0,0 +1,75 @@
+package frc.robot.util;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the {@link SpscQueue} handing camera results and vision measurements between threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class SpscQueueBenchmark
+{
+
+  /**
+   * Element passed through the queue, a constant so nothing is allocated.
+   */
+  private static final Object            element = new Object();
+  /**
+   * Queue under test, the size used for camera measurements.
+   */
+  private final        SpscQueue<Object> queue   = new SpscQueue<>(32);
+
+  /**
+   * Offer and poll on one thread, the cost of the queue without contention.
+   *
+   * @return Polled element.
+   */
+  @Benchmark
+  @Group("uncontended")
+  public Object offerPoll()
+  {
+    queue.offer(element);
+    return queue.poll();
+  }
+
+  /**
+   * Producer side of a transfer between two threads.
+   *
+   * @return Whether the element was accepted.
+   */
+  @Benchmark
+  @Group("transfer")
+  @GroupThreads(1)
+  public boolean offer()
+  {
+    return queue.offer(element);
+  }
+
+  /**
+   * Consumer side of a transfer between two threads.
+   *
+   * @return Polled element, null if the queue was empty.
+   */
+  @Benchmark
+  @Group("transfer")
+  @GroupThreads(1)
+  public Object poll()
+  {
+    return queue.poll();
+  }
+}
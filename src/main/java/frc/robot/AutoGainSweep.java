@@ -0,0 +1,747 @@
+package frc.robot;
+
+import com.pathplanner.lib.commands.PathPlannerAuto;
+import com.pathplanner.lib.config.PIDConstants;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.path.PathPoint;
+import com.pathplanner.lib.util.DriveFeedforwards;
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.subsystems.swervedrive.SwerveSubsystem;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import org.dyn4j.geometry.Mass;
+import swervelib.SwerveDrive;
+import swervelib.telemetry.SwerveDriveTelemetry;
+import swervelib.telemetry.SwerveDriveTelemetry.TelemetryVerbosity;
+
+/**
+ * Monte Carlo sweep of the PathPlanner path following gains in simulation. The runner draws random translation and
+ * rotation gains, always including {@link Constants.AutonConstants}, and runs each gain set through several trials with
+ * the robot mass, wheel friction and output latency perturbed. Every trial is its own JVM, since the HAL simulation is
+ * a per-process singleton, and the runner keeps one trial per core going. A trial plays every {@code .auto} in
+ * {@code deploy/pathplanner/autos} against the physics simulation and reports the cross-track error, the final pose
+ * error and the completion time of each. The runner then ranks the gain sets by their mean score over all trials.
+ *
+ * <p>Run it with {@code ./gradlew sweepAutoGains}, which needs nothing but the local build. The ranking is printed and
+ * written with every trial result to {@code build/sweep}.
+ */
+public final class AutoGainSweep
+{
+
+  /**
+   * One drawn set of path following gains.
+   *
+   * @param index       Index in the sweep.
+   * @param translation Translation PID constants.
+   * @param rotation    Rotation PID constants.
+   */
+  private record GainSet(int index, PIDConstants translation, PIDConstants rotation)
+  {
+
+    @Override
+    public String toString()
+    {
+      return String.format(Locale.ROOT, "T(%.2f, %.3f) R(%.2f, %.3f)",
+                           translation.kP, translation.kD, rotation.kP, rotation.kD);
+    }
+  }
+
+  /**
+   * Simulated differences between the robot PathPlanner was configured for and the robot it drives.
+   *
+   * @param massScale     Factor on the simulated robot mass.
+   * @param frictionScale Factor on the wheel coefficient of friction.
+   * @param delayLoops    Loops the path following outputs are held back.
+   */
+  private record Perturbation(double massScale, double frictionScale, int delayLoops)
+  {
+
+  }
+
+  /**
+   * Outcome of one auto in one trial.
+   *
+   * @param auto              Auto name.
+   * @param completed         Whether the auto finished before the timeout.
+   * @param seconds           Seconds until the auto finished, or the timeout.
+   * @param rmsCrossTrack     RMS distance in meters from the path.
+   * @param maxCrossTrack     Largest distance in meters from the path.
+   * @param finalDistance     Meters between the final pose and the end of the path.
+   * @param finalAngleDegrees Degrees between the final heading and the goal heading.
+   */
+  private record AutoResult(String auto, boolean completed, double seconds, double rmsCrossTrack,
+                            double maxCrossTrack, double finalDistance, double finalAngleDegrees)
+  {
+
+    /**
+     * Score of the result, lower is better.
+     *
+     * @return The score.
+     */
+    double score()
+    {
+      return rmsCrossTrack + finalDistance + Math.toRadians(finalAngleDegrees) * radianWeight +
+             seconds * secondWeight + (completed ? 0 : incompletePenalty);
+    }
+  }
+
+  /**
+   * Trial running or done, the trials of one gain set share a {@link GainSet}.
+   *
+   * @param gains        Gains of the trial.
+   * @param perturbation Perturbation of the trial.
+   * @param log          Output of the trial JVM.
+   */
+  private record Trial(GainSet gains, Perturbation perturbation, File log)
+  {
+
+  }
+
+  /**
+   * Path following output held back by whole loops before it reaches the drive, the actuation latency of a trial.
+   */
+  private static final class DelayedOutput implements BiConsumer<ChassisSpeeds, DriveFeedforwards>
+  {
+
+    /**
+     * Output driving the robot.
+     */
+    private final BiConsumer<ChassisSpeeds, DriveFeedforwards> output;
+    /**
+     * Speeds waiting out the delay, oldest at {@link DelayedOutput#next}.
+     */
+    private final ChassisSpeeds[]                             speeds;
+    /**
+     * Feedforwards waiting out the delay, alongside {@link DelayedOutput#speeds}, null for the initial stopped outputs.
+     */
+    private final DriveFeedforwards[]                         feedforwards;
+    /**
+     * Slot of the oldest output.
+     */
+    private       int                                         next;
+
+    /**
+     * Delay an output, starting with the robot stopped.
+     *
+     * @param output Output driving the robot.
+     * @param loops  Loops of delay, at least one.
+     */
+    private DelayedOutput(BiConsumer<ChassisSpeeds, DriveFeedforwards> output, int loops)
+    {
+      this.output = output;
+      this.speeds = new ChassisSpeeds[loops];
+      this.feedforwards = new DriveFeedforwards[loops];
+      for (int i = 0; i < loops; i++)
+      {
+        speeds[i] = new ChassisSpeeds();
+      }
+    }
+
+    @Override
+    public void accept(ChassisSpeeds speedsRobotRelative, DriveFeedforwards moduleFeedforwards)
+    {
+      if (feedforwards[next] == null)
+      {
+        // The drive is built after the decorator, so the stopped outputs take the module count of the first output.
+        feedforwards[next] = DriveFeedforwards.zeros(moduleFeedforwards.linearForces().length);
+      }
+      output.accept(speeds[next], feedforwards[next]);
+      speeds[next] = speedsRobotRelative;
+      feedforwards[next] = moduleFeedforwards;
+      next = (next + 1) % speeds.length;
+    }
+  }
+
+  /**
+   * Marker of the result lines in the output of a trial JVM.
+   */
+  private static final String resultPrefix      = "SWEEP_RESULT\t";
+  /**
+   * Meters of score per radian of final heading error.
+   */
+  private static final double radianWeight      = 0.5;
+  /**
+   * Meters of score per second taken.
+   */
+  private static final double secondWeight      = 0.05;
+  /**
+   * Score added for an auto which did not finish.
+   */
+  private static final double incompletePenalty = 10.0;
+  /**
+   * Simulated seconds an auto may take before it is cancelled.
+   */
+  private static final double autoTimeout       = 20.0;
+  /**
+   * Simulated seconds the robot sits disabled before and between autos.
+   */
+  private static final double settleSeconds     = 1.0;
+  /**
+   * Spacing in meters of the samples along the path for the cross-track error.
+   */
+  private static final double pathSpacing       = 0.02;
+  /**
+   * Wall seconds after which a trial JVM is considered stuck and killed.
+   */
+  private static final double trialTimeout      = 600;
+
+  private AutoGainSweep()
+  {
+  }
+
+  /**
+   * Run the sweep, or a single trial when the first argument is {@code trial}.
+   *
+   * <p>Sweep arguments are {@code key=value} pairs: {@code samples} gain sets besides the current gains (default 31),
+   * {@code trials} perturbations per gain set (default 4), {@code jobs} parallel JVMs (default one per core),
+   * {@code seed} of the random draws (default 0) and {@code out} directory (default {@code build/sweep}).
+   *
+   * @param args Arguments.
+   * @throws Exception If a trial could not be run.
+   */
+  public static void main(String... args) throws Exception
+  {
+    if (args.length > 0 && args[0].equals("trial"))
+    {
+      try
+      {
+        System.exit(trial(args));
+      } catch (Throwable t)
+      {
+        t.printStackTrace();
+        System.exit(1);
+      }
+    }
+
+    int  samples = 31;
+    int  trials  = 4;
+    int  jobs    = Runtime.getRuntime().availableProcessors();
+    long seed    = 0;
+    File out     = new File("build/sweep");
+    for (String arg : args)
+    {
+      String[] pair = arg.split("=", 2);
+      switch (pair[0])
+      {
+        case "samples" -> samples = Integer.parseInt(pair[1]);
+        case "trials" -> trials = Integer.parseInt(pair[1]);
+        case "jobs" -> jobs = Math.max(1, Integer.parseInt(pair[1]));
+        case "seed" -> seed = Long.parseLong(pair[1]);
+        case "out" -> out = new File(pair[1]);
+        default -> throw new IllegalArgumentException("Unknown argument " + arg);
+      }
+    }
+    sweep(samples, trials, jobs, seed, out);
+  }
+
+  /**
+   * Draw the gain sets and perturbations, run every trial and rank the gain sets.
+   *
+   * @param samples Random gain sets besides the current gains.
+   * @param trials  Perturbations per gain set.
+   * @param jobs    Trial JVMs to run at once.
+   * @param seed    Seed of the random draws.
+   * @param out     Output directory.
+   * @throws IOException          If a trial could not be started or read.
+   * @throws InterruptedException If interrupted while waiting for a trial.
+   */
+  private static void sweep(int samples, int trials, int jobs, long seed, File out)
+  throws IOException, InterruptedException
+  {
+    Random        random = new Random(seed);
+    List<GainSet> gains  = new ArrayList<>();
+    gains.add(new GainSet(0, Constants.AutonConstants.TRANSLATION_PID, Constants.AutonConstants.ANGLE_PID));
+    for (int i = 1; i <= samples; i++)
+    {
+      gains.add(new GainSet(i,
+                            new PIDConstants(uniform(random, 1, 10), 0, uniform(random, 0, 0.5)),
+                            new PIDConstants(uniform(random, 1, 10), 0, uniform(random, 0, 0.5))));
+    }
+    // Every gain set sees the same perturbations, so the ranking compares gains and not luck.
+    List<Perturbation> perturbations = new ArrayList<>();
+    for (int i = 0; i < trials; i++)
+    {
+      perturbations.add(i == 0 ? new Perturbation(1, 1, 0)
+                               : new Perturbation(uniform(random, 0.85, 1.15),
+                                                  uniform(random, 0.8, 1.1),
+                                                  random.nextInt(4)));
+    }
+
+    File logs = new File(out, "logs");
+    Files.createDirectories(logs.toPath());
+    Deque<Trial> pending = new ArrayDeque<>();
+    for (GainSet gainSet : gains)
+    {
+      for (int i = 0; i < perturbations.size(); i++)
+      {
+        pending.add(new Trial(gainSet, perturbations.get(i), new File(logs, gainSet.index + "-" + i + ".log")));
+      }
+    }
+    int total = pending.size();
+    System.out.printf("Running %d trials of %d gain sets, %d at a time%n", total, gains.size(), jobs);
+
+    List<Process> running    = new ArrayList<>();
+    List<Trial>   started    = new ArrayList<>();
+    List<Path>    sandboxes  = new ArrayList<>();
+    List<Long>    startTimes = new ArrayList<>();
+    List<Trial>   finished   = new ArrayList<>();
+    long          start      = System.nanoTime();
+    while (!pending.isEmpty() || !running.isEmpty())
+    {
+      while (running.size() < jobs && !pending.isEmpty())
+      {
+        Trial trial   = pending.poll();
+        Path  sandbox = Files.createTempDirectory("sweep");
+        running.add(launch(trial, sandbox));
+        started.add(trial);
+        sandboxes.add(sandbox);
+        startTimes.add(System.nanoTime());
+      }
+      for (int i = running.size() - 1; i >= 0; i--)
+      {
+        if (running.get(i).isAlive() && (System.nanoTime() - startTimes.get(i)) * 1e-9 > trialTimeout)
+        {
+          // Killed trials print no results and count as failed.
+          running.get(i).destroyForcibly().waitFor();
+        }
+        if (!running.get(i).isAlive())
+        {
+          running.remove(i);
+          startTimes.remove(i);
+          finished.add(started.remove(i));
+          deleteRecursively(sandboxes.remove(i));
+          System.out.printf("%d/%d trials done after %.0f s%n", finished.size(), total,
+                            (System.nanoTime() - start) * 1e-9);
+        }
+      }
+      if (!running.isEmpty())
+      {
+        running.get(0).waitFor(100, TimeUnit.MILLISECONDS);
+      }
+    }
+    rank(gains, finished, out);
+  }
+
+  /**
+   * Start the JVM of a trial, in a sandbox with a copy of the deploy directory carrying the friction perturbation.
+   *
+   * @param trial   Trial to run.
+   * @param sandbox Empty working directory for the trial.
+   * @return The trial process.
+   * @throws IOException If the sandbox could not be prepared or the JVM started.
+   */
+  private static Process launch(Trial trial, Path sandbox) throws IOException
+  {
+    Path deploy = sandbox.resolve("src/main/deploy");
+    copyRecursively(Filesystem.getDeployDirectory().toPath(), deploy);
+    try (Stream<Path> files = Files.walk(deploy.resolve("swerve")))
+    {
+      for (Path properties : files.filter(f -> f.endsWith("physicalproperties.json")).toList())
+      {
+        scaleFriction(properties, trial.perturbation.frictionScale);
+      }
+    }
+
+    List<String> command = new ArrayList<>();
+    command.add(ProcessHandle.current().info().command().orElse("java"));
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add("-Djava.library.path=" + System.getProperty("java.library.path"));
+    command.add(AutoGainSweep.class.getName());
+    command.add("trial");
+    for (double value : new double[]{trial.gains.translation.kP, trial.gains.translation.kD,
+                                     trial.gains.rotation.kP, trial.gains.rotation.kD,
+                                     trial.perturbation.massScale, trial.perturbation.delayLoops})
+    {
+      command.add(Double.toString(value));
+    }
+    return new ProcessBuilder(command).directory(sandbox.toFile())
+                                      .redirectErrorStream(true)
+                                      .redirectOutput(trial.log)
+                                      .start();
+  }
+
+  /**
+   * Collect the results of every trial, print the ranking and write it with the raw results.
+   *
+   * @param gains    Gain sets of the sweep.
+   * @param finished Trials which ran.
+   * @param out      Output directory.
+   * @throws IOException If a log could not be read or the results written.
+   */
+  private static void rank(List<GainSet> gains, List<Trial> finished, File out) throws IOException
+  {
+    int      autos     = 0;
+    double[] scoreSum  = new double[gains.size()];
+    double[] worst     = new double[gains.size()];
+    double[] crossSum  = new double[gains.size()];
+    double[] finalSum  = new double[gains.size()];
+    int[]    results   = new int[gains.size()];
+    int[]    completed = new int[gains.size()];
+    int[]    failed    = new int[gains.size()];
+
+    try (PrintWriter csv = new PrintWriter(new File(out, "trials.csv"), StandardCharsets.UTF_8))
+    {
+      csv.println("gainSet,translationP,translationD,rotationP,rotationD,massScale,frictionScale,delayLoops," +
+                  "auto,completed,seconds,rmsCrossTrack,maxCrossTrack,finalDistance,finalAngleDegrees,score");
+      for (Trial trial : finished)
+      {
+        int              g            = trial.gains.index;
+        List<AutoResult> trialResults = readResults(trial.log);
+        if (trialResults.isEmpty())
+        {
+          // The trial JVM failed, its log says why.
+          failed[g]++;
+          worst[g] = Double.POSITIVE_INFINITY;
+          continue;
+        }
+        autos = Math.max(autos, trialResults.size());
+        for (AutoResult result : trialResults)
+        {
+          double score = result.score();
+          scoreSum[g] += score;
+          worst[g] = Math.max(worst[g], score);
+          crossSum[g] += result.rmsCrossTrack;
+          finalSum[g] += result.finalDistance;
+          results[g]++;
+          completed[g] += result.completed ? 1 : 0;
+          csv.printf(Locale.ROOT, "%d,%f,%f,%f,%f,%f,%f,%d,%s,%b,%f,%f,%f,%f,%f,%f%n",
+                     g, trial.gains.translation.kP, trial.gains.translation.kD, trial.gains.rotation.kP,
+                     trial.gains.rotation.kD, trial.perturbation.massScale, trial.perturbation.frictionScale,
+                     trial.perturbation.delayLoops, result.auto, result.completed, result.seconds,
+                     result.rmsCrossTrack, result.maxCrossTrack, result.finalDistance, result.finalAngleDegrees,
+                     score);
+        }
+      }
+    }
+
+    List<GainSet> ranking = new ArrayList<>(gains);
+    ranking.sort(Comparator.comparingDouble((GainSet g) -> failed[g.index] > 0 || results[g.index] == 0
+                                                           ? Double.POSITIVE_INFINITY
+                                                           : scoreSum[g.index] / results[g.index])
+                           .thenComparingDouble(g -> worst[g.index]));
+    try (PrintWriter ranked = new PrintWriter(new File(out, "ranking.txt"), StandardCharsets.UTF_8))
+    {
+      String header = String.format(Locale.ROOT, "%4s %-30s %8s %8s %10s %10s %6s %6s",
+                                    "rank", "gains", "mean", "worst", "cross m", "final m", "done", "failed");
+      System.out.println(header);
+      ranked.println(header);
+      for (int rank = 0; rank < ranking.size(); rank++)
+      {
+        GainSet gainSet = ranking.get(rank);
+        int     g       = gainSet.index;
+        int     n       = Math.max(1, results[g]);
+        String line = String.format(Locale.ROOT, "%4d %-30s %8.3f %8.3f %10.3f %10.3f %3d/%-2d %6d%s",
+                                    rank + 1, gainSet, scoreSum[g] / n, worst[g], crossSum[g] / n,
+                                    finalSum[g] / n, completed[g], results[g], failed[g],
+                                    g == 0 ? "  (current)" : "");
+        System.out.println(line);
+        ranked.println(line);
+      }
+    }
+    System.out.printf("Scored %d autos per trial, results in %s%n", autos, out);
+  }
+
+  /**
+   * Run one trial: build the drive with the given gains and perturbations, then play every auto.
+   *
+   * @param args {@code trial}, translation kP and kD, rotation kP and kD, mass scale and delay loops.
+   * @return Exit status.
+   * @throws Exception If the trial could not be run.
+   */
+  private static int trial(String... args) throws Exception
+  {
+    double translationP = Double.parseDouble(args[1]);
+    double translationD = Double.parseDouble(args[2]);
+    double rotationP    = Double.parseDouble(args[3]);
+    double rotationD    = Double.parseDouble(args[4]);
+    double massScale    = Double.parseDouble(args[5]);
+    int    delayLoops   = (int) Double.parseDouble(args[6]);
+
+    if (!HAL.initialize(500, 0))
+    {
+      throw new IllegalStateException("Failed to initialize the HAL");
+    }
+    // No robot program, so NetworkTables never starts a server and trials do not fight over ports.
+    SimHooks.pauseTiming();
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.setAllianceStationId(AllianceStationID.Blue1);
+    DriverStationSim.setEnabled(false);
+    DriverStationSim.notifyNewData();
+
+    SwerveSubsystem.setPathFollowingGains(new PIDConstants(translationP, 0, translationD),
+                                          new PIDConstants(rotationP, 0, rotationD));
+    if (delayLoops > 0)
+    {
+      SwerveSubsystem.setPathFollowingOutput(output -> new DelayedOutput(output, delayLoops));
+    }
+    SwerveSubsystem drivebase = new SwerveSubsystem(new File(Filesystem.getDeployDirectory(), "swerve/neo"));
+    SwerveDriveTelemetry.verbosity = TelemetryVerbosity.NONE;
+    SwerveDrive swerveDrive = drivebase.getSwerveDrive();
+    swerveDrive.getMapleSimDrive().ifPresent(simulation -> {
+      Mass mass = simulation.getMass();
+      simulation.setMass(new Mass(mass.getCenter(), mass.getMass() * massScale, mass.getInertia() * massScale));
+    });
+
+    double period = TimedRobot.kDefaultPeriod;
+    // Let the pathfinding warmup finish while disabled.
+    step(settleSeconds, period);
+
+    File[] autoFiles = new File(Filesystem.getDeployDirectory(), "pathplanner/autos")
+        .listFiles((dir, name) -> name.endsWith(".auto"));
+    if (autoFiles == null || autoFiles.length == 0)
+    {
+      System.err.println("No autos to play");
+      return 1;
+    }
+    Arrays.sort(autoFiles);
+    for (File autoFile : autoFiles)
+    {
+      String                name  = autoFile.getName().substring(0, autoFile.getName().length() - ".auto".length());
+      List<PathPlannerPath> paths = PathPlannerAuto.getPathGroupFromAutoFile(name);
+      if (paths.isEmpty())
+      {
+        continue;
+      }
+      List<Translation2d> samples = samplePaths(paths);
+      PathPlannerPath     last    = paths.get(paths.size() - 1);
+      Pose2d goal = new Pose2d(samples.get(samples.size() - 1), last.getGoalEndState().rotation());
+      paths.get(0).getStartingHolonomicPose().ifPresent(drivebase::resetOdometry);
+
+      Command auto = new PathPlannerAuto(name);
+      DriverStationSim.setAutonomous(true);
+      DriverStationSim.setEnabled(true);
+      DriverStationSim.notifyNewData();
+      auto.schedule();
+
+      double squaredSum = 0;
+      double maxCross   = 0;
+      int    loops      = 0;
+      double seconds    = 0;
+      while (auto.isScheduled() && seconds < autoTimeout)
+      {
+        step(period, period);
+        seconds += period;
+        double cross = distanceToPath(truePose(drivebase).getTranslation(), samples);
+        squaredSum += cross * cross;
+        maxCross = Math.max(maxCross, cross);
+        loops++;
+      }
+      boolean completed = !auto.isScheduled();
+      auto.cancel();
+      Pose2d end = truePose(drivebase);
+
+      DriverStationSim.setEnabled(false);
+      DriverStationSim.notifyNewData();
+      step(settleSeconds, period);
+
+      System.out.printf(Locale.ROOT, "%s%s\t%b\t%f\t%f\t%f\t%f\t%f%n", resultPrefix, name, completed, seconds,
+                        Math.sqrt(squaredSum / Math.max(1, loops)), maxCross,
+                        end.getTranslation().getDistance(goal.getTranslation()),
+                        Math.abs(end.getRotation().minus(goal.getRotation()).getDegrees()));
+    }
+    return 0;
+  }
+
+  /**
+   * Step simulated time and run the scheduler once per loop, the way {@link Robot} would.
+   *
+   * @param seconds Simulated seconds to run.
+   * @param period  Loop period in seconds.
+   */
+  private static void step(double seconds, double period)
+  {
+    for (long i = Math.round(seconds / period); i > 0; i--)
+    {
+      // Returns once every notifier, odometry and the physics included, has run for the stepped time.
+      SimHooks.stepTiming(period);
+      DriverStationSim.notifyNewData();
+      CommandScheduler.getInstance().run();
+    }
+  }
+
+  /**
+   * Get the pose of the simulated robot, which unlike odometry knows about wheel slip.
+   *
+   * @param drivebase Simulated drive.
+   * @return Pose of the physics simulation, or of odometry if there is none.
+   */
+  private static Pose2d truePose(SwerveSubsystem drivebase)
+  {
+    return drivebase.getSwerveDrive().getSimulationDriveTrainPose().orElseGet(drivebase::getPose);
+  }
+
+  /**
+   * Sample the paths of an auto evenly, for the cross-track error.
+   *
+   * @param paths Paths in the order the auto follows them.
+   * @return Points along the paths, at most {@link AutoGainSweep#pathSpacing} apart.
+   */
+  private static List<Translation2d> samplePaths(List<PathPlannerPath> paths)
+  {
+    List<Translation2d> samples = new ArrayList<>();
+    for (PathPlannerPath path : paths)
+    {
+      for (PathPoint point : path.getAllPathPoints())
+      {
+        if (!samples.isEmpty())
+        {
+          Translation2d previous = samples.get(samples.size() - 1);
+          int           steps    = (int) Math.ceil(previous.getDistance(point.position) / pathSpacing);
+          for (int i = 1; i < steps; i++)
+          {
+            samples.add(previous.interpolate(point.position, (double) i / steps));
+          }
+        }
+        samples.add(point.position);
+      }
+    }
+    return samples;
+  }
+
+  /**
+   * Get the distance from a point to the nearest path sample.
+   *
+   * @param point   Point.
+   * @param samples Path samples.
+   * @return Distance in meters.
+   */
+  private static double distanceToPath(Translation2d point, List<Translation2d> samples)
+  {
+    double nearest = Double.POSITIVE_INFINITY;
+    for (Translation2d sample : samples)
+    {
+      nearest = Math.min(nearest, sample.getDistance(point));
+    }
+    return nearest;
+  }
+
+  /**
+   * Read the results a trial printed.
+   *
+   * @param log Output of the trial JVM.
+   * @return One result per auto, empty if the trial failed.
+   * @throws IOException If the log could not be read.
+   */
+  private static List<AutoResult> readResults(File log) throws IOException
+  {
+    List<AutoResult> results = new ArrayList<>();
+    for (String line : Files.readAllLines(log.toPath(), StandardCharsets.UTF_8))
+    {
+      if (line.startsWith(resultPrefix))
+      {
+        String[] fields = line.substring(resultPrefix.length()).split("\t");
+        results.add(new AutoResult(fields[0], Boolean.parseBoolean(fields[1]), Double.parseDouble(fields[2]),
+                                   Double.parseDouble(fields[3]), Double.parseDouble(fields[4]),
+                                   Double.parseDouble(fields[5]), Double.parseDouble(fields[6])));
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Scale the wheel coefficient of friction in a module physical properties file.
+   *
+   * @param properties {@code physicalproperties.json} to rewrite.
+   * @param scale      Factor on the coefficient of friction.
+   * @throws IOException If the file could not be read or written.
+   */
+  private static void scaleFriction(Path properties, double scale) throws IOException
+  {
+    String json  = Files.readString(properties);
+    String key   = "\"wheelGripCoefficientOfFriction\":";
+    int    start = json.indexOf(key);
+    if (start < 0)
+    {
+      return;
+    }
+    int valueStart = start + key.length();
+    int valueEnd   = valueStart;
+    while (valueEnd < json.length() && ",}\n".indexOf(json.charAt(valueEnd)) < 0)
+    {
+      valueEnd++;
+    }
+    double friction = Double.parseDouble(json.substring(valueStart, valueEnd).trim());
+    Files.writeString(properties, json.substring(0, valueStart) + " " + friction * scale + json.substring(valueEnd));
+  }
+
+  /**
+   * Copy a directory tree.
+   *
+   * @param source      Directory to copy.
+   * @param destination Directory to create.
+   * @throws IOException If the copy failed.
+   */
+  private static void copyRecursively(Path source, Path destination) throws IOException
+  {
+    try (Stream<Path> files = Files.walk(source))
+    {
+      for (Path file : files.toList())
+      {
+        Path target = destination.resolve(source.relativize(file).toString());
+        if (Files.isDirectory(file))
+        {
+          Files.createDirectories(target);
+        } else
+        {
+          Files.copy(file, target);
+        }
+      }
+    }
+  }
+
+  /**
+   * Delete a directory tree.
+   *
+   * @param directory Directory to delete.
+   * @throws IOException If the deletion failed.
+   */
+  private static void deleteRecursively(Path directory) throws IOException
+  {
+    try (Stream<Path> files = Files.walk(directory))
+    {
+      for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+      {
+        Files.delete(file);
+      }
+    }
+  }
+
+  /**
+   * Draw a uniformly distributed value.
+   *
+   * @param random Source of randomness.
+   * @param min    Smallest value.
+   * @param max    Largest value.
+   * @return The value.
+   */
+  private static double uniform(Random random, double min, double max)
+  {
+    return min + random.nextDouble() * (max - min);
+  }
+}
@@ -4,6 +4,7 @@
 
 package frc.robot;
 
+import com.pathplanner.lib.config.PIDConstants;
 import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.util.Units;
 import swervelib.math.Matter;
@@ -25,12 +26,13 @@ public final class Constants
   public static final double MAX_SPEED  = Units.feetToMeters(14.5);
   // Maximum speed of the robot in meters per second, used to limit acceleration.
 
-//  public static final class AutonConstants
-//  {
-//
-//    public static final PIDConstants TRANSLATION_PID = new PIDConstants(0.7, 0, 0);
-//    public static final PIDConstants ANGLE_PID       = new PIDConstants(0.4, 0, 0.01);
-//  }
+  public static final class AutonConstants
+  {
+
+    // PathPlanner path following gains, tune with ./gradlew sweepAutoGains
+    public static final PIDConstants TRANSLATION_PID = new PIDConstants(5.0, 0, 0);
+    public static final PIDConstants ANGLE_PID       = new PIDConstants(5.0, 0, 0);
+  }
 
   public static final class DrivebaseConstants
   {
@@ -0,0 +1,271 @@
+package frc.robot;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj.simulation.XboxControllerSim;
+import frc.robot.util.AllocationMonitor;
+import frc.robot.util.Histogram;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the whole robot program in simulation without the GUI or a driver station, stepping HAL time by hand as fast
+ * as the CPU allows. The harness boots {@link Robot}, drives the robot modes through {@link DriverStationSim}, feeds a
+ * scripted sequence of stick inputs into the driver controller port and reports how many simulated seconds run per
+ * wall second along with the wall and CPU time of each robot loop and the bytes it allocates.
+ *
+ * <p>Run it with {@code ./gradlew simulateHeadless}. The process exits with a non-zero status if the robot program
+ * throws. {@code HeadlessSimulationTest} runs the same script and checks the result of every segment.
+ */
+public final class HeadlessSimulation
+{
+
+  /**
+   * Robot mode set through the driver station.
+   */
+  enum Mode
+  {
+    /**
+     * Robot disabled.
+     */
+    DISABLED(AllocationMonitor.Mode.DISABLED),
+    /**
+     * Autonomous enabled, runs the autonomous command.
+     */
+    AUTONOMOUS(AllocationMonitor.Mode.AUTONOMOUS),
+    /**
+     * Teleoperated enabled, runs the default drive command.
+     */
+    TELEOP(AllocationMonitor.Mode.TELEOP);
+
+    /**
+     * Mode the allocation monitor files the loops of this mode under.
+     */
+    final AllocationMonitor.Mode allocationMode;
+
+    /**
+     * Create a mode.
+     *
+     * @param allocationMode Mode the allocation monitor files the loops under.
+     */
+    Mode(AllocationMonitor.Mode allocationMode)
+    {
+      this.allocationMode = allocationMode;
+    }
+  }
+
+  /**
+   * Part of the script with constant mode and stick inputs.
+   *
+   * @param name    Name for the report.
+   * @param mode    Robot mode.
+   * @param seconds Simulated seconds to run.
+   * @param leftX   Left stick x axis.
+   * @param leftY   Left stick y axis.
+   * @param heading Raw axis 2, the heading axis of the keyboard drive command.
+   * @param rightX  Right stick x axis.
+   */
+  record Segment(String name, Mode mode, double seconds, double leftX, double leftY, double heading, double rightX)
+  {
+
+    /**
+     * Segment with the sticks centered.
+     *
+     * @param name    Name for the report.
+     * @param mode    Robot mode.
+     * @param seconds Simulated seconds to run.
+     */
+    Segment(String name, Mode mode, double seconds)
+    {
+      this(name, mode, seconds, 0, 0, 0, 0);
+    }
+  }
+
+  /**
+   * Measurements of one segment.
+   *
+   * @param segment          Segment that ran.
+   * @param startPose        Odometry pose at the start of the segment.
+   * @param endPose          Odometry pose at the end of the segment.
+   * @param wallSeconds      Wall seconds the segment took.
+   * @param p50LoopMs        Median wall milliseconds of a stepped loop.
+   * @param p99LoopMs        99th percentile wall milliseconds of a stepped loop.
+   * @param cpuMsPerLoop     CPU milliseconds of the robot thread per loop, NaN if the JVM cannot tell.
+   * @param allocatedPerLoop Mean bytes the robot loop allocated per loop, NaN if it was not measured.
+   */
+  record Result(Segment segment, Pose2d startPose, Pose2d endPose, double wallSeconds, double p50LoopMs,
+                double p99LoopMs, double cpuMsPerLoop, double allocatedPerLoop)
+  {
+  }
+
+  /**
+   * Driver controller port, see {@link RobotContainer}.
+   */
+  private static final int           driverPort = 0;
+  /**
+   * Script run by the harness.
+   */
+  static final         List<Segment> script     = List.of(
+      new Segment("boot", Mode.DISABLED, 1.0),
+      new Segment("New Auto", Mode.AUTONOMOUS, 15.0),
+      new Segment("auto to teleop", Mode.DISABLED, 1.0),
+      new Segment("drive forward", Mode.TELEOP, 3.0, 0, -1, 0, 0),
+      new Segment("strafe left", Mode.TELEOP, 2.0, -1, 0, 0, 0),
+      new Segment("turn around", Mode.TELEOP, 2.0, 0, 0, 0.5, 0),
+      new Segment("drive and turn", Mode.TELEOP, 3.0, 0.5, -0.5, -0.5, 0.5),
+      new Segment("release", Mode.TELEOP, 1.0),
+      new Segment("end", Mode.DISABLED, 1.0));
+
+  private HeadlessSimulation()
+  {
+  }
+
+  /**
+   * Boot the robot program, run the script and print the report.
+   *
+   * @param args Unused.
+   * @throws InterruptedException If interrupted while waiting for the robot program.
+   */
+  public static void main(String... args) throws InterruptedException
+  {
+    List<Result> results;
+    try
+    {
+      results = run();
+    } catch (IllegalStateException e)
+    {
+      System.err.println("Robot program failed:");
+      e.printStackTrace();
+      System.exit(1);
+      return;
+    }
+
+    System.out.printf("%-16s %8s %8s %8s %10s %10s %10s %10s%n",
+                      "segment", "sim s", "wall s", "speedup", "p50 ms", "p99 ms", "cpu ms", "alloc KiB");
+    double totalSim  = 0;
+    double totalWall = 0;
+    for (Result result : results)
+    {
+      Segment segment = result.segment;
+      System.out.printf("%-16s %8.1f %8.2f %7.1fx %10.2f %10.2f %10.3f %10.1f%n",
+                        segment.name, segment.seconds, result.wallSeconds, segment.seconds / result.wallSeconds,
+                        result.p50LoopMs, result.p99LoopMs, result.cpuMsPerLoop, result.allocatedPerLoop / 1024);
+      totalSim += segment.seconds;
+      totalWall += result.wallSeconds;
+    }
+    System.out.printf("Total: %.1f simulated seconds in %.2f wall seconds, %.1fx real time%n",
+                      totalSim, totalWall, totalSim / totalWall);
+    // NetworkTables and vendor threads are not daemons.
+    System.exit(0);
+  }
+
+  /**
+   * Boot the robot program and run the script. The robot program is ended afterwards, and the HAL time resumed, so
+   * this can only run once per JVM.
+   *
+   * @return Measurements of every segment, in script order.
+   * @throws InterruptedException  If interrupted while waiting for the robot program.
+   * @throws IllegalStateException If the HAL does not start or the robot program throws, with the robot's exception
+   *                               as the cause.
+   */
+  static List<Result> run() throws InterruptedException
+  {
+    if (!HAL.initialize(500, 0))
+    {
+      throw new IllegalStateException("Failed to initialize the HAL");
+    }
+    // Time only moves when stepped, so the robot runs as fast as it can.
+    SimHooks.pauseTiming();
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.setAllianceStationId(AllianceStationID.Blue1);
+    DriverStationSim.setEnabled(false);
+    DriverStationSim.notifyNewData();
+
+    Throwable[] failure = new Throwable[1];
+    Robot       robot   = new Robot();
+    Thread robotThread = new Thread(() -> {
+      try
+      {
+        robot.startCompetition();
+      } catch (Throwable t)
+      {
+        failure[0] = t;
+      }
+    }, "Robot");
+    robotThread.setDaemon(true);
+    long bootStart = System.nanoTime();
+    robotThread.start();
+    SimHooks.waitForProgramStart();
+    System.out.printf("Robot ready after %.0f ms wall time%n", (System.nanoTime() - bootStart) * 1e-6);
+
+    XboxControllerSim controller = new XboxControllerSim(driverPort);
+    ThreadMXBean      threads    = ManagementFactory.getThreadMXBean();
+    boolean           cpuTimes   = threads.isThreadCpuTimeSupported();
+    double            loopPeriod = TimedRobot.kDefaultPeriod;
+    List<Result>      results    = new ArrayList<>(script.size());
+
+    for (Segment segment : script)
+    {
+      apply(segment, controller);
+      Histogram loopWall  = new Histogram(0, 20, 400);
+      long      loops     = Math.round(segment.seconds / loopPeriod);
+      long      cpuStart  = cpuTimes ? threads.getThreadCpuTime(robotThread.getId()) : 0;
+      Pose2d    startPose = robot.getRobotContainer().getDrivebase().getPose();
+      long      start     = System.nanoTime();
+      // Cleared by the robot loop before the first loop of the segment, and read while it is idle between steps.
+      AllocationMonitor.reset();
+      for (long i = 0; i < loops && failure[0] == null; i++)
+      {
+        long loopStart = System.nanoTime();
+        // Returns once every notifier, the robot loop included, has run for the stepped time.
+        SimHooks.stepTiming(loopPeriod);
+        loopWall.record((System.nanoTime() - loopStart) * 1e-6);
+      }
+      if (failure[0] != null)
+      {
+        break;
+      }
+      long     wall        = System.nanoTime() - start;
+      double   cpuPerLoop  = cpuTimes ? (threads.getThreadCpuTime(robotThread.getId()) - cpuStart) * 1e-6 / loops
+                                      : Double.NaN;
+      double[] percentiles = new double[2];
+      loopWall.percentiles(new double[]{0.5, 0.99}, percentiles);
+      results.add(new Result(segment, startPose, robot.getRobotContainer().getDrivebase().getPose(), wall * 1e-9,
+                             percentiles[0], percentiles[1], cpuPerLoop,
+                             AllocationMonitor.getMeanBytesPerLoop(segment.mode.allocationMode)));
+    }
+
+    robot.endCompetition();
+    SimHooks.resumeTiming();
+    if (failure[0] != null)
+    {
+      throw new IllegalStateException("Robot program failed", failure[0]);
+    }
+    return results;
+  }
+
+  /**
+   * Set the robot mode and controller inputs of a segment.
+   *
+   * @param segment    Segment to apply.
+   * @param controller Simulated driver controller.
+   */
+  private static void apply(Segment segment, XboxControllerSim controller)
+  {
+    DriverStationSim.setEnabled(segment.mode != Mode.DISABLED);
+    DriverStationSim.setAutonomous(segment.mode == Mode.AUTONOMOUS);
+    DriverStationSim.setTest(false);
+    controller.setLeftX(segment.leftX);
+    controller.setLeftY(segment.leftY);
+    controller.setRawAxis(2, segment.heading);
+    controller.setRightX(segment.rightX);
+    controller.notifyNewData();
+    DriverStationSim.notifyNewData();
+  }
+}
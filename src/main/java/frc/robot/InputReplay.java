@@ -0,0 +1,221 @@
+package frc.robot;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.util.datalog.DataLogWriter;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.util.InputLog;
+import frc.robot.util.WPILogFile;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Replays a log recorded by {@link InputLog} through the whole robot program, offline and as fast as the CPU allows.
+ * HAL time is paused and stepped to the recorded start of every loop, the recorded driver station and joysticks are
+ * set before each loop, and the loop runs on this thread, so the same log and code always produce the same outputs.
+ * The replayed outputs are written to their own log and diffed against the recorded ones, to check a fix against a
+ * match log or to profile it.
+ *
+ * <p>Run it with {@code ./gradlew replayInputs -PreplayLog=<recorded.wpilog>}.
+ */
+public final class InputReplay
+{
+
+  /**
+   * Prefix of the output entries written by {@link InputLog}.
+   */
+  private static final String outputPrefix = "/Replay/Output/";
+  /**
+   * Largest difference between a recorded and a replayed output value which still counts as equal.
+   */
+  private static final double tolerance    = 1e-9;
+
+  private InputReplay()
+  {
+  }
+
+  /**
+   * Replay a log and diff the outputs.
+   *
+   * @param args Recorded log, then optionally the log to write the replayed outputs to.
+   * @throws IOException If a log could not be read or written.
+   */
+  public static void main(String... args) throws IOException
+  {
+    if (args.length < 1)
+    {
+      System.err.println("Usage: InputReplay <recorded.wpilog> [replayed.wpilog]");
+      System.exit(2);
+    }
+    String recorded = args[0];
+    String replayed = args.length > 1 ? args[1]
+                                      : recorded.replaceFirst("(\\.wpilog)?$", "-replay.wpilog");
+    if (!HAL.initialize(500, 0))
+    {
+      throw new IllegalStateException("Failed to initialize the HAL");
+    }
+    // Time only moves when stepped, to the recorded time of each loop.
+    SimHooks.pauseTiming();
+
+    int status = 0;
+    try (DataLogWriter output = new DataLogWriter(replayed))
+    {
+      InputLog.startReplay(recorded, output);
+      int frames = InputLog.getReplayFrameCount();
+      stepTo(InputLog.getReplayFrameMicros(0));
+
+      long  start = System.nanoTime();
+      Robot robot = new Robot();
+      robot.robotInit();
+      robot.simulationInit();
+      for (int frame = 1; frame < frames; frame++)
+      {
+        stepTo(InputLog.getReplayFrameMicros(frame));
+        InputLog.applyDriverStation(frame);
+        robot.runLoopOnce();
+      }
+      double wall = (System.nanoTime() - start) * 1e-9;
+      double span = (InputLog.getReplayFrameMicros(frames - 1) - InputLog.getReplayFrameMicros(0)) * 1e-6;
+      System.out.printf("Replayed %d loops, %.1f recorded seconds in %.2f wall seconds, %.1fx real time%n",
+                        frames - 1, span, wall, span / wall);
+      if (InputLog.getDivergences() > 0)
+      {
+        System.out.printf("The replay asked for %d inputs the recording did not have where expected, it diverged%n",
+                          InputLog.getDivergences());
+      }
+    } catch (RuntimeException e)
+    {
+      System.err.println("Replay failed:");
+      e.printStackTrace();
+      status = 1;
+    }
+
+    if (status == 0)
+    {
+      diff(recorded, replayed);
+    }
+    // NetworkTables and vendor threads are not daemons.
+    System.exit(status);
+  }
+
+  /**
+   * Step paused HAL time to a recorded time.
+   *
+   * @param micros FPGA time in microseconds.
+   */
+  private static void stepTo(long micros)
+  {
+    long now = RobotController.getFPGATime();
+    if (micros < now)
+    {
+      throw new IllegalStateException("Recorded time " + micros + " us is before the replay time " + now + " us");
+    }
+    // Rounded so the conversion back to microseconds lands exactly on the recorded time.
+    SimHooks.stepTiming((micros - now + 0.5) * 1e-6);
+  }
+
+  /**
+   * Print how the replayed outputs differ from the recorded ones, record by record.
+   *
+   * @param recorded Recorded log.
+   * @param replayed Log of the replay.
+   * @throws IOException If a log could not be read.
+   */
+  private static void diff(String recorded, String replayed) throws IOException
+  {
+    Map<String, List<double[]>> before   = readOutputs(recorded);
+    Map<String, List<double[]>> after    = readOutputs(replayed);
+    TreeSet<String>             names    = new TreeSet<>(before.keySet());
+    boolean                     matching = true;
+    names.addAll(after.keySet());
+    System.out.printf("%-20s %10s %10s %12s %10s %14s%n",
+                      "output", "recorded", "replayed", "max diff", "differing", "first differs");
+    for (String name : names)
+    {
+      List<double[]> a         = before.getOrDefault(name, List.of());
+      List<double[]> b         = after.getOrDefault(name, List.of());
+      double         maxDiff   = 0;
+      int            differing = 0;
+      double         first     = Double.NaN;
+      for (int i = 0; i < Math.min(a.size(), b.size()); i++)
+      {
+        double difference = difference(a.get(i), b.get(i));
+        maxDiff = Math.max(maxDiff, difference);
+        if (difference > tolerance)
+        {
+          differing++;
+          if (Double.isNaN(first))
+          {
+            first = a.get(i)[0];
+          }
+        }
+      }
+      matching &= differing == 0 && a.size() == b.size();
+      System.out.printf("%-20s %10d %10d %12.3g %10d %14s%n", name, a.size(), b.size(), maxDiff, differing,
+                        Double.isNaN(first) ? "-" : String.format("%.3f s", first));
+    }
+    System.out.println(matching ? "The replay reproduced every recorded output"
+                                : "The replayed outputs differ from the recording, see " + replayed);
+  }
+
+  /**
+   * Get the largest difference between two output records.
+   *
+   * @param a Record, the timestamp followed by the values.
+   * @param b Record, the timestamp followed by the values.
+   * @return Largest absolute difference of a value, infinite if the records do not have the same length.
+   */
+  private static double difference(double[] a, double[] b)
+  {
+    if (a.length != b.length)
+    {
+      return Double.POSITIVE_INFINITY;
+    }
+    double max = 0;
+    for (int i = 1; i < a.length; i++)
+    {
+      max = Math.max(max, Math.abs(a[i] - b[i]));
+    }
+    return max;
+  }
+
+  /**
+   * Read the output entries of a log.
+   *
+   * @param path Log to read.
+   * @return Records by output name, each the timestamp in seconds followed by the values.
+   * @throws IOException If the log could not be read.
+   */
+  private static Map<String, List<double[]>> readOutputs(String path) throws IOException
+  {
+    WPILogFile                  log     = WPILogFile.open(Path.of(path));
+    Map<String, List<double[]>> outputs = new HashMap<>();
+    log.index(outputPrefix);
+    for (WPILogFile.Entry entry : log.getEntries())
+    {
+      if (!entry.getName().startsWith(outputPrefix))
+      {
+        continue;
+      }
+      List<double[]>    records = outputs.computeIfAbsent(entry.getName().substring(outputPrefix.length()),
+                                                          k -> new ArrayList<>());
+      WPILogFile.Cursor record  = entry.cursor();
+      while (record.next())
+      {
+        double[] withTime = new double[record.getDoubleCount() + 1];
+        withTime[0] = record.getTimestamp() * 1e-6;
+        for (int i = 1; i < withTime.length; i++)
+        {
+          withTime[i] = record.getDouble(i - 1);
+        }
+        records.add(withTime);
+      }
+    }
+    return outputs;
+  }
+}
@@ -4,11 +4,18 @@
 
 package frc.robot;
 
+import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.subsystems.swervedrive.SwerveSubsystem;
+import frc.robot.util.AllocationMonitor;
+import frc.robot.util.InputLog;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.StartupProfiler;
+import frc.robot.util.TelemetryGovernor;
 
 /**
  * The VM is configured to automatically run this class, and to call the functions corresponding to each mode, as
@@ -25,6 +32,17 @@ public class Robot extends TimedRobot
 
   private Timer disabledTimer;
 
+  /**
+   * Adapts the swerve telemetry verbosity to the loop time budget.
+   */
+  private final TelemetryGovernor telemetryGovernor = new TelemetryGovernor(kDefaultPeriod);
+
+  /**
+   * Record every input to the DataLog so the run can be replayed with {@link InputReplay}. Off unless a run is meant
+   * to be replayed, recording costs a DataLog append per odometry update and camera result.
+   */
+  private static final boolean recordInputs = false;
+
   public Robot()
   {
     instance = this;
@@ -35,24 +53,52 @@ public class Robot extends TimedRobot
     return instance;
   }
 
+  /**
+   * Get the robot container, for harnesses driving the robot program.
+   *
+   * @return The container, null before {@link #robotInit()}.
+   */
+  RobotContainer getRobotContainer()
+  {
+    return m_robotContainer;
+  }
+
   /**
    * This function is run when the robot is first started up and should be used for any initialization code.
    */
   @Override
   public void robotInit()
   {
-    // Instantiate our RobotContainer.  This will perform all our button bindings, and put our
-    // autonomous chooser on the dashboard.
-    m_robotContainer = new RobotContainer();
-
-    // Create a timer to disable motor brake a few seconds after disable.  This will let the robot stop
-    // immediately when disabled, but then also let it be pushed more 
-    disabledTimer = new Timer();
-
-    if (isSimulation())
+    try (StartupProfiler.Phase phase = StartupProfiler.phase("robotInit"))
     {
-      DriverStation.silenceJoystickConnectionWarning(true);
+      // Parse the PathPlanner settings on the startup executor while the drive is being built.
+      SwerveSubsystem.preloadRobotConfig();
+      // Start recording before the subsystems are created, they install the logged pose estimator while recording.
+      if (recordInputs && !InputLog.isReplaying())
+      {
+        InputLog.startRecording(DataLogManager.getLog());
+      }
+
+      // Instantiate our RobotContainer.  This will perform all our button bindings, and put our
+      // autonomous chooser on the dashboard.
+      try (StartupProfiler.Phase containerPhase = StartupProfiler.phase("RobotContainer"))
+      {
+        m_robotContainer = new RobotContainer();
+      }
+
+      // Create a timer to disable motor brake a few seconds after disable.  This will let the robot stop
+      // immediately when disabled, but then also let it be pushed more 
+      disabledTimer = new Timer();
+
+      if (isSimulation())
+      {
+        DriverStation.silenceJoystickConnectionWarning(true);
+      }
+
+      // Every startup task must be done before the robot is ready.
+      StartupProfiler.join();
     }
+    StartupProfiler.finish();
   }
 
   /**
@@ -65,11 +111,44 @@ public class Robot extends TimedRobot
   @Override
   public void robotPeriodic()
   {
+    // Starts the input log frame of this loop, before anything reads an input.
+    InputLog.beginFrame();
     // Runs the Scheduler.  This is responsible for polling buttons, adding newly-scheduled
     // commands, running already-scheduled commands, removing finished or interrupted commands,
     // and running subsystem periodic() methods.  This must be called from the robot's periodic
     // block in order for anything in the Command-based framework to work.
-    CommandScheduler.getInstance().run();
+    // The profiler times the run and publishes the slowest subsystems and commands.
+    // The allocation monitor counts the bytes this allocates against the per-loop budget.
+    AllocationMonitor.beginLoop();
+    LoopProfiler.run(CommandScheduler.getInstance());
+    AllocationMonitor.endLoop();
+    InputLog.endFrame();
+  }
+
+  /**
+   * Run one iteration of the robot loop and account for it in the {@link TelemetryGovernor}, so the dashboard and
+   * telemetry updates after {@link #robotPeriodic()} count against the loop budget too.
+   */
+  @Override
+  protected void loopFunc()
+  {
+    long loopStart = System.nanoTime();
+    super.loopFunc();
+    // Lower the telemetry verbosity when the loop or the network runs out of headroom.
+    // A replay applies the recorded verbosity instead, since the governor measures wall time.
+    if (!InputLog.isReplaying())
+    {
+      telemetryGovernor.update(loopStart, System.nanoTime() - loopStart, Timer.getFPGATimestamp());
+    }
+  }
+
+  /**
+   * Run one iteration of the robot loop on the calling thread. Used by {@link InputReplay}, which drives the loop at
+   * the recorded times instead of {@link #startCompetition()}.
+   */
+  void runLoopOnce()
+  {
+    loopFunc();
   }
 
   /**
@@ -17,6 +17,7 @@ import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
 import frc.robot.Constants.OperatorConstants;
 import frc.robot.subsystems.swervedrive.SwerveSubsystem;
+import frc.robot.util.StartupProfiler;
 import java.io.File;
 import swervelib.SwerveInputStream;
 
@@ -34,6 +35,11 @@ public class RobotContainer
   private final SwerveSubsystem       drivebase  = new SwerveSubsystem(new File(Filesystem.getDeployDirectory(),
                                                                                 "swerve/neo"));
 
+  /**
+   * Autonomous command, loaded once at startup.
+   */
+  private final Command autonomousCommand;
+
   /**
    * Converts driver input into a field-relative ChassisSpeeds that is controlled by angular velocity.
    */
@@ -90,9 +96,23 @@ public class RobotContainer
   public RobotContainer()
   {
     // Configure the trigger bindings
-    configureBindings();
+    try (StartupProfiler.Phase phase = StartupProfiler.phase("configureBindings", "SwerveParser"))
+    {
+      configureBindings();
+    }
     DriverStation.silenceJoystickConnectionWarning(true);
     NamedCommands.registerCommand("test", Commands.print("I EXIST"));
+    // Load the autonomous now instead of when autonomous starts.
+    Command auto;
+    try (StartupProfiler.Phase phase = StartupProfiler.phase("PathPlannerAuto", "setupPathPlanner"))
+    {
+      auto = drivebase.getAutonomousCommand("New Auto");
+    } catch (Exception e)
+    {
+      DriverStation.reportError("Failed to load autonomous: " + e, e.getStackTrace());
+      auto = Commands.none();
+    }
+    autonomousCommand = auto;
   }
 
   /**
@@ -105,15 +125,21 @@ public class RobotContainer
   private void configureBindings()
   {
 
-    Command driveFieldOrientedDirectAngle      = drivebase.driveFieldOriented(driveDirectAngle);
-    Command driveFieldOrientedAnglularVelocity = drivebase.driveFieldOriented(driveAngularVelocity);
-    Command driveRobotOrientedAngularVelocity  = drivebase.driveFieldOriented(driveRobotOriented);
-    Command driveSetpointGen = drivebase.driveWithSetpointGeneratorFieldRelative(
-        driveDirectAngle);
-    Command driveFieldOrientedDirectAngleKeyboard      = drivebase.driveFieldOriented(driveDirectAngleKeyboard);
-    Command driveFieldOrientedAnglularVelocityKeyboard = drivebase.driveFieldOriented(driveAngularVelocityKeyboard);
-    Command driveSetpointGenKeyboard = drivebase.driveWithSetpointGeneratorFieldRelative(
-        driveDirectAngleKeyboard);
+    // Named so the LoopProfiler entries of the drive commands tell them apart.
+    Command driveFieldOrientedDirectAngle = drivebase.driveFieldOriented(driveDirectAngle)
+                                                     .withName("driveFieldOrientedDirectAngle");
+    Command driveFieldOrientedAnglularVelocity = drivebase.driveFieldOriented(driveAngularVelocity)
+                                                          .withName("driveFieldOrientedAngularVelocity");
+    Command driveRobotOrientedAngularVelocity = drivebase.driveFieldOriented(driveRobotOriented)
+                                                         .withName("driveRobotOrientedAngularVelocity");
+    Command driveSetpointGen = drivebase.driveWithSetpointGeneratorFieldRelative(driveDirectAngle)
+                                        .withName("driveSetpointGen");
+    Command driveFieldOrientedDirectAngleKeyboard = drivebase.driveFieldOriented(driveDirectAngleKeyboard)
+                                                             .withName("driveFieldOrientedDirectAngleKeyboard");
+    Command driveFieldOrientedAnglularVelocityKeyboard = drivebase.driveFieldOriented(
+        driveAngularVelocityKeyboard).withName("driveFieldOrientedAngularVelocityKeyboard");
+    Command driveSetpointGenKeyboard = drivebase.driveWithSetpointGeneratorFieldRelative(driveDirectAngleKeyboard)
+                                                .withName("driveSetpointGenKeyboard");
 
     if (RobotBase.isSimulation())
     {
@@ -155,6 +181,16 @@ public class RobotContainer
 
   }
 
+  /**
+   * Get the drivebase, for harnesses driving the robot program.
+   *
+   * @return The swerve drive subsystem.
+   */
+  SwerveSubsystem getDrivebase()
+  {
+    return drivebase;
+  }
+
   /**
    * Use this to pass the autonomous command to the main {@link Robot} class.
    *
@@ -163,7 +199,7 @@ public class RobotContainer
   public Command getAutonomousCommand()
   {
     // An example command will be run in autonomous
-    return drivebase.getAutonomousCommand("New Auto");
+    return autonomousCommand;
   }
 
   public void setMotorBrake(boolean brake)
@@ -3,9 +3,9 @@ package frc.robot.commands.swervedrive.auto;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.subsystems.swervedrive.SwerveSubsystem;
+import frc.robot.util.Telemetry;
 
 
 /**
@@ -17,6 +17,7 @@ public class AutoBalanceCommand extends Command
 
   private final SwerveSubsystem swerveSubsystem;
   private final PIDController   controller;
+  private final Telemetry.BooleanChannel atToleranceTelemetry = Telemetry.debugBooleanChannel("At Tolerance", 0.1);
 
   public AutoBalanceCommand(SwerveSubsystem swerveSubsystem)
   {
@@ -45,7 +46,7 @@ public class AutoBalanceCommand extends Command
   @Override
   public void execute()
   {
-    SmartDashboard.putBoolean("At Tolerance", controller.atSetpoint());
+    atToleranceTelemetry.set(controller.atSetpoint());
 
     double translationVal = MathUtil.clamp(controller.calculate(swerveSubsystem.getPitch().getDegrees(), 0.0), -0.5,
                                            0.5);
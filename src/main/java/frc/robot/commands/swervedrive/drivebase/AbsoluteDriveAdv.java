@@ -4,18 +4,15 @@
 
 package frc.robot.commands.swervedrive.drivebase;
 
-import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.Constants;
 import frc.robot.subsystems.swervedrive.SwerveSubsystem;
-import java.util.List;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.DoubleArrayChannel;
+import frc.robot.util.Telemetry.DoubleChannel;
 import java.util.function.BooleanSupplier;
 import java.util.function.DoubleSupplier;
-import swervelib.SwerveController;
-import swervelib.math.SwerveMath;
 
 /**
  * A more advanced Swerve Control System that has 4 buttons for which direction to face
@@ -23,10 +20,13 @@ import swervelib.math.SwerveMath;
 public class AbsoluteDriveAdv extends Command
 {
 
-  private final SwerveSubsystem swerve;
-  private final DoubleSupplier  vX, vY;
-  private final DoubleSupplier  headingAdjust;
-  private final BooleanSupplier lookAway, lookTowards, lookLeft, lookRight;
+  private final SwerveSubsystem    swerve;
+  private final DoubleSupplier     vX, vY;
+  private final DoubleSupplier     headingAdjust;
+  private final BooleanSupplier    lookAway, lookTowards, lookLeft, lookRight;
+  private final DoubleChannel      limitedTelemetry     = Telemetry.debugDoubleChannel("LimitedTranslation", 0.1);
+  private final DoubleArrayChannel translationTelemetry = Telemetry.debugDoubleArrayChannel("TranslationXY", 0.1);
+  private final double[]           limitedVelocity      = new double[2];
   private boolean resetHeading = false;
 
   /**
@@ -106,11 +106,11 @@ public class AbsoluteDriveAdv extends Command
       if (headingX == 0 && headingY == 0 && Math.abs(headingAdjust.getAsDouble()) == 0)
       {
         // Get the curret Heading
-        Rotation2d currentHeading = swerve.getHeading();
+        double currentHeading = swerve.getHeadingRadians();
 
         // Set the Current Heading to the desired Heading
-        headingX = currentHeading.getSin();
-        headingY = currentHeading.getCos();
+        headingX = Math.sin(currentHeading);
+        headingY = Math.cos(currentHeading);
       }
       //Dont reset Heading Again
       resetHeading = false;
@@ -119,21 +119,20 @@ public class AbsoluteDriveAdv extends Command
     ChassisSpeeds desiredSpeeds = swerve.getTargetSpeeds(vX.getAsDouble(), vY.getAsDouble(), headingX, headingY);
 
     // Limit velocity to prevent tippy
-    Translation2d translation = SwerveController.getTranslation2d(desiredSpeeds);
-    translation = SwerveMath.limitVelocity(translation, swerve.getFieldVelocity(), swerve.getPose(),
-                                           Constants.LOOP_TIME, Constants.ROBOT_MASS, List.of(Constants.CHASSIS),
-                                           swerve.getSwerveDriveConfiguration());
-    SmartDashboard.putNumber("LimitedTranslation", translation.getX());
-    SmartDashboard.putString("Translation", translation.toString());
+    swerve.getVelocityLimiter().limit(desiredSpeeds.vxMetersPerSecond, desiredSpeeds.vyMetersPerSecond,
+                                      swerve.getFieldVelocity(), swerve.getHeadingRadians(), limitedVelocity);
+    limitedTelemetry.set(limitedVelocity[0]);
+    translationTelemetry.set(limitedVelocity[0], limitedVelocity[1]);
 
     // Make the robot move
     if (headingX == 0 && headingY == 0 && Math.abs(headingAdjust.getAsDouble()) > 0)
     {
       resetHeading = true;
-      swerve.drive(translation, (Constants.OperatorConstants.TURN_CONSTANT * -headingAdjust.getAsDouble()), true);
+      swerve.drive(limitedVelocity[0], limitedVelocity[1],
+                   (Constants.OperatorConstants.TURN_CONSTANT * -headingAdjust.getAsDouble()), true);
     } else
     {
-      swerve.drive(translation, desiredSpeeds.omegaRadiansPerSecond, true);
+      swerve.drive(limitedVelocity[0], limitedVelocity[1], desiredSpeeds.omegaRadiansPerSecond, true);
     }
   }
 
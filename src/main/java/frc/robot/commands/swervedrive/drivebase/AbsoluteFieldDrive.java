@@ -5,16 +5,13 @@
 package frc.robot.commands.swervedrive.drivebase;
 
 import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
-import frc.robot.Constants;
 import frc.robot.subsystems.swervedrive.SwerveSubsystem;
-import java.util.List;
+import frc.robot.util.Telemetry;
+import frc.robot.util.Telemetry.DoubleArrayChannel;
+import frc.robot.util.Telemetry.DoubleChannel;
 import java.util.function.DoubleSupplier;
-import swervelib.SwerveController;
-import swervelib.math.SwerveMath;
 
 /**
  * An example command that uses an example subsystem.
@@ -22,8 +19,11 @@ import swervelib.math.SwerveMath;
 public class AbsoluteFieldDrive extends Command
 {
 
-  private final SwerveSubsystem swerve;
-  private final DoubleSupplier  vX, vY, heading;
+  private final SwerveSubsystem    swerve;
+  private final DoubleSupplier     vX, vY, heading;
+  private final DoubleChannel      limitedTelemetry     = Telemetry.debugDoubleChannel("LimitedTranslation", 0.1);
+  private final DoubleArrayChannel translationTelemetry = Telemetry.debugDoubleArrayChannel("TranslationXY", 0.1);
+  private final double[]           limitedVelocity      = new double[2];
 
   /**
    * Used to drive a swerve robot in full field-centric mode.  vX and vY supply translation inputs, where x is
@@ -66,15 +66,13 @@ public class AbsoluteFieldDrive extends Command
                                                          new Rotation2d(heading.getAsDouble() * Math.PI));
 
     // Limit velocity to prevent tippy
-    Translation2d translation = SwerveController.getTranslation2d(desiredSpeeds);
-    translation = SwerveMath.limitVelocity(translation, swerve.getFieldVelocity(), swerve.getPose(),
-                                           Constants.LOOP_TIME, Constants.ROBOT_MASS, List.of(Constants.CHASSIS),
-                                           swerve.getSwerveDriveConfiguration());
-    SmartDashboard.putNumber("LimitedTranslation", translation.getX());
-    SmartDashboard.putString("Translation", translation.toString());
+    swerve.getVelocityLimiter().limit(desiredSpeeds.vxMetersPerSecond, desiredSpeeds.vyMetersPerSecond,
+                                      swerve.getFieldVelocity(), swerve.getHeadingRadians(), limitedVelocity);
+    limitedTelemetry.set(limitedVelocity[0]);
+    translationTelemetry.set(limitedVelocity[0], limitedVelocity[1]);
 
     // Make the robot move
-    swerve.drive(translation, desiredSpeeds.omegaRadiansPerSecond, true);
+    swerve.drive(limitedVelocity[0], limitedVelocity[1], desiredSpeeds.omegaRadiansPerSecond, true);
 
   }
 
@@ -0,0 +1,444 @@
+package frc.robot.subsystems.swervedrive;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Quaternion;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.util.PoseHistory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import org.photonvision.simulation.PhotonCameraSim;
+import org.photonvision.targeting.MultiTargetPNPResult;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+import org.photonvision.targeting.PnpResult;
+import org.photonvision.targeting.TargetCorner;
+
+/**
+ * Lightweight simulated AprilTag camera. Instead of rendering the field and running detection and solvePnP like
+ * {@link org.photonvision.simulation.VisionSystemSim}, tags are culled against the camera frustum and their corners are
+ * projected through a pinhole model with the configured calibration error. The camera-to-tag and multi-tag transforms
+ * come straight from the true camera pose with noise scaled by distance, and the result is stamped with the configured
+ * latency and published through {@link PhotonCameraSim#submitProcessedFrame(PhotonPipelineResult)}, so the rest of the
+ * vision pipeline cannot tell the difference. No images or video streams are produced.
+ */
+public class AnalyticCameraSim
+{
+
+  /**
+   * Edge length of an AprilTag in meters.
+   */
+  private static final double          tagSize           = Units.inchesToMeters(6.5);
+  /**
+   * Smallest tag area in pixels that is detected, matches the {@link PhotonCameraSim} default.
+   */
+  private static final double          minTargetAreaPx   = 100;
+  /**
+   * Pose ambiguity reported for single tag targets, the analytic model has no alternate PnP solution to compare.
+   */
+  private static final double          poseAmbiguity     = 0.05;
+  /**
+   * Corner offsets in the tag frame as (y, z) pairs, bottom left, bottom right, top right, top left seen from the
+   * front.
+   */
+  private static final double[]        cornerOffsets     = {-tagSize / 2, -tagSize / 2,
+                                                            tagSize / 2, -tagSize / 2,
+                                                            tagSize / 2, tagSize / 2,
+                                                            -tagSize / 2, tagSize / 2};
+  /**
+   * Camera results are published through.
+   */
+  private final        PhotonCameraSim publisher;
+  /**
+   * Transform from the center of the robot to the camera.
+   */
+  private final        Transform3d     robotToCamera;
+  /**
+   * Image width in pixels.
+   */
+  private final        int             width;
+  /**
+   * Image height in pixels.
+   */
+  private final        int             height;
+  /**
+   * Focal length in pixels.
+   */
+  private final        double          focalLength;
+  /**
+   * Tangent of half the horizontal field of view.
+   */
+  private final        double          tanHalfHorizontal;
+  /**
+   * Tangent of half the vertical field of view.
+   */
+  private final        double          tanHalfVertical;
+  /**
+   * Distance beyond which a tag is smaller than {@link AnalyticCameraSim#minTargetAreaPx}, in meters.
+   */
+  private final        double          maxRangeMeters;
+  /**
+   * Average corner detection error in pixels.
+   */
+  private final        double          avgErrorPx;
+  /**
+   * Standard deviation of the corner detection error in pixels.
+   */
+  private final        double          errorStdDevPx;
+  /**
+   * Seconds between frames.
+   */
+  private final        double          framePeriodSeconds;
+  /**
+   * Average latency in seconds.
+   */
+  private final        double          avgLatencySeconds;
+  /**
+   * Standard deviation of the latency in seconds.
+   */
+  private final        double          latencyStdDevSeconds;
+  /**
+   * Fiducial ID of each tag in the field layout.
+   */
+  private final        int[]           tagIds;
+  /**
+   * Tag poses in the field layout.
+   */
+  private final        Pose3d[]        tagPoses;
+  /**
+   * Tag centers, 3 values per tag.
+   */
+  private final        double[]        tagCenters;
+  /**
+   * Unit vectors out of each tag face, 3 values per tag.
+   */
+  private final        double[]        tagNormals;
+  /**
+   * Tag corners in field coordinates, 12 values per tag.
+   */
+  private final        double[]        tagCorners;
+  /**
+   * Ground truth robot poses, to find where the robot was when a delayed frame was captured.
+   */
+  private final        PoseHistory     history           = new PoseHistory(64);
+  /**
+   * Scratch array receiving a pose from {@link AnalyticCameraSim#history}.
+   */
+  private final        double[]        poseSample        = new double[3];
+  /**
+   * Camera to field rotation matrix of the current frame, row major. Field vectors are multiplied by its transpose to
+   * move them into the camera frame.
+   */
+  private final        double[]        rotation          = new double[9];
+  /**
+   * Scratch array receiving projected corners as (u, v) pairs.
+   */
+  private final        double[]        pixels            = new double[8];
+  /**
+   * Random source for detection noise and latency.
+   */
+  private final        Random          random            = new Random();
+  /**
+   * Time the next frame is due in seconds.
+   */
+  private              double          nextFrameTime     = 0;
+  /**
+   * Sequence ID of the next frame.
+   */
+  private              long            sequenceId        = 0;
+
+  /**
+   * Create the simulated camera.
+   *
+   * @param publisher       {@link PhotonCameraSim} of the camera, only used to publish results.
+   * @param robotToCamera   Transform from the center of the robot to the camera.
+   * @param width           Image width in pixels.
+   * @param height          Image height in pixels.
+   * @param diagonalFov     Diagonal field of view.
+   * @param avgErrorPx      Average corner detection error in pixels.
+   * @param errorStdDevPx   Standard deviation of the corner detection error in pixels.
+   * @param fps             Frames per second.
+   * @param avgLatencyMs    Average latency in milliseconds.
+   * @param latencyStdDevMs Standard deviation of the latency in milliseconds.
+   */
+  public AnalyticCameraSim(PhotonCameraSim publisher, Transform3d robotToCamera, int width, int height,
+                           Rotation2d diagonalFov, double avgErrorPx, double errorStdDevPx, double fps,
+                           double avgLatencyMs, double latencyStdDevMs)
+  {
+    this.publisher = publisher;
+    this.robotToCamera = robotToCamera;
+    this.width = width;
+    this.height = height;
+    this.focalLength = Math.hypot(width, height) / 2 / Math.tan(diagonalFov.getRadians() / 2);
+    this.tanHalfHorizontal = width / 2.0 / focalLength;
+    this.tanHalfVertical = height / 2.0 / focalLength;
+    this.maxRangeMeters = focalLength * tagSize / Math.sqrt(minTargetAreaPx);
+    this.avgErrorPx = avgErrorPx;
+    this.errorStdDevPx = errorStdDevPx;
+    this.framePeriodSeconds = 1 / fps;
+    this.avgLatencySeconds = avgLatencyMs / 1e3;
+    this.latencyStdDevSeconds = latencyStdDevMs / 1e3;
+
+    AprilTagTable tags  = Vision.tagTable;
+    int           count = 0;
+    for (int id = 0; id <= tags.getMaxId(); id++)
+    {
+      if (tags.hasTag(id))
+      {
+        count++;
+      }
+    }
+    tagIds = new int[count];
+    tagPoses = new Pose3d[count];
+    tagCenters = new double[count * 3];
+    tagNormals = new double[count * 3];
+    tagCorners = new double[count * 12];
+    int tag = 0;
+    for (int id = 0; id <= tags.getMaxId(); id++)
+    {
+      if (!tags.hasTag(id))
+      {
+        continue;
+      }
+      Pose3d        pose   = tags.getPose3d(id);
+      Translation3d normal = new Translation3d(1, 0, 0).rotateBy(pose.getRotation());
+      tagIds[tag] = id;
+      tagPoses[tag] = pose;
+      tagCenters[tag * 3] = pose.getX();
+      tagCenters[tag * 3 + 1] = pose.getY();
+      tagCenters[tag * 3 + 2] = pose.getZ();
+      tagNormals[tag * 3] = normal.getX();
+      tagNormals[tag * 3 + 1] = normal.getY();
+      tagNormals[tag * 3 + 2] = normal.getZ();
+      for (int corner = 0; corner < 4; corner++)
+      {
+        Translation3d point = pose.transformBy(new Transform3d(new Translation3d(0,
+                                                                                 cornerOffsets[corner * 2],
+                                                                                 cornerOffsets[corner * 2 + 1]),
+                                                               new Rotation3d())).getTranslation();
+        tagCorners[tag * 12 + corner * 3] = point.getX();
+        tagCorners[tag * 12 + corner * 3 + 1] = point.getY();
+        tagCorners[tag * 12 + corner * 3 + 2] = point.getZ();
+      }
+      tag++;
+    }
+  }
+
+  /**
+   * Record the ground truth robot pose and publish a frame when one is due. Call every robot loop.
+   *
+   * @param robotPose  Ground truth robot pose.
+   * @param nowSeconds Current FPGA time in seconds.
+   */
+  public void update(Pose2d robotPose, double nowSeconds)
+  {
+    history.record(nowSeconds, robotPose);
+    if (nowSeconds < nextFrameTime)
+    {
+      return;
+    }
+    nextFrameTime = Math.max(nextFrameTime + framePeriodSeconds, nowSeconds);
+
+    double latencySeconds = Math.max(0, avgLatencySeconds + random.nextGaussian() * latencyStdDevSeconds);
+    if (!history.sample(nowSeconds - latencySeconds, poseSample))
+    {
+      return;
+    }
+    Pose3d cameraPose = new Pose3d(new Pose2d(poseSample[0], poseSample[1], new Rotation2d(poseSample[2])))
+        .transformBy(robotToCamera);
+    setRotation(cameraPose.getRotation().getQuaternion());
+
+    List<PhotonTrackedTarget> targets = new ArrayList<>();
+    List<Short>               usedIds = new ArrayList<>();
+    double                    distSum = 0;
+    for (int tag = 0; tag < tagIds.length; tag++)
+    {
+      double dx = tagCenters[tag * 3] - cameraPose.getX();
+      double dy = tagCenters[tag * 3 + 1] - cameraPose.getY();
+      double dz = tagCenters[tag * 3 + 2] - cameraPose.getZ();
+      // Cull tags past the far plane or facing away before doing any projection.
+      double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+      if (distance > maxRangeMeters ||
+          dx * tagNormals[tag * 3] + dy * tagNormals[tag * 3 + 1] + dz * tagNormals[tag * 3 + 2] >= 0)
+      {
+        continue;
+      }
+      double forward = rotation[0] * dx + rotation[3] * dy + rotation[6] * dz;
+      if (forward <= 0 ||
+          Math.abs(rotation[1] * dx + rotation[4] * dy + rotation[7] * dz) > forward * tanHalfHorizontal ||
+          Math.abs(rotation[2] * dx + rotation[5] * dy + rotation[8] * dz) > forward * tanHalfVertical)
+      {
+        continue;
+      }
+      if (!projectCorners(tag, cameraPose))
+      {
+        continue;
+      }
+      double area = polygonArea();
+      if (area < minTargetAreaPx)
+      {
+        continue;
+      }
+      targets.add(createTarget(tag, cameraPose, distance, area));
+      usedIds.add((short) tagIds[tag]);
+      distSum += distance;
+    }
+
+    Optional<MultiTargetPNPResult> multitag = Optional.empty();
+    if (targets.size() > 1)
+    {
+      Transform3d fieldToCamera = new Transform3d(new Pose3d(), cameraPose);
+      multitag = Optional.of(new MultiTargetPNPResult(
+          new PnpResult(addNoise(fieldToCamera, distSum / targets.size() / Math.sqrt(targets.size())), avgErrorPx),
+          usedIds));
+    }
+
+    long nowMicros = RobotController.getFPGATime();
+    publisher.submitProcessedFrame(new PhotonPipelineResult(sequenceId++,
+                                                            nowMicros - (long) (latencySeconds * 1e6),
+                                                            nowMicros,
+                                                            // Pretend like we heard a pong recently.
+                                                            1000L,
+                                                            targets,
+                                                            multitag));
+  }
+
+  /**
+   * Fill {@link AnalyticCameraSim#rotation} from the camera rotation.
+   *
+   * @param q Camera rotation.
+   */
+  private void setRotation(Quaternion q)
+  {
+    double w = q.getW(), x = q.getX(), y = q.getY(), z = q.getZ();
+    rotation[0] = 1 - 2 * (y * y + z * z);
+    rotation[1] = 2 * (x * y - w * z);
+    rotation[2] = 2 * (x * z + w * y);
+    rotation[3] = 2 * (x * y + w * z);
+    rotation[4] = 1 - 2 * (x * x + z * z);
+    rotation[5] = 2 * (y * z - w * x);
+    rotation[6] = 2 * (x * z - w * y);
+    rotation[7] = 2 * (y * z + w * x);
+    rotation[8] = 1 - 2 * (x * x + y * y);
+  }
+
+  /**
+   * Project the corners of a tag into {@link AnalyticCameraSim#pixels} with detection noise.
+   *
+   * @param tag        Tag index.
+   * @param cameraPose Camera pose.
+   * @return False if any corner falls outside of the image.
+   */
+  private boolean projectCorners(int tag, Pose3d cameraPose)
+  {
+    for (int corner = 0; corner < 4; corner++)
+    {
+      int    i       = tag * 12 + corner * 3;
+      double dx      = tagCorners[i] - cameraPose.getX();
+      double dy      = tagCorners[i + 1] - cameraPose.getY();
+      double dz      = tagCorners[i + 2] - cameraPose.getZ();
+      double forward = rotation[0] * dx + rotation[3] * dy + rotation[6] * dz;
+      if (forward <= 0)
+      {
+        return false;
+      }
+      double left  = rotation[1] * dx + rotation[4] * dy + rotation[7] * dz;
+      double up    = rotation[2] * dx + rotation[5] * dy + rotation[8] * dz;
+      double error = avgErrorPx + random.nextGaussian() * errorStdDevPx;
+      double angle = random.nextDouble() * 2 * Math.PI;
+      double u     = width / 2.0 - focalLength * left / forward + error * Math.cos(angle);
+      double v     = height / 2.0 - focalLength * up / forward + error * Math.sin(angle);
+      if (u < 0 || u > width || v < 0 || v > height)
+      {
+        return false;
+      }
+      pixels[corner * 2] = u;
+      pixels[corner * 2 + 1] = v;
+    }
+    return true;
+  }
+
+  /**
+   * Area of the quadrilateral in {@link AnalyticCameraSim#pixels}.
+   *
+   * @return Area in pixels.
+   */
+  private double polygonArea()
+  {
+    double twiceArea = 0;
+    for (int corner = 0; corner < 4; corner++)
+    {
+      int next = (corner + 1) % 4;
+      twiceArea += pixels[corner * 2] * pixels[next * 2 + 1] - pixels[next * 2] * pixels[corner * 2 + 1];
+    }
+    return Math.abs(twiceArea) / 2;
+  }
+
+  /**
+   * Create the tracked target of a tag from the corners in {@link AnalyticCameraSim#pixels}.
+   *
+   * @param tag        Tag index.
+   * @param cameraPose Camera pose.
+   * @param distance   Distance from the camera to the tag in meters.
+   * @param area       Tag area in pixels.
+   * @return Tracked target.
+   */
+  private PhotonTrackedTarget createTarget(int tag, Pose3d cameraPose, double distance, double area)
+  {
+    List<TargetCorner> detectedCorners = new ArrayList<>(4);
+    double             minU            = width, minV = height, maxU = 0, maxV = 0, sumU = 0, sumV = 0;
+    for (int corner = 0; corner < 4; corner++)
+    {
+      double u = pixels[corner * 2];
+      double v = pixels[corner * 2 + 1];
+      detectedCorners.add(new TargetCorner(u, v));
+      minU = Math.min(minU, u);
+      maxU = Math.max(maxU, u);
+      minV = Math.min(minV, v);
+      maxV = Math.max(maxV, v);
+      sumU += u;
+      sumV += v;
+    }
+    List<TargetCorner> rectCorners = List.of(new TargetCorner(minU, maxV),
+                                             new TargetCorner(maxU, maxV),
+                                             new TargetCorner(maxU, minV),
+                                             new TargetCorner(minU, minV));
+
+    Transform3d cameraToTarget = addNoise(new Transform3d(cameraPose, tagPoses[tag]), distance);
+    return new PhotonTrackedTarget(Math.toDegrees(Math.atan((sumU / 4 - width / 2.0) / focalLength)),
+                                   Math.toDegrees(Math.atan((height / 2.0 - sumV / 4) / focalLength)),
+                                   area / (width * height) * 100,
+                                   0,
+                                   tagIds[tag],
+                                   -1,
+                                   -1,
+                                   cameraToTarget,
+                                   cameraToTarget,
+                                   poseAmbiguity,
+                                   rectCorners,
+                                   detectedCorners);
+  }
+
+  /**
+   * Perturb the translation of a transform by the position error the corner detection error causes at a distance.
+   *
+   * @param transform Exact transform.
+   * @param distance  Distance the error is scaled by, in meters.
+   * @return Noisy transform.
+   */
+  private Transform3d addNoise(Transform3d transform, double distance)
+  {
+    double stdDev = distance * avgErrorPx / focalLength;
+    return new Transform3d(transform.getTranslation().plus(new Translation3d(random.nextGaussian() * stdDev,
+                                                                             random.nextGaussian() * stdDev,
+                                                                             random.nextGaussian() * stdDev)),
+                           transform.getRotation());
+  }
+}
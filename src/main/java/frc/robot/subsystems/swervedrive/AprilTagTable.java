@@ -0,0 +1,180 @@
+package frc.robot.subsystems.swervedrive;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+
+/**
+ * Immutable AprilTag pose table indexed directly by fiducial ID. Built once from an {@link AprilTagFieldLayout} so hot
+ * paths can read tag poses without map lookups or {@link java.util.Optional} allocations.
+ */
+public final class AprilTagTable
+{
+
+  /**
+   * Field layout the table was built from.
+   */
+  private final AprilTagFieldLayout layout;
+  /**
+   * Whether the layout contains a tag, indexed by fiducial ID.
+   */
+  private final boolean[]           present;
+  /**
+   * Tag poses, null where no tag exists.
+   */
+  private final Pose3d[]            poses3d;
+  /**
+   * Tag poses flattened onto the field, null where no tag exists.
+   */
+  private final Pose2d[]            poses2d;
+  /**
+   * Field X coordinate of each tag in meters.
+   */
+  private final double[]            x;
+  /**
+   * Field Y coordinate of each tag in meters.
+   */
+  private final double[]            y;
+  /**
+   * Height of each tag off the carpet in meters.
+   */
+  private final double[]            z;
+  /**
+   * Yaw of each tag in radians.
+   */
+  private final double[]            yaw;
+
+  /**
+   * Build the tag table.
+   *
+   * @param layout {@link AprilTagFieldLayout} to index.
+   */
+  public AprilTagTable(AprilTagFieldLayout layout)
+  {
+    this.layout = layout;
+
+    int maxId = 0;
+    for (AprilTag tag : layout.getTags())
+    {
+      maxId = Math.max(maxId, tag.ID);
+    }
+    present = new boolean[maxId + 1];
+    poses3d = new Pose3d[maxId + 1];
+    poses2d = new Pose2d[maxId + 1];
+    x = new double[maxId + 1];
+    y = new double[maxId + 1];
+    z = new double[maxId + 1];
+    yaw = new double[maxId + 1];
+
+    for (AprilTag tag : layout.getTags())
+    {
+      // Go through the layout so any origin changes applied to it are respected.
+      Pose3d pose = layout.getTagPose(tag.ID).orElse(tag.pose);
+      present[tag.ID] = true;
+      poses3d[tag.ID] = pose;
+      poses2d[tag.ID] = pose.toPose2d();
+      x[tag.ID] = pose.getX();
+      y[tag.ID] = pose.getY();
+      z[tag.ID] = pose.getZ();
+      yaw[tag.ID] = pose.getRotation().getZ();
+    }
+  }
+
+  /**
+   * Get the field layout the table was built from.
+   *
+   * @return {@link AprilTagFieldLayout} of the table.
+   */
+  public AprilTagFieldLayout getLayout()
+  {
+    return layout;
+  }
+
+  /**
+   * Get the largest fiducial ID the table can hold.
+   *
+   * @return Largest fiducial ID.
+   */
+  public int getMaxId()
+  {
+    return present.length - 1;
+  }
+
+  /**
+   * Check if a tag exists on the field.
+   *
+   * @param id Fiducial ID.
+   * @return True if the tag is in the layout.
+   */
+  public boolean hasTag(int id)
+  {
+    return id >= 0 && id < present.length && present[id];
+  }
+
+  /**
+   * Get the pose of a tag.
+   *
+   * @param id Fiducial ID.
+   * @return {@link Pose3d} of the tag, or null if it does not exist.
+   */
+  public Pose3d getPose3d(int id)
+  {
+    return hasTag(id) ? poses3d[id] : null;
+  }
+
+  /**
+   * Get the pose of a tag flattened onto the field.
+   *
+   * @param id Fiducial ID.
+   * @return {@link Pose2d} of the tag, or null if it does not exist.
+   */
+  public Pose2d getPose2d(int id)
+  {
+    return hasTag(id) ? poses2d[id] : null;
+  }
+
+  /**
+   * Get the field X coordinate of a tag. Only valid when {@link AprilTagTable#hasTag(int)} is true.
+   *
+   * @param id Fiducial ID.
+   * @return X coordinate in meters.
+   */
+  public double getX(int id)
+  {
+    return x[id];
+  }
+
+  /**
+   * Get the field Y coordinate of a tag. Only valid when {@link AprilTagTable#hasTag(int)} is true.
+   *
+   * @param id Fiducial ID.
+   * @return Y coordinate in meters.
+   */
+  public double getY(int id)
+  {
+    return y[id];
+  }
+
+  /**
+   * Get the height of a tag. Only valid when {@link AprilTagTable#hasTag(int)} is true.
+   *
+   * @param id Fiducial ID.
+   * @return Z coordinate in meters.
+   */
+  public double getZ(int id)
+  {
+    return z[id];
+  }
+
+  /**
+   * Get the yaw of a tag. Only valid when {@link AprilTagTable#hasTag(int)} is true.
+   *
+   * @param id Fiducial ID.
+   * @return Yaw in radians.
+   */
+  public double getYaw(int id)
+  {
+    return yaw[id];
+  }
+}
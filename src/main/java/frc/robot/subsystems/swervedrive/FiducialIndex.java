@@ -0,0 +1,129 @@
+package frc.robot.subsystems.swervedrive;
+
+import java.util.List;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+/**
+ * Index of the AprilTags seen in a batch of {@link PhotonPipelineResult}s. Rebuilt once per batch so visibility and
+ * target lookups by fiducial ID are O(1) and do not allocate.
+ */
+public final class FiducialIndex
+{
+
+  /**
+   * Bitset of visible fiducial IDs.
+   */
+  private final long[]                visibleWords;
+  /**
+   * Latest target seen for each fiducial ID, null when not visible.
+   */
+  private final PhotonTrackedTarget[] latestTargets;
+  /**
+   * Fiducial IDs set in the current batch, used to clear the index without sweeping every slot.
+   */
+  private final int[]                 visibleIds;
+  /**
+   * Number of valid entries in {@link FiducialIndex#visibleIds}.
+   */
+  private       int                   visibleCount = 0;
+
+  /**
+   * Create an empty index.
+   *
+   * @param maxId Largest fiducial ID to index, higher IDs are ignored.
+   */
+  public FiducialIndex(int maxId)
+  {
+    visibleWords = new long[(maxId >> 6) + 1];
+    latestTargets = new PhotonTrackedTarget[maxId + 1];
+    visibleIds = new int[maxId + 1];
+  }
+
+  /**
+   * Rebuild the index from a batch of results. Results are expected newest first so the newest target for each ID
+   * wins.
+   *
+   * @param results Results to index.
+   */
+  public void rebuild(List<PhotonPipelineResult> results)
+  {
+    clear();
+    for (int i = 0, resultCount = results.size(); i < resultCount; i++)
+    {
+      List<PhotonTrackedTarget> targets = results.get(i).getTargets();
+      for (int j = 0, targetCount = targets.size(); j < targetCount; j++)
+      {
+        PhotonTrackedTarget target = targets.get(j);
+        int                 id     = target.getFiducialId();
+        if (id < 0 || id >= latestTargets.length)
+        {
+          continue;
+        }
+        if (latestTargets[id] == null)
+        {
+          visibleWords[id >> 6] |= 1L << id;
+          visibleIds[visibleCount++] = id;
+          latestTargets[id] = target;
+        }
+      }
+    }
+  }
+
+  /**
+   * Remove every entry from the index.
+   */
+  public void clear()
+  {
+    for (int i = 0; i < visibleCount; i++)
+    {
+      int id = visibleIds[i];
+      latestTargets[id] = null;
+      visibleWords[id >> 6] = 0;
+    }
+    visibleCount = 0;
+  }
+
+  /**
+   * Check if a tag was seen in the indexed batch.
+   *
+   * @param id Fiducial ID.
+   * @return True if the tag was seen.
+   */
+  public boolean isVisible(int id)
+  {
+    return id >= 0 && id < latestTargets.length && (visibleWords[id >> 6] & (1L << id)) != 0;
+  }
+
+  /**
+   * Get the newest target for a tag in the indexed batch.
+   *
+   * @param id Fiducial ID.
+   * @return Tracked target, or null if the tag was not seen.
+   */
+  public PhotonTrackedTarget getTarget(int id)
+  {
+    return isVisible(id) ? latestTargets[id] : null;
+  }
+
+  /**
+   * Get the number of distinct tags in the indexed batch.
+   *
+   * @return Visible tag count.
+   */
+  public int getVisibleCount()
+  {
+    return visibleCount;
+  }
+
+  /**
+   * Get a visible fiducial ID by position, for iterating without allocation.
+   *
+   * @param index Position between 0 and {@link FiducialIndex#getVisibleCount()}.
+   * @return Fiducial ID.
+   */
+  public int getVisibleId(int index)
+  {
+    return visibleIds[index];
+  }
+}
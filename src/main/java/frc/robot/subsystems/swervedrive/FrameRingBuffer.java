@@ -0,0 +1,166 @@
+package frc.robot.subsystems.swervedrive;
+
+import org.photonvision.targeting.PhotonPipelineResult;
+
+/**
+ * Fixed capacity buffer of camera frames kept in timestamp order. Frames are sorted on insert and the oldest frame is
+ * evicted when the buffer is full, so a burst of frames after a coprocessor stall can never grow the amount of work done
+ * on the robot loop.
+ */
+public final class FrameRingBuffer
+{
+
+  /**
+   * Frames in the buffer.
+   */
+  private final PhotonPipelineResult[] frames;
+  /**
+   * Timestamp of each frame in seconds, cached to avoid recomputing while sorting.
+   */
+  private final double[]               timestamps;
+  /**
+   * Slot of the oldest frame.
+   */
+  private       int                    head    = 0;
+  /**
+   * Number of frames in the buffer.
+   */
+  private       int                    size    = 0;
+  /**
+   * Frames evicted because the buffer was full.
+   */
+  private       long                   evicted = 0;
+
+  /**
+   * Create an empty buffer.
+   *
+   * @param capacity Maximum number of frames to hold.
+   */
+  public FrameRingBuffer(int capacity)
+  {
+    frames = new PhotonPipelineResult[capacity];
+    timestamps = new double[capacity];
+  }
+
+  /**
+   * Insert a frame in timestamp order. When the buffer is full the oldest frame, which may be the new one, is dropped.
+   *
+   * @param frame Frame to insert.
+   */
+  public void add(PhotonPipelineResult frame)
+  {
+    double timestamp = frame.getTimestampSeconds();
+    if (size == frames.length)
+    {
+      evicted++;
+      if (timestamp <= timestamps[head])
+      {
+        return;
+      }
+      frames[head] = null;
+      head = wrap(head + 1);
+      size--;
+    }
+    // Insertion sort from the newest end, frames almost always arrive in order so this rarely moves anything.
+    int slot = wrap(head + size);
+    int i    = size;
+    while (i > 0)
+    {
+      int previous = wrap(head + i - 1);
+      if (timestamps[previous] <= timestamp)
+      {
+        break;
+      }
+      frames[slot] = frames[previous];
+      timestamps[slot] = timestamps[previous];
+      slot = previous;
+      i--;
+    }
+    frames[slot] = frame;
+    timestamps[slot] = timestamp;
+    size++;
+  }
+
+  /**
+   * Remove and return the oldest frame.
+   *
+   * @return Oldest frame, or null if empty.
+   */
+  public PhotonPipelineResult pollOldest()
+  {
+    if (size == 0)
+    {
+      return null;
+    }
+    PhotonPipelineResult frame = frames[head];
+    frames[head] = null;
+    head = wrap(head + 1);
+    size--;
+    return frame;
+  }
+
+  /**
+   * Discard the oldest frames.
+   *
+   * @param count Number of frames to discard.
+   */
+  public void discardOldest(int count)
+  {
+    for (int i = Math.min(count, size); i > 0; i--)
+    {
+      pollOldest();
+    }
+  }
+
+  /**
+   * Get a frame without removing it.
+   *
+   * @param index Position from the oldest frame, between 0 and {@link FrameRingBuffer#size()}.
+   * @return Frame at the position.
+   */
+  public PhotonPipelineResult get(int index)
+  {
+    return frames[wrap(head + index)];
+  }
+
+  /**
+   * Get the number of frames in the buffer.
+   *
+   * @return Frame count.
+   */
+  public int size()
+  {
+    return size;
+  }
+
+  /**
+   * Get the maximum number of frames the buffer holds.
+   *
+   * @return Capacity.
+   */
+  public int capacity()
+  {
+    return frames.length;
+  }
+
+  /**
+   * Get the number of frames evicted because the buffer was full.
+   *
+   * @return Evicted frame count.
+   */
+  public long getEvictedCount()
+  {
+    return evicted;
+  }
+
+  /**
+   * Wrap a slot index into the buffer.
+   *
+   * @param index Unwrapped index.
+   * @return Slot in the buffer.
+   */
+  private int wrap(int index)
+  {
+    return index >= frames.length ? index - frames.length : index;
+  }
+}
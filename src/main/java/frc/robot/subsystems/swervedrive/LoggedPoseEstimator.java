@@ -0,0 +1,110 @@
+package frc.robot.subsystems.swervedrive;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import frc.robot.util.InputLog;
+import swervelib.SwerveDrive;
+
+/**
+ * Pose estimator which passes every gyro angle and module position it is given through the {@link InputLog}, so they
+ * are recorded, or replaced by the recorded ones in replay. It also writes the estimated pose after every update and
+ * every vision measurement it receives as outputs. Installed in place of the {@link SwerveDrive} estimator while the
+ * input log is active; while recording it is called from whichever odometry thread runs, in replay from the robot
+ * loop.
+ */
+class LoggedPoseEstimator extends SwerveDrivePoseEstimator
+{
+
+  /**
+   * Timestamp, gyro angle, then distance and angle of each module, reused for every call.
+   */
+  private final double[] sample;
+  /**
+   * Number of swerve modules.
+   */
+  private final int      modules;
+
+  /**
+   * Create an estimator continuing from the current estimate of a drive, with the default standard deviations YAGSL
+   * uses.
+   *
+   * @param swerveDrive Drive whose estimator this replaces.
+   */
+  LoggedPoseEstimator(SwerveDrive swerveDrive)
+  {
+    super(swerveDrive.kinematics, swerveDrive.getYaw(), swerveDrive.getModulePositions(), swerveDrive.getPose());
+    modules = swerveDrive.getModules().length;
+    sample = new double[2 + modules * 2];
+  }
+
+  @Override
+  public Pose2d updateWithTime(double currentTimeSeconds, Rotation2d gyroAngle, SwerveModulePosition[] wheelPositions)
+  {
+    pack(currentTimeSeconds, gyroAngle, wheelPositions);
+    Pose2d pose = InputLog.odometry(InputLog.odometryUpdate, sample)
+                  ? super.updateWithTime(sample[0], Rotation2d.fromRadians(sample[1]), unpackPositions())
+                  : super.updateWithTime(currentTimeSeconds, gyroAngle, wheelPositions);
+    InputLog.outputPose(pose);
+    return pose;
+  }
+
+  @Override
+  public void resetPosition(Rotation2d gyroAngle, SwerveModulePosition[] wheelPositions, Pose2d pose)
+  {
+    pack(0, gyroAngle, wheelPositions);
+    if (InputLog.odometry(InputLog.odometryReset, sample))
+    {
+      super.resetPosition(Rotation2d.fromRadians(sample[1]), unpackPositions(), pose);
+    } else
+    {
+      super.resetPosition(gyroAngle, wheelPositions, pose);
+    }
+    InputLog.outputPose(pose);
+  }
+
+  @Override
+  public void addVisionMeasurement(Pose2d visionRobotPoseMeters, double timestampSeconds,
+                                   Matrix<N3, N1> visionMeasurementStdDevs)
+  {
+    InputLog.outputVisionMeasurement(visionRobotPoseMeters, timestampSeconds, visionMeasurementStdDevs);
+    super.addVisionMeasurement(visionRobotPoseMeters, timestampSeconds, visionMeasurementStdDevs);
+  }
+
+  /**
+   * Write a call's arguments into {@link LoggedPoseEstimator#sample}.
+   *
+   * @param timestampSeconds Timestamp of the call in seconds.
+   * @param gyroAngle        Gyro angle.
+   * @param wheelPositions   Module positions.
+   */
+  private void pack(double timestampSeconds, Rotation2d gyroAngle, SwerveModulePosition[] wheelPositions)
+  {
+    sample[0] = timestampSeconds;
+    sample[1] = gyroAngle.getRadians();
+    for (int i = 0; i < modules; i++)
+    {
+      sample[2 + i * 2] = wheelPositions[i].distanceMeters;
+      sample[3 + i * 2] = wheelPositions[i].angle.getRadians();
+    }
+  }
+
+  /**
+   * Rebuild module positions from {@link LoggedPoseEstimator#sample}.
+   *
+   * @return Module positions, new objects since the estimator keeps them.
+   */
+  private SwerveModulePosition[] unpackPositions()
+  {
+    SwerveModulePosition[] positions = new SwerveModulePosition[modules];
+    for (int i = 0; i < modules; i++)
+    {
+      positions[i] = new SwerveModulePosition(sample[2 + i * 2], Rotation2d.fromRadians(sample[3 + i * 2]));
+    }
+    return positions;
+  }
+}
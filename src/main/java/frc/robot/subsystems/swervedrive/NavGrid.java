@@ -0,0 +1,456 @@
+package frc.robot.subsystems.swervedrive;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.wpi.first.math.Pair;
+import edu.wpi.first.math.geometry.Translation2d;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PathPlanner navigation grid packed into a bitset, one bit per node, along with the distance from every node to the
+ * nearest obstacle. Static obstacles come from {@code navgrid.json}, dynamic obstacles are bounding boxes layered on
+ * top, and the distance field is recomputed with an exact Euclidean distance transform whenever they change. Nodes are
+ * indexed row by row, {@code row * columns + column}, with node centers at {@code (index + 0.5) * nodeSize}.
+ *
+ * <p>Not thread safe, only the thread planning on the grid may change it.
+ */
+final class NavGrid
+{
+
+  /**
+   * Squared distance standing in for infinity in the distance transform, finite so the parabola math stays defined.
+   */
+  private static final double   far = 1e10;
+  /**
+   * Side length of a node in meters.
+   */
+  private final        double   nodeSize;
+  /**
+   * Number of node columns, along the field length.
+   */
+  private final        int      columns;
+  /**
+   * Number of node rows, along the field width.
+   */
+  private final        int      rows;
+  /**
+   * Obstacles from the navgrid file.
+   */
+  private final        long[]   staticObstacles;
+  /**
+   * Static and dynamic obstacles.
+   */
+  private final        long[]   obstacles;
+  /**
+   * Dynamic obstacles, scratch space for {@link NavGrid#setDynamicObstacles(List)}.
+   */
+  private final        long[]   dynamicObstacles;
+  /**
+   * Distance from each node center to the nearest obstacle node center in meters.
+   */
+  private final        double[] clearance;
+  /**
+   * Squared distances of one row or column, scratch space for the distance transform.
+   */
+  private final        double[] line;
+  /**
+   * Transformed row or column, scratch space for the distance transform.
+   */
+  private final        double[] transformed;
+  /**
+   * Parabola boundaries, scratch space for the distance transform.
+   */
+  private final        double[] boundaries;
+  /**
+   * Parabola vertices, scratch space for the distance transform.
+   */
+  private final        int[]    vertices;
+
+  /**
+   * Create a grid.
+   *
+   * @param nodeSize  Side length of a node in meters.
+   * @param columns   Number of node columns.
+   * @param rows      Number of node rows.
+   * @param obstacles Whether each node is an obstacle, indexed {@code [row][column]}.
+   */
+  NavGrid(double nodeSize, int columns, int rows, boolean[][] obstacles)
+  {
+    this.nodeSize = nodeSize;
+    this.columns = columns;
+    this.rows = rows;
+    int words = (columns * rows + Long.SIZE - 1) / Long.SIZE;
+    this.staticObstacles = new long[words];
+    this.obstacles = new long[words];
+    this.dynamicObstacles = new long[words];
+    this.clearance = new double[columns * rows];
+    int longest = Math.max(columns, rows);
+    this.line = new double[longest];
+    this.transformed = new double[longest];
+    this.boundaries = new double[longest + 1];
+    this.vertices = new int[longest];
+    for (int row = 0; row < rows; row++)
+    {
+      for (int column = 0; column < columns; column++)
+      {
+        if (obstacles[row][column])
+        {
+          int node = row * columns + column;
+          staticObstacles[node >>> 6] |= 1L << node;
+        }
+      }
+    }
+    System.arraycopy(staticObstacles, 0, this.obstacles, 0, words);
+    computeClearance();
+  }
+
+  /**
+   * Load a grid from a PathPlanner {@code navgrid.json}.
+   *
+   * @param file Navgrid file.
+   * @return Loaded grid.
+   * @throws IOException If the file could not be read or is not a navgrid.
+   */
+  static NavGrid load(File file) throws IOException
+  {
+    JsonNode json = new ObjectMapper().readTree(file);
+    JsonNode grid = json.get("grid");
+    if (grid == null || !grid.isArray() || grid.size() == 0 || !json.has("nodeSizeMeters"))
+    {
+      throw new IOException(file + " is not a navgrid");
+    }
+    int         rows      = grid.size();
+    int         columns   = grid.get(0).size();
+    boolean[][] obstacles = new boolean[rows][columns];
+    for (int row = 0; row < rows; row++)
+    {
+      if (grid.get(row).size() != columns)
+      {
+        throw new IOException(file + ": row " + row + " of the grid has " + grid.get(row).size() + " nodes, expected " +
+                              columns);
+      }
+      for (int column = 0; column < columns; column++)
+      {
+        obstacles[row][column] = grid.get(row).get(column).asBoolean();
+      }
+    }
+    return new NavGrid(json.get("nodeSizeMeters").asDouble(), columns, rows, obstacles);
+  }
+
+  /**
+   * Get the side length of a node.
+   *
+   * @return Node size in meters.
+   */
+  double getNodeSize()
+  {
+    return nodeSize;
+  }
+
+  /**
+   * Get the number of node columns.
+   *
+   * @return Column count.
+   */
+  int getColumns()
+  {
+    return columns;
+  }
+
+  /**
+   * Get the number of node rows.
+   *
+   * @return Row count.
+   */
+  int getRows()
+  {
+    return rows;
+  }
+
+  /**
+   * Get the column holding a field X.
+   *
+   * @param x Field X in meters.
+   * @return Column, possibly outside the grid.
+   */
+  int columnOf(double x)
+  {
+    return (int) Math.floor(x / nodeSize);
+  }
+
+  /**
+   * Get the row holding a field Y.
+   *
+   * @param y Field Y in meters.
+   * @return Row, possibly outside the grid.
+   */
+  int rowOf(double y)
+  {
+    return (int) Math.floor(y / nodeSize);
+  }
+
+  /**
+   * Get the field X of a column's node centers.
+   *
+   * @param column Column.
+   * @return Field X in meters.
+   */
+  double centerX(int column)
+  {
+    return (column + 0.5) * nodeSize;
+  }
+
+  /**
+   * Get the field Y of a row's node centers.
+   *
+   * @param row Row.
+   * @return Field Y in meters.
+   */
+  double centerY(int row)
+  {
+    return (row + 0.5) * nodeSize;
+  }
+
+  /**
+   * Whether a node is an obstacle, nodes outside the grid always are.
+   *
+   * @param column Node column.
+   * @param row    Node row.
+   * @return True if the robot can not be there.
+   */
+  boolean isBlocked(int column, int row)
+  {
+    if (column < 0 || row < 0 || column >= columns || row >= rows)
+    {
+      return true;
+    }
+    int node = row * columns + column;
+    return (obstacles[node >>> 6] & (1L << node)) != 0;
+  }
+
+  /**
+   * Get the distance from a node to the nearest obstacle.
+   *
+   * @param node Node index.
+   * @return Distance between node centers in meters, 0 for obstacles.
+   */
+  double getClearance(int node)
+  {
+    return clearance[node];
+  }
+
+  /**
+   * Whether a straight line between two node centers only crosses free nodes. Every node the line touches is checked,
+   * both neighbors included where it passes exactly through a corner.
+   *
+   * @param fromColumn Column of the first node.
+   * @param fromRow    Row of the first node.
+   * @param toColumn   Column of the second node.
+   * @param toRow      Row of the second node.
+   * @return True if the line is clear.
+   */
+  boolean hasLineOfSight(int fromColumn, int fromRow, int toColumn, int toRow)
+  {
+    int dx       = Math.abs(toColumn - fromColumn);
+    int dy       = Math.abs(toRow - fromRow);
+    int stepX    = toColumn > fromColumn ? 1 : -1;
+    int stepY    = toRow > fromRow ? 1 : -1;
+    int column   = fromColumn;
+    int row      = fromRow;
+    int error    = dx - dy;
+    int crossing = 1 + dx + dy;
+    dx *= 2;
+    dy *= 2;
+    while (crossing > 0)
+    {
+      if (isBlocked(column, row))
+      {
+        return false;
+      }
+      if (error > 0)
+      {
+        column += stepX;
+        error -= dy;
+      } else if (error < 0)
+      {
+        row += stepY;
+        error += dx;
+      } else
+      {
+        // Through a corner, both nodes sharing it must be free.
+        if (crossing > 1 && (isBlocked(column + stepX, row) || isBlocked(column, row + stepY)))
+        {
+          return false;
+        }
+        column += stepX;
+        row += stepY;
+        error += dx - dy;
+        crossing--;
+      }
+      crossing--;
+    }
+    return true;
+  }
+
+  /**
+   * Find the free node closest to a node.
+   *
+   * @param column Node column, may be outside the grid.
+   * @param row    Node row, may be outside the grid.
+   * @return Index of the closest free node, -1 if every node is an obstacle.
+   */
+  int nearestFree(int column, int row)
+  {
+    if (!isBlocked(column, row))
+    {
+      return row * columns + column;
+    }
+    int    best         = -1;
+    double bestDistance = Double.POSITIVE_INFINITY;
+    int    reach        = columns + rows;
+    for (int ring = 1; ring <= reach && ring < bestDistance; ring++)
+    {
+      // Walk the square ring at this Chebyshev distance, a closer node can still be on the next ring.
+      for (int dy = -ring; dy <= ring; dy++)
+      {
+        int step = Math.abs(dy) == ring ? 1 : 2 * ring;
+        for (int dx = -ring; dx <= ring; dx += step)
+        {
+          double distance = Math.hypot(dx, dy);
+          if (distance < bestDistance && !isBlocked(column + dx, row + dy))
+          {
+            best = (row + dy) * columns + column + dx;
+            bestDistance = distance;
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Replace the dynamic obstacles and recompute the distance field if the blocked nodes changed.
+   *
+   * @param boxes Obstacle bounding boxes as pairs of opposite corners in field coordinates.
+   * @return True if the blocked nodes changed.
+   */
+  boolean setDynamicObstacles(List<Pair<Translation2d, Translation2d>> boxes)
+  {
+    Arrays.fill(dynamicObstacles, 0);
+    for (Pair<Translation2d, Translation2d> box : boxes)
+    {
+      Translation2d a = box.getFirst();
+      Translation2d b = box.getSecond();
+      int minColumn = Math.max(0, columnOf(Math.min(a.getX(), b.getX())));
+      int maxColumn = Math.min(columns - 1, columnOf(Math.max(a.getX(), b.getX())));
+      int minRow    = Math.max(0, rowOf(Math.min(a.getY(), b.getY())));
+      int maxRow    = Math.min(rows - 1, rowOf(Math.max(a.getY(), b.getY())));
+      for (int row = minRow; row <= maxRow; row++)
+      {
+        for (int column = minColumn; column <= maxColumn; column++)
+        {
+          int node = row * columns + column;
+          dynamicObstacles[node >>> 6] |= 1L << node;
+        }
+      }
+    }
+    boolean changed = false;
+    for (int i = 0; i < obstacles.length; i++)
+    {
+      long combined = staticObstacles[i] | dynamicObstacles[i];
+      changed |= combined != obstacles[i];
+      obstacles[i] = combined;
+    }
+    if (changed)
+    {
+      computeClearance();
+    }
+    return changed;
+  }
+
+  /**
+   * Compute {@link NavGrid#clearance} with the separable exact Euclidean distance transform of Felzenszwalb and
+   * Huttenlocher, one pass down the columns and one along the rows.
+   */
+  private void computeClearance()
+  {
+    for (int column = 0; column < columns; column++)
+    {
+      for (int row = 0; row < rows; row++)
+      {
+        line[row] = isBlocked(column, row) ? 0 : far;
+      }
+      transform(rows);
+      for (int row = 0; row < rows; row++)
+      {
+        clearance[row * columns + column] = transformed[row];
+      }
+    }
+    // Squared distances only grow up to the far value, capped so an empty grid stays finite.
+    double cap = Math.hypot(columns, rows) * nodeSize;
+    for (int row = 0; row < rows; row++)
+    {
+      for (int column = 0; column < columns; column++)
+      {
+        line[column] = clearance[row * columns + column];
+      }
+      transform(columns);
+      for (int column = 0; column < columns; column++)
+      {
+        clearance[row * columns + column] = Math.min(Math.sqrt(transformed[column]) * nodeSize, cap);
+      }
+    }
+  }
+
+  /**
+   * One dimensional squared distance transform of {@link NavGrid#line} into {@link NavGrid#transformed}, the lower
+   * envelope of the parabolas rooted at every sample.
+   *
+   * @param length Number of samples.
+   */
+  private void transform(int length)
+  {
+    int envelope = 0;
+    vertices[0] = 0;
+    boundaries[0] = Double.NEGATIVE_INFINITY;
+    boundaries[1] = Double.POSITIVE_INFINITY;
+    for (int q = 1; q < length; q++)
+    {
+      double intersection = intersection(q, vertices[envelope]);
+      while (intersection <= boundaries[envelope])
+      {
+        envelope--;
+        intersection = intersection(q, vertices[envelope]);
+      }
+      envelope++;
+      vertices[envelope] = q;
+      boundaries[envelope] = intersection;
+      boundaries[envelope + 1] = Double.POSITIVE_INFINITY;
+    }
+    envelope = 0;
+    for (int q = 0; q < length; q++)
+    {
+      while (boundaries[envelope + 1] < q)
+      {
+        envelope++;
+      }
+      int offset = q - vertices[envelope];
+      transformed[q] = offset * offset + line[vertices[envelope]];
+    }
+  }
+
+  /**
+   * Get where the parabolas rooted at two samples of {@link NavGrid#line} intersect.
+   *
+   * @param q Later sample.
+   * @param p Earlier sample.
+   * @return Position of the intersection.
+   */
+  private double intersection(int q, int p)
+  {
+    return ((line[q] + q * q) - (line[p] + p * p)) / (2.0 * q - 2.0 * p);
+  }
+}
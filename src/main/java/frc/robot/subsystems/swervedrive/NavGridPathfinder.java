@@ -0,0 +1,236 @@
+package frc.robot.subsystems.swervedrive;
+
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.path.Waypoint;
+import com.pathplanner.lib.pathfinding.Pathfinder;
+import edu.wpi.first.math.Pair;
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PathPlanner {@link Pathfinder} planning with {@link NavGridPlanner} on its own thread. Every new goal, change of the
+ * start node or change of the dynamic obstacles queues a replan; requests arriving while a plan runs are merged into
+ * the next one. The corners of the planned path, with its ends moved to the latest requested start and goal, become
+ * the anchors of a {@link PathPlannerPath} whose control points run along the bisector of each corner, kept shorter
+ * than the corner's clearance so the curve stays near the straight lines the planner checked.
+ */
+class NavGridPathfinder implements Pathfinder
+{
+
+  /**
+   * Corners of a planned path and the clearance at each.
+   *
+   * @param corners    Corners of the path, start and goal included, empty when there is no path.
+   * @param clearances Distance from each corner to the nearest obstacle in meters.
+   */
+  private record Plan(List<Translation2d> corners, double[] clearances)
+  {
+
+  }
+
+  /**
+   * Grid planned on, only touched by the planning thread.
+   */
+  private final    NavGrid                                  grid;
+  /**
+   * Planner, only used by the planning thread.
+   */
+  private final    NavGridPlanner                           planner;
+  /**
+   * Guards the requests.
+   */
+  private final    Object                                   lock  = new Object();
+  /**
+   * Requested start position.
+   */
+  private          Translation2d                            start = Translation2d.kZero;
+  /**
+   * Requested goal position.
+   */
+  private          Translation2d                            goal  = Translation2d.kZero;
+  /**
+   * Requested dynamic obstacles, null when unchanged since the last plan.
+   */
+  private          List<Pair<Translation2d, Translation2d>> obstacles;
+  /**
+   * Whether a replan was requested.
+   */
+  private          boolean                                  requested;
+  /**
+   * Latest plan.
+   */
+  private volatile Plan                                     plan  = new Plan(List.of(), new double[0]);
+  /**
+   * Whether a path was planned since {@link NavGridPathfinder#getCurrentPath} last ran.
+   */
+  private volatile boolean                                  newPath;
+
+  /**
+   * Create the pathfinder and start its planning thread.
+   *
+   * @param grid Grid to plan on, owned by the pathfinder from now on.
+   */
+  NavGridPathfinder(NavGrid grid)
+  {
+    this.grid = grid;
+    this.planner = new NavGridPlanner(grid);
+    Thread thread = new Thread(this::run, "NavGridPathfinder");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @Override
+  public boolean isNewPathAvailable()
+  {
+    return newPath;
+  }
+
+  @Override
+  public PathPlannerPath getCurrentPath(PathConstraints constraints, GoalEndState goalEndState)
+  {
+    Plan                latest = plan;
+    List<Translation2d> points = new ArrayList<>(latest.corners());
+    double[]            room   = latest.clearances();
+    newPath = false;
+    if (points.size() < 2)
+    {
+      return null;
+    }
+    // Start moves within a node do not replan and a newer goal may be queued, so the path runs between the latest
+    // requested positions like LocalADStar.
+    synchronized (lock)
+    {
+      points.set(0, start);
+      points.set(points.size() - 1, goal);
+    }
+
+    List<Waypoint> waypoints = new ArrayList<>(points.size());
+    for (int i = 0; i < points.size(); i++)
+    {
+      Translation2d anchor = points.get(i);
+      if (i == 0 || i == points.size() - 1)
+      {
+        // End points aim straight at their neighbor.
+        Translation2d other   = points.get(i == 0 ? 1 : i - 1);
+        Translation2d control = anchor.interpolate(other, 1.0 / 3);
+        waypoints.add(i == 0 ? new Waypoint(null, anchor, control) : new Waypoint(control, anchor, null));
+        continue;
+      }
+      Translation2d previous = points.get(i - 1);
+      Translation2d next     = points.get(i + 1);
+      double        before   = anchor.getDistance(previous);
+      double        after    = anchor.getDistance(next);
+      Translation2d tangent  = next.minus(anchor).div(after).plus(anchor.minus(previous).div(before));
+      double        norm     = tangent.getNorm();
+      if (norm < 1e-9)
+      {
+        // A full reversal, leave along the next segment.
+        tangent = next.minus(anchor).div(after);
+        norm = 1;
+      }
+      double        length = Math.min(Math.min(before, after) / 3, Math.max(room[i], grid.getNodeSize() / 2));
+      Translation2d offset = tangent.times(length / norm);
+      waypoints.add(new Waypoint(anchor.minus(offset), anchor, anchor.plus(offset)));
+    }
+    return new PathPlannerPath(waypoints, constraints, null, goalEndState);
+  }
+
+  @Override
+  public void setStartPosition(Translation2d startPosition)
+  {
+    synchronized (lock)
+    {
+      requested |= !sameNode(start, startPosition);
+      start = startPosition;
+      lock.notifyAll();
+    }
+  }
+
+  @Override
+  public void setGoalPosition(Translation2d goalPosition)
+  {
+    synchronized (lock)
+    {
+      // Pathfinding commands set the goal once when they start and wait for a new path, so every goal is replanned
+      // like LocalADStar does, even one in the node of the previous goal.
+      requested = true;
+      goal = goalPosition;
+      lock.notifyAll();
+    }
+  }
+
+  @Override
+  public void setDynamicObstacles(List<Pair<Translation2d, Translation2d>> obs, Translation2d currentRobotPos)
+  {
+    synchronized (lock)
+    {
+      obstacles = List.copyOf(obs);
+      start = currentRobotPos;
+      requested = true;
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Whether two positions fall in the same grid node. Uses only the node size, which never changes, so it is safe off
+   * the planning thread.
+   *
+   * @param a First position.
+   * @param b Second position.
+   * @return True if both are in the same node.
+   */
+  private boolean sameNode(Translation2d a, Translation2d b)
+  {
+    return grid.columnOf(a.getX()) == grid.columnOf(b.getX()) && grid.rowOf(a.getY()) == grid.rowOf(b.getY());
+  }
+
+  /**
+   * Planning thread, waits for a request and plans it.
+   */
+  private void run()
+  {
+    List<Translation2d> path = new ArrayList<>();
+    while (true)
+    {
+      Translation2d                            planStart;
+      Translation2d                            planGoal;
+      List<Pair<Translation2d, Translation2d>> planObstacles;
+      synchronized (lock)
+      {
+        while (!requested)
+        {
+          try
+          {
+            lock.wait();
+          } catch (InterruptedException e)
+          {
+            return;
+          }
+        }
+        requested = false;
+        planStart = start;
+        planGoal = goal;
+        planObstacles = obstacles;
+        obstacles = null;
+      }
+      if (planObstacles != null)
+      {
+        grid.setDynamicObstacles(planObstacles);
+      }
+      planner.plan(planStart, planGoal, path);
+
+      double[] room = new double[path.size()];
+      for (int i = 0; i < room.length; i++)
+      {
+        int column = Math.max(0, Math.min(grid.getColumns() - 1, grid.columnOf(path.get(i).getX())));
+        int row    = Math.max(0, Math.min(grid.getRows() - 1, grid.rowOf(path.get(i).getY())));
+        room[i] = grid.getClearance(row * grid.getColumns() + column);
+      }
+      plan = new Plan(List.copyOf(path), room);
+      newPath = true;
+    }
+  }
+}
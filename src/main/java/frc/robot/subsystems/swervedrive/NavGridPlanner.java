@@ -0,0 +1,301 @@
+package frc.robot.subsystems.swervedrive;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.List;
+
+/**
+ * Theta* search on a {@link NavGrid}. Like A* over the eight connected nodes, except that a node takes the parent of
+ * the node it was reached from whenever the two see each other, so the result is an any-angle path whose corners sit
+ * on obstacle corners instead of a staircase of grid moves. Every node costs extra the closer it is to an obstacle,
+ * which keeps paths off walls when there is room. All search state is preallocated and reused; only the returned points
+ * are allocated.
+ *
+ * <p>Not thread safe, each planning thread needs its own planner.
+ */
+final class NavGridPlanner
+{
+
+  /**
+   * Clearance in meters below which nodes cost extra.
+   */
+  private static final double   penaltyRange  = 0.6;
+  /**
+   * Extra cost in meters per meter of clearance below {@link NavGridPlanner#penaltyRange}.
+   */
+  private static final double   penaltyWeight = 2.0;
+  /**
+   * Column offsets of the eight neighbors.
+   */
+  private static final int[]    neighborX     = {1, -1, 0, 0, 1, 1, -1, -1};
+  /**
+   * Row offsets of the eight neighbors.
+   */
+  private static final int[]    neighborY     = {0, 0, 1, -1, 1, -1, 1, -1};
+  /**
+   * Grid to plan on.
+   */
+  private final        NavGrid  grid;
+  /**
+   * Cost from the start of each node reached.
+   */
+  private final        double[] cost;
+  /**
+   * Cost plus heuristic of each open node.
+   */
+  private final        double[] estimate;
+  /**
+   * Parent of each node reached.
+   */
+  private final        int[]    parent;
+  /**
+   * Search in which each node was last reached, so the arrays never need clearing.
+   */
+  private final        int[]    reached;
+  /**
+   * Search in which each node was last closed.
+   */
+  private final        int[]    closed;
+  /**
+   * Position of each open node in {@link NavGridPlanner#heap}, -1 once popped.
+   */
+  private final        int[]    heapIndex;
+  /**
+   * Binary min heap of open nodes by estimate.
+   */
+  private final        int[]    heap;
+  /**
+   * Nodes of the last path from goal to start, scratch space.
+   */
+  private final        int[]    trace;
+  /**
+   * Number of open nodes.
+   */
+  private              int      heapSize;
+  /**
+   * Current search number.
+   */
+  private              int      search;
+
+  /**
+   * Create a planner.
+   *
+   * @param grid Grid to plan on.
+   */
+  NavGridPlanner(NavGrid grid)
+  {
+    this.grid = grid;
+    int nodes = grid.getColumns() * grid.getRows();
+    this.cost = new double[nodes];
+    this.estimate = new double[nodes];
+    this.parent = new int[nodes];
+    this.reached = new int[nodes];
+    this.closed = new int[nodes];
+    this.heapIndex = new int[nodes];
+    this.heap = new int[nodes];
+    this.trace = new int[nodes];
+  }
+
+  /**
+   * Plan a path. Start and goal inside obstacles are moved to the closest free node.
+   *
+   * @param start Start position on the field.
+   * @param goal  Goal position on the field.
+   * @param path  Cleared and filled with the start, the corners of the path and the goal.
+   * @return False if there is no path, leaving the list empty.
+   */
+  boolean plan(Translation2d start, Translation2d goal, List<Translation2d> path)
+  {
+    path.clear();
+    int columns   = grid.getColumns();
+    int startNode = grid.nearestFree(grid.columnOf(start.getX()), grid.rowOf(start.getY()));
+    int goalNode  = grid.nearestFree(grid.columnOf(goal.getX()), grid.rowOf(goal.getY()));
+    if (startNode < 0 || goalNode < 0)
+    {
+      return false;
+    }
+    int goalColumn = goalNode % columns;
+    int goalRow    = goalNode / columns;
+
+    search++;
+    heapSize = 0;
+    reach(startNode, 0, startNode, goalColumn, goalRow);
+    boolean found = false;
+    while (heapSize > 0)
+    {
+      int node = pop();
+      if (node == goalNode)
+      {
+        found = true;
+        break;
+      }
+      closed[node] = search;
+      int column     = node % columns;
+      int row        = node / columns;
+      int from       = parent[node];
+      int fromColumn = from % columns;
+      int fromRow    = from / columns;
+      for (int i = 0; i < neighborX.length; i++)
+      {
+        int nextColumn = column + neighborX[i];
+        int nextRow    = row + neighborY[i];
+        // Diagonal moves may not squeeze between two obstacles.
+        if (grid.isBlocked(nextColumn, nextRow) ||
+            (i >= 4 && (grid.isBlocked(nextColumn, row) || grid.isBlocked(column, nextRow))))
+        {
+          continue;
+        }
+        int next = nextRow * columns + nextColumn;
+        if (closed[next] == search)
+        {
+          continue;
+        }
+        double penalty = penaltyWeight * Math.max(0, penaltyRange - grid.getClearance(next));
+        if (grid.hasLineOfSight(fromColumn, fromRow, nextColumn, nextRow))
+        {
+          reach(next, cost[from] + distance(fromColumn, fromRow, nextColumn, nextRow) + penalty, from, goalColumn,
+                goalRow);
+        } else
+        {
+          reach(next, cost[node] + distance(column, row, nextColumn, nextRow) + penalty, node, goalColumn, goalRow);
+        }
+      }
+    }
+    if (!found)
+    {
+      return false;
+    }
+
+    int length = 0;
+    for (int node = goalNode; node != startNode; node = parent[node])
+    {
+      trace[length++] = node;
+    }
+    path.add(start);
+    // The start and goal nodes are replaced by the exact positions.
+    for (int i = length - 1; i > 0; i--)
+    {
+      path.add(new Translation2d(grid.centerX(trace[i] % columns), grid.centerY(trace[i] / columns)));
+    }
+    path.add(goal);
+    return true;
+  }
+
+  /**
+   * Reach a node with a cost, keeping the cheaper of this and any earlier way to reach it.
+   *
+   * @param node       Node reached.
+   * @param nodeCost   Cost from the start.
+   * @param from       Parent on this way.
+   * @param goalColumn Column of the goal node.
+   * @param goalRow    Row of the goal node.
+   */
+  private void reach(int node, double nodeCost, int from, int goalColumn, int goalRow)
+  {
+    if (reached[node] != search)
+    {
+      reached[node] = search;
+      heapIndex[node] = -1;
+    } else if (nodeCost >= cost[node])
+    {
+      return;
+    }
+    int columns = grid.getColumns();
+    cost[node] = nodeCost;
+    parent[node] = from;
+    estimate[node] = nodeCost + distance(node % columns, node / columns, goalColumn, goalRow);
+    if (heapIndex[node] < 0)
+    {
+      heap[heapSize] = node;
+      heapIndex[node] = heapSize;
+      heapSize++;
+    }
+    siftUp(heapIndex[node]);
+  }
+
+  /**
+   * Remove the open node with the lowest estimate.
+   *
+   * @return Node.
+   */
+  private int pop()
+  {
+    int node = heap[0];
+    heapIndex[node] = -1;
+    heapSize--;
+    if (heapSize > 0)
+    {
+      heap[0] = heap[heapSize];
+      heapIndex[heap[0]] = 0;
+      siftDown(0);
+    }
+    return node;
+  }
+
+  /**
+   * Move a heap entry up until its parent is not more expensive.
+   *
+   * @param index Heap position.
+   */
+  private void siftUp(int index)
+  {
+    int node = heap[index];
+    while (index > 0)
+    {
+      int up = (index - 1) / 2;
+      if (estimate[heap[up]] <= estimate[node])
+      {
+        break;
+      }
+      heap[index] = heap[up];
+      heapIndex[heap[index]] = index;
+      index = up;
+    }
+    heap[index] = node;
+    heapIndex[node] = index;
+  }
+
+  /**
+   * Move a heap entry down until its children are not cheaper.
+   *
+   * @param index Heap position.
+   */
+  private void siftDown(int index)
+  {
+    int node = heap[index];
+    while (true)
+    {
+      int child = 2 * index + 1;
+      if (child >= heapSize)
+      {
+        break;
+      }
+      if (child + 1 < heapSize && estimate[heap[child + 1]] < estimate[heap[child]])
+      {
+        child++;
+      }
+      if (estimate[heap[child]] >= estimate[node])
+      {
+        break;
+      }
+      heap[index] = heap[child];
+      heapIndex[heap[index]] = index;
+      index = child;
+    }
+    heap[index] = node;
+    heapIndex[node] = index;
+  }
+
+  /**
+   * Get the distance between two node centers.
+   *
+   * @param fromColumn Column of the first node.
+   * @param fromRow    Row of the first node.
+   * @param toColumn   Column of the second node.
+   * @param toRow      Row of the second node.
+   * @return Distance in meters.
+   */
+  private double distance(int fromColumn, int fromRow, int toColumn, int toRow)
+  {
+    return Math.hypot(toColumn - fromColumn, toRow - fromRow) * grid.getNodeSize();
+  }
+}
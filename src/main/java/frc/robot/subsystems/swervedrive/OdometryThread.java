@@ -0,0 +1,163 @@
+package frc.robot.subsystems.swervedrive;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.wpilibj.Notifier;
+import frc.robot.util.AllocationMonitor;
+import frc.robot.util.SpscQueue;
+import swervelib.SwerveDrive;
+
+/**
+ * High rate odometry which keeps running while vision is enabled. Replaces the {@link SwerveDrive} odometry thread so
+ * vision measurements posted from the robot loop can be applied between odometry updates on the same thread, and
+ * publishes the latest pose as an immutable snapshot so readers never wait on the odometry lock.
+ */
+class OdometryThread implements VisionFusion.Sink
+{
+
+  /**
+   * Vision measurement waiting for the odometry thread.
+   */
+  private static final class PendingMeasurement
+  {
+
+    /**
+     * Robot pose from vision.
+     */
+    final Pose2d         pose;
+    /**
+     * Timestamp of the measurement in seconds.
+     */
+    final double         timestampSeconds;
+    /**
+     * Standard deviations of the measurement.
+     */
+    final Matrix<N3, N1> stdDevs;
+
+    /**
+     * Create a pending measurement.
+     *
+     * @param pose             Robot pose from vision.
+     * @param timestampSeconds Timestamp of the measurement in seconds.
+     * @param stdDevs          Standard deviations, copied since the fusion stage reuses its matrix.
+     */
+    PendingMeasurement(Pose2d pose, double timestampSeconds, Matrix<N3, N1> stdDevs)
+    {
+      this.pose = pose;
+      this.timestampSeconds = timestampSeconds;
+      this.stdDevs = new Matrix<>(stdDevs);
+    }
+  }
+
+  /**
+   * Swerve drive to update.
+   */
+  private final    SwerveDrive                   swerveDrive;
+  /**
+   * Notifier running {@link OdometryThread#update()}.
+   */
+  private final    Notifier                      notifier;
+  /**
+   * Seconds between odometry updates.
+   */
+  private final    double                        periodSeconds;
+  /**
+   * Vision measurements posted by the robot loop, drained by the odometry thread.
+   */
+  private final    SpscQueue<PendingMeasurement> visionQueue = new SpscQueue<>(64);
+  /**
+   * Latest estimated pose.
+   */
+  private volatile Pose2d                        pose;
+
+  /**
+   * Create the odometry thread, call {@link OdometryThread#start()} to begin updating.
+   *
+   * @param swerveDrive   Swerve drive to update, its own odometry thread must be stopped.
+   * @param periodSeconds Seconds between odometry updates.
+   */
+  OdometryThread(SwerveDrive swerveDrive, double periodSeconds)
+  {
+    this.swerveDrive = swerveDrive;
+    this.periodSeconds = periodSeconds;
+    this.pose = swerveDrive.getPose();
+    notifier = new Notifier(this::update);
+    notifier.setName("Odometry");
+  }
+
+  /**
+   * Start updating odometry.
+   */
+  public void start()
+  {
+    notifier.startPeriodic(periodSeconds);
+  }
+
+  /**
+   * Stop updating odometry.
+   */
+  public void stop()
+  {
+    notifier.stop();
+  }
+
+  /**
+   * Update odometry, apply every pending vision measurement and publish the new pose. Runs on the notifier thread.
+   */
+  private void update()
+  {
+    AllocationMonitor.watchOdometryThread();
+    swerveDrive.updateOdometry();
+    PendingMeasurement measurement;
+    while ((measurement = visionQueue.poll()) != null)
+    {
+      swerveDrive.addVisionMeasurement(measurement.pose, measurement.timestampSeconds, measurement.stdDevs);
+    }
+    pose = swerveDrive.getPose();
+  }
+
+  /**
+   * Post a vision measurement to be applied after the next odometry update. Must only be called from one thread, the
+   * robot loop.
+   *
+   * @param pose             Robot pose from vision.
+   * @param timestampSeconds Timestamp of the measurement in seconds.
+   * @param stdDevs          Standard deviations of the measurement.
+   */
+  @Override
+  public void addVisionMeasurement(Pose2d pose, double timestampSeconds, Matrix<N3, N1> stdDevs)
+  {
+    visionQueue.offer(new PendingMeasurement(pose, timestampSeconds, stdDevs));
+  }
+
+  /**
+   * Get the latest estimated pose without locking.
+   *
+   * @return Pose published by the last odometry update.
+   */
+  public Pose2d getPose()
+  {
+    return pose;
+  }
+
+  /**
+   * Republish the pose immediately, call after resetting odometry so readers do not see the old pose until the next
+   * update.
+   */
+  public void refresh()
+  {
+    pose = swerveDrive.getPose();
+  }
+
+  /**
+   * Get the number of vision measurements dropped because the odometry thread fell behind.
+   *
+   * @return Dropped measurement count.
+   */
+  public long getDroppedCount()
+  {
+    return visionQueue.getDroppedCount();
+  }
+}
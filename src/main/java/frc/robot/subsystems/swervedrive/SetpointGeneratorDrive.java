@@ -0,0 +1,125 @@
+package frc.robot.subsystems.swervedrive;
+
+import static edu.wpi.first.units.Units.Newtons;
+
+import com.pathplanner.lib.config.RobotConfig;
+import com.pathplanner.lib.util.DriveFeedforwards;
+import com.pathplanner.lib.util.swerve.SwerveSetpoint;
+import com.pathplanner.lib.util.swerve.SwerveSetpointGenerator;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.units.measure.MutForce;
+import swervelib.SwerveDrive;
+
+/**
+ * Drive mode using {@link SwerveSetpointGenerator} from 254, implemented by PathPlanner. The generator is built once
+ * from a cached {@link RobotConfig}, and the loop keeps its state in fields and reuses its module state, feedforward and
+ * chassis speed objects, so nothing is allocated on our side once running.
+ */
+class SetpointGeneratorDrive
+{
+
+  /**
+   * Swerve drive to command.
+   */
+  private final SwerveDrive             swerveDrive;
+  /**
+   * Setpoint generator, built once.
+   */
+  private final SwerveSetpointGenerator generator;
+  /**
+   * Module states handed to the drive. Copied out of each setpoint since the drive optimizes states in place, which
+   * would corrupt the previous setpoint the generator works from.
+   */
+  private final SwerveModuleState[]     moduleStates;
+  /**
+   * Module feedforward forces handed to the drive, updated in place.
+   */
+  private final MutForce[]              feedforwards;
+  /**
+   * Robot relative speeds converted from field relative speeds, updated in place.
+   */
+  private final ChassisSpeeds           robotRelativeSpeeds = new ChassisSpeeds();
+  /**
+   * Setpoint generated by the previous loop.
+   */
+  private       SwerveSetpoint          previousSetpoint;
+  /**
+   * FPGA time of the previous loop in seconds.
+   */
+  private       double                  previousTime;
+
+  /**
+   * Create the drive mode.
+   *
+   * @param swerveDrive Swerve drive to command.
+   * @param config      Robot configuration, parsed once at startup.
+   */
+  SetpointGeneratorDrive(SwerveDrive swerveDrive, RobotConfig config)
+  {
+    this.swerveDrive = swerveDrive;
+    this.generator = new SwerveSetpointGenerator(config, swerveDrive.getMaximumChassisAngularVelocity());
+    int modules = swerveDrive.getModules().length;
+    moduleStates = new SwerveModuleState[modules];
+    feedforwards = new MutForce[modules];
+    for (int i = 0; i < modules; i++)
+    {
+      moduleStates[i] = new SwerveModuleState();
+      feedforwards[i] = Newtons.mutable(0);
+    }
+  }
+
+  /**
+   * Start from the current state of the drive. Call when the command starts.
+   *
+   * @param nowSeconds Current FPGA time in seconds.
+   */
+  public void reset(double nowSeconds)
+  {
+    previousSetpoint = new SwerveSetpoint(swerveDrive.getRobotVelocity(),
+                                          swerveDrive.getStates(),
+                                          DriveFeedforwards.zeros(moduleStates.length));
+    previousTime = nowSeconds;
+  }
+
+  /**
+   * Drive towards robot relative speeds.
+   *
+   * @param speeds     Robot relative {@link ChassisSpeeds} to achieve.
+   * @param nowSeconds Current FPGA time in seconds.
+   */
+  public void drive(ChassisSpeeds speeds, double nowSeconds)
+  {
+    SwerveSetpoint setpoint = generator.generateSetpoint(previousSetpoint, speeds, nowSeconds - previousTime);
+    previousSetpoint = setpoint;
+    previousTime = nowSeconds;
+
+    SwerveModuleState[] states = setpoint.moduleStates();
+    double[]            forces = setpoint.feedforwards().linearForcesNewtons();
+    for (int i = 0; i < moduleStates.length; i++)
+    {
+      moduleStates[i].speedMetersPerSecond = states[i].speedMetersPerSecond;
+      moduleStates[i].angle = states[i].angle;
+      feedforwards[i].mut_replace(forces[i], Newtons);
+    }
+    swerveDrive.drive(setpoint.robotRelativeSpeeds(), moduleStates, feedforwards);
+  }
+
+  /**
+   * Drive towards field relative speeds.
+   *
+   * @param speeds         Field relative {@link ChassisSpeeds} to achieve.
+   * @param headingRadians Current robot heading in radians.
+   * @param nowSeconds     Current FPGA time in seconds.
+   */
+  public void driveFieldRelative(ChassisSpeeds speeds, double headingRadians, double nowSeconds)
+  {
+    // Same as ChassisSpeeds.fromFieldRelativeSpeeds without the allocations.
+    double cos = Math.cos(headingRadians);
+    double sin = Math.sin(headingRadians);
+    robotRelativeSpeeds.vxMetersPerSecond = speeds.vxMetersPerSecond * cos + speeds.vyMetersPerSecond * sin;
+    robotRelativeSpeeds.vyMetersPerSecond = -speeds.vxMetersPerSecond * sin + speeds.vyMetersPerSecond * cos;
+    robotRelativeSpeeds.omegaRadiansPerSecond = speeds.omegaRadiansPerSecond;
+    drive(robotRelativeSpeeds, nowSeconds);
+  }
+}
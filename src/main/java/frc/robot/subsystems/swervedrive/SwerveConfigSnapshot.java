@@ -0,0 +1,743 @@
+package frc.robot.subsystems.swervedrive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import swervelib.SwerveDrive;
+import swervelib.parser.SwerveDriveConfiguration;
+import swervelib.parser.SwerveModuleConfiguration;
+import swervelib.parser.SwerveModulePhysicalCharacteristics;
+import swervelib.parser.SwerveParser;
+import swervelib.parser.json.ControllerPropertiesJson;
+import swervelib.parser.json.ModuleJson;
+import swervelib.parser.json.PIDFPropertiesJson;
+import swervelib.parser.json.PhysicalPropertiesJson;
+import swervelib.parser.json.SwerveDriveJson;
+
+/**
+ * Loads a swerve drive from the snapshot the {@code compileSwerveSnapshots} Gradle task compiles for each configuration
+ * directory. The task runs {@link SwerveConfigSnapshot#main(String...)}, which parses the JSON files with YAGSL's own
+ * JSON classes, so a malformed configuration fails the build, and writes the parsed objects in a compact tagged binary
+ * encoding under {@code build/swerveSnapshots}. That directory is deployed next to the JSON files. Boot memory-maps the
+ * snapshot and decodes it without Jackson, checking only the size and modification time of each source file. A
+ * snapshot is ignored, and the JSON files parsed instead, when a source file changed size or was modified after it, or
+ * when it was compiled against another YAGSL version than {@link SwerveConfigSnapshot#assembledFor}.
+ *
+ * <p>Layout, big endian: magic, version, YAGSL version, entry count, then per entry the file name, the source file
+ * length, the payload length and the payload. Strings are a 2 byte length followed by UTF-8. A payload is one encoded
+ * value: a {@link Tag} byte followed by the boolean, int, long, double or string, the enum class and constant name, the
+ * array length and elements, or the object class, field count and each field's name and value.
+ */
+public final class SwerveConfigSnapshot
+{
+
+  /**
+   * Tag of an encoded value.
+   */
+  private enum Tag
+  {
+    /**
+     * Null reference.
+     */
+    NULL,
+    /**
+     * Boolean, one byte.
+     */
+    BOOLEAN,
+    /**
+     * Byte, short, char or int, four bytes.
+     */
+    INT,
+    /**
+     * Long, eight bytes.
+     */
+    LONG,
+    /**
+     * Float or double, eight bytes.
+     */
+    DOUBLE,
+    /**
+     * String.
+     */
+    STRING,
+    /**
+     * Enum class and constant name.
+     */
+    ENUM,
+    /**
+     * Array length and elements.
+     */
+    ARRAY,
+    /**
+     * Object class, field count and fields.
+     */
+    OBJECT
+  }
+
+  /**
+   * Name of the snapshot file inside a snapshot directory.
+   */
+  public static final  String   fileName         = "swerve.snapshot";
+  /**
+   * YAGSL version whose {@link SwerveParser#createSwerveDrive(double, Pose2d)} the assembly in
+   * {@link SwerveConfigSnapshot#create} was checked against. Snapshots compiled against any other version are ignored
+   * with a warning, so a YAGSL update falls back to its own parser until the assembly is checked again.
+   */
+  public static final  String   assembledFor     = "2025.2.2";
+  /**
+   * Magic number at the start of a snapshot, "SWSN".
+   */
+  private static final int      magic            = 0x5357534E;
+  /**
+   * Snapshot format version.
+   */
+  private static final int      version          = 2;
+  /**
+   * Modification time a source file may be ahead of the snapshot, deploying copies the files a few seconds apart.
+   */
+  private static final long     mtimeSlackMillis = 60_000;
+  /**
+   * Only classes in this package are encoded as objects and enums, anything else means YAGSL's JSON classes changed.
+   */
+  private static final String   allowedPackage   = "swervelib.";
+  /**
+   * Entries shared by every module, in snapshot order. The module files follow.
+   */
+  private static final String[] sharedEntries    = {"swervedrive.json", "controllerproperties.json",
+                                                     "modules/pidfproperties.json", "modules/physicalproperties.json"};
+
+  private SwerveConfigSnapshot()
+  {
+  }
+
+  /**
+   * Compile every configuration directory into a snapshot, run by the {@code compileSwerveSnapshots} Gradle task.
+   * Directories whose JSON classes hold values the encoding does not support are skipped with a warning and parsed
+   * from JSON at boot.
+   *
+   * @param args Directory holding the configuration directories, directory to write the snapshots to and the YAGSL
+   *             version.
+   * @throws IOException If a configuration is malformed or a snapshot cannot be written.
+   */
+  public static void main(String... args) throws IOException
+  {
+    if (args.length != 3)
+    {
+      System.err.println("Usage: SwerveConfigSnapshot <swerve config directory> <snapshot directory> <yagsl version>");
+      System.exit(2);
+    }
+    File[] directories = new File(args[0]).listFiles(File::isDirectory);
+    if (directories == null)
+    {
+      throw new IOException(args[0] + " is not a directory");
+    }
+    for (File directory : directories)
+    {
+      if (!new File(directory, "swervedrive.json").isFile())
+      {
+        continue;
+      }
+      File snapshot = new File(new File(args[1], directory.getName()), fileName);
+      try
+      {
+        compile(directory, snapshot, args[2]);
+      } catch (UnsupportedOperationException e)
+      {
+        System.err.println("warning: " + directory + " is not snapshotted, it will be parsed at boot: " +
+                           e.getMessage());
+        snapshot.delete();
+      }
+    }
+  }
+
+  /**
+   * Parse a configuration directory with YAGSL's JSON classes and write its snapshot.
+   *
+   * @param directory    Directory of swerve drive config files.
+   * @param snapshot     Snapshot file to write.
+   * @param yagslVersion YAGSL version the configuration is parsed with.
+   * @throws IOException                   If a file is missing or malformed, or the snapshot cannot be written.
+   * @throws UnsupportedOperationException If a parsed value cannot be encoded.
+   */
+  static void compile(File directory, File snapshot, String yagslVersion) throws IOException
+  {
+    ObjectMapper        mapper  = new ObjectMapper();
+    Map<String, Object> entries = new LinkedHashMap<>();
+    for (String name : entryNames(directory, mapper))
+    {
+      File source = new File(directory, name);
+      if (!source.isFile())
+      {
+        throw new IOException(directory + ": " + name + " is missing");
+      }
+      entries.put(name, mapper.readValue(source, entryType(name)));
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream      out   = new DataOutputStream(bytes);
+    out.writeInt(magic);
+    out.writeInt(version);
+    writeString(out, yagslVersion);
+    out.writeInt(entries.size());
+    for (Map.Entry<String, Object> entry : entries.entrySet())
+    {
+      ByteArrayOutputStream payload = new ByteArrayOutputStream();
+      write(new DataOutputStream(payload), entry.getValue());
+      writeString(out, entry.getKey());
+      out.writeLong(new File(directory, entry.getKey()).length());
+      out.writeInt(payload.size());
+      payload.writeTo(out);
+    }
+    snapshot.getParentFile().mkdirs();
+    try (FileOutputStream file = new FileOutputStream(snapshot))
+    {
+      bytes.writeTo(file);
+    }
+  }
+
+  /**
+   * Create a swerve drive from the snapshot of a configuration directory, mirroring
+   * {@link SwerveParser#createSwerveDrive(double, Pose2d)}.
+   *
+   * @param directory   Directory of swerve drive config files.
+   * @param maxSpeed    Maximum speed of the robot in meters per second.
+   * @param initialPose Starting pose of the robot.
+   * @return The swerve drive, or empty if there is no usable snapshot and the JSON files must be parsed instead.
+   */
+  public static Optional<SwerveDrive> load(File directory, double maxSpeed, Pose2d initialPose)
+  {
+    File snapshot = snapshotFile(directory);
+    if (!snapshot.isFile())
+    {
+      return Optional.empty();
+    }
+    try
+    {
+      Map<String, Object> entries = read(directory, snapshot);
+      if (entries == null)
+      {
+        return Optional.empty();
+      }
+      return Optional.of(create(entries, maxSpeed, initialPose));
+    } catch (Exception e)
+    {
+      DriverStation.reportWarning("Failed to load swerve snapshot " + snapshot + ", parsing JSON instead: " + e,
+                                  false);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Get the snapshot of a configuration directory. The robot has it deployed next to the JSON files, simulation reads
+   * it from the build directory the Gradle task wrote it to.
+   *
+   * @param directory Directory of swerve drive config files.
+   * @return Snapshot file, which may not exist.
+   */
+  static File snapshotFile(File directory)
+  {
+    if (RobotBase.isReal())
+    {
+      return new File(directory, fileName);
+    }
+    return new File(new File(Filesystem.getOperatingDirectory(), "build/swerveSnapshots/" + directory.getName()),
+                    fileName);
+  }
+
+  /**
+   * Memory-map a snapshot, check it against the source files and decode every entry.
+   *
+   * @param directory Directory of swerve drive config files.
+   * @param snapshot  Snapshot file.
+   * @return Decoded entries by file name, or null if the snapshot is stale, with a warning reported.
+   * @throws IOException If the snapshot cannot be read or is malformed.
+   */
+  static Map<String, Object> read(File directory, File snapshot) throws IOException
+  {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ))
+    {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try
+    {
+      if (buffer.getInt() != magic || buffer.getInt() != version)
+      {
+        throw new IOException("not a version " + version + " swerve snapshot");
+      }
+      String yagslVersion = readString(buffer);
+      if (!yagslVersion.equals(assembledFor))
+      {
+        DriverStation.reportWarning("Swerve snapshot " + snapshot + " was compiled against YAGSL " + yagslVersion +
+                                    " but is only assembled for " + assembledFor + ", parsing JSON instead.", false);
+        return null;
+      }
+
+      // Check every source first, a stat per file, so a stale snapshot costs no decoding.
+      int              count    = buffer.getInt();
+      List<String>     names    = new ArrayList<>(count);
+      List<ByteBuffer> payloads = new ArrayList<>(count);
+      for (int i = 0; i < count; i++)
+      {
+        String name          = readString(buffer);
+        long   sourceLength  = buffer.getLong();
+        int    payloadLength = buffer.getInt();
+        File   source        = new File(directory, name);
+        if (!source.isFile() || source.length() != sourceLength ||
+            source.lastModified() > snapshot.lastModified() + mtimeSlackMillis)
+        {
+          DriverStation.reportWarning("Swerve snapshot " + snapshot + " is stale, " + name + " changed, parsing JSON " +
+                                      "instead.", false);
+          return null;
+        }
+        ByteBuffer payload = buffer.slice();
+        payload.limit(payloadLength);
+        buffer.position(buffer.position() + payloadLength);
+        names.add(name);
+        payloads.add(payload);
+      }
+
+      Map<String, Object> entries = new LinkedHashMap<>();
+      for (int i = 0; i < count; i++)
+      {
+        entries.put(names.get(i), read(payloads.get(i), entryType(names.get(i))));
+      }
+      return entries;
+    } catch (BufferUnderflowException | IllegalArgumentException e)
+    {
+      throw new IOException("truncated or malformed swerve snapshot", e);
+    }
+  }
+
+  /**
+   * Build the swerve drive from the decoded entries the way {@link SwerveParser#createSwerveDrive(double, Pose2d)} does
+   * for YAGSL {@link SwerveConfigSnapshot#assembledFor}, through the public factories of YAGSL's JSON classes.
+   *
+   * @param entries     Decoded entries by file name.
+   * @param maxSpeed    Maximum speed of the robot in meters per second.
+   * @param initialPose Starting pose of the robot.
+   * @return The swerve drive.
+   * @throws IOException If an entry is missing.
+   */
+  private static SwerveDrive create(Map<String, Object> entries, double maxSpeed, Pose2d initialPose)
+  throws IOException
+  {
+    SwerveDriveJson          swerveDriveJson          = entry(entries, "swervedrive.json", SwerveDriveJson.class);
+    ControllerPropertiesJson controllerPropertiesJson = entry(entries,
+                                                              "controllerproperties.json",
+                                                              ControllerPropertiesJson.class);
+    PIDFPropertiesJson       pidfPropertiesJson       = entry(entries,
+                                                              "modules/pidfproperties.json",
+                                                              PIDFPropertiesJson.class);
+    PhysicalPropertiesJson   physicalPropertiesJson   = entry(entries,
+                                                              "modules/physicalproperties.json",
+                                                              PhysicalPropertiesJson.class);
+
+    SwerveModulePhysicalCharacteristics physicalCharacteristics = physicalPropertiesJson.createPhysicalProperties();
+    SwerveModuleConfiguration[] moduleConfigurations = new SwerveModuleConfiguration[swerveDriveJson.modules.length];
+    for (int i = 0; i < moduleConfigurations.length; i++)
+    {
+      ModuleJson moduleJson = entry(entries, "modules/" + swerveDriveJson.modules[i], ModuleJson.class);
+      moduleConfigurations[i] = moduleJson.createModuleConfiguration(pidfPropertiesJson.angle,
+                                                                     pidfPropertiesJson.drive,
+                                                                     physicalCharacteristics,
+                                                                     swerveDriveJson.modules[i]);
+    }
+    SwerveDriveConfiguration swerveDriveConfiguration = new SwerveDriveConfiguration(moduleConfigurations,
+                                                                                     swerveDriveJson.imu.createIMU(),
+                                                                                     swerveDriveJson.invertedIMU,
+                                                                                     physicalCharacteristics);
+    return new SwerveDrive(swerveDriveConfiguration,
+                           controllerPropertiesJson.createControllerConfiguration(swerveDriveConfiguration, maxSpeed),
+                           maxSpeed,
+                           initialPose);
+  }
+
+  /**
+   * Get a decoded entry.
+   *
+   * @param entries Decoded entries by file name.
+   * @param name    File name of the entry.
+   * @param type    Class of the entry.
+   * @param <T>     Type of the entry.
+   * @return Entry.
+   * @throws IOException If the snapshot has no such entry.
+   */
+  private static <T> T entry(Map<String, Object> entries, String name, Class<T> type) throws IOException
+  {
+    Object entry = entries.get(name);
+    if (!type.isInstance(entry))
+    {
+      throw new IOException("snapshot has no entry for " + name);
+    }
+    return type.cast(entry);
+  }
+
+  /**
+   * List the files of a configuration directory in snapshot order.
+   *
+   * @param directory Directory of swerve drive config files.
+   * @param mapper    Mapper to read the module list with.
+   * @return File names relative to the directory.
+   * @throws IOException If swervedrive.json cannot be read.
+   */
+  private static List<String> entryNames(File directory, ObjectMapper mapper) throws IOException
+  {
+    SwerveDriveJson swerveDriveJson = mapper.readValue(new File(directory, "swervedrive.json"), SwerveDriveJson.class);
+    if (swerveDriveJson.imu == null || swerveDriveJson.modules == null || swerveDriveJson.modules.length == 0)
+    {
+      throw new IOException(directory + ": an imu and at least one module are required");
+    }
+    List<String> names = new ArrayList<>(List.of(sharedEntries));
+    for (String module : swerveDriveJson.modules)
+    {
+      names.add("modules/" + module);
+    }
+    return names;
+  }
+
+  /**
+   * Get the YAGSL JSON class of an entry.
+   *
+   * @param name File name of the entry.
+   * @return Class the entry is parsed into.
+   */
+  private static Class<?> entryType(String name)
+  {
+    return switch (name)
+    {
+      case "swervedrive.json" -> SwerveDriveJson.class;
+      case "controllerproperties.json" -> ControllerPropertiesJson.class;
+      case "modules/pidfproperties.json" -> PIDFPropertiesJson.class;
+      case "modules/physicalproperties.json" -> PhysicalPropertiesJson.class;
+      default -> ModuleJson.class;
+    };
+  }
+
+  /**
+   * Encode a value.
+   *
+   * @param out   Stream to write to.
+   * @param value Value to encode.
+   * @throws IOException                   If the stream cannot be written.
+   * @throws UnsupportedOperationException If the value or one of its fields has a type the encoding does not support.
+   */
+  private static void write(DataOutputStream out, Object value) throws IOException
+  {
+    if (value == null)
+    {
+      out.writeByte(Tag.NULL.ordinal());
+    } else if (value instanceof Boolean bool)
+    {
+      out.writeByte(Tag.BOOLEAN.ordinal());
+      out.writeBoolean(bool);
+    } else if (value instanceof Byte || value instanceof Short || value instanceof Integer)
+    {
+      out.writeByte(Tag.INT.ordinal());
+      out.writeInt(((Number) value).intValue());
+    } else if (value instanceof Character character)
+    {
+      out.writeByte(Tag.INT.ordinal());
+      out.writeInt(character);
+    } else if (value instanceof Long number)
+    {
+      out.writeByte(Tag.LONG.ordinal());
+      out.writeLong(number);
+    } else if (value instanceof Float || value instanceof Double)
+    {
+      out.writeByte(Tag.DOUBLE.ordinal());
+      out.writeDouble(((Number) value).doubleValue());
+    } else if (value instanceof String string)
+    {
+      out.writeByte(Tag.STRING.ordinal());
+      writeString(out, string);
+    } else if (value instanceof Enum<?> constant)
+    {
+      out.writeByte(Tag.ENUM.ordinal());
+      writeString(out, allowed(constant.getDeclaringClass()).getName());
+      writeString(out, constant.name());
+    } else if (value.getClass().isArray())
+    {
+      int length = Array.getLength(value);
+      out.writeByte(Tag.ARRAY.ordinal());
+      out.writeInt(length);
+      for (int i = 0; i < length; i++)
+      {
+        write(out, Array.get(value, i));
+      }
+    } else
+    {
+      Class<?>    type   = allowed(value.getClass());
+      List<Field> fields = fields(type);
+      out.writeByte(Tag.OBJECT.ordinal());
+      writeString(out, type.getName());
+      out.writeShort(fields.size());
+      for (Field field : fields)
+      {
+        writeString(out, field.getName());
+        try
+        {
+          write(out, field.get(value));
+        } catch (IllegalAccessException e)
+        {
+          throw new UnsupportedOperationException("cannot read " + field, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Decode a value.
+   *
+   * @param in   Buffer positioned at the value.
+   * @param type Declared type the value is assigned to.
+   * @return Decoded value, boxed for primitive types.
+   * @throws IOException If the encoded value does not fit the declared type.
+   */
+  private static Object read(ByteBuffer in, Class<?> type) throws IOException
+  {
+    int tag = in.get();
+    if (tag < 0 || tag >= Tag.values().length)
+    {
+      throw new IOException("unknown tag " + tag);
+    }
+    switch (Tag.values()[tag])
+    {
+      case NULL:
+        expect(!type.isPrimitive(), type, "null");
+        return null;
+      case BOOLEAN:
+        expect(type == boolean.class || type == Boolean.class, type, "boolean");
+        return in.get() != 0;
+      case INT:
+        int number = in.getInt();
+        if (type == int.class || type == Integer.class)
+        {
+          return number;
+        } else if (type == short.class || type == Short.class)
+        {
+          return (short) number;
+        } else if (type == byte.class || type == Byte.class)
+        {
+          return (byte) number;
+        }
+        expect(type == char.class || type == Character.class, type, "int");
+        return (char) number;
+      case LONG:
+        expect(type == long.class || type == Long.class, type, "long");
+        return in.getLong();
+      case DOUBLE:
+        double real = in.getDouble();
+        if (type == float.class || type == Float.class)
+        {
+          return (float) real;
+        }
+        expect(type == double.class || type == Double.class, type, "double");
+        return real;
+      case STRING:
+        expect(type == String.class, type, "string");
+        return readString(in);
+      case ENUM:
+        Class<?> enumType = allowed(readString(in));
+        expect(type == enumType && enumType.isEnum(), type, enumType.getName());
+        return enumConstant(enumType, readString(in));
+      case ARRAY:
+        expect(type.isArray(), type, "array");
+        int    length = in.getInt();
+        Object array  = Array.newInstance(type.getComponentType(), length);
+        for (int i = 0; i < length; i++)
+        {
+          Array.set(array, i, read(in, type.getComponentType()));
+        }
+        return array;
+      default:
+        Class<?> objectType = allowed(readString(in));
+        expect(type.isAssignableFrom(objectType), type, objectType.getName());
+        try
+        {
+          Constructor<?> constructor = objectType.getDeclaredConstructor();
+          constructor.setAccessible(true);
+          Object object = constructor.newInstance();
+          int    fields = in.getShort() & 0xFFFF;
+          for (int i = 0; i < fields; i++)
+          {
+            Field field = field(objectType, readString(in));
+            field.set(object, read(in, field.getType()));
+          }
+          return object;
+        } catch (ReflectiveOperationException e)
+        {
+          throw new IOException("cannot decode " + objectType.getName() + ", YAGSL's JSON classes changed", e);
+        }
+    }
+  }
+
+  /**
+   * Check a decoded value fits its declared type.
+   *
+   * @param fits    Whether the value fits.
+   * @param type    Declared type.
+   * @param encoded Description of the encoded value.
+   * @throws IOException If the value does not fit.
+   */
+  private static void expect(boolean fits, Class<?> type, String encoded) throws IOException
+  {
+    if (!fits)
+    {
+      throw new IOException("cannot decode " + encoded + " into " + type.getName() + ", YAGSL's JSON classes changed");
+    }
+  }
+
+  /**
+   * Get an enum constant by name.
+   *
+   * @param type Enum class.
+   * @param name Constant name.
+   * @param <E>  Enum type.
+   * @return Constant.
+   */
+  @SuppressWarnings("unchecked")
+  private static <E extends Enum<E>> E enumConstant(Class<?> type, String name)
+  {
+    return Enum.valueOf((Class<E>) type, name);
+  }
+
+  /**
+   * Get every instance field of a class and its superclasses, made accessible, in a stable order.
+   *
+   * @param type Class.
+   * @return Fields.
+   */
+  private static List<Field> fields(Class<?> type)
+  {
+    List<Field> fields = new ArrayList<>();
+    for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass())
+    {
+      for (Field field : c.getDeclaredFields())
+      {
+        int modifiers = field.getModifiers();
+        if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic())
+        {
+          field.setAccessible(true);
+          fields.add(field);
+        }
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Get an instance field of a class or its superclasses by name, made accessible.
+   *
+   * @param type Class.
+   * @param name Field name.
+   * @return Field.
+   * @throws NoSuchFieldException If there is no such field.
+   */
+  private static Field field(Class<?> type, String name) throws NoSuchFieldException
+  {
+    for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass())
+    {
+      try
+      {
+        Field field = c.getDeclaredField(name);
+        if (!Modifier.isStatic(field.getModifiers()))
+        {
+          field.setAccessible(true);
+          return field;
+        }
+      } catch (NoSuchFieldException e)
+      {
+        // Declared further up.
+      }
+    }
+    throw new NoSuchFieldException(type.getName() + "." + name);
+  }
+
+  /**
+   * Check a class may be encoded as an object or enum.
+   *
+   * @param type Class.
+   * @return The class.
+   * @throws UnsupportedOperationException If the class is not one of YAGSL's.
+   */
+  private static Class<?> allowed(Class<?> type)
+  {
+    if (!type.getName().startsWith(allowedPackage))
+    {
+      throw new UnsupportedOperationException("cannot encode " + type.getName());
+    }
+    return type;
+  }
+
+  /**
+   * Load a class named in a snapshot.
+   *
+   * @param name Class name.
+   * @return The class.
+   * @throws IOException If the class is not one of YAGSL's or does not exist.
+   */
+  private static Class<?> allowed(String name) throws IOException
+  {
+    if (!name.startsWith(allowedPackage))
+    {
+      throw new IOException("snapshot names " + name + " outside " + allowedPackage);
+    }
+    try
+    {
+      return Class.forName(name);
+    } catch (ClassNotFoundException e)
+    {
+      throw new IOException("cannot decode " + name + ", YAGSL's JSON classes changed", e);
+    }
+  }
+
+  /**
+   * Write a string as a 2 byte length followed by UTF-8.
+   *
+   * @param out    Stream to write to.
+   * @param string String to write.
+   * @throws IOException If the stream cannot be written.
+   */
+  private static void writeString(DataOutputStream out, String string) throws IOException
+  {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Read a string written by {@link SwerveConfigSnapshot#writeString(DataOutputStream, String)}.
+   *
+   * @param in Buffer positioned at the string.
+   * @return String.
+   */
+  private static String readString(ByteBuffer in)
+  {
+    byte[] bytes = new byte[in.getShort() & 0xFFFF];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -14,11 +14,9 @@ import com.pathplanner.lib.config.RobotConfig;
 import com.pathplanner.lib.controllers.PPHolonomicDriveController;
 import com.pathplanner.lib.path.PathConstraints;
 import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.pathfinding.Pathfinding;
 import com.pathplanner.lib.util.DriveFeedforwards;
-import com.pathplanner.lib.util.swerve.SwerveSetpoint;
 import com.pathplanner.lib.util.swerve.SwerveSetpointGenerator;
-import edu.wpi.first.apriltag.AprilTagFieldLayout;
-import edu.wpi.first.apriltag.AprilTagFields;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
@@ -30,6 +28,7 @@ import edu.wpi.first.math.trajectory.Trajectory;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
@@ -37,18 +36,24 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine.Config;
 import frc.robot.Constants;
 import frc.robot.subsystems.swervedrive.Vision.Cameras;
+import frc.robot.util.InputLog;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.StartupProfiler;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
 import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
-import org.json.simple.parser.ParseException;
+import java.util.function.UnaryOperator;
 import org.photonvision.targeting.PhotonPipelineResult;
 import swervelib.SwerveController;
 import swervelib.SwerveDrive;
 import swervelib.SwerveDriveTest;
+import swervelib.math.Matter;
 import swervelib.math.SwerveMath;
 import swervelib.parser.SwerveControllerConfiguration;
 import swervelib.parser.SwerveDriveConfiguration;
@@ -60,21 +65,79 @@ public class SwerveSubsystem extends SubsystemBase
 {
 
   /**
-   * Swerve drive object.
+   * PathPlanner GUI settings being parsed on the startup executor, null unless
+   * {@link SwerveSubsystem#preloadRobotConfig()} was called.
+   */
+  private static Future<RobotConfig> robotConfigFuture;
+  /**
+   * Translation PID of the PathPlanner path following controller.
    */
-  private final SwerveDrive         swerveDrive;
+  private static PIDConstants        translationPID      = Constants.AutonConstants.TRANSLATION_PID;
   /**
-   * AprilTag field layout.
+   * Rotation PID of the PathPlanner path following controller.
    */
-  private final AprilTagFieldLayout aprilTagFieldLayout = AprilTagFieldLayout.loadField(AprilTagFields.k2024Crescendo);
+  private static PIDConstants        rotationPID         = Constants.AutonConstants.ANGLE_PID;
+  /**
+   * Swerve drive object.
+   */
+  private final  SwerveDrive         swerveDrive;
   /**
    * Enable vision odometry updates while driving.
    */
-  private final boolean             visionDriveTest     = false;
+  private final  boolean             visionDriveTest     = false;
+  /**
+   * Keep odometry on its own high rate thread while vision is enabled, instead of updating both from
+   * {@link SwerveSubsystem#periodic()}.
+   */
+  private final  boolean             highRateOdometry    = true;
+  /**
+   * Seconds between odometry updates on the {@link OdometryThread}.
+   */
+  private final  double              odometryPeriod      = 0.004;
+  /**
+   * Seconds between odometry updates on the {@link SwerveDrive} odometry thread, restarted after installing the
+   * {@link LoggedPoseEstimator} for a recording.
+   */
+  private final  double              yagslOdometryPeriod = 0.02;
+  /**
+   * Plan on-the-fly paths with the {@link NavGridPathfinder} instead of PathPlanner's default pathfinder.
+   */
+  private final  boolean             navGridPathfinder   = true;
+  /**
+   * Wraps the consumer driving the robot from the path following output, for simulation harnesses which model what
+   * happens between the path following controller and the drive.
+   */
+  private static UnaryOperator<BiConsumer<ChassisSpeeds, DriveFeedforwards>> pathFollowingOutput =
+      UnaryOperator.identity();
   /**
    * PhotonVision class to keep an accurate odometry.
    */
   private Vision vision;
+  /**
+   * Odometry thread accepting vision measurements, null unless vision runs with
+   * {@link SwerveSubsystem#highRateOdometry}.
+   */
+  private OdometryThread odometryThread;
+  /**
+   * PathPlanner robot configuration, parsed once from the GUI settings. Null if the settings could not be loaded.
+   */
+  private RobotConfig robotConfig;
+  /**
+   * Setpoint generator drive mode, created the first time it is used.
+   */
+  private SetpointGeneratorDrive setpointGeneratorDrive;
+  /**
+   * Tipping aware velocity limiter, created the first time it is used.
+   */
+  private TippingVelocityLimiter velocityLimiter;
+  /**
+   * {@link LoopProfiler} entry timing {@link SwerveSubsystem#periodic()}.
+   */
+  private final int periodicProfile = LoopProfiler.register("SwerveSubsystem.periodic()");
+  /**
+   * Velocity reused by {@link SwerveSubsystem#drive(double, double, double, boolean)}.
+   */
+  private final ChassisSpeeds driveVelocity = new ChassisSpeeds();
 
   /**
    * Initialize {@link SwerveDrive} with the directory provided.
@@ -84,13 +147,23 @@ public class SwerveSubsystem extends SubsystemBase
   public SwerveSubsystem(File directory)
   {
     // Configure the Telemetry before creating the SwerveDrive to avoid unnecessary objects being created.
+    // The TelemetryGovernor lowers the verbosity at runtime, so create the drive with the highest one it may pick.
     SwerveDriveTelemetry.verbosity = TelemetryVerbosity.HIGH;
-    try
+    if (visionDriveTest)
+    {
+      // Parse the field layout on the startup executor while the drive is being built, only vision reads it.
+      StartupProfiler.submit("AprilTagFieldLayout.loadField", () -> Vision.tagTable);
+    }
+    try (StartupProfiler.Phase phase = StartupProfiler.phase("SwerveParser"))
     {
-      swerveDrive = new SwerveParser(directory).createSwerveDrive(Constants.MAX_SPEED,
-                                                                  new Pose2d(new Translation2d(Meter.of(1),
-                                                                                               Meter.of(4)),
-                                                                             Rotation2d.fromDegrees(0)));
+      Pose2d startingPose = new Pose2d(new Translation2d(Meter.of(1),
+                                                         Meter.of(4)),
+                                       Rotation2d.fromDegrees(0));
+      // Use the precompiled snapshot of the config files when it is up to date, it skips the JSON parsing.
+      Optional<SwerveDrive> snapshot = SwerveConfigSnapshot.load(directory, Constants.MAX_SPEED, startingPose);
+      swerveDrive = snapshot.isPresent() ? snapshot.get()
+                                         : new SwerveParser(directory).createSwerveDrive(Constants.MAX_SPEED,
+                                                                                         startingPose);
       // Alternative method if you don't want to supply the conversion factor via JSON files.
       // swerveDrive = new SwerveParser(directory).createSwerveDrive(maximumSpeed, angleConversionFactor, driveConversionFactor);
     } catch (Exception e)
@@ -105,13 +178,35 @@ public class SwerveSubsystem extends SubsystemBase
     swerveDrive.setModuleEncoderAutoSynchronize(false,
                                                 1); // Enable if you want to resynchronize your absolute encoders and motor encoders periodically when they are not moving.
 //    swerveDrive.pushOffsetsToEncoders(); // Set the absolute encoder to be used over the internal encoder and push the offsets onto it. Throws warning if not possible
+    if (InputLog.isActive())
+    {
+      // Swap the estimator while no odometry thread uses it, every thread started after this goes through the log.
+      swerveDrive.stopOdometryThread();
+      swerveDrive.swerveDrivePoseEstimator = new LoggedPoseEstimator(swerveDrive);
+    }
     if (visionDriveTest)
     {
-      setupPhotonVision();
+      try (StartupProfiler.Phase phase = StartupProfiler.phase("Vision", "SwerveParser"))
+      {
+        setupPhotonVision();
+      }
       // Stop the odometry thread if we are using vision that way we can synchronize updates better.
       swerveDrive.stopOdometryThread();
+      if (highRateOdometry && !InputLog.isReplaying())
+      {
+        // Run odometry at a high rate on our own thread which also applies the vision measurements.
+        odometryThread = new OdometryThread(swerveDrive, odometryPeriod);
+        odometryThread.start();
+      }
+    } else if (InputLog.isRecording())
+    {
+      // A recording keeps odometry on its thread, the samples are logged where the thread hands them to the estimator.
+      swerveDrive.setOdometryPeriod(yagslOdometryPeriod);
+    }
+    try (StartupProfiler.Phase phase = StartupProfiler.phase("setupPathPlanner", "SwerveParser"))
+    {
+      setupPathPlanner();
     }
-    setupPathPlanner();
   }
 
   /**
@@ -129,22 +224,86 @@ public class SwerveSubsystem extends SubsystemBase
                                              Rotation2d.fromDegrees(0)));
   }
 
+  /**
+   * Start parsing the PathPlanner GUI settings on the startup executor, {@link SwerveSubsystem#setupPathPlanner()} uses
+   * the result instead of parsing them again. Call before constructing the subsystem.
+   */
+  public static void preloadRobotConfig()
+  {
+    robotConfigFuture = StartupProfiler.submit("RobotConfig.fromGUISettings", RobotConfig::fromGUISettings);
+  }
+
+  /**
+   * Set the gains of the PathPlanner path following controller, {@link Constants.AutonConstants} by default. Call
+   * before constructing the subsystem.
+   *
+   * @param translation Translation PID constants.
+   * @param rotation    Rotation PID constants.
+   */
+  public static void setPathFollowingGains(PIDConstants translation, PIDConstants rotation)
+  {
+    translationPID = translation;
+    rotationPID = rotation;
+  }
+
+  /**
+   * Pass the drive output of the PathPlanner path following controller through a decorator, none by default. Call
+   * before constructing the subsystem, which configures AutoBuilder once.
+   *
+   * @param outputDecorator Wraps the consumer driving the robot from the robot relative speeds and module
+   *                        feedforwards.
+   */
+  public static void setPathFollowingOutput(UnaryOperator<BiConsumer<ChassisSpeeds, DriveFeedforwards>> outputDecorator)
+  {
+    pathFollowingOutput = outputDecorator;
+  }
+
   /**
    * Setup the photon vision class.
    */
   public void setupPhotonVision()
   {
-    vision = new Vision(swerveDrive::getPose, swerveDrive.field);
+    vision = new Vision(this::getPose, swerveDrive.field);
   }
 
   @Override
   public void periodic()
   {
+    long start = LoopProfiler.start();
     // When vision is enabled we must manually update odometry in SwerveDrive
     if (visionDriveTest)
+    {
+      if (odometryThread != null)
+      {
+        // Odometry keeps running on its own thread, which applies the measurements between updates.
+        vision.updatePoseEstimation(swerveDrive, odometryThread);
+      } else
+      {
+        updateOdometry();
+        vision.updatePoseEstimation(swerveDrive);
+      }
+    } else if (InputLog.isReplaying())
+    {
+      updateOdometry();
+    }
+    LoopProfiler.stop(periodicProfile, start);
+  }
+
+  /**
+   * Update odometry from the robot loop. A replay runs every odometry update the recording made in the frame, which
+   * came from an odometry thread at a higher rate than the loop.
+   */
+  private void updateOdometry()
+  {
+    if (InputLog.isReplaying())
+    {
+      while (InputLog.isOdometryUpdateDue())
+      {
+        swerveDrive.updateOdometry();
+      }
+    } else
     {
       swerveDrive.updateOdometry();
-      vision.updatePoseEstimation(swerveDrive);
     }
   }
 
@@ -163,7 +322,11 @@ public class SwerveSubsystem extends SubsystemBase
     RobotConfig config;
     try
     {
-      config = RobotConfig.fromGUISettings();
+      try (StartupProfiler.Phase phase = StartupProfiler.phase("RobotConfig", "RobotConfig.fromGUISettings"))
+      {
+        config = robotConfigFuture != null ? robotConfigFuture.get() : RobotConfig.fromGUISettings();
+      }
+      robotConfig = config;
 
       final boolean enableFeedforward = true;
       // Configure AutoBuilder last
@@ -174,7 +337,7 @@ public class SwerveSubsystem extends SubsystemBase
           // Method to reset odometry (will be called if your auto has a starting pose)
           this::getRobotVelocity,
           // ChassisSpeeds supplier. MUST BE ROBOT RELATIVE
-          (speedsRobotRelative, moduleFeedForwards) -> {
+          pathFollowingOutput.apply((speedsRobotRelative, moduleFeedForwards) -> {
             if (enableFeedforward)
             {
               swerveDrive.drive(
@@ -186,13 +349,13 @@ public class SwerveSubsystem extends SubsystemBase
             {
               swerveDrive.setChassisSpeeds(speedsRobotRelative);
             }
-          },
+          }),
           // Method that will drive the robot given ROBOT RELATIVE ChassisSpeeds. Also optionally outputs individual module feedforwards
           new PPHolonomicDriveController(
               // PPHolonomicController is the built in path following controller for holonomic drive trains
-              new PIDConstants(5.0, 0.0, 0.0),
+              translationPID,
               // Translation PID constants
-              new PIDConstants(5.0, 0.0, 0.0)
+              rotationPID
               // Rotation PID constants
           ),
           config,
@@ -220,8 +383,22 @@ public class SwerveSubsystem extends SubsystemBase
     }
 
     //Preload PathPlanner Path finding
+    if (navGridPathfinder)
+    {
+      try (StartupProfiler.Phase phase = StartupProfiler.phase("NavGridPathfinder"))
+      {
+        File navGrid = new File(Filesystem.getDeployDirectory(), "pathplanner/navgrid.json");
+        Pathfinding.setPathfinder(new NavGridPathfinder(NavGrid.load(navGrid)));
+      } catch (IOException e)
+      {
+        DriverStation.reportWarning("Failed to load the navgrid, using the default pathfinder: " + e, false);
+      }
+    }
     // IF USING CUSTOM PATHFINDER ADD BEFORE THIS LINE
-    PathfindingCommand.warmupCommand().schedule();
+    try (StartupProfiler.Phase phase = StartupProfiler.phase("PathfindingCommand.warmupCommand", "NavGridPathfinder"))
+    {
+      PathfindingCommand.warmupCommand().schedule();
+    }
   }
 
   /**
@@ -286,33 +463,13 @@ public class SwerveSubsystem extends SubsystemBase
    *
    * @param robotRelativeChassisSpeed Robot relative {@link ChassisSpeeds} to achieve.
    * @return {@link Command} to run.
-   * @throws IOException    If the PathPlanner GUI settings is invalid
-   * @throws ParseException If PathPlanner GUI settings is nonexistent.
+   * @throws IllegalStateException If the PathPlanner GUI settings could not be loaded.
    */
-  private Command driveWithSetpointGenerator(Supplier<ChassisSpeeds> robotRelativeChassisSpeed)
-  throws IOException, ParseException
+  public Command driveWithSetpointGenerator(Supplier<ChassisSpeeds> robotRelativeChassisSpeed)
   {
-    SwerveSetpointGenerator setpointGenerator = new SwerveSetpointGenerator(RobotConfig.fromGUISettings(),
-                                                                            swerveDrive.getMaximumChassisAngularVelocity());
-    AtomicReference<SwerveSetpoint> prevSetpoint
-        = new AtomicReference<>(new SwerveSetpoint(swerveDrive.getRobotVelocity(),
-                                                   swerveDrive.getStates(),
-                                                   DriveFeedforwards.zeros(swerveDrive.getModules().length)));
-    AtomicReference<Double> previousTime = new AtomicReference<>();
-
-    return startRun(() -> previousTime.set(Timer.getFPGATimestamp()),
-                    () -> {
-                      double newTime = Timer.getFPGATimestamp();
-                      SwerveSetpoint newSetpoint = setpointGenerator.generateSetpoint(prevSetpoint.get(),
-                                                                                      robotRelativeChassisSpeed.get(),
-                                                                                      newTime - previousTime.get());
-                      swerveDrive.drive(newSetpoint.robotRelativeSpeeds(),
-                                        newSetpoint.moduleStates(),
-                                        newSetpoint.feedforwards().linearForces());
-                      prevSetpoint.set(newSetpoint);
-                      previousTime.set(newTime);
-
-                    });
+    SetpointGeneratorDrive setpointDrive = getSetpointGeneratorDrive();
+    return startRun(() -> setpointDrive.reset(Timer.getFPGATimestamp()),
+                    () -> setpointDrive.drive(robotRelativeChassisSpeed.get(), Timer.getFPGATimestamp()));
   }
 
   /**
@@ -325,10 +482,11 @@ public class SwerveSubsystem extends SubsystemBase
   {
     try
     {
-      return driveWithSetpointGenerator(() -> {
-        return ChassisSpeeds.fromFieldRelativeSpeeds(fieldRelativeSpeeds.get(), getHeading());
-
-      });
+      SetpointGeneratorDrive setpointDrive = getSetpointGeneratorDrive();
+      return startRun(() -> setpointDrive.reset(Timer.getFPGATimestamp()),
+                      () -> setpointDrive.driveFieldRelative(fieldRelativeSpeeds.get(),
+                                                             getHeading().getRadians(),
+                                                             Timer.getFPGATimestamp()));
     } catch (Exception e)
     {
       DriverStation.reportError(e.toString(), true);
@@ -337,6 +495,25 @@ public class SwerveSubsystem extends SubsystemBase
 
   }
 
+  /**
+   * Get the setpoint generator drive mode, built from the cached {@link RobotConfig}.
+   *
+   * @return {@link SetpointGeneratorDrive} for this drive.
+   * @throws IllegalStateException If the PathPlanner GUI settings could not be loaded.
+   */
+  SetpointGeneratorDrive getSetpointGeneratorDrive()
+  {
+    if (setpointGeneratorDrive == null)
+    {
+      if (robotConfig == null)
+      {
+        throw new IllegalStateException("PathPlanner GUI settings were not loaded, cannot use the setpoint generator.");
+      }
+      setpointGeneratorDrive = new SetpointGeneratorDrive(swerveDrive, robotConfig);
+    }
+    return setpointGeneratorDrive;
+  }
+
 
   /**
    * Command to characterize the robot drive motors using SysId
@@ -473,6 +650,29 @@ public class SwerveSubsystem extends SubsystemBase
                       false); // Open loop is disabled since it shouldn't be used most of the time.
   }
 
+  /**
+   * Drive from the components of a commanded velocity, without building a {@link Translation2d}. Same behaviour as
+   * {@link SwerveSubsystem#drive(Translation2d, double, boolean)}, for commands which run every loop.
+   *
+   * @param x             Commanded x velocity, in meters per second.
+   * @param y             Commanded y velocity, in meters per second.
+   * @param rotation      Robot angular rate, in radians per second. CCW positive.
+   * @param fieldRelative Drive mode.  True for field-relative, false for robot-relative.
+   */
+  public void drive(double x, double y, double rotation, boolean fieldRelative)
+  {
+    driveVelocity.vxMetersPerSecond = x;
+    driveVelocity.vyMetersPerSecond = y;
+    driveVelocity.omegaRadiansPerSecond = rotation;
+    if (fieldRelative)
+    {
+      swerveDrive.driveFieldOriented(driveVelocity);
+    } else
+    {
+      swerveDrive.drive(driveVelocity);
+    }
+  }
+
   /**
    * Drive the robot given a chassis field oriented velocity.
    *
@@ -526,6 +726,10 @@ public class SwerveSubsystem extends SubsystemBase
   public void resetOdometry(Pose2d initialHolonomicPose)
   {
     swerveDrive.resetOdometry(initialHolonomicPose);
+    if (odometryThread != null)
+    {
+      odometryThread.refresh();
+    }
   }
 
   /**
@@ -535,7 +739,7 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public Pose2d getPose()
   {
-    return swerveDrive.getPose();
+    return odometryThread != null ? odometryThread.getPose() : swerveDrive.getPose();
   }
 
   /**
@@ -616,6 +820,17 @@ public class SwerveSubsystem extends SubsystemBase
     return getPose().getRotation();
   }
 
+  /**
+   * Gets the current yaw angle of the robot like {@link SwerveSubsystem#getHeading()}, without building a pose.
+   *
+   * @return The yaw angle in radians.
+   */
+  public double getHeadingRadians()
+  {
+    return odometryThread != null ? odometryThread.getPose().getRotation().getRadians()
+                                  : swerveDrive.getOdometryHeading().getRadians();
+  }
+
   /**
    * Get the chassis speeds based on controller input of 2 joysticks. One for speeds in which direction. The other for
    * the angle of the robot.
@@ -697,6 +912,35 @@ public class SwerveSubsystem extends SubsystemBase
     return swerveDrive.swerveDriveConfiguration;
   }
 
+  /**
+   * Get the velocity limiter which keeps the robot from tipping, built from {@link Constants#ROBOT_MASS} and
+   * {@link Constants#CHASSIS}.
+   *
+   * @return The shared {@link TippingVelocityLimiter}.
+   */
+  public TippingVelocityLimiter getVelocityLimiter()
+  {
+    if (velocityLimiter == null)
+    {
+      velocityLimiter = new TippingVelocityLimiter(Constants.ROBOT_MASS,
+                                                   List.of(Constants.CHASSIS),
+                                                   getSwerveDriveConfiguration(),
+                                                   Constants.LOOP_TIME);
+    }
+    return velocityLimiter;
+  }
+
+  /**
+   * Rebuild the tipping limits after a mechanism changed the center of mass of the robot.
+   *
+   * @param robotMass Mass of the robot in kg.
+   * @param matter    Every {@link Matter} of the robot, including {@link Constants#CHASSIS}.
+   */
+  public void updateCenterOfMass(double robotMass, List<Matter> matter)
+  {
+    getVelocityLimiter().updateCenterOfMass(robotMass, matter);
+  }
+
   /**
    * Lock the swerve drive to prevent it from moving.
    */
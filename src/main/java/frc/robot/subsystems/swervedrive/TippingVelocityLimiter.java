@@ -0,0 +1,119 @@
+package frc.robot.subsystems.swervedrive;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import java.util.List;
+import swervelib.math.Matter;
+import swervelib.math.SwerveMath;
+import swervelib.parser.SwerveDriveConfiguration;
+
+/**
+ * Velocity limiter which keeps the robot from tipping, equivalent to
+ * {@link SwerveMath#limitVelocity(Translation2d, ChassisSpeeds, edu.wpi.first.math.geometry.Pose2d, double, double,
+ * List, SwerveDriveConfiguration)} without recomputing the center of mass and tipping limits every loop. The maximum
+ * acceleration before tipping is tabulated once per robot relative direction with {@link SwerveMath#calcMaxAccel}, and
+ * limiting a velocity only interpolates the table. Rebuild the table with
+ * {@link TippingVelocityLimiter#updateCenterOfMass(double, List)} when a mechanism moves the center of mass.
+ */
+public class TippingVelocityLimiter
+{
+
+  /**
+   * Number of directions in the acceleration table.
+   */
+  private static final int                      directions = 360;
+  /**
+   * Drive configuration holding the module locations.
+   */
+  private final        SwerveDriveConfiguration config;
+  /**
+   * Seconds the commanded velocity has to be reached in.
+   */
+  private final        double                   loopTime;
+  /**
+   * Maximum acceleration in m/s^2 for robot relative directions evenly spaced from -pi, with the first entry repeated
+   * at the end. Replaced as a whole when rebuilt.
+   */
+  private volatile     double[]                 maxAcceleration;
+
+  /**
+   * Build the limiter.
+   *
+   * @param robotMass Mass of the robot in kg.
+   * @param matter    Every {@link Matter} of the robot.
+   * @param config    Drive configuration holding the module locations.
+   * @param loopTime  Seconds the commanded velocity has to be reached in.
+   */
+  public TippingVelocityLimiter(double robotMass, List<Matter> matter, SwerveDriveConfiguration config,
+                                double loopTime)
+  {
+    this.config = config;
+    this.loopTime = loopTime;
+    updateCenterOfMass(robotMass, matter);
+  }
+
+  /**
+   * Rebuild the acceleration table, call when a mechanism changes the mass or center of mass of the robot.
+   *
+   * @param robotMass Mass of the robot in kg.
+   * @param matter    Every {@link Matter} of the robot.
+   */
+  public void updateCenterOfMass(double robotMass, List<Matter> matter)
+  {
+    double[] table = new double[directions + 1];
+    for (int i = 0; i < directions; i++)
+    {
+      Rotation2d angle = new Rotation2d(-Math.PI + 2 * Math.PI * i / directions);
+      table[i] = SwerveMath.calcMaxAccel(angle, matter, robotMass, config).getNorm();
+    }
+    table[directions] = table[0];
+    maxAcceleration = table;
+  }
+
+  /**
+   * Get the maximum acceleration before tipping.
+   *
+   * @param robotRelativeAngle Robot relative direction of the acceleration in radians.
+   * @return Maximum acceleration in m/s^2.
+   */
+  public double getMaxAcceleration(double robotRelativeAngle)
+  {
+    double[] table = maxAcceleration;
+    double   index = (MathUtil.angleModulus(robotRelativeAngle) + Math.PI) / (2 * Math.PI) * directions;
+    int      lower = Math.min((int) index, directions - 1);
+    double   t     = index - lower;
+    return table[lower] + (table[lower + 1] - table[lower]) * t;
+  }
+
+  /**
+   * Limit a field relative velocity to what the robot can reach within the loop time without tipping.
+   *
+   * @param commandedX     Commanded field relative x velocity in m/s.
+   * @param commandedY     Commanded field relative y velocity in m/s.
+   * @param fieldVelocity  Current field relative velocity.
+   * @param headingRadians Current robot heading in radians.
+   * @param out            Array receiving the limited x and y velocity.
+   * @return True if the velocity was limited.
+   */
+  public boolean limit(double commandedX, double commandedY, ChassisSpeeds fieldVelocity, double headingRadians,
+                       double[] out)
+  {
+    double deltaX   = commandedX - fieldVelocity.vxMetersPerSecond;
+    double deltaY   = commandedY - fieldVelocity.vyMetersPerSecond;
+    double delta    = Math.hypot(deltaX, deltaY);
+    double maxDelta = getMaxAcceleration(Math.atan2(deltaY, deltaX) - headingRadians) * loopTime;
+    if (delta > maxDelta)
+    {
+      // Accelerate as hard as allowed towards the commanded velocity.
+      double scale = maxDelta / delta;
+      out[0] = fieldVelocity.vxMetersPerSecond + deltaX * scale;
+      out[1] = fieldVelocity.vyMetersPerSecond + deltaY * scale;
+      return true;
+    }
+    out[0] = commandedX;
+    out[1] = commandedY;
+    return false;
+  }
+}
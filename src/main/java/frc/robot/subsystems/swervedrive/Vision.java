@@ -7,6 +7,7 @@ import static edu.wpi.first.units.Units.Seconds;
 import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.apriltag.AprilTagFields;
 import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
 import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
@@ -18,13 +19,21 @@ import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.networktables.NetworkTablesJNI;
 import edu.wpi.first.wpilibj.Alert;
 import edu.wpi.first.wpilibj.Alert.AlertType;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
+import edu.wpi.first.wpilibj.smartdashboard.FieldObject2d;
 import frc.robot.Robot;
+import frc.robot.util.InputLog;
+import frc.robot.util.SpscQueue;
 import java.awt.Desktop;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Supplier;
@@ -32,7 +41,6 @@ import org.photonvision.EstimatedRobotPose;
 import org.photonvision.PhotonCamera;
 import org.photonvision.PhotonPoseEstimator;
 import org.photonvision.PhotonPoseEstimator.PoseStrategy;
-import org.photonvision.PhotonUtils;
 import org.photonvision.simulation.PhotonCameraSim;
 import org.photonvision.simulation.SimCameraProperties;
 import org.photonvision.simulation.VisionSystemSim;
@@ -52,28 +60,90 @@ public class Vision
   /**
    * April Tag Field Layout of the year.
    */
-  public static final AprilTagFieldLayout fieldLayout                     = AprilTagFieldLayout.loadField(
+  public static final  AprilTagFieldLayout fieldLayout               = AprilTagFieldLayout.loadField(
       AprilTagFields.k2025Reefscape);
   /**
-   * Ambiguity defined as a value between (0,1). Used in {@link Vision#filterPose}.
+   * Tag poses from {@link Vision#fieldLayout} indexed by fiducial ID.
    */
-  private final       double              maximumAmbiguity                = 0.25;
+  public static final  AprilTagTable       tagTable                  = new AprilTagTable(fieldLayout);
   /**
-   * Photon Vision Simulation
+   * Ingest camera results on a background thread per camera, woken by NetworkTables, instead of polling every camera
+   * from the robot loop.
+   */
+  private final        boolean             backgroundIngestion       = true;
+  /**
+   * Simulate cameras with {@link AnalyticCameraSim} instead of rendering every frame with {@link VisionSystemSim}.
+   */
+  private static final boolean             analyticCameraSim         = true;
+  /**
+   * Gate rejecting implausible estimates before they are fused.
+   */
+  private final        VisionGate          gate                      = new VisionGate(fieldLayout);
+  /**
+   * Fusion stage ordering and merging every camera's measurements before they reach the pose estimator.
+   */
+  private final        VisionFusion        fusion                    = new VisionFusion(
+      Cameras.values().length * 32, 0.002);
+  /**
+   * Drive the {@link Vision#fusionSink} submits to.
    */
-  public              VisionSystemSim     visionSim;
+  private              SwerveDrive         fusionDrive;
   /**
-   * Count of times that the odom thinks we're more than 10meters away from the april tag.
+   * Cached sink submitting fused measurements to {@link Vision#fusionDrive}.
    */
-  private             double              longDistangePoseEstimationCount = 0;
+  private              VisionFusion.Sink   fusionSink;
+  /**
+   * Photon Vision Simulation
+   */
+  public               VisionSystemSim     visionSim;
   /**
    * Current pose from the pose estimator using wheel odometry.
    */
-  private             Supplier<Pose2d>    currentPose;
+  private              Supplier<Pose2d>    currentPose;
   /**
    * Field from {@link swervelib.SwerveDrive#field}
    */
-  private             Field2d             field2d;
+  private              Field2d             field2d;
+  /**
+   * Minimum seconds between publishes of the vision {@link Field2d} objects.
+   */
+  private static final double              fieldPublishPeriod        = 0.1;
+  /**
+   * Empty pose array used to clear {@link Field2d} objects.
+   */
+  private static final Pose2d[]            noPoses                   = new Pose2d[0];
+  /**
+   * Bitset of AprilTags visible in the latest result of any camera, rebuilt every {@link Vision#updateVisionField()}.
+   */
+  private final        long[]              visibleTags               = new long[(tagTable.getMaxId() >> 6) + 1];
+  /**
+   * Bitset of AprilTags last published to the tracked targets object.
+   */
+  private final        long[]              publishedTags             = new long[visibleTags.length];
+  /**
+   * Pose arrays for the tracked targets object indexed by length, each created the first time it is needed.
+   */
+  private final        Pose2d[][]          trackedTargetPoses        = new Pose2d[tagTable.getMaxId() + 2][];
+  /**
+   * Tracked targets object on {@link Vision#field2d}.
+   */
+  private              FieldObject2d       trackedTargetsObject;
+  /**
+   * Time the tracked targets were last published in seconds.
+   */
+  private              double              lastTrackedTargetsPublish = Double.NEGATIVE_INFINITY;
+  /**
+   * Vision estimate object on the simulation debug field, null outside of simulation.
+   */
+  private              FieldObject2d       visionEstimationObject;
+  /**
+   * Estimate last published to {@link Vision#visionEstimationObject}.
+   */
+  private              EstimatedRobotPose  publishedEstimation;
+  /**
+   * Time the vision estimate was last published in seconds.
+   */
+  private              double              lastEstimationPublish     = Double.NEGATIVE_INFINITY;
 
 
   /**
@@ -86,19 +156,33 @@ public class Vision
   {
     this.currentPose = currentPose;
     this.field2d = field;
+    this.trackedTargetsObject = field.getObject("tracked targets");
 
     if (Robot.isSimulation())
     {
       visionSim = new VisionSystemSim("Vision");
       visionSim.addAprilTags(fieldLayout);
+      visionEstimationObject = visionSim.getDebugField().getObject("VisionEstimation");
 
-      for (Cameras c : Cameras.values())
+      if (!analyticCameraSim)
       {
-        c.addToVisionSim(visionSim);
+        for (Cameras c : Cameras.values())
+        {
+          c.addToVisionSim(visionSim);
+        }
       }
 
       openSimCameraViews();
     }
+
+    // A replay reads the recorded results from the robot loop, so every result lands in the loop it was recorded in.
+    if (backgroundIngestion && !InputLog.isReplaying())
+    {
+      for (Cameras c : Cameras.values())
+      {
+        c.startIngestion();
+      }
+    }
   }
 
   /**
@@ -111,10 +195,10 @@ public class Vision
    */
   public static Pose2d getAprilTagPose(int aprilTag, Transform2d robotOffset)
   {
-    Optional<Pose3d> aprilTagPose3d = fieldLayout.getTagPose(aprilTag);
-    if (aprilTagPose3d.isPresent())
+    Pose2d aprilTagPose = tagTable.getPose2d(aprilTag);
+    if (aprilTagPose != null)
     {
-      return aprilTagPose3d.get().toPose2d().transformBy(robotOffset);
+      return aprilTagPose.transformBy(robotOffset);
     } else
     {
       throw new RuntimeException("Cannot get AprilTag " + aprilTag + " from field " + fieldLayout.toString());
@@ -129,7 +213,28 @@ public class Vision
    */
   public void updatePoseEstimation(SwerveDrive swerveDrive)
   {
-    if (SwerveDriveTelemetry.isSimulation && swerveDrive.getSimulationDriveTrainPose().isPresent())
+    if (swerveDrive != fusionDrive)
+    {
+      fusionDrive = swerveDrive;
+      fusionSink = swerveDrive::addVisionMeasurement;
+    }
+    updatePoseEstimation(swerveDrive, fusionSink);
+  }
+
+  /**
+   * Update the pose estimation with all of the given poses, submitting the fused measurements to a sink instead of
+   * directly to {@link SwerveDrive}. Used when odometry runs on its own thread and vision measurements are handed to
+   * it.
+   *
+   * @param swerveDrive {@link SwerveDrive} instance, used for the simulated ground truth pose.
+   * @param sink        Receiver of the fused measurements, oldest first.
+   */
+  public void updatePoseEstimation(SwerveDrive swerveDrive, VisionFusion.Sink sink)
+  {
+    double now = Timer.getFPGATimestamp();
+    // A replay reads the recorded results, the simulated cameras have nothing to add.
+    if (SwerveDriveTelemetry.isSimulation && !InputLog.isReplaying() &&
+        swerveDrive.getSimulationDriveTrainPose().isPresent())
     {
       /*
        * In the maple-sim, odometry is simulated using encoder values, accounting for factors like skidding and drifting.
@@ -138,18 +243,45 @@ public class Vision
        * (This is why teams implement vision system to correct odometry.)
        * Therefore, we must ensure that the actual robot pose is provided in the simulator when updating the vision simulation during the simulation.
        */
-      visionSim.update(swerveDrive.getSimulationDriveTrainPose().get());
+      Pose2d simulatedPose = swerveDrive.getSimulationDriveTrainPose().get();
+      if (analyticCameraSim)
+      {
+        for (Cameras c : Cameras.values())
+        {
+          c.analyticSim.update(simulatedPose, now);
+        }
+        visionSim.getDebugField().setRobotPose(simulatedPose);
+      } else
+      {
+        visionSim.update(simulatedPose);
+      }
     }
+    gate.recordOdometry(now, currentPose.get());
     for (Cameras camera : Cameras.values())
     {
-      Optional<EstimatedRobotPose> poseEst = getEstimatedGlobalPose(camera);
-      if (poseEst.isPresent())
+      if (!backgroundIngestion || InputLog.isReplaying())
+      {
+        camera.getEstimatedGlobalPose();
+      }
+      VisionMeasurement measurement;
+      while ((measurement = camera.measurementQueue.poll()) != null)
       {
-        var pose = poseEst.get();
-        swerveDrive.addVisionMeasurement(pose.estimatedPose.toPose2d(),
-                                         pose.timestampSeconds,
-                                         camera.curStdDevs);
+        if (gate.accept(measurement))
+        {
+          camera.metrics.recordFusionLatency(now, measurement.timestampSeconds);
+          fusion.add(measurement);
+        }
       }
+      camera.publishFrameCounters();
+      camera.metrics.publish(now);
+    }
+    gate.publish();
+
+    // Submit every camera's measurements together, oldest first, so the pose estimator never rewinds within a loop.
+    VisionMeasurement newest = fusion.flush(sink);
+    if (newest != null && Robot.isSimulation())
+    {
+      publishVisionEstimation(newest.estimate, now);
     }
 
   }
@@ -168,65 +300,33 @@ public class Vision
     Optional<EstimatedRobotPose> poseEst = camera.getEstimatedGlobalPose();
     if (Robot.isSimulation())
     {
-      Field2d debugField = visionSim.getDebugField();
-      // Uncomment to enable outputting of vision targets in sim.
-      poseEst.ifPresentOrElse(
-          est ->
-              debugField
-                  .getObject("VisionEstimation")
-                  .setPose(est.estimatedPose.toPose2d()),
-          () -> {
-            debugField.getObject("VisionEstimation").setPoses();
-          });
+      publishVisionEstimation(poseEst.orElse(null), Timer.getFPGATimestamp());
     }
     return poseEst;
   }
 
-
   /**
-   * Filter pose via the ambiguity and find best estimate between all of the camera's throwing out distances more than
-   * 10m for a short amount of time.
+   * Show an estimate on the simulation debug field. Does nothing if the estimate is the one already shown or the last
+   * publish was too recent.
    *
-   * @param pose Estimated robot pose.
-   * @return Could be empty if there isn't a good reading.
+   * @param estimate   Estimate to show, null to clear.
+   * @param nowSeconds Current FPGA time in seconds.
    */
-  @Deprecated(since = "2024", forRemoval = true)
-  private Optional<EstimatedRobotPose> filterPose(Optional<EstimatedRobotPose> pose)
+  private void publishVisionEstimation(EstimatedRobotPose estimate, double nowSeconds)
   {
-    if (pose.isPresent())
+    if (estimate == publishedEstimation || nowSeconds - lastEstimationPublish < fieldPublishPeriod)
     {
-      double bestTargetAmbiguity = 1; // 1 is max ambiguity
-      for (PhotonTrackedTarget target : pose.get().targetsUsed)
-      {
-        double ambiguity = target.getPoseAmbiguity();
-        if (ambiguity != -1 && ambiguity < bestTargetAmbiguity)
-        {
-          bestTargetAmbiguity = ambiguity;
-        }
-      }
-      //ambiguity to high dont use estimate
-      if (bestTargetAmbiguity > maximumAmbiguity)
-      {
-        return Optional.empty();
-      }
-
-      //est pose is very far from recorded robot pose
-      if (PhotonUtils.getDistanceToPose(currentPose.get(), pose.get().estimatedPose.toPose2d()) > 1)
-      {
-        longDistangePoseEstimationCount++;
-
-        //if it calculates that were 10 meter away for more than 10 times in a row its probably right
-        if (longDistangePoseEstimationCount < 10)
-        {
-          return Optional.empty();
-        }
-      } else
-      {
-        longDistangePoseEstimationCount = 0;
-      }
-      return pose;
+      return;
+    }
+    publishedEstimation = estimate;
+    lastEstimationPublish = nowSeconds;
+    if (estimate == null)
+    {
+      visionEstimationObject.setPoses(noPoses);
+    } else
+    {
+      visionEstimationObject.setPose(estimate.estimatedPose.toPose2d());
     }
-    return Optional.empty();
   }
 
 
@@ -238,8 +338,12 @@ public class Vision
    */
   public double getDistanceFromAprilTag(int id)
   {
-    Optional<Pose3d> tag = fieldLayout.getTagPose(id);
-    return tag.map(pose3d -> PhotonUtils.getDistanceToPose(currentPose.get(), pose3d.toPose2d())).orElse(-1.0);
+    if (!tagTable.hasTag(id))
+    {
+      return -1.0;
+    }
+    Pose2d robotPose = currentPose.get();
+    return Math.hypot(tagTable.getX(id) - robotPose.getX(), tagTable.getY(id) - robotPose.getY());
   }
 
   /**
@@ -247,26 +351,62 @@ public class Vision
    *
    * @param id     AprilTag ID
    * @param camera Camera to check.
-   * @return Tracked target.
+   * @return Tracked target, null if the tag is not visible.
    */
   public PhotonTrackedTarget getTargetFromId(int id, Cameras camera)
   {
-    PhotonTrackedTarget target = null;
-    for (PhotonPipelineResult result : camera.resultsList)
+    return camera.getFiducialIndex().getTarget(id);
+  }
+
+  /**
+   * Check if a camera sees an AprilTag in its latest batch of results.
+   *
+   * @param id     AprilTag ID
+   * @param camera Camera to check.
+   * @return True if the tag is visible.
+   */
+  public boolean isTagVisible(int id, Cameras camera)
+  {
+    return camera.getFiducialIndex().isVisible(id);
+  }
+
+  /**
+   * Get every camera which sees an AprilTag in its latest batch of results.
+   *
+   * @param id AprilTag ID
+   * @return Bitmask of {@link Cameras#ordinal()} for each camera which sees the tag.
+   */
+  public int getCamerasSeeingTag(int id)
+  {
+    int mask = 0;
+    for (Cameras camera : Cameras.values())
     {
-      if (result.hasTargets())
+      if (camera.getFiducialIndex().isVisible(id))
       {
-        for (PhotonTrackedTarget i : result.getTargets())
-        {
-          if (i.getFiducialId() == id)
-          {
-            return i;
-          }
-        }
+        mask |= 1 << camera.ordinal();
       }
     }
-    return target;
+    return mask;
+  }
+
+  /**
+   * Get the gate rejecting implausible estimates, mostly for its counters.
+   *
+   * @return {@link VisionGate} used by {@link Vision#updatePoseEstimation(SwerveDrive)}.
+   */
+  public VisionGate getGate()
+  {
+    return gate;
+  }
 
+  /**
+   * Get the fusion stage, mostly for its counters.
+   *
+   * @return {@link VisionFusion} used by {@link Vision#updatePoseEstimation(SwerveDrive)}.
+   */
+  public VisionFusion getFusion()
+  {
+    return fusion;
   }
 
   /**
@@ -299,35 +439,81 @@ public class Vision
   }
 
   /**
-   * Update the {@link Field2d} to include tracked targets/
+   * Update the {@link Field2d} to include tracked targets. Only publishes when the set of visible tags changed, at most
+   * once per {@link Vision#fieldPublishPeriod}, and never allocates.
    */
   public void updateVisionField()
   {
-
-    List<PhotonTrackedTarget> targets = new ArrayList<PhotonTrackedTarget>();
+    for (int i = 0; i < visibleTags.length; i++)
+    {
+      visibleTags[i] = 0;
+    }
     for (Cameras c : Cameras.values())
     {
-      if (!c.resultsList.isEmpty())
+      List<PhotonPipelineResult> results = c.resultsList;
+      if (!results.isEmpty())
       {
-        PhotonPipelineResult latest = c.resultsList.get(0);
-        if (latest.hasTargets())
+        List<PhotonTrackedTarget> targets = results.get(0).targets;
+        for (int i = 0, size = targets.size(); i < size; i++)
         {
-          targets.addAll(latest.targets);
+          int id = targets.get(i).getFiducialId();
+          if (tagTable.hasTag(id))
+          {
+            visibleTags[id >>> 6] |= 1L << id;
+          }
         }
       }
     }
 
-    List<Pose2d> poses = new ArrayList<>();
-    for (PhotonTrackedTarget target : targets)
+    double now = Timer.getFPGATimestamp();
+    if (Arrays.equals(visibleTags, publishedTags) || now - lastTrackedTargetsPublish < fieldPublishPeriod)
+    {
+      return;
+    }
+    lastTrackedTargetsPublish = now;
+
+    int count = 0;
+    for (int i = 0; i < visibleTags.length; i++)
     {
-      if (fieldLayout.getTagPose(target.getFiducialId()).isPresent())
+      publishedTags[i] = visibleTags[i];
+      count += Long.bitCount(visibleTags[i]);
+    }
+    Pose2d[] poses = trackedTargetPoses[count];
+    if (poses == null)
+    {
+      poses = new Pose2d[count];
+      trackedTargetPoses[count] = poses;
+    }
+    int index = 0;
+    for (int i = 0; i < visibleTags.length; i++)
+    {
+      long word = visibleTags[i];
+      while (word != 0)
       {
-        Pose2d targetPose = fieldLayout.getTagPose(target.getFiducialId()).get().toPose2d();
-        poses.add(targetPose);
+        poses[index++] = tagTable.getPose2d((i << 6) + Long.numberOfTrailingZeros(word));
+        word &= word - 1;
       }
     }
+    trackedTargetsObject.setPoses(poses);
+  }
 
-    field2d.getObject("tracked targets").setPoses(poses);
+  /**
+   * Policy selecting which buffered camera frames are run through the pose estimator.
+   */
+  public enum FramePolicy
+  {
+    /**
+     * Fuse every buffered frame.
+     */
+    PROCESS_ALL,
+    /**
+     * Fuse only the newest frame, dropping the rest.
+     */
+    LATEST_ONLY,
+    /**
+     * Fuse at most a fixed number of the newest frames, dropping the rest.
+     */
+    MAX_PER_LOOP
   }
 
   /**
@@ -366,47 +552,103 @@ public class Vision
     /**
      * Latency alert to use when high latency is detected.
      */
-    public final  Alert                        latencyAlert;
+    public final     Alert                        latencyAlert;
+    /**
+     * Latency and throughput metrics, raises {@link Cameras#latencyAlert}.
+     */
+    public final     VisionMetrics                metrics;
     /**
      * Camera instance for comms.
      */
-    public final  PhotonCamera                 camera;
+    public final     PhotonCamera                 camera;
     /**
      * Pose estimator for camera.
      */
-    public final  PhotonPoseEstimator          poseEstimator;
+    public final     PhotonPoseEstimator          poseEstimator;
     /**
      * Standard Deviation for single tag readings for pose estimation.
      */
-    private final Matrix<N3, N1>               singleTagStdDevs;
+    private final    double[]                     singleTagStdDevs;
     /**
      * Standard deviation for multi-tag readings for pose estimation.
      */
-    private final Matrix<N3, N1>               multiTagStdDevs;
+    private final    double[]                     multiTagStdDevs;
+    /**
+     * Current standard deviations as primitives, mirrors {@link Cameras#curStdDevs}.
+     */
+    private final    double[]                     curStdDevArray     = new double[3];
     /**
      * Transform of the camera rotation and translation relative to the center of the robot
      */
-    private final Transform3d                  robotToCamTransform;
+    private final    Transform3d                  robotToCamTransform;
+    /**
+     * Finished estimates from the ingestion thread waiting to be fused by the robot loop.
+     */
+    public final     SpscQueue<VisionMeasurement> measurementQueue   = new SpscQueue<>(32);
     /**
-     * Current standard deviations used.
+     * Current standard deviations used, updated in place. Copy before handing to another thread.
      */
-    public        Matrix<N3, N1>               curStdDevs;
+    public final     Matrix<N3, N1>               curStdDevs         = new Matrix<>(Nat.N3(), Nat.N1());
     /**
      * Estimated robot pose.
      */
-    public        Optional<EstimatedRobotPose> estimatedRobotPose;
+    public volatile  Optional<EstimatedRobotPose> estimatedRobotPose = Optional.empty();
     /**
      * Simulated camera instance which only exists during simulations.
      */
-    public        PhotonCameraSim              cameraSim;
+    public           PhotonCameraSim              cameraSim;
+    /**
+     * Analytic simulated camera which only exists during simulations with {@link Vision#analyticCameraSim}.
+     */
+    public           AnalyticCameraSim            analyticSim;
     /**
      * Results list to be updated periodically and cached to avoid unnecessary queries.
      */
-    public        List<PhotonPipelineResult>   resultsList       = new ArrayList<>();
+    public volatile  List<PhotonPipelineResult>   resultsList        = new ArrayList<>();
     /**
      * Last read from the camera timestamp to prevent lag due to slow data fetches.
      */
-    private       double                       lastReadTimestamp = Microseconds.of(NetworkTablesJNI.now()).in(Seconds);
+    private          double                       lastReadTimestamp  = Microseconds.of(NetworkTablesJNI.now()).in(Seconds);
+    /**
+     * Index of the AprilTags in {@link Cameras#resultsList}.
+     */
+    private final    FiducialIndex                fiducialIndex      = new FiducialIndex(Math.max(tagTable.getMaxId(), 63));
+    /**
+     * Results currently held in {@link Cameras#fiducialIndex}.
+     */
+    private          List<PhotonPipelineResult>   indexedResults;
+    /**
+     * Unread frames waiting for the pose estimator, reused every ingestion.
+     */
+    private final    FrameRingBuffer              frameBuffer        = new FrameRingBuffer(16);
+    /**
+     * Policy selecting which buffered frames are fused.
+     */
+    private volatile FramePolicy                  framePolicy        = FramePolicy.PROCESS_ALL;
+    /**
+     * Maximum frames fused per ingestion with {@link FramePolicy#MAX_PER_LOOP}.
+     */
+    private volatile int                          maxFramesPerLoop   = 3;
+    /**
+     * Frames evicted from the frame buffer or skipped by the frame policy.
+     */
+    private volatile long                         framesDropped      = 0;
+    /**
+     * Frames run through the pose estimator.
+     */
+    private volatile long                         framesFused        = 0;
+    /**
+     * Publisher for {@link Cameras#framesDropped}.
+     */
+    private final    IntegerPublisher             framesDroppedPublisher;
+    /**
+     * Publisher for {@link Cameras#framesFused}.
+     */
+    private final    IntegerPublisher             framesFusedPublisher;
+    /**
+     * Background thread ingesting results, null when polling from the robot loop.
+     */
+    private          VisionIngestionThread        ingestionThread;
 
     /**
      * Construct a Photon Camera class with help. Standard deviations are fake values, experiment and determine
@@ -422,6 +664,7 @@ public class Vision
             Matrix<N3, N1> singleTagStdDevs, Matrix<N3, N1> multiTagStdDevsMatrix)
     {
       latencyAlert = new Alert("'" + name + "' Camera is experiencing high latency.", AlertType.kWarning);
+      metrics = new VisionMetrics(name, latencyAlert, 100, 1.0);
 
       camera = new PhotonCamera(name);
 
@@ -433,24 +676,53 @@ public class Vision
                                               robotToCamTransform);
       poseEstimator.setMultiTagFallbackStrategy(PoseStrategy.LOWEST_AMBIGUITY);
 
-      this.singleTagStdDevs = singleTagStdDevs;
-      this.multiTagStdDevs = multiTagStdDevsMatrix;
+      this.singleTagStdDevs = new double[]{singleTagStdDevs.get(0, 0),
+                                           singleTagStdDevs.get(1, 0),
+                                           singleTagStdDevs.get(2, 0)};
+      this.multiTagStdDevs = new double[]{multiTagStdDevsMatrix.get(0, 0),
+                                          multiTagStdDevsMatrix.get(1, 0),
+                                          multiTagStdDevsMatrix.get(2, 0)};
+      setCurStdDevs(this.singleTagStdDevs, 1);
+
+      NetworkTable table = NetworkTableInstance.getDefault().getTable("Vision").getSubTable(name);
+      framesDroppedPublisher = table.getIntegerTopic("FramesDropped").publish();
+      framesFusedPublisher = table.getIntegerTopic("FramesFused").publish();
 
       if (Robot.isSimulation())
       {
-        SimCameraProperties cameraProp = new SimCameraProperties();
         // A 640 x 480 camera with a 100 degree diagonal FOV.
-        cameraProp.setCalibration(960, 720, Rotation2d.fromDegrees(100));
+        int        width       = 960;
+        int        height      = 720;
+        Rotation2d diagonalFov = Rotation2d.fromDegrees(100);
         // Approximate detection noise with average and standard deviation error in pixels.
-        cameraProp.setCalibError(0.25, 0.08);
+        double     avgErrorPx  = 0.25;
+        double     errorStdDev = 0.08;
         // Set the camera image capture framerate (Note: this is limited by robot loop rate).
-        cameraProp.setFPS(30);
+        double     fps         = 30;
         // The average and standard deviation in milliseconds of image data latency.
-        cameraProp.setAvgLatencyMs(35);
-        cameraProp.setLatencyStdDevMs(5);
+        double     avgLatency  = 35;
+        double     latencyStd  = 5;
+
+        SimCameraProperties cameraProp = new SimCameraProperties();
+        cameraProp.setCalibration(width, height, diagonalFov);
+        cameraProp.setCalibError(avgErrorPx, errorStdDev);
+        cameraProp.setFPS(fps);
+        cameraProp.setAvgLatencyMs(avgLatency);
+        cameraProp.setLatencyStdDevMs(latencyStd);
 
         cameraSim = new PhotonCameraSim(camera, cameraProp);
-        cameraSim.enableDrawWireframe(true);
+        if (analyticCameraSim)
+        {
+          // Only used to publish results, nothing is rendered.
+          cameraSim.enableRawStream(false);
+          cameraSim.enableProcessedStream(false);
+          cameraSim.enableDrawWireframe(false);
+          analyticSim = new AnalyticCameraSim(cameraSim, robotToCamTransform, width, height, diagonalFov,
+                                              avgErrorPx, errorStdDev, fps, avgLatency, latencyStd);
+        } else
+        {
+          cameraSim.enableDrawWireframe(true);
+        }
       }
     }
 
@@ -467,6 +739,146 @@ public class Vision
       }
     }
 
+    /**
+     * Start ingesting results on a background thread woken by NetworkTables. Once started, the pose estimator must only
+     * be used from the ingestion thread.
+     */
+    public void startIngestion()
+    {
+      if (ingestionThread == null)
+      {
+        ingestionThread = new VisionIngestionThread(this);
+        ingestionThread.start();
+      }
+    }
+
+    /**
+     * Stop the background ingestion thread if it is running.
+     */
+    public void stopIngestion()
+    {
+      if (ingestionThread != null)
+      {
+        ingestionThread.shutdown();
+        ingestionThread = null;
+      }
+    }
+
+    /**
+     * Read every unread result into the frame buffer, run the pose estimator on the frames selected by the
+     * {@link FramePolicy} and queue the estimates for the robot loop. Called from the {@link VisionIngestionThread} when
+     * ingesting in the background, otherwise from the robot loop.
+     */
+    void ingestUnreadResults()
+    {
+      List<PhotonPipelineResult> results;
+      if (InputLog.isReplaying())
+      {
+        results = InputLog.replayCameraResults(camera.getName());
+      } else
+      {
+        results = Robot.isReal() ? camera.getAllUnreadResults() : cameraSim.getCamera().getAllUnreadResults();
+        InputLog.recordCameraResults(camera.getName(), results);
+      }
+      long evictedBefore = frameBuffer.getEvictedCount();
+      for (int i = 0, size = results.size(); i < size; i++)
+      {
+        PhotonPipelineResult result = results.get(i);
+        metrics.recordFrame(result);
+        frameBuffer.add(result);
+      }
+
+      int buffered = frameBuffer.size();
+      int toFuse   = switch (framePolicy)
+      {
+        case PROCESS_ALL -> buffered;
+        case LATEST_ONLY -> Math.min(1, buffered);
+        case MAX_PER_LOOP -> Math.min(maxFramesPerLoop, buffered);
+      };
+      // Frames skipped by the policy are stale once a newer frame is fused, so they are dropped instead of carried over.
+      frameBuffer.discardOldest(buffered - toFuse);
+      framesDropped += frameBuffer.getEvictedCount() - evictedBefore + buffered - toFuse;
+
+      PhotonPipelineResult frame;
+      while ((frame = frameBuffer.pollOldest()) != null)
+      {
+        long                         start     = System.nanoTime();
+        Optional<EstimatedRobotPose> visionEst = poseEstimator.update(frame);
+        metrics.recordEstimatorTime(System.nanoTime() - start);
+        updateEstimationStdDevs(visionEst, frame.getTargets());
+        framesFused++;
+        if (visionEst.isPresent())
+        {
+          measurementQueue.offer(new VisionMeasurement(this, visionEst.get(), curStdDevs));
+        }
+        estimatedRobotPose = visionEst;
+      }
+
+      // Keep the cache newest first.
+      results.sort((PhotonPipelineResult a, PhotonPipelineResult b) -> Double.compare(b.getTimestampSeconds(),
+                                                                                      a.getTimestampSeconds()));
+      resultsList = results;
+    }
+
+    /**
+     * Select which buffered frames are run through the pose estimator each time results are ingested.
+     *
+     * @param policy           {@link FramePolicy} to use.
+     * @param maxFramesPerLoop Maximum frames to fuse per ingestion when using {@link FramePolicy#MAX_PER_LOOP}.
+     */
+    public void setFramePolicy(FramePolicy policy, int maxFramesPerLoop)
+    {
+      this.maxFramesPerLoop = Math.max(1, maxFramesPerLoop);
+      this.framePolicy = policy;
+    }
+
+    /**
+     * Get the number of frames dropped, either evicted from the full frame buffer or skipped by the
+     * {@link FramePolicy}.
+     *
+     * @return Dropped frame count.
+     */
+    public long getFramesDropped()
+    {
+      return framesDropped;
+    }
+
+    /**
+     * Get the number of frames run through the pose estimator.
+     *
+     * @return Fused frame count.
+     */
+    public long getFramesFused()
+    {
+      return framesFused;
+    }
+
+    /**
+     * Publish the frame counters to NetworkTables.
+     */
+    public void publishFrameCounters()
+    {
+      framesDroppedPublisher.set(framesDropped);
+      framesFusedPublisher.set(framesFused);
+    }
+
+    /**
+     * Get the index of AprilTags in the current cache, rebuilt only when a new batch of results has arrived. Must only be
+     * called from the robot loop.
+     *
+     * @return {@link FiducialIndex} of the cached results.
+     */
+    public FiducialIndex getFiducialIndex()
+    {
+      List<PhotonPipelineResult> results = resultsList;
+      if (results != indexedResults)
+      {
+        fiducialIndex.rebuild(results);
+        indexedResults = results;
+      }
+      return fiducialIndex;
+    }
+
     /**
      * Get the result with the least ambiguity from the best tracked target within the Cache. This may not be the most
      * recent result!
@@ -507,13 +919,17 @@ public class Vision
 
     /**
      * Get the estimated robot pose. Updates the current robot pose estimation, standard deviations, and flushes the
-     * cache of results.
+     * cache of results. When ingesting in the background this only returns the latest estimate from the ingestion
+     * thread. Every estimate produced is also queued on {@link Cameras#measurementQueue}.
      *
      * @return Estimated pose.
      */
     public Optional<EstimatedRobotPose> getEstimatedGlobalPose()
     {
-      updateUnreadResults();
+      if (ingestionThread == null)
+      {
+        updateUnreadResults();
+      }
       return estimatedRobotPose;
     }
 
@@ -525,111 +941,91 @@ public class Vision
       double mostRecentTimestamp = resultsList.isEmpty() ? 0.0 : resultsList.get(0).getTimestampSeconds();
       double currentTimestamp    = Microseconds.of(NetworkTablesJNI.now()).in(Seconds);
       double debounceTime        = Milliseconds.of(15).in(Seconds);
-      for (PhotonPipelineResult result : resultsList)
-      {
-        mostRecentTimestamp = Math.max(mostRecentTimestamp, result.getTimestampSeconds());
-      }
       if ((resultsList.isEmpty() || (currentTimestamp - mostRecentTimestamp >= debounceTime)) &&
           (currentTimestamp - lastReadTimestamp) >= debounceTime)
       {
-        resultsList = Robot.isReal() ? camera.getAllUnreadResults() : cameraSim.getCamera().getAllUnreadResults();
         lastReadTimestamp = currentTimestamp;
-        resultsList.sort((PhotonPipelineResult a, PhotonPipelineResult b) -> {
-          return a.getTimestampSeconds() >= b.getTimestampSeconds() ? 1 : -1;
-        });
-        if (!resultsList.isEmpty())
-        {
-          updateEstimatedGlobalPose();
-        }
-      }
-    }
-
-    /**
-     * The latest estimated robot pose on the field from vision data. This may be empty. This should only be called once
-     * per loop.
-     *
-     * <p>Also includes updates for the standard deviations, which can (optionally) be retrieved with
-     * {@link Cameras#updateEstimationStdDevs}
-     *
-     * @return An {@link EstimatedRobotPose} with an estimated pose, estimate timestamp, and targets used for
-     * estimation.
-     */
-    private void updateEstimatedGlobalPose()
-    {
-      Optional<EstimatedRobotPose> visionEst = Optional.empty();
-      for (var change : resultsList)
-      {
-        visionEst = poseEstimator.update(change);
-        updateEstimationStdDevs(visionEst, change.getTargets());
+        ingestUnreadResults();
       }
-      estimatedRobotPose = visionEst;
     }
 
     /**
      * Calculates new standard deviations This algorithm is a heuristic that creates dynamic standard deviations based
-     * on number of tags, estimation strategy, and distance from the tags.
+     * on number of tags, estimation strategy, and distance from the tags. Writes the result into {@link Cameras#curStdDevs}
+     * in place without allocating.
      *
      * @param estimatedPose The estimated pose to guess standard deviations for.
      * @param targets       All targets in this camera frame
      */
-    private void updateEstimationStdDevs(
+    void updateEstimationStdDevs(
         Optional<EstimatedRobotPose> estimatedPose, List<PhotonTrackedTarget> targets)
     {
       if (estimatedPose.isEmpty())
       {
         // No pose input. Default to single-tag std devs
-        curStdDevs = singleTagStdDevs;
+        setCurStdDevs(singleTagStdDevs, 1);
 
       } else
       {
         // Pose present. Start running Heuristic
-        var    estStdDevs = singleTagStdDevs;
-        int    numTags    = 0;
-        double avgDist    = 0;
+        Pose3d estimated = estimatedPose.get().estimatedPose;
+        double estX      = estimated.getX();
+        double estY      = estimated.getY();
+        int    numTags   = 0;
+        double avgDist   = 0;
 
         // Precalculation - see how many tags we found, and calculate an average-distance metric
-        for (var tgt : targets)
+        for (int i = 0, size = targets.size(); i < size; i++)
         {
-          var tagPose = poseEstimator.getFieldTags().getTagPose(tgt.getFiducialId());
-          if (tagPose.isEmpty())
+          int id = targets.get(i).getFiducialId();
+          if (!tagTable.hasTag(id))
           {
             continue;
           }
           numTags++;
-          avgDist +=
-              tagPose
-                  .get()
-                  .toPose2d()
-                  .getTranslation()
-                  .getDistance(estimatedPose.get().estimatedPose.toPose2d().getTranslation());
+          avgDist += Math.hypot(tagTable.getX(id) - estX, tagTable.getY(id) - estY);
         }
 
         if (numTags == 0)
         {
           // No tags visible. Default to single-tag std devs
-          curStdDevs = singleTagStdDevs;
+          setCurStdDevs(singleTagStdDevs, 1);
         } else
         {
           // One or more tags visible, run the full heuristic.
           avgDist /= numTags;
-          // Decrease std devs if multiple targets are visible
-          if (numTags > 1)
-          {
-            estStdDevs = multiTagStdDevs;
-          }
           // Increase std devs based on (average) distance
           if (numTags == 1 && avgDist > 4)
           {
-            estStdDevs = VecBuilder.fill(Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
+            curStdDevArray[0] = Double.MAX_VALUE;
+            curStdDevArray[1] = Double.MAX_VALUE;
+            curStdDevArray[2] = Double.MAX_VALUE;
+            curStdDevs.set(0, 0, Double.MAX_VALUE);
+            curStdDevs.set(1, 0, Double.MAX_VALUE);
+            curStdDevs.set(2, 0, Double.MAX_VALUE);
           } else
           {
-            estStdDevs = estStdDevs.times(1 + (avgDist * avgDist / 30));
+            // Decrease std devs if multiple targets are visible
+            setCurStdDevs(numTags > 1 ? multiTagStdDevs : singleTagStdDevs, 1 + (avgDist * avgDist / 30));
           }
-          curStdDevs = estStdDevs;
         }
       }
     }
 
+    /**
+     * Write scaled standard deviations into {@link Cameras#curStdDevArray} and {@link Cameras#curStdDevs}.
+     *
+     * @param stdDevs Base standard deviations.
+     * @param scale   Scale to apply to each standard deviation.
+     */
+    private void setCurStdDevs(double[] stdDevs, double scale)
+    {
+      for (int i = 0; i < 3; i++)
+      {
+        curStdDevArray[i] = stdDevs[i] * scale;
+        curStdDevs.set(i, 0, curStdDevArray[i]);
+      }
+    }
 
   }
 
@@ -0,0 +1,261 @@
+package frc.robot.subsystems.swervedrive;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+
+/**
+ * Collects the vision measurements of every camera for one robot loop, merges measurements taken at nearly the same
+ * instant and submits them to the pose estimator oldest first. The pose estimator discards every vision update newer
+ * than an inserted measurement, so submitting cameras out of order throws away corrections and forces extra pose
+ * resampling.
+ */
+public class VisionFusion
+{
+
+  /**
+   * Receiver of fused vision measurements, matches {@link swervelib.SwerveDrive#addVisionMeasurement(Pose2d, double,
+   * Matrix)}.
+   */
+  @FunctionalInterface
+  public interface Sink
+  {
+
+    /**
+     * Add a vision measurement.
+     *
+     * @param pose             Robot pose from vision.
+     * @param timestampSeconds Timestamp of the measurement in seconds.
+     * @param stdDevs          Standard deviations of the measurement.
+     */
+    void addVisionMeasurement(Pose2d pose, double timestampSeconds, Matrix<N3, N1> stdDevs);
+  }
+
+  /**
+   * Measurements collected this loop.
+   */
+  private final VisionMeasurement[] pending;
+  /**
+   * Standard deviations of merged measurements, reused every loop.
+   */
+  private final Matrix<N3, N1>      mergedStdDevs          = new Matrix<>(Nat.N3(), Nat.N1());
+  /**
+   * Maximum time between measurements to merge them, in seconds.
+   */
+  private final double              mergeWindowSeconds;
+  /**
+   * Number of valid entries in {@link VisionFusion#pending}.
+   */
+  private       int                 pendingCount           = 0;
+  /**
+   * Timestamp of the newest measurement submitted so far.
+   */
+  private       double              lastSubmittedTimestamp = Double.NEGATIVE_INFINITY;
+  /**
+   * Measurements submitted to the pose estimator.
+   */
+  private       long                submittedCount         = 0;
+  /**
+   * Measurements merged into another measurement instead of being submitted alone.
+   */
+  private       long                mergedCount            = 0;
+  /**
+   * Submitted measurements older than a previously submitted measurement, each one rewinds the pose estimator.
+   */
+  private       long                outOfOrderCount        = 0;
+  /**
+   * Measurements dropped because more arrived in one loop than {@link VisionFusion#pending} can hold.
+   */
+  private       long                droppedCount           = 0;
+
+  /**
+   * Create the fusion stage.
+   *
+   * @param capacity           Maximum measurements collected per loop.
+   * @param mergeWindowSeconds Maximum time between measurements to merge them, in seconds.
+   */
+  public VisionFusion(int capacity, double mergeWindowSeconds)
+  {
+    this.pending = new VisionMeasurement[capacity];
+    this.mergeWindowSeconds = mergeWindowSeconds;
+  }
+
+  /**
+   * Collect a measurement for this loop. Measurements are kept sorted by timestamp.
+   *
+   * @param measurement Measurement to collect.
+   */
+  public void add(VisionMeasurement measurement)
+  {
+    if (pendingCount == pending.length)
+    {
+      droppedCount++;
+      return;
+    }
+    int i = pendingCount++;
+    while (i > 0 && pending[i - 1].timestampSeconds > measurement.timestampSeconds)
+    {
+      pending[i] = pending[i - 1];
+      i--;
+    }
+    pending[i] = measurement;
+  }
+
+  /**
+   * Submit every collected measurement oldest first, merging those within the merge window, and reset for the next
+   * loop.
+   *
+   * @param sink Pose estimator to submit to.
+   * @return Newest measurement submitted, or null if nothing was submitted.
+   */
+  public VisionMeasurement flush(Sink sink)
+  {
+    VisionMeasurement newest = null;
+    int               start  = 0;
+    while (start < pendingCount)
+    {
+      int end = start + 1;
+      while (end < pendingCount &&
+             pending[end].timestampSeconds - pending[start].timestampSeconds <= mergeWindowSeconds)
+      {
+        end++;
+      }
+
+      if (end - start == 1)
+      {
+        VisionMeasurement measurement = pending[start];
+        submit(sink, measurement.pose, measurement.timestampSeconds, measurement.stdDevs);
+      } else
+      {
+        submitMerged(sink, start, end);
+        mergedCount += end - start - 1;
+      }
+      newest = pending[end - 1];
+      start = end;
+    }
+
+    for (int i = 0; i < pendingCount; i++)
+    {
+      pending[i] = null;
+    }
+    pendingCount = 0;
+    return newest;
+  }
+
+  /**
+   * Merge measurements with inverse-variance weighting and submit the result.
+   *
+   * @param sink  Pose estimator to submit to.
+   * @param start First measurement to merge, inclusive.
+   * @param end   Last measurement to merge, exclusive.
+   */
+  private void submitMerged(Sink sink, int start, int end)
+  {
+    double weightX = 0, weightY = 0, weightTheta = 0;
+    double sumX = 0, sumY = 0, sumCos = 0, sumSin = 0, sumTimestamp = 0;
+    for (int i = start; i < end; i++)
+    {
+      VisionMeasurement measurement = pending[i];
+      double            wx          = inverseVariance(measurement.stdDevs.get(0, 0));
+      double            wy          = inverseVariance(measurement.stdDevs.get(1, 0));
+      double            wt          = inverseVariance(measurement.stdDevs.get(2, 0));
+      double            theta       = measurement.pose.getRotation().getRadians();
+      sumX += wx * measurement.pose.getX();
+      sumY += wy * measurement.pose.getY();
+      sumCos += wt * Math.cos(theta);
+      sumSin += wt * Math.sin(theta);
+      sumTimestamp += measurement.timestampSeconds;
+      weightX += wx;
+      weightY += wy;
+      weightTheta += wt;
+    }
+    if (weightX == 0 || weightY == 0)
+    {
+      // Every measurement is untrusted, fall back to the newest one alone.
+      VisionMeasurement measurement = pending[end - 1];
+      submit(sink, measurement.pose, measurement.timestampSeconds, measurement.stdDevs);
+      return;
+    }
+    mergedStdDevs.set(0, 0, 1 / Math.sqrt(weightX));
+    mergedStdDevs.set(1, 0, 1 / Math.sqrt(weightY));
+    mergedStdDevs.set(2, 0, weightTheta == 0 ? Double.MAX_VALUE : 1 / Math.sqrt(weightTheta));
+    Pose2d merged = new Pose2d(sumX / weightX,
+                               sumY / weightY,
+                               weightTheta == 0 ? pending[end - 1].pose.getRotation()
+                                                : new Rotation2d(sumCos, sumSin));
+    submit(sink, merged, sumTimestamp / (end - start), mergedStdDevs);
+  }
+
+  /**
+   * Submit a measurement and track ordering.
+   *
+   * @param sink             Pose estimator to submit to.
+   * @param pose             Robot pose from vision.
+   * @param timestampSeconds Timestamp of the measurement.
+   * @param stdDevs          Standard deviations of the measurement.
+   */
+  private void submit(Sink sink, Pose2d pose, double timestampSeconds, Matrix<N3, N1> stdDevs)
+  {
+    if (timestampSeconds < lastSubmittedTimestamp)
+    {
+      outOfOrderCount++;
+    }
+    lastSubmittedTimestamp = Math.max(lastSubmittedTimestamp, timestampSeconds);
+    submittedCount++;
+    sink.addVisionMeasurement(pose, timestampSeconds, stdDevs);
+  }
+
+  /**
+   * Convert a standard deviation into a weight.
+   *
+   * @param stdDev Standard deviation.
+   * @return Inverse variance, 0 for untrusted measurements.
+   */
+  private static double inverseVariance(double stdDev)
+  {
+    return stdDev >= Double.MAX_VALUE || stdDev <= 0 ? 0 : 1 / (stdDev * stdDev);
+  }
+
+  /**
+   * Get the number of measurements submitted to the pose estimator.
+   *
+   * @return Submitted measurement count.
+   */
+  public long getSubmittedCount()
+  {
+    return submittedCount;
+  }
+
+  /**
+   * Get the number of measurements merged into another measurement.
+   *
+   * @return Merged measurement count.
+   */
+  public long getMergedCount()
+  {
+    return mergedCount;
+  }
+
+  /**
+   * Get the number of submissions older than an earlier submission, each one rewinds the pose estimator.
+   *
+   * @return Out of order submission count.
+   */
+  public long getOutOfOrderCount()
+  {
+    return outOfOrderCount;
+  }
+
+  /**
+   * Get the number of measurements dropped because too many arrived in one loop.
+   *
+   * @return Dropped measurement count.
+   */
+  public long getDroppedCount()
+  {
+    return droppedCount;
+  }
+}
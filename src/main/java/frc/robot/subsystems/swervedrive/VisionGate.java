@@ -0,0 +1,251 @@
+package frc.robot.subsystems.swervedrive;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.util.PoseHistory;
+import java.util.List;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+/**
+ * Cheap plausibility checks run on every vision estimate before it is fused. Rejected estimates never reach the pose
+ * estimator, which is far more expensive than any of these checks.
+ */
+public class VisionGate
+{
+
+  /**
+   * Reason an estimate was rejected.
+   */
+  public enum RejectReason
+  {
+    /**
+     * Single tag estimate with too much pose ambiguity.
+     */
+    AMBIGUITY,
+    /**
+     * Estimated robot is floating above or sunk below the carpet.
+     */
+    HEIGHT,
+    /**
+     * Estimated robot is pitched or rolled more than the robot can be.
+     */
+    TILT,
+    /**
+     * Estimated robot is outside of the field.
+     */
+    OUT_OF_FIELD,
+    /**
+     * Estimated robot is too far from the odometry pose at the frame timestamp.
+     */
+    ODOMETRY_DISAGREEMENT
+  }
+
+  /**
+   * Number of odometry samples kept to compare against.
+   */
+  private static final int                 historySize                 = 64;
+  /**
+   * Ambiguity defined as a value between (0,1), single tag estimates above this are rejected.
+   */
+  private final        double              maximumAmbiguity            = 0.25;
+  /**
+   * Maximum distance of the estimated robot from the carpet in meters.
+   */
+  private final        double              maximumHeight               = 0.5;
+  /**
+   * Maximum pitch or roll of the estimated robot in radians.
+   */
+  private final        double              maximumTilt                 = Units.degreesToRadians(15);
+  /**
+   * Distance outside of the field perimeter an estimate may be in meters.
+   */
+  private final        double              fieldMargin                 = 0.5;
+  /**
+   * Maximum distance from odometry in meters before an estimate counts as an outlier.
+   */
+  private final        double              maximumOdometryDeviation    = 1;
+  /**
+   * Consecutive outliers after which odometry is assumed wrong and estimates are trusted again.
+   */
+  private final        int                 consecutiveOutliersToAccept = 10;
+  /**
+   * Length of the field in meters.
+   */
+  private final        double              fieldLength;
+  /**
+   * Width of the field in meters.
+   */
+  private final        double              fieldWidth;
+  /**
+   * Recent odometry poses.
+   */
+  private final        PoseHistory         history                     = new PoseHistory(historySize);
+  /**
+   * Scratch array receiving the interpolated odometry pose.
+   */
+  private final        double[]            odometrySample              = new double[3];
+  /**
+   * Rejected estimate count by {@link RejectReason#ordinal()}.
+   */
+  private final        long[]              rejectCounts                = new long[RejectReason.values().length];
+  /**
+   * Publishers for {@link VisionGate#rejectCounts}.
+   */
+  private final        IntegerPublisher[]  rejectPublishers            = new IntegerPublisher[RejectReason.values().length];
+  /**
+   * Publisher for the accepted estimate count.
+   */
+  private final        IntegerPublisher    acceptedPublisher;
+  /**
+   * Count of consecutive estimates far from odometry.
+   */
+  private              int                 consecutiveOutliers         = 0;
+  /**
+   * Accepted estimate count.
+   */
+  private              long                acceptedCount               = 0;
+
+  /**
+   * Create the gate.
+   *
+   * @param layout Field layout to take the field dimensions from.
+   */
+  public VisionGate(AprilTagFieldLayout layout)
+  {
+    fieldLength = layout.getFieldLength();
+    fieldWidth = layout.getFieldWidth();
+
+    NetworkTable table = NetworkTableInstance.getDefault().getTable("Vision").getSubTable("Gate");
+    for (RejectReason reason : RejectReason.values())
+    {
+      rejectPublishers[reason.ordinal()] = table.getIntegerTopic("Rejected/" + reason.name()).publish();
+    }
+    acceptedPublisher = table.getIntegerTopic("Accepted").publish();
+  }
+
+  /**
+   * Record the odometry pose so estimates can be compared against where odometry thought the robot was when the frame
+   * was captured. Call once per loop.
+   *
+   * @param timestampSeconds Timestamp of the pose in seconds.
+   * @param pose             Odometry pose.
+   */
+  public void recordOdometry(double timestampSeconds, Pose2d pose)
+  {
+    history.record(timestampSeconds, pose);
+  }
+
+  /**
+   * Check an estimate.
+   *
+   * @param measurement Estimate to check.
+   * @return True if the estimate should be fused.
+   */
+  public boolean accept(VisionMeasurement measurement)
+  {
+    RejectReason reason = check(measurement);
+    if (reason != null)
+    {
+      rejectCounts[reason.ordinal()]++;
+      return false;
+    }
+    acceptedCount++;
+    return true;
+  }
+
+  /**
+   * Run every check on an estimate.
+   *
+   * @param measurement Estimate to check.
+   * @return Reason to reject the estimate, or null if it passed.
+   */
+  private RejectReason check(VisionMeasurement measurement)
+  {
+    Pose3d estimated = measurement.estimate.estimatedPose;
+
+    List<PhotonTrackedTarget> targets = measurement.estimate.targetsUsed;
+    if (targets.size() == 1)
+    {
+      double ambiguity = targets.get(0).getPoseAmbiguity();
+      if (ambiguity > maximumAmbiguity)
+      {
+        return RejectReason.AMBIGUITY;
+      }
+    }
+
+    if (Math.abs(estimated.getZ()) > maximumHeight)
+    {
+      return RejectReason.HEIGHT;
+    }
+
+    if (Math.abs(estimated.getRotation().getX()) > maximumTilt ||
+        Math.abs(estimated.getRotation().getY()) > maximumTilt)
+    {
+      return RejectReason.TILT;
+    }
+
+    double x = measurement.pose.getX();
+    double y = measurement.pose.getY();
+    if (x < -fieldMargin || x > fieldLength + fieldMargin || y < -fieldMargin || y > fieldWidth + fieldMargin)
+    {
+      return RejectReason.OUT_OF_FIELD;
+    }
+
+    if (history.sample(measurement.timestampSeconds, odometrySample))
+    {
+      double odometryX = odometrySample[0];
+      double odometryY = odometrySample[1];
+      if (Math.hypot(x - odometryX, y - odometryY) > maximumOdometryDeviation)
+      {
+        consecutiveOutliers++;
+        // If it calculates that we are far away for many estimates in a row it is probably right.
+        if (consecutiveOutliers < consecutiveOutliersToAccept)
+        {
+          return RejectReason.ODOMETRY_DISAGREEMENT;
+        }
+      } else
+      {
+        consecutiveOutliers = 0;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Get the number of estimates rejected for a reason.
+   *
+   * @param reason Reject reason.
+   * @return Rejected estimate count.
+   */
+  public long getRejectCount(RejectReason reason)
+  {
+    return rejectCounts[reason.ordinal()];
+  }
+
+  /**
+   * Get the number of estimates accepted.
+   *
+   * @return Accepted estimate count.
+   */
+  public long getAcceptedCount()
+  {
+    return acceptedCount;
+  }
+
+  /**
+   * Publish the accept and reject counters to NetworkTables.
+   */
+  public void publish()
+  {
+    for (int i = 0; i < rejectCounts.length; i++)
+    {
+      rejectPublishers[i].set(rejectCounts[i]);
+    }
+    acceptedPublisher.set(acceptedCount);
+  }
+}
@@ -0,0 +1,119 @@
+package frc.robot.subsystems.swervedrive;
+
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background worker which ingests the unread results of a single {@link Vision.Cameras} entry. The thread sleeps until
+ * NetworkTables reports a new frame on the camera's result topic, then runs the pose estimator and pushes finished
+ * {@link VisionMeasurement}s onto the camera's queue for the robot loop to fuse.
+ */
+class VisionIngestionThread extends Thread
+{
+
+  /**
+   * Maximum time to sleep without a NetworkTables wake-up, guards against missed events after reconnects.
+   */
+  private static final long           maximumParkNanos  = TimeUnit.MILLISECONDS.toNanos(100);
+  /**
+   * Minimum time between two failure reports, a persistent failure repeats every wake-up.
+   */
+  private static final long           reportPeriodNanos = TimeUnit.SECONDS.toNanos(5);
+  /**
+   * Camera to ingest results for.
+   */
+  private final        Vision.Cameras camera;
+  /**
+   * NetworkTables listener handle which wakes this thread.
+   */
+  private              int            listenerHandle;
+  /**
+   * Time of the last failure report in nanoseconds, a full period ago at first so the first failure is reported.
+   */
+  private              long           lastReportNanos   = System.nanoTime() - reportPeriodNanos;
+  /**
+   * Failures since the last report which were not reported.
+   */
+  private              int            suppressedFailures;
+  /**
+   * Whether the thread should keep running.
+   */
+  private volatile     boolean        running           = true;
+
+  /**
+   * Create the ingestion thread for a camera. Call {@link VisionIngestionThread#start()} to begin ingesting.
+   *
+   * @param camera Camera to ingest results for.
+   */
+  VisionIngestionThread(Vision.Cameras camera)
+  {
+    super("Vision-" + camera.name());
+    this.camera = camera;
+    setDaemon(true);
+  }
+
+  @Override
+  public synchronized void start()
+  {
+    listenerHandle = NetworkTableInstance.getDefault()
+                                         .addListener(camera.camera.getCameraTable().getTopic("rawBytes"),
+                                                      EnumSet.of(NetworkTableEvent.Kind.kValueAll),
+                                                      event -> LockSupport.unpark(this));
+    super.start();
+  }
+
+  @Override
+  public void run()
+  {
+    while (running)
+    {
+      LockSupport.parkNanos(this, maximumParkNanos);
+      if (!running)
+      {
+        break;
+      }
+      try
+      {
+        camera.ingestUnreadResults();
+      } catch (Exception e)
+      {
+        report(e);
+      }
+    }
+  }
+
+  /**
+   * Report an ingestion failure to the Driver Station, at most once per
+   * {@link VisionIngestionThread#reportPeriodNanos}.
+   *
+   * @param e Failure.
+   */
+  private void report(Exception e)
+  {
+    long now = System.nanoTime();
+    if (now - lastReportNanos < reportPeriodNanos)
+    {
+      suppressedFailures++;
+      return;
+    }
+    String suppressed = suppressedFailures > 0 ? " (" + suppressedFailures + " more since the last report)" : "";
+    DriverStation.reportError("Vision ingestion failed for " + camera.name() + suppressed + ": " + e,
+                              e.getStackTrace());
+    lastReportNanos = now;
+    suppressedFailures = 0;
+  }
+
+  /**
+   * Stop ingesting and remove the NetworkTables listener.
+   */
+  public void shutdown()
+  {
+    running = false;
+    NetworkTableInstance.getDefault().removeListener(listenerHandle);
+    LockSupport.unpark(this);
+  }
+}
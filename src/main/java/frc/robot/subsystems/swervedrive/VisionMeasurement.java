@@ -0,0 +1,51 @@
+package frc.robot.subsystems.swervedrive;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import org.photonvision.EstimatedRobotPose;
+
+/**
+ * Finished vision estimate handed from a camera's ingestion thread to the robot loop.
+ */
+class VisionMeasurement
+{
+
+  /**
+   * Camera which produced the estimate.
+   */
+  public final Vision.Cameras     camera;
+  /**
+   * Estimated robot pose from the {@link org.photonvision.PhotonPoseEstimator}.
+   */
+  public final EstimatedRobotPose estimate;
+  /**
+   * Estimated robot pose flattened onto the field.
+   */
+  public final Pose2d             pose;
+  /**
+   * Timestamp of the camera frame in seconds, same timebase as the FPGA.
+   */
+  public final double             timestampSeconds;
+  /**
+   * Standard deviations to trust the estimate with.
+   */
+  public final Matrix<N3, N1>     stdDevs;
+
+  /**
+   * Create a vision measurement.
+   *
+   * @param camera   Camera which produced the estimate.
+   * @param estimate Estimated robot pose.
+   * @param stdDevs  Standard deviations for the estimate, copied since the camera reuses its matrix.
+   */
+  VisionMeasurement(Vision.Cameras camera, EstimatedRobotPose estimate, Matrix<N3, N1> stdDevs)
+  {
+    this.camera = camera;
+    this.estimate = estimate;
+    this.pose = estimate.estimatedPose.toPose2d();
+    this.timestampSeconds = estimate.timestampSeconds;
+    this.stdDevs = new Matrix<>(stdDevs);
+  }
+}
@@ -0,0 +1,210 @@
+package frc.robot.subsystems.swervedrive;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Alert;
+import frc.robot.util.Histogram;
+import org.photonvision.targeting.PhotonPipelineResult;
+
+/**
+ * Latency and throughput metrics for a single camera. Frame metrics are recorded by whichever thread ingests the
+ * camera, fusion latency by the robot loop, and percentiles are published to NetworkTables at a low rate.
+ */
+public class VisionMetrics
+{
+
+  /**
+   * Percentiles published for each metric.
+   */
+  private static final double[]             quantiles         = {0.5, 0.95, 0.99};
+  /**
+   * Time spent on the coprocessor from capture to publish, in milliseconds.
+   */
+  private final        Histogram            pipelineLatency   = new Histogram(0, 250, 250);
+  /**
+   * Time from publish on the coprocessor to receipt on the robot, in milliseconds.
+   */
+  private final        Histogram            transportDelay    = new Histogram(0, 100, 200);
+  /**
+   * Time spent in {@link org.photonvision.PhotonPoseEstimator#update(PhotonPipelineResult)}, in milliseconds.
+   */
+  private final        Histogram            estimatorTime     = new Histogram(0, 20, 400);
+  /**
+   * Time from capture to submission to the pose estimator, in milliseconds.
+   */
+  private final        Histogram            fusionLatency     = new Histogram(0, 500, 250);
+  /**
+   * Instantaneous frame rate from consecutive capture timestamps, in frames per second.
+   */
+  private final        Histogram            framesPerSecond   = new Histogram(0, 120, 120);
+  /**
+   * Number of targets in each frame.
+   */
+  private final        Histogram            tagsPerFrame      = new Histogram(0, 32, 32);
+  /**
+   * Scratch array receiving percentiles.
+   */
+  private final        double[]             percentiles       = new double[quantiles.length];
+  /**
+   * Publisher for {@link VisionMetrics#pipelineLatency}.
+   */
+  private final        DoubleArrayPublisher pipelineLatencyPublisher;
+  /**
+   * Publisher for {@link VisionMetrics#transportDelay}.
+   */
+  private final        DoubleArrayPublisher transportDelayPublisher;
+  /**
+   * Publisher for {@link VisionMetrics#estimatorTime}.
+   */
+  private final        DoubleArrayPublisher estimatorTimePublisher;
+  /**
+   * Publisher for {@link VisionMetrics#fusionLatency}.
+   */
+  private final        DoubleArrayPublisher fusionLatencyPublisher;
+  /**
+   * Publisher for {@link VisionMetrics#framesPerSecond}.
+   */
+  private final        DoubleArrayPublisher framesPerSecondPublisher;
+  /**
+   * Publisher for {@link VisionMetrics#tagsPerFrame}.
+   */
+  private final        DoubleArrayPublisher tagsPerFramePublisher;
+  /**
+   * Alert raised when the 95th percentile fusion latency is above {@link VisionMetrics#latencyThresholdMillis}.
+   */
+  private final        Alert                latencyAlert;
+  /**
+   * Seconds between publishes.
+   */
+  private final        double               publishPeriodSeconds;
+  /**
+   * Threshold for the 95th percentile fusion latency before raising the alert, in milliseconds.
+   */
+  private volatile     double               latencyThresholdMillis;
+  /**
+   * Capture timestamp of the previous frame in microseconds, only used by the ingesting thread.
+   */
+  private              long                 lastCaptureMicros = -1;
+  /**
+   * Time of the last publish in seconds.
+   */
+  private              double               lastPublishTime   = Double.NEGATIVE_INFINITY;
+
+  /**
+   * Create the metrics for a camera.
+   *
+   * @param name                   Camera name, used as the NetworkTables sub table.
+   * @param latencyAlert           Alert to raise on high latency.
+   * @param latencyThresholdMillis 95th percentile fusion latency which raises the alert, in milliseconds.
+   * @param publishPeriodSeconds   Seconds between publishes.
+   */
+  public VisionMetrics(String name, Alert latencyAlert, double latencyThresholdMillis, double publishPeriodSeconds)
+  {
+    this.latencyAlert = latencyAlert;
+    this.latencyThresholdMillis = latencyThresholdMillis;
+    this.publishPeriodSeconds = publishPeriodSeconds;
+
+    NetworkTable table = NetworkTableInstance.getDefault().getTable("Vision").getSubTable(name).getSubTable("Metrics");
+    pipelineLatencyPublisher = table.getDoubleArrayTopic("PipelineLatencyMs").publish();
+    transportDelayPublisher = table.getDoubleArrayTopic("TransportDelayMs").publish();
+    estimatorTimePublisher = table.getDoubleArrayTopic("EstimatorTimeMs").publish();
+    fusionLatencyPublisher = table.getDoubleArrayTopic("FusionLatencyMs").publish();
+    framesPerSecondPublisher = table.getDoubleArrayTopic("FramesPerSecond").publish();
+    tagsPerFramePublisher = table.getDoubleArrayTopic("TagsPerFrame").publish();
+  }
+
+  /**
+   * Record the metrics carried by a received frame. Called from the ingesting thread.
+   *
+   * @param result Frame received from the camera.
+   */
+  public void recordFrame(PhotonPipelineResult result)
+  {
+    pipelineLatency.record(result.metadata.getLatencyMillis());
+    if (result.ntReceiveTimestampMicros > 0)
+    {
+      transportDelay.record((result.ntReceiveTimestampMicros - result.metadata.getPublishTimestampMicros()) / 1e3);
+    }
+    long captureMicros = result.metadata.getCaptureTimestampMicros();
+    if (lastCaptureMicros > 0 && captureMicros > lastCaptureMicros)
+    {
+      framesPerSecond.record(1e6 / (captureMicros - lastCaptureMicros));
+    }
+    lastCaptureMicros = Math.max(lastCaptureMicros, captureMicros);
+    tagsPerFrame.record(result.getTargets().size());
+  }
+
+  /**
+   * Record the time spent running the pose estimator on a frame. Called from the ingesting thread.
+   *
+   * @param nanos Time spent in nanoseconds.
+   */
+  public void recordEstimatorTime(long nanos)
+  {
+    estimatorTime.record(nanos / 1e6);
+  }
+
+  /**
+   * Record the latency between capture and fusion of an estimate. Called from the robot loop.
+   *
+   * @param nowSeconds       Current FPGA time in seconds.
+   * @param timestampSeconds Capture timestamp of the estimate in seconds.
+   */
+  public void recordFusionLatency(double nowSeconds, double timestampSeconds)
+  {
+    fusionLatency.record((nowSeconds - timestampSeconds) * 1e3);
+  }
+
+  /**
+   * Change the latency threshold which raises the alert.
+   *
+   * @param latencyThresholdMillis 95th percentile fusion latency which raises the alert, in milliseconds.
+   */
+  public void setLatencyThreshold(double latencyThresholdMillis)
+  {
+    this.latencyThresholdMillis = latencyThresholdMillis;
+  }
+
+  /**
+   * Publish the percentiles of every metric recorded since the last publish and update the latency alert. Does nothing
+   * until the publish period has elapsed. Called from the robot loop.
+   *
+   * @param nowSeconds Current FPGA time in seconds.
+   */
+  public void publish(double nowSeconds)
+  {
+    if (nowSeconds - lastPublishTime < publishPeriodSeconds)
+    {
+      return;
+    }
+    lastPublishTime = nowSeconds;
+
+    publish(pipelineLatency, pipelineLatencyPublisher);
+    publish(transportDelay, transportDelayPublisher);
+    publish(estimatorTime, estimatorTimePublisher);
+    publish(framesPerSecond, framesPerSecondPublisher);
+    publish(tagsPerFrame, tagsPerFramePublisher);
+    if (publish(fusionLatency, fusionLatencyPublisher) > 0)
+    {
+      latencyAlert.set(percentiles[1] > latencyThresholdMillis);
+    }
+  }
+
+  /**
+   * Publish the windowed percentiles of a histogram.
+   *
+   * @param histogram Histogram to publish.
+   * @param publisher Publisher to write to.
+   * @return Number of samples in the window.
+   */
+  private long publish(Histogram histogram, DoubleArrayPublisher publisher)
+  {
+    long count = histogram.windowPercentiles(quantiles, percentiles);
+    if (count > 0)
+    {
+      publisher.set(percentiles);
+    }
+    return count;
+  }
+}
@@ -0,0 +1,539 @@
+package frc.robot.util;
+
+import com.sun.management.ThreadMXBean;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.wpilibj.Alert;
+import edu.wpi.first.wpilibj.Alert.AlertType;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Per-loop allocation budget of the robot program. The bytes allocated by the robot loop thread around the command
+ * scheduler run are read from the JVM's per-thread allocation counters, along with what the odometry thread allocated
+ * since the previous loop, and accumulated per robot mode. The scheduler hooks of the {@link LoopProfiler} also report
+ * the allocation between them, splitting the loop into subsystem {@code periodic()} and command {@code execute()}
+ * calls. An {@link Alert} is raised while loops allocate more than the budget, since allocation is what drives the GC
+ * pauses behind loop overruns.
+ *
+ * <p>Once per publish period the mean, p50, p99 and max bytes per loop of each mode are written to NetworkTables and
+ * the DataLog; the DataLog entries are only created by the first publish, so loading the class in benchmarks and tools
+ * does not start DataLogManager. The totals since the last {@link AllocationMonitor#reset()} can be read, and reset,
+ * from other threads, which lets a simulation harness check the allocation of a scripted drive; a reset is only applied
+ * by the loop thread. Everything else must be used from the robot loop thread. When the JVM has no allocation counters
+ * every reading is zero and the alert never fires.
+ */
+public final class AllocationMonitor
+{
+
+  /**
+   * Robot mode a loop ran in.
+   */
+  public enum Mode
+  {
+    /**
+     * Robot disabled.
+     */
+    DISABLED,
+    /**
+     * Autonomous enabled.
+     */
+    AUTONOMOUS,
+    /**
+     * Teleoperated enabled.
+     */
+    TELEOP,
+    /**
+     * Test enabled.
+     */
+    TEST
+  }
+
+  /**
+   * Allocation statistics of one robot mode.
+   */
+  private static final class Stats
+  {
+
+    /**
+     * Loop allocation in KiB, up to four default budgets with the rest in the last bucket.
+     */
+    final    Histogram            histogram   = new Histogram(0, 4 * defaultBudgetBytes / 1024.0, 512);
+    /**
+     * Mean, p50, p99 and max KiB per loop, subsystem, command and odometry KiB per loop, and loops over budget, of the
+     * last publish window.
+     */
+    final    double[]             published   = new double[8];
+    /**
+     * Loops, bytes, subsystem, command and odometry bytes and loops over budget at the start of the publish window.
+     */
+    final    long[]               windowStart = new long[6];
+    /**
+     * Name of the mode in the outputs.
+     */
+    final    String               name;
+    /**
+     * NetworkTables publisher of {@link Stats#published}.
+     */
+    final    DoubleArrayPublisher publisher;
+    /**
+     * DataLog entry of {@link Stats#published}, created by the first publish.
+     */
+             DoubleArrayLogEntry  logEntry;
+    /**
+     * Loops since the last reset.
+     */
+    volatile long                 loops;
+    /**
+     * Bytes allocated by the loop thread since the last reset.
+     */
+    volatile long                 bytes;
+    /**
+     * Bytes allocated by subsystem {@code periodic()} calls since the last reset.
+     */
+    volatile long                 subsystemBytes;
+    /**
+     * Bytes allocated by command {@code execute()} calls since the last reset.
+     */
+    volatile long                 commandBytes;
+    /**
+     * Bytes allocated by the odometry thread since the last reset.
+     */
+    volatile long                 odometryBytes;
+    /**
+     * Most bytes allocated by one loop since the last reset.
+     */
+    volatile long                 maxBytes;
+    /**
+     * Loops over budget since the last reset.
+     */
+    volatile long                 overBudget;
+
+    /**
+     * Create the statistics of a mode.
+     *
+     * @param mode Robot mode.
+     */
+    Stats(Mode mode)
+    {
+      this.name = mode.name().charAt(0) + mode.name().substring(1).toLowerCase();
+      this.publisher = table.getDoubleArrayTopic(name).publish();
+    }
+  }
+
+  /**
+   * Default budget in bytes per loop.
+   */
+  private static final    long         defaultBudgetBytes = 64 * 1024;
+  /**
+   * Seconds between publishes.
+   */
+  private static final    double       publishPeriod      = 1.0;
+  /**
+   * Quantiles published for each mode.
+   */
+  private static final    double[]     quantiles          = {0.5, 0.99};
+  /**
+   * JVM allocation counters, null when unsupported.
+   */
+  private static final    ThreadMXBean threads            = allocationCounters();
+  /**
+   * NetworkTables table holding the monitor output.
+   */
+  private static final    NetworkTable table              = NetworkTableInstance.getDefault()
+                                                                                .getTable("AllocationMonitor");
+  /**
+   * Statistics of each mode.
+   */
+  private static final    Stats[]      stats              = new Stats[Mode.values().length];
+  /**
+   * Percentiles of the last publish, scratch space.
+   */
+  private static final    double[]     percentiles        = new double[quantiles.length];
+  /**
+   * Alert raised while loops exceed the budget.
+   */
+  private static final    Alert        budgetAlert        = new Alert("Robot loop allocation over budget",
+                                                                      AlertType.kWarning);
+  /**
+   * Budget in bytes per loop.
+   */
+  private static          long         budgetBytes        = defaultBudgetBytes;
+  /**
+   * Thread ID of the odometry thread, 0 when there is none.
+   */
+  private static volatile long         odometryThreadId;
+  /**
+   * Odometry thread allocation counter at the end of the previous loop, -1 when unknown.
+   */
+  private static          long         odometryLast       = -1;
+  /**
+   * Loop thread allocation counter at the start of the loop.
+   */
+  private static          long         loopStart;
+  /**
+   * Bytes allocated by subsystem {@code periodic()} calls in the current loop.
+   */
+  private static          long         loopSubsystem;
+  /**
+   * Bytes allocated by command {@code execute()} calls in the current loop.
+   */
+  private static          long         loopCommand;
+  /**
+   * Whether {@link AllocationMonitor#reset()} was called since the loop thread last cleared the totals.
+   */
+  private static volatile boolean      resetPending;
+  /**
+   * Whether a loop is being measured.
+   */
+  private static          boolean      inLoop;
+  /**
+   * FPGA time of the last publish in seconds.
+   */
+  private static          double       lastPublish        = Double.NEGATIVE_INFINITY;
+
+  static
+  {
+    for (Mode mode : Mode.values())
+    {
+      stats[mode.ordinal()] = new Stats(mode);
+    }
+  }
+
+  private AllocationMonitor()
+  {
+  }
+
+  /**
+   * Start measuring a loop. Call from {@code robotPeriodic()} right before the scheduler run.
+   */
+  public static void beginLoop()
+  {
+    if (resetPending)
+    {
+      clear();
+      resetPending = false;
+    }
+    loopSubsystem = 0;
+    loopCommand = 0;
+    inLoop = true;
+    loopStart = mark();
+  }
+
+  /**
+   * Finish measuring a loop, check it against the budget and publish when the publish period has elapsed. Call from
+   * {@code robotPeriodic()} right after the scheduler run.
+   */
+  public static void endLoop()
+  {
+    long loop = mark() - loopStart;
+    inLoop = false;
+    long odometry = 0;
+    long id       = odometryThreadId;
+    if (threads != null && id != 0)
+    {
+      long current = threads.getThreadAllocatedBytes(id);
+      odometry = current >= 0 && odometryLast >= 0 ? current - odometryLast : 0;
+      odometryLast = current;
+    }
+
+    Stats mode = stats[currentMode().ordinal()];
+    mode.histogram.record(loop / 1024.0);
+    mode.loops++;
+    mode.bytes += loop;
+    mode.subsystemBytes += loopSubsystem;
+    mode.commandBytes += loopCommand;
+    mode.odometryBytes += odometry;
+    mode.maxBytes = Math.max(mode.maxBytes, loop);
+    if (loop > budgetBytes)
+    {
+      mode.overBudget++;
+    }
+
+    double now = Timer.getFPGATimestamp();
+    if (now - lastPublish >= publishPeriod)
+    {
+      lastPublish = now;
+      publish();
+    }
+  }
+
+  /**
+   * Read the allocation counter of the calling thread, to pass to {@link AllocationMonitor#attributeSubsystem(long)}
+   * or {@link AllocationMonitor#attributeCommand(long)}.
+   *
+   * @return Bytes allocated by the calling thread so far, 0 when unsupported.
+   */
+  public static long mark()
+  {
+    return threads != null ? threads.getCurrentThreadAllocatedBytes() : 0;
+  }
+
+  /**
+   * Count what the loop thread allocated since a mark as subsystem {@code periodic()} allocation.
+   *
+   * @param mark Value returned by {@link AllocationMonitor#mark()} before the call.
+   */
+  public static void attributeSubsystem(long mark)
+  {
+    if (inLoop)
+    {
+      loopSubsystem += mark() - mark;
+    }
+  }
+
+  /**
+   * Count what the loop thread allocated since a mark as command {@code execute()} allocation.
+   *
+   * @param mark Value returned by {@link AllocationMonitor#mark()} before the call.
+   */
+  public static void attributeCommand(long mark)
+  {
+    if (inLoop)
+    {
+      loopCommand += mark() - mark;
+    }
+  }
+
+  /**
+   * Watch the calling thread as the odometry thread. Cheap enough to call on every odometry update.
+   */
+  public static void watchOdometryThread()
+  {
+    long id = Thread.currentThread().getId();
+    if (odometryThreadId != id)
+    {
+      odometryThreadId = id;
+    }
+  }
+
+  /**
+   * Set the budget a loop may allocate before the alert is raised.
+   *
+   * @param bytesPerLoop Budget in bytes per loop.
+   */
+  public static void setBudget(long bytesPerLoop)
+  {
+    budgetBytes = bytesPerLoop;
+  }
+
+  /**
+   * Get the budget a loop may allocate before the alert is raised.
+   *
+   * @return Budget in bytes per loop.
+   */
+  public static long getBudget()
+  {
+    return budgetBytes;
+  }
+
+  /**
+   * Whether the JVM provides per-thread allocation counters.
+   *
+   * @return True if allocation is measured.
+   */
+  public static boolean isSupported()
+  {
+    return threads != null;
+  }
+
+  /**
+   * Clear the totals of every mode, for example before a scripted drive. May be called from any thread; the loop thread
+   * clears the totals at the start of its next loop, and until then they read as cleared.
+   */
+  public static void reset()
+  {
+    resetPending = true;
+  }
+
+  /**
+   * Clear the totals and publish windows of every mode, on the loop thread.
+   */
+  private static void clear()
+  {
+    for (Stats mode : stats)
+    {
+      mode.loops = 0;
+      mode.bytes = 0;
+      mode.subsystemBytes = 0;
+      mode.commandBytes = 0;
+      mode.odometryBytes = 0;
+      mode.maxBytes = 0;
+      mode.overBudget = 0;
+      Arrays.fill(mode.windowStart, 0);
+    }
+  }
+
+  /**
+   * Get the number of loops measured in a mode since the last reset.
+   *
+   * @param mode Robot mode.
+   * @return Loop count.
+   */
+  public static long getLoopCount(Mode mode)
+  {
+    return resetPending ? 0 : stats[mode.ordinal()].loops;
+  }
+
+  /**
+   * Get the mean bytes the loop thread allocated per loop in a mode since the last reset.
+   *
+   * @param mode Robot mode.
+   * @return Bytes per loop, NaN if no loop ran in the mode.
+   */
+  public static double getMeanBytesPerLoop(Mode mode)
+  {
+    return perLoop(stats[mode.ordinal()].bytes, mode);
+  }
+
+  /**
+   * Get the most bytes one loop allocated in a mode since the last reset.
+   *
+   * @param mode Robot mode.
+   * @return Bytes.
+   */
+  public static long getMaxBytesPerLoop(Mode mode)
+  {
+    return resetPending ? 0 : stats[mode.ordinal()].maxBytes;
+  }
+
+  /**
+   * Get the mean bytes subsystem {@code periodic()} calls allocated per loop in a mode since the last reset.
+   *
+   * @param mode Robot mode.
+   * @return Bytes per loop, NaN if no loop ran in the mode.
+   */
+  public static double getMeanSubsystemBytesPerLoop(Mode mode)
+  {
+    return perLoop(stats[mode.ordinal()].subsystemBytes, mode);
+  }
+
+  /**
+   * Get the mean bytes command {@code execute()} calls allocated per loop in a mode since the last reset.
+   *
+   * @param mode Robot mode.
+   * @return Bytes per loop, NaN if no loop ran in the mode.
+   */
+  public static double getMeanCommandBytesPerLoop(Mode mode)
+  {
+    return perLoop(stats[mode.ordinal()].commandBytes, mode);
+  }
+
+  /**
+   * Get the mean bytes the odometry thread allocated per loop in a mode since the last reset.
+   *
+   * @param mode Robot mode.
+   * @return Bytes per loop, NaN if no loop ran in the mode.
+   */
+  public static double getMeanOdometryBytesPerLoop(Mode mode)
+  {
+    return perLoop(stats[mode.ordinal()].odometryBytes, mode);
+  }
+
+  /**
+   * Divide a total by the loops of a mode.
+   *
+   * @param total Total bytes.
+   * @param mode  Robot mode.
+   * @return Bytes per loop, NaN if no loop ran in the mode.
+   */
+  private static double perLoop(long total, Mode mode)
+  {
+    long loops = getLoopCount(mode);
+    return loops > 0 ? (double) total / loops : Double.NaN;
+  }
+
+  /**
+   * Get the mode the robot is in.
+   *
+   * @return Robot mode.
+   */
+  private static Mode currentMode()
+  {
+    if (DriverStation.isDisabled())
+    {
+      return Mode.DISABLED;
+    } else if (DriverStation.isAutonomous())
+    {
+      return Mode.AUTONOMOUS;
+    } else if (DriverStation.isTest())
+    {
+      return Mode.TEST;
+    }
+    return Mode.TELEOP;
+  }
+
+  /**
+   * Write the statistics of the publish window of every mode that ran in it and update the alert.
+   */
+  private static void publish()
+  {
+    long   worstLoops = 0;
+    Mode   worstMode  = null;
+    double worstP99   = 0;
+    for (Mode mode : Mode.values())
+    {
+      Stats  modeStats = stats[mode.ordinal()];
+      long[] start     = modeStats.windowStart;
+      long   loops     = modeStats.loops - start[0];
+      modeStats.histogram.windowPercentiles(quantiles, percentiles);
+      if (loops == 0)
+      {
+        continue;
+      }
+      double[] published = modeStats.published;
+      published[0] = (modeStats.bytes - start[1]) / 1024.0 / loops;
+      published[1] = percentiles[0];
+      published[2] = percentiles[1];
+      published[3] = modeStats.maxBytes / 1024.0;
+      published[4] = (modeStats.subsystemBytes - start[2]) / 1024.0 / loops;
+      published[5] = (modeStats.commandBytes - start[3]) / 1024.0 / loops;
+      published[6] = (modeStats.odometryBytes - start[4]) / 1024.0 / loops;
+      published[7] = modeStats.overBudget - start[5];
+      modeStats.publisher.set(published);
+      if (modeStats.logEntry == null)
+      {
+        modeStats.logEntry = new DoubleArrayLogEntry(DataLogManager.getLog(), "/AllocationMonitor/" + modeStats.name);
+      }
+      modeStats.logEntry.append(published);
+      if (published[7] > worstLoops)
+      {
+        worstLoops = (long) published[7];
+        worstMode = mode;
+        worstP99 = published[2];
+      }
+      start[0] = modeStats.loops;
+      start[1] = modeStats.bytes;
+      start[2] = modeStats.subsystemBytes;
+      start[3] = modeStats.commandBytes;
+      start[4] = modeStats.odometryBytes;
+      start[5] = modeStats.overBudget;
+    }
+    if (worstMode != null)
+    {
+      budgetAlert.setText(String.format("Robot loop allocation over the %d KiB budget in %s: %d loops, p99 %.0f KiB",
+                                        budgetBytes / 1024, worstMode, worstLoops, worstP99));
+    }
+    budgetAlert.set(worstMode != null);
+  }
+
+  /**
+   * Get the JVM allocation counters and turn them on.
+   *
+   * @return Allocation counters, null when the JVM does not support them.
+   */
+  private static ThreadMXBean allocationCounters()
+  {
+    if (ManagementFactory.getThreadMXBean() instanceof ThreadMXBean bean && bean.isThreadAllocatedMemorySupported())
+    {
+      bean.setThreadAllocatedMemoryEnabled(true);
+      return bean;
+    }
+    return null;
+  }
+}
@@ -0,0 +1,177 @@
+package frc.robot.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket histogram of primitive samples. Recording never allocates and is safe from a single writer thread while
+ * another single thread reads percentiles. The writer publishes every count with a release store and the reader loads
+ * them with acquire loads, so 64-bit counts never tear on the 32-bit roboRIO JVM; reads may be off by the samples
+ * recorded during the read, which is fine for telemetry.
+ */
+public class Histogram
+{
+
+  /**
+   * Lower bound of the first bucket.
+   */
+  private final    double          min;
+  /**
+   * Width of each bucket.
+   */
+  private final    double          bucketWidth;
+  /**
+   * Sample count per bucket, the last bucket also holds every sample above the range. Only the writer stores.
+   */
+  private final    AtomicLongArray counts;
+  /**
+   * Total samples recorded. Only the writer stores.
+   */
+  private final    AtomicLong      total        = new AtomicLong();
+  /**
+   * Bucket counts at the end of the previous window, only touched by the reader.
+   */
+  private final    long[]          windowStart;
+  /**
+   * Bucket counts of the current window, scratch space for the reader.
+   */
+  private final    long[]          windowCounts;
+  /**
+   * Largest sample recorded.
+   */
+  private volatile double          max          = Double.NEGATIVE_INFINITY;
+
+  /**
+   * Create a histogram.
+   *
+   * @param min         Lower bound of the first bucket, smaller samples are counted in the first bucket.
+   * @param max         Upper bound of the last bucket, larger samples are counted in the last bucket.
+   * @param bucketCount Number of buckets.
+   */
+  public Histogram(double min, double max, int bucketCount)
+  {
+    this.min = min;
+    this.bucketWidth = (max - min) / bucketCount;
+    this.counts = new AtomicLongArray(bucketCount);
+    this.windowStart = new long[bucketCount];
+    this.windowCounts = new long[bucketCount];
+  }
+
+  /**
+   * Record a sample. Must only be called from one thread.
+   *
+   * @param value Sample to record.
+   */
+  public void record(double value)
+  {
+    int bucket = (int) ((value - min) / bucketWidth);
+    if (bucket < 0)
+    {
+      bucket = 0;
+    } else if (bucket >= windowCounts.length)
+    {
+      bucket = windowCounts.length - 1;
+    }
+    // Single writer, so a plain load of its own stores followed by a release store is an atomic increment.
+    counts.setRelease(bucket, counts.getPlain(bucket) + 1);
+    total.setRelease(total.getPlain() + 1);
+    if (value > max)
+    {
+      max = value;
+    }
+  }
+
+  /**
+   * Get the total number of samples recorded.
+   *
+   * @return Sample count.
+   */
+  public long getCount()
+  {
+    return total.getAcquire();
+  }
+
+  /**
+   * Get the largest sample recorded.
+   *
+   * @return Largest sample, negative infinity if nothing was recorded.
+   */
+  public double getMax()
+  {
+    return max;
+  }
+
+  /**
+   * Compute percentiles over every sample recorded so far.
+   *
+   * @param quantiles Quantiles between 0 and 1, ascending.
+   * @param out       Output array receiving the upper bound of the bucket holding each quantile.
+   * @return Number of samples the percentiles were computed from.
+   */
+  public long percentiles(double[] quantiles, double[] out)
+  {
+    long windowTotal = 0;
+    for (int i = 0; i < windowCounts.length; i++)
+    {
+      windowCounts[i] = counts.getAcquire(i);
+      windowTotal += windowCounts[i];
+    }
+    return fillPercentiles(windowCounts, windowTotal, quantiles, out);
+  }
+
+  /**
+   * Compute percentiles over the samples recorded since the previous call, then start a new window. Must only be
+   * called from one thread.
+   *
+   * @param quantiles Quantiles between 0 and 1, ascending.
+   * @param out       Output array receiving the upper bound of the bucket holding each quantile, NaN when the window
+   *                  is empty.
+   * @return Number of samples in the window.
+   */
+  public long windowPercentiles(double[] quantiles, double[] out)
+  {
+    long windowTotal = 0;
+    for (int i = 0; i < windowCounts.length; i++)
+    {
+      long current = counts.getAcquire(i);
+      windowCounts[i] = current - windowStart[i];
+      windowStart[i] = current;
+      windowTotal += windowCounts[i];
+    }
+    return fillPercentiles(windowCounts, windowTotal, quantiles, out);
+  }
+
+  /**
+   * Walk bucket counts and write the requested percentiles.
+   *
+   * @param bucketCounts Count per bucket.
+   * @param sampleCount  Sum of the bucket counts.
+   * @param quantiles    Quantiles between 0 and 1, ascending.
+   * @param out          Output array.
+   * @return Sample count.
+   */
+  private long fillPercentiles(long[] bucketCounts, long sampleCount, double[] quantiles, double[] out)
+  {
+    if (sampleCount == 0)
+    {
+      for (int q = 0; q < quantiles.length; q++)
+      {
+        out[q] = Double.NaN;
+      }
+      return 0;
+    }
+    long seen   = 0;
+    int  bucket = 0;
+    for (int q = 0; q < quantiles.length; q++)
+    {
+      long rank = (long) Math.ceil(quantiles[q] * sampleCount);
+      while (bucket < bucketCounts.length - 1 && seen + bucketCounts[bucket] < rank)
+      {
+        seen += bucketCounts[bucket];
+        bucket++;
+      }
+      out[q] = min + (bucket + 1) * bucketWidth;
+    }
+    return sampleCount;
+  }
+}
@@ -0,0 +1,756 @@
+package frc.robot.util;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.util.datalog.IntegerLogEntry;
+import edu.wpi.first.util.datalog.RawLogEntry;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.photonvision.common.dataflow.structures.Packet;
+import org.photonvision.targeting.PhotonPipelineResult;
+import swervelib.telemetry.SwerveDriveTelemetry;
+import swervelib.telemetry.SwerveDriveTelemetry.TelemetryVerbosity;
+
+/**
+ * Records every input the robot program reads to a WPILog, and feeds a recorded log back in for deterministic replay.
+ * The log is cut into frames, one per robot loop plus one for startup. Records made on the robot loop are stamped with
+ * the FPGA time their frame started, records handed over by the odometry and camera ingestion threads with the time
+ * they were handed over, so a replay running at the recorded times finds every record in the frame it was made in.
+ * The inputs are
+ * <ul>
+ *   <li>the driver station state and every connected joystick, captured once per loop,</li>
+ *   <li>the gyro angle and module positions handed to the pose estimator, in call order,</li>
+ *   <li>the PhotonVision results of each camera, as the raw result packets.</li>
+ * </ul>
+ * The outputs, the estimated pose after every estimator call, the module setpoints of every loop and the fused vision
+ * measurements, are written next to them. A replay writes the same outputs to its own log, so the two can be diffed.
+ *
+ * <p>Recording does not change how the robot runs, the threads record where they read their inputs. Replaying does:
+ * odometry is updated and cameras are read from the robot loop, which runs every record due in its frame. The
+ * recording and output methods may be called from any thread; everything else must be used from the robot loop
+ * thread.
+ */
+public final class InputLog
+{
+
+  /**
+   * Records of one recorded input in log order, each tagged with the frame it belongs to.
+   *
+   * @param <T> Type of the recorded values.
+   */
+  private static final class Recorded<T>
+  {
+
+    /**
+     * Recorded values.
+     */
+    final List<T> values = new ArrayList<>();
+    /**
+     * Frame of each value.
+     */
+    int[]         frames = new int[64];
+    /**
+     * Next value to replay.
+     */
+    int           cursor = 0;
+
+    /**
+     * Add a value.
+     *
+     * @param frame Frame of the value.
+     * @param value Recorded value.
+     */
+    void add(int frame, T value)
+    {
+      if (values.size() == frames.length)
+      {
+        frames = Arrays.copyOf(frames, frames.length * 2);
+      }
+      frames[values.size()] = frame;
+      values.add(value);
+    }
+
+    /**
+     * Whether the next value belongs to a frame at or before the given one.
+     *
+     * @param frame Current frame.
+     * @return Whether a value is due.
+     */
+    boolean hasDue(int frame)
+    {
+      return cursor < values.size() && frames[cursor] <= frame;
+    }
+  }
+
+  /**
+   * Kind of an odometry record, a regular update.
+   */
+  public static final  int                           odometryUpdate      = 0;
+  /**
+   * Kind of an odometry record, a reset to a given pose.
+   */
+  public static final  int                           odometryReset       = 1;
+  /**
+   * Prefix of every entry written by the input log.
+   */
+  private static final String                        prefix              = "/Replay/";
+  /**
+   * Joystick axes recorded per port.
+   */
+  private static final int                           maxAxes             = 12;
+  /**
+   * Joystick POVs recorded per port.
+   */
+  private static final int                           maxPovs             = 12;
+  /**
+   * Layout of a joystick record: axis count, axes, button count, buttons, POV count, POVs.
+   */
+  private static final int                           joystickLength      = 1 + maxAxes + 2 + 1 + maxPovs;
+  /**
+   * Driver station control word bit, robot enabled.
+   */
+  private static final int                           enabledBit          = 1;
+  /**
+   * Driver station control word bit, autonomous mode.
+   */
+  private static final int                           autonomousBit       = 2;
+  /**
+   * Driver station control word bit, test mode.
+   */
+  private static final int                           testBit             = 4;
+  /**
+   * Driver station control word bit, emergency stopped.
+   */
+  private static final int                           eStopBit            = 8;
+  /**
+   * Driver station control word bit, FMS attached.
+   */
+  private static final int                           fmsBit              = 16;
+  /**
+   * Driver station control word bit, driver station attached.
+   */
+  private static final int                           dsBit               = 32;
+
+  /**
+   * Lock of the recording and output buffers and entries, which the odometry and camera threads write to.
+   */
+  private static final Object                        recordLock          = new Object();
+  /**
+   * Log being recorded to, null unless recording.
+   */
+  private static       DataLog                       recordLog;
+  /**
+   * Log the replayed outputs are written to, null unless replaying.
+   */
+  private static       DataLog                       outputLog;
+  /**
+   * Current frame, 0 during startup.
+   */
+  private static       int                           frame               = 0;
+  /**
+   * FPGA time in microseconds the current frame started at.
+   */
+  private static       long                          frameMicros;
+  /**
+   * Verbosity recorded last, to only record changes.
+   */
+  private static       TelemetryVerbosity            recordedVerbosity;
+  /**
+   * Frame marker entry.
+   */
+  private static       IntegerLogEntry               frameEntry;
+  /**
+   * Driver station entry, control word, alliance station and match time.
+   */
+  private static       DoubleArrayLogEntry           driverStationEntry;
+  /**
+   * Joystick entries per port.
+   */
+  private static       DoubleArrayLogEntry[]         joystickEntries;
+  /**
+   * Swerve telemetry verbosity entry, set by the telemetry governor and read by YAGSL.
+   */
+  private static       IntegerLogEntry               verbosityEntry;
+  /**
+   * Pose estimator input entry.
+   */
+  private static       DoubleArrayLogEntry           odometryEntry;
+  /**
+   * Camera result entries by camera name.
+   */
+  private static final Map<String, RawLogEntry>      cameraEntries       = new HashMap<>();
+  /**
+   * Estimated pose output entry.
+   */
+  private static       DoubleArrayLogEntry           poseOutput;
+  /**
+   * Module setpoint output entry.
+   */
+  private static       DoubleArrayLogEntry           moduleSetpointOutput;
+  /**
+   * Fused vision measurement output entry.
+   */
+  private static       DoubleArrayLogEntry           visionOutput;
+  /**
+   * Joystick record buffer.
+   */
+  private static final double[]                      joystickBuffer      = new double[joystickLength];
+  /**
+   * Driver station record buffer.
+   */
+  private static final double[]                      driverStationBuffer = new double[3];
+  /**
+   * Pose output buffer.
+   */
+  private static final double[]                      poseBuffer          = new double[3];
+  /**
+   * Vision output buffer.
+   */
+  private static final double[]                      visionBuffer        = new double[7];
+  /**
+   * Pose estimator record buffer, sized on first use.
+   */
+  private static       double[]                      odometryBuffer;
+  /**
+   * Packet camera results are serialized through.
+   */
+  private static final Packet                        packet              = new Packet(1024);
+
+  /**
+   * FPGA start time of each replayed frame in microseconds.
+   */
+  private static       long[]                        replayFrameMicros;
+  /**
+   * Driver station record of each replayed frame.
+   */
+  private static       double[][]                    replayDriverStation;
+  /**
+   * Joystick records of each replayed frame, by port, null where not connected.
+   */
+  private static       double[][][]                  replayJoysticks;
+  /**
+   * Verbosity ordinal of each replayed frame, -1 where unchanged.
+   */
+  private static       int[]                         replayVerbosity;
+  /**
+   * Replayed pose estimator inputs.
+   */
+  private static       Recorded<double[]>            replayOdometry;
+  /**
+   * Replayed camera results by camera name.
+   */
+  private static       Map<String, Recorded<byte[]>> replayCameras;
+  /**
+   * Replayed inputs which did not match what the replayed program asked for, a sign the replay diverged.
+   */
+  private static       int                           divergences         = 0;
+
+  private InputLog()
+  {
+  }
+
+  /**
+   * Start recording inputs and outputs. Call from {@code robotInit()} before the subsystems are created.
+   *
+   * @param log Log to record to, usually {@link edu.wpi.first.wpilibj.DataLogManager#getLog()}.
+   */
+  public static void startRecording(DataLog log)
+  {
+    recordLog = log;
+    frameEntry = new IntegerLogEntry(log, prefix + "Frame");
+    driverStationEntry = new DoubleArrayLogEntry(log, prefix + "DriverStation");
+    joystickEntries = new DoubleArrayLogEntry[DriverStation.kJoystickPorts];
+    for (int port = 0; port < joystickEntries.length; port++)
+    {
+      joystickEntries[port] = new DoubleArrayLogEntry(log, prefix + "Joystick" + port);
+    }
+    verbosityEntry = new IntegerLogEntry(log, prefix + "Verbosity");
+    odometryEntry = new DoubleArrayLogEntry(log, prefix + "Odometry");
+    createOutputs(log);
+    frameMicros = RobotController.getFPGATime();
+    frameEntry.append(frame, frameMicros);
+  }
+
+  /**
+   * Load a recorded log for replay. The replay driver must step time to {@link InputLog#getReplayFrameMicros(int)} of
+   * frame 0 before the robot program is created, and then run one robot loop per frame at its recorded time.
+   *
+   * @param path   Recorded log.
+   * @param output Log the replayed outputs are written to.
+   * @throws IOException If the log could not be read or holds no recording.
+   */
+  public static void startReplay(String path, DataLog output) throws IOException
+  {
+    WPILogFile       log    = WPILogFile.open(Path.of(path));
+    WPILogFile.Entry frames = log.getEntry(prefix + "Frame");
+    if (frames == null || frames.size() == 0)
+    {
+      throw new IOException(path + " holds no input recording");
+    }
+    log.index(prefix);
+    replayFrameMicros = new long[frames.size()];
+    for (int i = 0; i < replayFrameMicros.length; i++)
+    {
+      replayFrameMicros[i] = frames.getTimestamp(i);
+    }
+    replayDriverStation = new double[replayFrameMicros.length][];
+    replayJoysticks = new double[replayFrameMicros.length][DriverStation.kJoystickPorts][];
+    replayVerbosity = new int[replayFrameMicros.length];
+    Arrays.fill(replayVerbosity, -1);
+    replayOdometry = new Recorded<>();
+    replayCameras = new HashMap<>();
+    for (WPILogFile.Entry entry : log.getEntries())
+    {
+      if (!entry.getName().startsWith(prefix))
+      {
+        continue;
+      }
+      String            name   = entry.getName().substring(prefix.length());
+      WPILogFile.Cursor record = entry.cursor();
+      while (record.next())
+      {
+        // Every record is stamped at or after the start of its frame.
+        int current = Arrays.binarySearch(replayFrameMicros, record.getTimestamp());
+        current = current >= 0 ? current : -current - 2;
+        if (current < 0)
+        {
+          // Written before the recording started, not ours.
+          continue;
+        }
+        if (name.equals("DriverStation"))
+        {
+          replayDriverStation[current] = record.getDoubleArray();
+        } else if (name.startsWith("Joystick"))
+        {
+          replayJoysticks[current][Integer.parseInt(name.substring("Joystick".length()))] = record.getDoubleArray();
+        } else if (name.equals("Verbosity"))
+        {
+          replayVerbosity[current] = (int) record.getInteger();
+        } else if (name.equals("Odometry"))
+        {
+          replayOdometry.add(current, record.getDoubleArray());
+        } else if (name.startsWith("Camera/"))
+        {
+          replayCameras.computeIfAbsent(name.substring("Camera/".length()), k -> new Recorded<>())
+                       .add(current, record.getRaw());
+        }
+      }
+    }
+    outputLog = output;
+    createOutputs(output);
+    frame = 0;
+    frameMicros = replayFrameMicros[0];
+    applyVerbosity();
+  }
+
+  /**
+   * Whether inputs are being recorded.
+   *
+   * @return True while recording.
+   */
+  public static boolean isRecording()
+  {
+    return recordLog != null;
+  }
+
+  /**
+   * Whether a recorded log is being replayed.
+   *
+   * @return True while replaying.
+   */
+  public static boolean isReplaying()
+  {
+    return outputLog != null;
+  }
+
+  /**
+   * Whether inputs are recorded or replayed, in which case the pose estimator must pass its inputs through the log.
+   *
+   * @return True while recording or replaying.
+   */
+  public static boolean isActive()
+  {
+    return recordLog != null || outputLog != null;
+  }
+
+  /**
+   * Start a frame. Call first thing in {@code robotPeriodic()}, after the driver station data of the loop was read.
+   */
+  public static void beginFrame()
+  {
+    if (isReplaying())
+    {
+      frame++;
+      frameMicros = RobotController.getFPGATime();
+      if (frame < replayFrameMicros.length && frameMicros != replayFrameMicros[frame])
+      {
+        divergences++;
+      }
+      // Resets the program did not ask for in their frame are stale now, the updates behind them run in this frame.
+      while (replayOdometry.hasDue(frame - 1) && nextOdometryKind() != odometryUpdate)
+      {
+        replayOdometry.cursor++;
+        divergences++;
+      }
+      applyVerbosity();
+      return;
+    }
+    if (!isRecording())
+    {
+      return;
+    }
+    frame++;
+    frameMicros = RobotController.getFPGATime();
+    frameEntry.append(frame, frameMicros);
+
+    driverStationBuffer[0] = (DriverStation.isEnabled() ? enabledBit : 0) |
+                             (DriverStation.isAutonomous() ? autonomousBit : 0) |
+                             (DriverStation.isTest() ? testBit : 0) |
+                             (DriverStation.isEStopped() ? eStopBit : 0) |
+                             (DriverStation.isFMSAttached() ? fmsBit : 0) |
+                             (DriverStation.isDSAttached() ? dsBit : 0);
+    driverStationBuffer[1] = DriverStation.getRawAllianceStation().ordinal();
+    driverStationBuffer[2] = DriverStation.getMatchTime();
+    driverStationEntry.append(driverStationBuffer, frameMicros);
+
+    for (int port = 0; port < joystickEntries.length; port++)
+    {
+      if (DriverStation.isJoystickConnected(port))
+      {
+        recordJoystick(port);
+        joystickEntries[port].append(joystickBuffer, frameMicros);
+      }
+    }
+
+    if (SwerveDriveTelemetry.verbosity != recordedVerbosity)
+    {
+      recordedVerbosity = SwerveDriveTelemetry.verbosity;
+      verbosityEntry.append(recordedVerbosity.ordinal(), frameMicros);
+    }
+  }
+
+  /**
+   * End a frame, writing the module setpoints of the loop. Call last thing in {@code robotPeriodic()}.
+   */
+  public static void endFrame()
+  {
+    if (isActive() && SwerveDriveTelemetry.desiredStates != null)
+    {
+      moduleSetpointOutput.append(SwerveDriveTelemetry.desiredStates, frameMicros);
+    }
+  }
+
+  /**
+   * Record, or replace with the recorded ones, the gyro angle and module positions handed to the pose estimator.
+   *
+   * @param kind   {@link InputLog#odometryUpdate} or {@link InputLog#odometryReset}.
+   * @param sample Timestamp in seconds, gyro angle in radians, then distance in meters and angle in radians of each
+   *               module. Overwritten with the recorded sample when replaying.
+   * @return False if replaying and no recorded sample matched, in which case the live sample should be used.
+   */
+  public static boolean odometry(int kind, double[] sample)
+  {
+    if (isRecording())
+    {
+      synchronized (recordLock)
+      {
+        if (odometryBuffer == null || odometryBuffer.length != sample.length + 1)
+        {
+          odometryBuffer = new double[sample.length + 1];
+        }
+        odometryBuffer[0] = kind;
+        System.arraycopy(sample, 0, odometryBuffer, 1, sample.length);
+        odometryEntry.append(odometryBuffer, RobotController.getFPGATime());
+      }
+      return true;
+    }
+    if (!isReplaying())
+    {
+      return true;
+    }
+    if (!replayOdometry.hasDue(frame))
+    {
+      divergences++;
+      return false;
+    }
+    double[] record = replayOdometry.values.get(replayOdometry.cursor++);
+    if ((int) record[0] != kind || record.length != sample.length + 1)
+    {
+      divergences++;
+      return false;
+    }
+    System.arraycopy(record, 1, sample, 0, sample.length);
+    return true;
+  }
+
+  /**
+   * Whether the next recorded odometry record is an update due by the current frame. A replay runs odometry updates
+   * while this is true, since the recording ran them on a thread at a higher rate than the loop.
+   *
+   * @return True while replaying and an update is due.
+   */
+  public static boolean isOdometryUpdateDue()
+  {
+    return isReplaying() && replayOdometry.hasDue(frame) && nextOdometryKind() == odometryUpdate;
+  }
+
+  /**
+   * Get the kind of the next replayed odometry record, which must exist.
+   *
+   * @return {@link InputLog#odometryUpdate} or {@link InputLog#odometryReset}.
+   */
+  private static int nextOdometryKind()
+  {
+    return (int) replayOdometry.values.get(replayOdometry.cursor)[0];
+  }
+
+  /**
+   * Record camera results, serialized the way PhotonVision sends them.
+   *
+   * @param camera  Camera name.
+   * @param results Results read from the camera.
+   */
+  public static void recordCameraResults(String camera, List<PhotonPipelineResult> results)
+  {
+    if (!isRecording() || results.isEmpty())
+    {
+      return;
+    }
+    long stamp = RobotController.getFPGATime();
+    synchronized (recordLock)
+    {
+      RawLogEntry entry = cameraEntries.computeIfAbsent(camera,
+                                                        name -> new RawLogEntry(recordLog, prefix + "Camera/" + name));
+      for (int i = 0, size = results.size(); i < size; i++)
+      {
+        PhotonPipelineResult result = results.get(i);
+        packet.clear();
+        PhotonPipelineResult.photonStruct.pack(packet, result);
+        byte[] data = packet.getWrittenDataCopy();
+        // The receive time is stamped locally and not part of the packet.
+        entry.append(ByteBuffer.allocate(Long.BYTES + data.length)
+                               .putLong(result.ntReceiveTimestampMicros)
+                               .put(data)
+                               .array(), stamp);
+      }
+    }
+  }
+
+  /**
+   * Get the recorded camera results due by the current frame, in place of reading the camera.
+   *
+   * @param camera Camera name.
+   * @return Results in the order they were read, a new mutable list.
+   */
+  public static List<PhotonPipelineResult> replayCameraResults(String camera)
+  {
+    List<PhotonPipelineResult> results  = new ArrayList<>();
+    Recorded<byte[]>           recorded = replayCameras.get(camera);
+    while (recorded != null && recorded.hasDue(frame))
+    {
+      ByteBuffer data    = ByteBuffer.wrap(recorded.values.get(recorded.cursor++));
+      long       receive = data.getLong();
+      byte[]     bytes   = new byte[data.remaining()];
+      data.get(bytes);
+      PhotonPipelineResult result = PhotonPipelineResult.photonStruct.unpack(new Packet(bytes));
+      result.ntReceiveTimestampMicros = receive;
+      results.add(result);
+    }
+    return results;
+  }
+
+  /**
+   * Write the estimated pose after a pose estimator call.
+   *
+   * @param pose Estimated pose.
+   */
+  public static void outputPose(Pose2d pose)
+  {
+    if (isActive())
+    {
+      synchronized (recordLock)
+      {
+        poseBuffer[0] = pose.getX();
+        poseBuffer[1] = pose.getY();
+        poseBuffer[2] = pose.getRotation().getRadians();
+        poseOutput.append(poseBuffer, outputMicros());
+      }
+    }
+  }
+
+  /**
+   * Write a vision measurement handed to the pose estimator.
+   *
+   * @param pose             Measured pose.
+   * @param timestampSeconds Timestamp of the measurement in seconds.
+   * @param stdDevs          Standard deviations of the measurement.
+   */
+  public static void outputVisionMeasurement(Pose2d pose, double timestampSeconds, Matrix<N3, N1> stdDevs)
+  {
+    if (isActive())
+    {
+      synchronized (recordLock)
+      {
+        visionBuffer[0] = pose.getX();
+        visionBuffer[1] = pose.getY();
+        visionBuffer[2] = pose.getRotation().getRadians();
+        visionBuffer[3] = timestampSeconds;
+        visionBuffer[4] = stdDevs.get(0, 0);
+        visionBuffer[5] = stdDevs.get(1, 0);
+        visionBuffer[6] = stdDevs.get(2, 0);
+        visionOutput.append(visionBuffer, outputMicros());
+      }
+    }
+  }
+
+  /**
+   * Get the time to stamp an output with, which may be written from an odometry thread while recording.
+   *
+   * @return Current FPGA time in microseconds while recording, the start of the current frame while replaying.
+   */
+  private static long outputMicros()
+  {
+    return isRecording() ? RobotController.getFPGATime() : frameMicros;
+  }
+
+  /**
+   * Get the number of recorded frames, startup included.
+   *
+   * @return Frame count.
+   */
+  public static int getReplayFrameCount()
+  {
+    return replayFrameMicros.length;
+  }
+
+  /**
+   * Get the FPGA time a recorded frame started at.
+   *
+   * @param replayFrame Frame.
+   * @return Time in microseconds.
+   */
+  public static long getReplayFrameMicros(int replayFrame)
+  {
+    return replayFrameMicros[replayFrame];
+  }
+
+  /**
+   * Get the number of times the replayed program asked for inputs the recording did not have in that frame.
+   *
+   * @return Divergence count, 0 for a faithful replay.
+   */
+  public static int getDivergences()
+  {
+    return divergences;
+  }
+
+  /**
+   * Set the simulated driver station and joysticks to a recorded frame. Call before running the frame's loop.
+   *
+   * @param replayFrame Frame.
+   */
+  public static void applyDriverStation(int replayFrame)
+  {
+    double[] ds = replayDriverStation[replayFrame];
+    if (ds != null)
+    {
+      int control = (int) ds[0];
+      DriverStationSim.setEnabled((control & enabledBit) != 0);
+      DriverStationSim.setAutonomous((control & autonomousBit) != 0);
+      DriverStationSim.setTest((control & testBit) != 0);
+      DriverStationSim.setEStop((control & eStopBit) != 0);
+      DriverStationSim.setFmsAttached((control & fmsBit) != 0);
+      DriverStationSim.setDsAttached((control & dsBit) != 0);
+      DriverStationSim.setAllianceStationId(AllianceStationID.values()[(int) ds[1]]);
+      DriverStationSim.setMatchTime(ds[2]);
+    }
+    double[][] joysticks = replayJoysticks[replayFrame];
+    for (int port = 0; port < joysticks.length; port++)
+    {
+      double[] joystick = joysticks[port];
+      if (joystick == null)
+      {
+        DriverStationSim.setJoystickAxisCount(port, 0);
+        DriverStationSim.setJoystickButtonCount(port, 0);
+        DriverStationSim.setJoystickPOVCount(port, 0);
+        continue;
+      }
+      int axes = (int) joystick[0];
+      DriverStationSim.setJoystickAxisCount(port, axes);
+      for (int axis = 0; axis < axes; axis++)
+      {
+        DriverStationSim.setJoystickAxis(port, axis, joystick[1 + axis]);
+      }
+      DriverStationSim.setJoystickButtonCount(port, (int) joystick[1 + maxAxes]);
+      DriverStationSim.setJoystickButtons(port, (int) joystick[2 + maxAxes]);
+      int povs = (int) joystick[3 + maxAxes];
+      DriverStationSim.setJoystickPOVCount(port, povs);
+      for (int pov = 0; pov < povs; pov++)
+      {
+        DriverStationSim.setJoystickPOV(port, pov, (int) joystick[4 + maxAxes + pov]);
+      }
+    }
+    DriverStationSim.notifyNewData();
+  }
+
+  /**
+   * Capture a joystick into {@link InputLog#joystickBuffer}.
+   *
+   * @param port Joystick port.
+   */
+  private static void recordJoystick(int port)
+  {
+    Arrays.fill(joystickBuffer, 0);
+    int axes = Math.min(DriverStation.getStickAxisCount(port), maxAxes);
+    joystickBuffer[0] = axes;
+    for (int axis = 0; axis < axes; axis++)
+    {
+      joystickBuffer[1 + axis] = DriverStation.getStickAxis(port, axis);
+    }
+    joystickBuffer[1 + maxAxes] = DriverStation.getStickButtonCount(port);
+    joystickBuffer[2 + maxAxes] = DriverStation.getStickButtons(port);
+    int povs = Math.min(DriverStation.getStickPOVCount(port), maxPovs);
+    joystickBuffer[3 + maxAxes] = povs;
+    for (int pov = 0; pov < povs; pov++)
+    {
+      joystickBuffer[4 + maxAxes + pov] = DriverStation.getStickPOV(port, pov);
+    }
+  }
+
+  /**
+   * Apply the recorded swerve telemetry verbosity of the current frame, the telemetry governor does not run in replay.
+   */
+  private static void applyVerbosity()
+  {
+    if (frame < replayVerbosity.length && replayVerbosity[frame] >= 0)
+    {
+      SwerveDriveTelemetry.verbosity = TelemetryVerbosity.values()[replayVerbosity[frame]];
+    }
+  }
+
+  /**
+   * Create the output entries.
+   *
+   * @param log Log to write the outputs to.
+   */
+  private static void createOutputs(DataLog log)
+  {
+    poseOutput = new DoubleArrayLogEntry(log, prefix + "Output/Pose");
+    moduleSetpointOutput = new DoubleArrayLogEntry(log, prefix + "Output/ModuleSetpoints");
+    visionOutput = new DoubleArrayLogEntry(log, prefix + "Output/VisionMeasurement");
+  }
+}
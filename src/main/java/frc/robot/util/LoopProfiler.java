@@ -0,0 +1,377 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringArrayPublisher;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.util.datalog.StringArrayLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Loop time profiler for the command scheduler. The scheduler run, the subsystem {@code periodic()} phase and the
+ * {@code execute()} of every scheduled command are named entries with their own preallocated {@link Histogram} of wall
+ * times in milliseconds. Commands are timed through the scheduler's execute hook between markers set at the end of the
+ * button poll and after every command, so a command's time also holds the {@code isFinished()} of the command before
+ * it. Subsystems are only timed as a whole; a subsystem which wants its own entry times its {@code periodic()} with
+ * {@link LoopProfiler#start()} and {@link LoopProfiler#stop(int, long)}. Timing an entry costs two
+ * {@link System#nanoTime()} calls and a bucket increment, so it can stay enabled in matches. Once per publish period
+ * the windowed percentiles of every entry and the entries with the worst tail are written to NetworkTables and the
+ * DataLog; strings are only built at that rate, and the DataLog entries are only created by the first publish.
+ *
+ * <p>Everything here must be used from the robot loop thread.
+ */
+public final class LoopProfiler
+{
+
+  /**
+   * Profiled section with its histogram and telemetry outputs.
+   */
+  private static final class Entry
+  {
+
+    /**
+     * Name of the entry.
+     */
+    final String               name;
+    /**
+     * Wall times in milliseconds, up to two loops with the rest in the last bucket.
+     */
+    final Histogram            histogram   = new Histogram(0, 2 * loopPeriodMs, 400);
+    /**
+     * Windowed p50, p95, p99, all time max and sample count of the last publish.
+     */
+    final double[]             stats       = new double[5];
+    /**
+     * NetworkTables publisher of {@link Entry#stats}.
+     */
+    final DoubleArrayPublisher publisher;
+    /**
+     * DataLog entry of {@link Entry#stats}, created by the first publish.
+     */
+    DoubleArrayLogEntry        logEntry;
+
+    /**
+     * Create an entry.
+     *
+     * @param name Name of the entry.
+     */
+    Entry(String name)
+    {
+      this.name = name;
+      this.publisher = table.getDoubleArrayTopic(name).publish();
+    }
+  }
+
+  /**
+   * Nominal loop period in milliseconds.
+   */
+  private static final double                loopPeriodMs  = 20;
+  /**
+   * Maximum number of entries, preallocated.
+   */
+  private static final int                   maxEntries    = 64;
+  /**
+   * Number of entries listed as top offenders.
+   */
+  private static final int                   topCount      = 5;
+  /**
+   * Seconds between publishes.
+   */
+  private static final double                publishPeriod = 1.0;
+  /**
+   * Quantiles published for each entry.
+   */
+  private static final double[]              quantiles     = {0.5, 0.95, 0.99};
+  /**
+   * NetworkTables table holding the profiler output.
+   */
+  private static final NetworkTable          table         = NetworkTableInstance.getDefault().getTable("LoopProfiler");
+  /**
+   * Registered entries.
+   */
+  private static final Entry[]               entries       = new Entry[maxEntries];
+  /**
+   * Entry indices sorted by windowed p99, scratch space for publishing.
+   */
+  private static final int[]                 order         = new int[maxEntries];
+  /**
+   * Worst entries of the last publish.
+   */
+  private static final String[]              topOffenders  = new String[topCount];
+  /**
+   * Entry timing the whole scheduler run.
+   */
+  private static final int                   scheduler     = register("CommandScheduler.run()");
+  /**
+   * Entry timing the subsystem {@code periodic()} calls and the button poll of a scheduler run.
+   */
+  private static final int                   subsystems    = register("CommandScheduler subsystems and buttons");
+  /**
+   * Entry shared by the commands seen once every entry is taken.
+   */
+  private static final int                   otherCommands = register("other commands.execute()");
+  /**
+   * Entries of the commands seen by the execute hook, weak so commands built for a single use do not pile up.
+   */
+  private static final Map<Command, Integer> commands      = new WeakHashMap<>();
+  /**
+   * NetworkTables publisher of {@link LoopProfiler#topOffenders}.
+   */
+  private static final StringArrayPublisher  topPublisher  = table.getStringArrayTopic("TopOffenders").publish();
+  /**
+   * DataLog entry of {@link LoopProfiler#topOffenders}, created by the first publish.
+   */
+  private static       StringArrayLogEntry   topLogEntry;
+  /**
+   * Scheduler the hooks are installed on.
+   */
+  private static       CommandScheduler      installed;
+  /**
+   * Time of the last marker, where the next command's time starts.
+   */
+  private static       long                  markNanos;
+  /**
+   * Allocation counter of the loop thread at the last marker.
+   */
+  private static       long                  markAllocated;
+  /**
+   * Number of registered entries.
+   */
+  private static       int                   entryCount;
+  /**
+   * FPGA time of the last publish in seconds.
+   */
+  private static       double                lastPublish   = Double.NEGATIVE_INFINITY;
+  /**
+   * Record timings, when disabled timing is skipped.
+   */
+  private static       boolean               enabled       = true;
+
+  private LoopProfiler()
+  {
+  }
+
+  /**
+   * Register a profiled section, once at construction time.
+   *
+   * @param name Name of the section, registering the same name again returns the existing entry.
+   * @return Entry to pass to {@link LoopProfiler#stop(int, long)}.
+   */
+  public static int register(String name)
+  {
+    int entry = find(name);
+    if (entry >= 0)
+    {
+      return entry;
+    }
+    if (entryCount == maxEntries)
+    {
+      throw new IllegalStateException("LoopProfiler is limited to " + maxEntries + " entries");
+    }
+    entries[entryCount] = new Entry(name);
+    return entryCount++;
+  }
+
+  /**
+   * Find a registered entry.
+   *
+   * @param name Name of the entry.
+   * @return Entry, -1 if none has the name.
+   */
+  private static int find(String name)
+  {
+    for (int i = 0; i < entryCount; i++)
+    {
+      if (entries[i].name.equals(name))
+      {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Start timing a section.
+   *
+   * @return Start time to pass to {@link LoopProfiler#stop(int, long)}.
+   */
+  public static long start()
+  {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Stop timing a section and record its wall time.
+   *
+   * @param entry      Entry returned by {@link LoopProfiler#register(String)}.
+   * @param startNanos Value returned by {@link LoopProfiler#start()}.
+   */
+  public static void stop(int entry, long startNanos)
+  {
+    if (enabled)
+    {
+      entries[entry].histogram.record((System.nanoTime() - startNanos) * 1e-6);
+    }
+  }
+
+  /**
+   * Run a timed scheduler loop and publish the statistics when the publish period has elapsed. Call from
+   * {@code robotPeriodic()} in place of the scheduler run. The first run installs the command hooks, after the bindings
+   * so the marker ends the button poll.
+   *
+   * @param commandScheduler Scheduler to run.
+   */
+  public static void run(CommandScheduler commandScheduler)
+  {
+    if (installed != commandScheduler)
+    {
+      installed = commandScheduler;
+      commandScheduler.onCommandExecute(LoopProfiler::executed);
+      commandScheduler.onCommandFinish(command -> mark());
+      commandScheduler.getActiveButtonLoop().bind(LoopProfiler::polled);
+    }
+
+    long start = start();
+    mark();
+    commandScheduler.run();
+    stop(scheduler, start);
+
+    double now = Timer.getFPGATimestamp();
+    if (enabled && now - lastPublish >= publishPeriod)
+    {
+      lastPublish = now;
+      publish();
+    }
+  }
+
+  /**
+   * Set the marker the next command is timed from.
+   */
+  private static void mark()
+  {
+    markNanos = start();
+    markAllocated = AllocationMonitor.mark();
+  }
+
+  /**
+   * Button poll hook, ends the subsystem phase of the scheduler run.
+   */
+  private static void polled()
+  {
+    AllocationMonitor.attributeSubsystem(markAllocated);
+    stop(subsystems, markNanos);
+    mark();
+  }
+
+  /**
+   * Execute hook, ends the time of the command which just ran.
+   *
+   * @param command Command which ran {@code execute()}.
+   */
+  private static void executed(Command command)
+  {
+    AllocationMonitor.attributeCommand(markAllocated);
+    if (enabled)
+    {
+      stop(entry(command), markNanos);
+    }
+    mark();
+  }
+
+  /**
+   * Get the entry of a command, registered the first time a command of its name runs.
+   *
+   * @param command Command.
+   * @return Entry.
+   */
+  private static int entry(Command command)
+  {
+    Integer entry = commands.get(command);
+    if (entry == null)
+    {
+      String name  = command.getName() + ".execute()";
+      int    found = find(name);
+      entry = found >= 0 ? found : entryCount < maxEntries ? register(name) : otherCommands;
+      commands.put(command, entry);
+    }
+    return entry;
+  }
+
+  /**
+   * Enable or disable profiling.
+   *
+   * @param enable True to record timings.
+   */
+  public static void setEnabled(boolean enable)
+  {
+    enabled = enable;
+  }
+
+  /**
+   * Compute the windowed statistics of every entry and write them along with the worst entries by p99.
+   */
+  private static void publish()
+  {
+    for (int i = 0; i < entryCount; i++)
+    {
+      Entry entry = entries[i];
+      // Percentiles land in the first three slots.
+      entry.stats[4] = entry.histogram.windowPercentiles(quantiles, entry.stats);
+      entry.stats[3] = entry.histogram.getMax();
+      entry.publisher.set(entry.stats);
+      if (entry.logEntry == null)
+      {
+        entry.logEntry = new DoubleArrayLogEntry(DataLogManager.getLog(), "/LoopProfiler/" + entry.name);
+      }
+      entry.logEntry.append(entry.stats);
+
+      // Insertion sort by p99, descending with empty windows last.
+      int j = i;
+      while (j > 0 && worse(entry.stats[2], entries[order[j - 1]].stats[2]))
+      {
+        order[j] = order[j - 1];
+        j--;
+      }
+      order[j] = i;
+    }
+
+    int listed = 0;
+    for (int i = 0; i < entryCount && listed < topCount; i++)
+    {
+      Entry entry = entries[order[i]];
+      if (order[i] == scheduler || Double.isNaN(entry.stats[2]))
+      {
+        continue;
+      }
+      topOffenders[listed++] = entry.name + " p99 " + entry.stats[2] + " ms";
+    }
+    for (int i = listed; i < topCount; i++)
+    {
+      topOffenders[i] = "";
+    }
+    topPublisher.set(topOffenders);
+    if (topLogEntry == null)
+    {
+      topLogEntry = new StringArrayLogEntry(DataLogManager.getLog(), "/LoopProfiler/TopOffenders");
+    }
+    topLogEntry.append(topOffenders);
+  }
+
+  /**
+   * Compare two p99 values for the top offender ordering.
+   *
+   * @param a Candidate p99.
+   * @param b p99 already placed.
+   * @return True if a should come before b.
+   */
+  private static boolean worse(double a, double b)
+  {
+    return !Double.isNaN(a) && (Double.isNaN(b) || a > b);
+  }
+}
@@ -0,0 +1,137 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * Short history of timestamped robot poses kept in primitive arrays, so looking up where the robot was a few loops ago
+ * never allocates. Samples must be recorded in increasing timestamp order.
+ */
+public class PoseHistory
+{
+
+  /**
+   * Sample timestamps in seconds.
+   */
+  private final double[] time;
+  /**
+   * Sample X in meters.
+   */
+  private final double[] x;
+  /**
+   * Sample Y in meters.
+   */
+  private final double[] y;
+  /**
+   * Sample heading in radians.
+   */
+  private final double[] theta;
+  /**
+   * Slot of the newest sample.
+   */
+  private       int      head  = -1;
+  /**
+   * Number of samples recorded, up to the capacity.
+   */
+  private       int      count = 0;
+
+  /**
+   * Create an empty history.
+   *
+   * @param capacity Number of samples to keep.
+   */
+  public PoseHistory(int capacity)
+  {
+    time = new double[capacity];
+    x = new double[capacity];
+    y = new double[capacity];
+    theta = new double[capacity];
+  }
+
+  /**
+   * Record a pose.
+   *
+   * @param timestampSeconds Timestamp of the pose in seconds.
+   * @param pose             Pose to record.
+   */
+  public void record(double timestampSeconds, Pose2d pose)
+  {
+    record(timestampSeconds, pose.getX(), pose.getY(), pose.getRotation().getRadians());
+  }
+
+  /**
+   * Record a pose.
+   *
+   * @param timestampSeconds Timestamp of the pose in seconds.
+   * @param poseX            X of the pose in meters.
+   * @param poseY            Y of the pose in meters.
+   * @param poseTheta        Heading of the pose in radians.
+   */
+  public void record(double timestampSeconds, double poseX, double poseY, double poseTheta)
+  {
+    head = head + 1 == time.length ? 0 : head + 1;
+    time[head] = timestampSeconds;
+    x[head] = poseX;
+    y[head] = poseY;
+    theta[head] = poseTheta;
+    count = Math.min(count + 1, time.length);
+  }
+
+  /**
+   * Interpolate the pose at a timestamp. Walks back from the newest sample, so recent timestamps only look at a few
+   * samples. Timestamps newer than every sample return the newest sample.
+   *
+   * @param timestampSeconds Timestamp to look up.
+   * @param out              Array of at least 3 receiving x, y and heading.
+   * @return False if the history is empty or the timestamp is older than every sample.
+   */
+  public boolean sample(double timestampSeconds, double[] out)
+  {
+    if (count == 0)
+    {
+      return false;
+    }
+    int newer = head;
+    if (time[newer] <= timestampSeconds)
+    {
+      out[0] = x[newer];
+      out[1] = y[newer];
+      out[2] = theta[newer];
+      return true;
+    }
+    for (int i = 1; i < count; i++)
+    {
+      int older = newer == 0 ? time.length - 1 : newer - 1;
+      if (time[older] <= timestampSeconds)
+      {
+        double span = time[newer] - time[older];
+        double t    = span <= 0 ? 1 : MathUtil.clamp((timestampSeconds - time[older]) / span, 0, 1);
+        out[0] = x[older] + (x[newer] - x[older]) * t;
+        out[1] = y[older] + (y[newer] - y[older]) * t;
+        out[2] = theta[older] + MathUtil.angleModulus(theta[newer] - theta[older]) * t;
+        return true;
+      }
+      newer = older;
+    }
+    return false;
+  }
+
+  /**
+   * Check if the history has any samples.
+   *
+   * @return True when empty.
+   */
+  public boolean isEmpty()
+  {
+    return count == 0;
+  }
+
+  /**
+   * Remove every sample.
+   */
+  public void clear()
+  {
+    head = -1;
+    count = 0;
+  }
+}
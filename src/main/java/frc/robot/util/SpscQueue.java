@@ -0,0 +1,105 @@
+package frc.robot.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock-free single-producer single-consumer queue. Exactly one thread may call {@link SpscQueue#offer} and
+ * exactly one (possibly different) thread may call {@link SpscQueue#poll}. Neither side ever blocks or allocates.
+ *
+ * @param <E> Element type.
+ */
+public class SpscQueue<E>
+{
+
+  /**
+   * Backing storage, sized to a power of two so indices can be masked.
+   */
+  private final Object[]   buffer;
+  /**
+   * Mask used to wrap the producer and consumer counters into the buffer.
+   */
+  private final int        mask;
+  /**
+   * Next index to be read, only written by the consumer.
+   */
+  private final AtomicLong head    = new AtomicLong();
+  /**
+   * Next index to be written, only written by the producer.
+   */
+  private final AtomicLong tail    = new AtomicLong();
+  /**
+   * Count of elements rejected because the queue was full, only written by the producer.
+   */
+  private volatile long    dropped = 0;
+
+  /**
+   * Construct the queue.
+   *
+   * @param capacity Minimum capacity of the queue, rounded up to the next power of two.
+   */
+  public SpscQueue(int capacity)
+  {
+    int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    buffer = new Object[size];
+    mask = size - 1;
+  }
+
+  /**
+   * Add an element to the queue. Must only be called from the producer thread.
+   *
+   * @param element Element to add, must not be null.
+   * @return True if the element was added, false if the queue was full and the element was dropped.
+   */
+  public boolean offer(E element)
+  {
+    long currentTail = tail.get();
+    if (currentTail - head.get() >= buffer.length)
+    {
+      dropped++;
+      return false;
+    }
+    buffer[(int) (currentTail & mask)] = element;
+    tail.lazySet(currentTail + 1);
+    return true;
+  }
+
+  /**
+   * Remove the oldest element from the queue. Must only be called from the consumer thread.
+   *
+   * @return Oldest element, or null if the queue is empty.
+   */
+  @SuppressWarnings("unchecked")
+  public E poll()
+  {
+    long currentHead = head.get();
+    if (currentHead >= tail.get())
+    {
+      return null;
+    }
+    int index   = (int) (currentHead & mask);
+    E   element = (E) buffer[index];
+    buffer[index] = null;
+    head.lazySet(currentHead + 1);
+    return element;
+  }
+
+  /**
+   * Check if the queue is empty. Only a hint when called from the producer thread.
+   *
+   * @return True if there are no elements waiting.
+   */
+  public boolean isEmpty()
+  {
+    return head.get() >= tail.get();
+  }
+
+  /**
+   * Get the number of elements dropped because the consumer fell behind.
+   *
+   * @return Dropped element count.
+   */
+  public long getDroppedCount()
+  {
+    return dropped;
+  }
+}
@@ -0,0 +1,331 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringArrayPublisher;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.StringLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.RobotBase;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Times the phases of robot startup with nanosecond clocks. Phases nest per thread, and the breakdown is written to
+ * NetworkTables, and on a real robot to the DataLog, as collapsed stacks ({@code thread;phase;child selfNanos}) which
+ * flame graph tools read directly. Phases may name the earlier phases whose results they use. Phases known to be
+ * independent of the rest of startup can be submitted to a startup executor, which must be joined before robot
+ * initialization finishes. Once the robot is ready, the measured tree is searched for parallel candidates: leaf phases
+ * which ran on the robot thread, took long enough to matter and named no dependency.
+ */
+public final class StartupProfiler
+{
+
+  /**
+   * Timed phase, close it to record it. Use with try-with-resources.
+   */
+  public static final class Phase implements AutoCloseable
+  {
+
+    /**
+     * Stack path of the phase, separated by semicolons.
+     */
+    private final String   path;
+    /**
+     * Names of the earlier phases whose results the phase uses.
+     */
+    private final String[] dependencies;
+    /**
+     * Start of the phase in nanoseconds.
+     */
+    private final long     startNanos = System.nanoTime();
+
+    /**
+     * Begin a phase.
+     *
+     * @param path         Stack path of the phase.
+     * @param dependencies Names of the earlier phases whose results the phase uses.
+     */
+    private Phase(String path, String[] dependencies)
+    {
+      this.path = path;
+      this.dependencies = dependencies;
+    }
+
+    @Override
+    public void close()
+    {
+      long duration = System.nanoTime() - startNanos;
+      stack.get().pop();
+      synchronized (records)
+      {
+        records.add(new Record(path,
+                               duration,
+                               dependencies.length > 0,
+                               Thread.currentThread().getName().startsWith(threadPrefix)));
+      }
+    }
+  }
+
+  /**
+   * Finished phase.
+   *
+   * @param path          Stack path of the phase.
+   * @param durationNanos Total time spent in the phase, including children.
+   * @param dependent     Whether the phase named phases it depends on.
+   * @param parallel      Whether the phase ran on the startup executor.
+   */
+  private record Record(String path, long durationNanos, boolean dependent, boolean parallel)
+  {
+
+  }
+
+  /**
+   * Name prefix of startup executor threads.
+   */
+  private static final String                          threadPrefix          = "Startup-";
+  /**
+   * Shortest leaf phase worth flagging as a parallel candidate, in nanoseconds.
+   */
+  private static final long                            minimumCandidateNanos = 5_000_000;
+  /**
+   * Finished phases.
+   */
+  private static final List<Record>                    records               = new ArrayList<>();
+  /**
+   * Stack paths of the open phases on each thread.
+   */
+  private static final ThreadLocal<ArrayDeque<String>> stack                 = ThreadLocal.withInitial(ArrayDeque::new);
+  /**
+   * Tasks submitted to the startup executor.
+   */
+  private static final List<Future<?>>                 pending               = new ArrayList<>();
+  /**
+   * Names of the phases submitted to the startup executor, which {@link StartupProfiler#join()} waits for.
+   */
+  private static final List<String>                    pendingNames          = new ArrayList<>();
+  /**
+   * Counter naming the startup executor threads.
+   */
+  private static final AtomicInteger                   threadCount           = new AtomicInteger();
+  /**
+   * Executor running independent phases, created on the first submit.
+   */
+  private static       ExecutorService                 executor;
+  /**
+   * Run submitted phases on the startup executor instead of inline.
+   */
+  private static       boolean                         parallel              = true;
+  /**
+   * Publisher for the collapsed stacks, kept so the topic stays published.
+   */
+  private static       StringArrayPublisher            flamePublisher;
+  /**
+   * Publisher for the parallel candidates.
+   */
+  private static       StringArrayPublisher            candidatePublisher;
+  /**
+   * Publisher for the time from JVM start to ready.
+   */
+  private static       DoublePublisher                 readyPublisher;
+
+  private StartupProfiler()
+  {
+  }
+
+  /**
+   * Begin a phase, nested under the open phase on this thread if any. A phase naming no dependency is assumed to use
+   * nothing built by the phases before it, so it is flagged as a parallel candidate if it runs long on the robot
+   * thread.
+   *
+   * @param name         Name of the phase.
+   * @param dependencies Names of the earlier phases whose results the phase uses.
+   * @return Phase to close when it finishes.
+   */
+  public static Phase phase(String name, String... dependencies)
+  {
+    ArrayDeque<String> open   = stack.get();
+    String             parent = open.isEmpty() ? Thread.currentThread().getName() : open.peek();
+    String             path   = parent + ";" + name;
+    open.push(path);
+    return new Phase(path, dependencies);
+  }
+
+  /**
+   * Run an independent phase on the startup executor, or inline when parallel startup is disabled.
+   *
+   * @param name Name of the phase.
+   * @param task Work of the phase.
+   * @param <T>  Result type.
+   * @return Future holding the result of the phase.
+   */
+  public static synchronized <T> Future<T> submit(String name, Callable<T> task)
+  {
+    Callable<T> timed = () -> {
+      try (Phase phase = phase(name))
+      {
+        return task.call();
+      }
+    };
+    if (!parallel)
+    {
+      FutureTask<T> inline = new FutureTask<>(timed);
+      inline.run();
+      return inline;
+    }
+    if (executor == null)
+    {
+      executor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, threadPrefix + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    Future<T> future = executor.submit(timed);
+    pending.add(future);
+    pendingNames.add(name);
+    return future;
+  }
+
+  /**
+   * Choose whether submitted phases run on the startup executor. Disable to measure the serial startup time, the
+   * submitted phases then show up among the parallel candidates like any other long independent phase.
+   *
+   * @param enabled True to run submitted phases in parallel.
+   */
+  public static synchronized void setParallel(boolean enabled)
+  {
+    parallel = enabled;
+  }
+
+  /**
+   * Wait for every submitted phase and shut down the startup executor. Failures are reported but not rethrown, whoever
+   * uses a phase's result sees the failure through its future.
+   */
+  public static synchronized void join()
+  {
+    try (Phase phase = phase("join", pendingNames.toArray(new String[0])))
+    {
+      for (int i = 0; i < pending.size(); i++)
+      {
+        try
+        {
+          pending.get(i).get();
+        } catch (Exception e)
+        {
+          log("Startup phase " + pendingNames.get(i) + " failed: " + e);
+        }
+      }
+    }
+    pending.clear();
+    pendingNames.clear();
+    if (executor != null)
+    {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  /**
+   * Write the breakdown of every finished phase to NetworkTables, and on a real robot to the DataLog. Call once the
+   * robot is ready.
+   */
+  public static synchronized void finish()
+  {
+    List<Record> finished;
+    synchronized (records)
+    {
+      finished = new ArrayList<>(records);
+    }
+    double readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+
+    List<String> flame  = new ArrayList<>();
+    List<Record> leaves = new ArrayList<>();
+    for (Record record : finished)
+    {
+      // Flame graphs want the time spent in the phase itself, the tools add the children back up.
+      long    self = record.durationNanos;
+      boolean leaf = true;
+      for (Record child : finished)
+      {
+        if (child.path.startsWith(record.path + ";"))
+        {
+          leaf = false;
+          if (child.path.indexOf(';', record.path.length() + 1) < 0)
+          {
+            self -= child.durationNanos;
+          }
+        }
+      }
+      flame.add(record.path + " " + Math.max(0, self));
+      // Only leaves, a parent's time is its children's and moving the parent would move dependent children with it.
+      if (leaf && !record.dependent && !record.parallel && record.durationNanos >= minimumCandidateNanos)
+      {
+        leaves.add(record);
+      }
+    }
+    leaves.sort((a, b) -> Long.compare(b.durationNanos, a.durationNanos));
+    List<String> candidates = new ArrayList<>();
+    for (Record record : leaves)
+    {
+      candidates.add(record.path + " " + record.durationNanos);
+    }
+
+    if (RobotBase.isReal())
+    {
+      DataLog        log        = DataLogManager.getLog();
+      StringLogEntry flameEntry = new StringLogEntry(log, "/Startup/Flame");
+      for (String line : flame)
+      {
+        flameEntry.append(line);
+      }
+      StringLogEntry candidateEntry = new StringLogEntry(log, "/Startup/ParallelCandidates");
+      for (String line : candidates)
+      {
+        candidateEntry.append(line);
+      }
+      new DoubleLogEntry(log, "/Startup/ReadyMs").append(readyMillis);
+    }
+
+    NetworkTable table = NetworkTableInstance.getDefault().getTable("Startup");
+    flamePublisher = table.getStringArrayTopic("Flame").publish();
+    flamePublisher.set(flame.toArray(new String[0]));
+    candidatePublisher = table.getStringArrayTopic("ParallelCandidates").publish();
+    candidatePublisher.set(candidates.toArray(new String[0]));
+    readyPublisher = table.getDoubleTopic("ReadyMs").publish();
+    readyPublisher.set(readyMillis);
+
+    log("Robot ready " + readyMillis + " ms after JVM start");
+    for (String line : candidates)
+    {
+      log("Startup phase could run in parallel: " + line + " ns");
+    }
+  }
+
+  /**
+   * Print a message, on a real robot through the DataLog. DataLogManager writes its log files into the project
+   * directory in simulation, where it was never started before the profiler.
+   *
+   * @param message Message to print.
+   */
+  private static void log(String message)
+  {
+    if (RobotBase.isReal())
+    {
+      DataLogManager.log(message);
+    } else
+    {
+      System.out.println(message);
+    }
+  }
+}
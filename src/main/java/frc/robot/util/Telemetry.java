@@ -0,0 +1,362 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.RobotController;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rate limited telemetry for commands, a replacement for the {@code SmartDashboard.put*} calls which box values and
+ * look up their key on every call. A key is resolved once into a cached channel holding a typed publisher, and writing
+ * a channel never allocates. Each channel publishes at most once per its period, values written in between are
+ * dropped. Debug channels only get a publisher when {@link Telemetry#debug} is set, otherwise they do nothing and their
+ * topics are never created. Debug channels can also be muted at runtime, which the {@link TelemetryGovernor} does when
+ * it lowers the verbosity.
+ *
+ * <p>Channels are published under the SmartDashboard table so existing dashboards keep finding them. Channels must
+ * only be written from the robot loop thread.
+ */
+public final class Telemetry
+{
+
+  /**
+   * Channel with a publish rate limit.
+   */
+  private abstract static class Channel
+  {
+
+    /**
+     * Minimum FPGA microseconds between publishes.
+     */
+    private final long    periodMicros;
+    /**
+     * Whether this is a debug channel, muted along with the other debug channels.
+     */
+    private final boolean debugChannel;
+    /**
+     * FPGA microseconds of the last publish.
+     */
+    private       long    lastPublishMicros = Long.MIN_VALUE / 2;
+
+    /**
+     * Create a channel.
+     *
+     * @param periodSeconds Minimum seconds between publishes, 0 to publish every write.
+     * @param debugChannel  Whether this is a debug channel.
+     */
+    Channel(double periodSeconds, boolean debugChannel)
+    {
+      this.periodMicros = (long) (periodSeconds * 1e6);
+      this.debugChannel = debugChannel;
+    }
+
+    /**
+     * Check the rate limit and consume it if the channel may publish now.
+     *
+     * @return True if the value should be published.
+     */
+    boolean due()
+    {
+      if (debugChannel && debugMuted)
+      {
+        return false;
+      }
+      long now = RobotController.getFPGATime();
+      if (now - lastPublishMicros < periodMicros)
+      {
+        return false;
+      }
+      lastPublishMicros = now;
+      return true;
+    }
+  }
+
+  /**
+   * Channel publishing a double.
+   */
+  public static final class DoubleChannel extends Channel
+  {
+
+    /**
+     * Publisher, null when the channel is stripped.
+     */
+    private final DoublePublisher publisher;
+
+    /**
+     * Create a double channel.
+     *
+     * @param publisher     Publisher, null to strip the channel.
+     * @param periodSeconds Minimum seconds between publishes.
+     * @param debugChannel  Whether this is a debug channel.
+     */
+    private DoubleChannel(DoublePublisher publisher, double periodSeconds, boolean debugChannel)
+    {
+      super(periodSeconds, debugChannel);
+      this.publisher = publisher;
+    }
+
+    /**
+     * Publish a value if the channel is due.
+     *
+     * @param value Value to publish.
+     */
+    public void set(double value)
+    {
+      if (publisher != null && due())
+      {
+        publisher.set(value);
+      }
+    }
+  }
+
+  /**
+   * Channel publishing a boolean.
+   */
+  public static final class BooleanChannel extends Channel
+  {
+
+    /**
+     * Publisher, null when the channel is stripped.
+     */
+    private final BooleanPublisher publisher;
+
+    /**
+     * Create a boolean channel.
+     *
+     * @param publisher     Publisher, null to strip the channel.
+     * @param periodSeconds Minimum seconds between publishes.
+     * @param debugChannel  Whether this is a debug channel.
+     */
+    private BooleanChannel(BooleanPublisher publisher, double periodSeconds, boolean debugChannel)
+    {
+      super(periodSeconds, debugChannel);
+      this.publisher = publisher;
+    }
+
+    /**
+     * Publish a value if the channel is due.
+     *
+     * @param value Value to publish.
+     */
+    public void set(boolean value)
+    {
+      if (publisher != null && due())
+      {
+        publisher.set(value);
+      }
+    }
+  }
+
+  /**
+   * Channel publishing a double array, written from primitives into a reused array.
+   */
+  public static final class DoubleArrayChannel extends Channel
+  {
+
+    /**
+     * Publisher, null when the channel is stripped.
+     */
+    private final DoubleArrayPublisher publisher;
+    /**
+     * Reused array for {@link DoubleArrayChannel#set(double, double)}.
+     */
+    private final double[]             pair = new double[2];
+
+    /**
+     * Create a double array channel.
+     *
+     * @param publisher     Publisher, null to strip the channel.
+     * @param periodSeconds Minimum seconds between publishes.
+     * @param debugChannel  Whether this is a debug channel.
+     */
+    private DoubleArrayChannel(DoubleArrayPublisher publisher, double periodSeconds, boolean debugChannel)
+    {
+      super(periodSeconds, debugChannel);
+      this.publisher = publisher;
+    }
+
+    /**
+     * Publish two values, such as the x and y of a translation, if the channel is due.
+     *
+     * @param first  First value.
+     * @param second Second value.
+     */
+    public void set(double first, double second)
+    {
+      if (publisher != null && due())
+      {
+        pair[0] = first;
+        pair[1] = second;
+        publisher.set(pair);
+      }
+    }
+
+    /**
+     * Publish an array if the channel is due.
+     *
+     * @param values Values to publish, not kept.
+     */
+    public void set(double[] values)
+    {
+      if (publisher != null && due())
+      {
+        publisher.set(values);
+      }
+    }
+  }
+
+  /**
+   * Publish debug channels. Debug channels created while this is false are stripped.
+   */
+  public static final     boolean              debug    = true;
+  /**
+   * Table the channels are published in.
+   */
+  private static final    NetworkTable         table    = NetworkTableInstance.getDefault().getTable("SmartDashboard");
+  /**
+   * Channels by key, so every command using a key shares one publisher.
+   */
+  private static final    Map<String, Channel> channels = new HashMap<>();
+  /**
+   * Drop every write to debug channels.
+   */
+  private static volatile boolean              debugMuted;
+
+  private Telemetry()
+  {
+  }
+
+  /**
+   * Mute or unmute every debug channel at runtime.
+   *
+   * @param muted True to drop writes to debug channels.
+   */
+  public static void setDebugMuted(boolean muted)
+  {
+    debugMuted = muted;
+  }
+
+  /**
+   * Get the double channel for a key.
+   *
+   * @param key           Key under the SmartDashboard table.
+   * @param periodSeconds Minimum seconds between publishes, only used when the channel is first created.
+   * @return The channel.
+   */
+  public static DoubleChannel doubleChannel(String key, double periodSeconds)
+  {
+    return doubleChannel(key, periodSeconds, true, false);
+  }
+
+  /**
+   * Get the double channel for a debug key, stripped unless {@link Telemetry#debug} is set.
+   *
+   * @param key           Key under the SmartDashboard table.
+   * @param periodSeconds Minimum seconds between publishes, only used when the channel is first created.
+   * @return The channel.
+   */
+  public static DoubleChannel debugDoubleChannel(String key, double periodSeconds)
+  {
+    return doubleChannel(key, periodSeconds, debug, true);
+  }
+
+  /**
+   * Get the boolean channel for a key.
+   *
+   * @param key           Key under the SmartDashboard table.
+   * @param periodSeconds Minimum seconds between publishes, only used when the channel is first created.
+   * @return The channel.
+   */
+  public static BooleanChannel booleanChannel(String key, double periodSeconds)
+  {
+    return booleanChannel(key, periodSeconds, true, false);
+  }
+
+  /**
+   * Get the boolean channel for a debug key, stripped unless {@link Telemetry#debug} is set.
+   *
+   * @param key           Key under the SmartDashboard table.
+   * @param periodSeconds Minimum seconds between publishes, only used when the channel is first created.
+   * @return The channel.
+   */
+  public static BooleanChannel debugBooleanChannel(String key, double periodSeconds)
+  {
+    return booleanChannel(key, periodSeconds, debug, true);
+  }
+
+  /**
+   * Get the double array channel for a key.
+   *
+   * @param key           Key under the SmartDashboard table.
+   * @param periodSeconds Minimum seconds between publishes, only used when the channel is first created.
+   * @return The channel.
+   */
+  public static DoubleArrayChannel doubleArrayChannel(String key, double periodSeconds)
+  {
+    return doubleArrayChannel(key, periodSeconds, true, false);
+  }
+
+  /**
+   * Get the double array channel for a debug key, stripped unless {@link Telemetry#debug} is set.
+   *
+   * @param key           Key under the SmartDashboard table.
+   * @param periodSeconds Minimum seconds between publishes, only used when the channel is first created.
+   * @return The channel.
+   */
+  public static DoubleArrayChannel debugDoubleArrayChannel(String key, double periodSeconds)
+  {
+    return doubleArrayChannel(key, periodSeconds, debug, true);
+  }
+
+  /**
+   * Get or create a double channel.
+   *
+   * @param key           Key under the SmartDashboard table.
+   * @param periodSeconds Minimum seconds between publishes.
+   * @param publish       False to strip the channel.
+   * @param debugChannel  Whether this is a debug channel.
+   * @return The channel.
+   */
+  private static synchronized DoubleChannel doubleChannel(String key, double periodSeconds, boolean publish,
+                                                          boolean debugChannel)
+  {
+    return (DoubleChannel) channels.computeIfAbsent(key, k -> new DoubleChannel(
+        publish ? table.getDoubleTopic(k).publish() : null, periodSeconds, debugChannel));
+  }
+
+  /**
+   * Get or create a boolean channel.
+   *
+   * @param key           Key under the SmartDashboard table.
+   * @param periodSeconds Minimum seconds between publishes.
+   * @param publish       False to strip the channel.
+   * @param debugChannel  Whether this is a debug channel.
+   * @return The channel.
+   */
+  private static synchronized BooleanChannel booleanChannel(String key, double periodSeconds, boolean publish,
+                                                            boolean debugChannel)
+  {
+    return (BooleanChannel) channels.computeIfAbsent(key, k -> new BooleanChannel(
+        publish ? table.getBooleanTopic(k).publish() : null, periodSeconds, debugChannel));
+  }
+
+  /**
+   * Get or create a double array channel.
+   *
+   * @param key           Key under the SmartDashboard table.
+   * @param periodSeconds Minimum seconds between publishes.
+   * @param publish       False to strip the channel.
+   * @param debugChannel  Whether this is a debug channel.
+   * @return The channel.
+   */
+  private static synchronized DoubleArrayChannel doubleArrayChannel(String key, double periodSeconds,
+                                                                    boolean publish, boolean debugChannel)
+  {
+    return (DoubleArrayChannel) channels.computeIfAbsent(key, k -> new DoubleArrayChannel(
+        publish ? table.getDoubleArrayTopic(k).publish() : null, periodSeconds, debugChannel));
+  }
+}
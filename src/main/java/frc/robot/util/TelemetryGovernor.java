@@ -0,0 +1,476 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotBase;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import swervelib.telemetry.SwerveDriveTelemetry;
+import swervelib.telemetry.SwerveDriveTelemetry.TelemetryVerbosity;
+
+/**
+ * Adapts the swerve telemetry verbosity to the loop time budget. The governor watches how much of the loop period the
+ * robot loop uses, how often the loop overruns and how much the robot sends over the network, and steps
+ * {@link SwerveDriveTelemetry#verbosity} down the {@link TelemetryGovernor#ladder} as soon as headroom shrinks. It
+ * only steps back up after headroom has stayed large for {@link TelemetryGovernor#recoverySeconds}, so it does not
+ * oscillate. Every transition is written to the DataLog and the console. The network counters are sampled on a
+ * {@link Notifier} thread, so reading them never lands on the loop thread, and only on a real robot.
+ *
+ * <p>Each robot mode either uses a fixed verbosity or is adaptive, by default test mode is fixed at
+ * {@link TelemetryVerbosity#HIGH} and the other modes are adaptive. The swerve drive must be created with the highest
+ * verbosity the governor may choose, since YAGSL only creates some publishers at construction.
+ */
+public class TelemetryGovernor
+{
+
+  /**
+   * Robot mode with its own verbosity policy.
+   */
+  public enum Mode
+  {
+    /**
+     * Robot disabled.
+     */
+    DISABLED,
+    /**
+     * Autonomous enabled.
+     */
+    AUTONOMOUS,
+    /**
+     * Teleoperated enabled.
+     */
+    TELEOP,
+    /**
+     * Test enabled.
+     */
+    TEST
+  }
+
+  /**
+   * Verbosities the governor steps through, from most to least verbose.
+   */
+  private static final TelemetryVerbosity[] ladder              = {TelemetryVerbosity.HIGH,
+                                                                   TelemetryVerbosity.LOW,
+                                                                   TelemetryVerbosity.NONE};
+  /**
+   * Network bytes per second allowed for the robot, 4 Mbit/s is the field bandwidth limit.
+   */
+  private static final double               bandwidthBudget     = 4e6 / 8;
+  /**
+   * Fraction of the budget, of loop time or bandwidth, above which verbosity is lowered.
+   */
+  private static final double               stepDownThreshold   = 0.7;
+  /**
+   * Fraction of the budget below which verbosity may be raised again.
+   */
+  private static final double               stepUpThreshold     = 0.4;
+  /**
+   * Seconds headroom must stay above {@link TelemetryGovernor#stepUpThreshold} before verbosity is raised.
+   */
+  private static final double               recoverySeconds     = 5.0;
+  /**
+   * Seconds to wait after a step down before the next one, so the last step can take effect.
+   */
+  private static final double               settleSeconds       = 1.0;
+  /**
+   * Seconds between decisions.
+   */
+  private static final double               decisionPeriod      = 0.5;
+  /**
+   * Weight of a new loop in the averaged loop utilization.
+   */
+  private static final double               smoothing           = 0.1;
+  /**
+   * Network statistics of the robot controller. Only read on a real robot, a simulation host has its own.
+   */
+  private static final Path                 netDev              = Path.of("/proc/net/dev");
+  /**
+   * Initial size of the buffer {@link TelemetryGovernor#netDev} is read into, grown if the file does not fit.
+   */
+  private static final int                  netDevBufferSize    = 8192;
+  /**
+   * Fixed verbosity per {@link Mode}, null for adaptive.
+   */
+  private final        TelemetryVerbosity[] fixedVerbosity      = new TelemetryVerbosity[Mode.values().length];
+  /**
+   * Nominal loop period in seconds.
+   */
+  private final        double               loopPeriod;
+  /**
+   * Publisher of the current verbosity.
+   */
+  private final        StringPublisher      verbosityPublisher;
+  /**
+   * Publisher of the averaged loop utilization.
+   */
+  private final        DoublePublisher      utilizationPublisher;
+  /**
+   * Publisher of the network bandwidth in bytes per second.
+   */
+  private final        DoublePublisher      bandwidthPublisher;
+  /**
+   * Samples the network counters every decision period, null in simulation or when they are not available.
+   */
+  private final        Notifier             bandwidthSampler;
+  /**
+   * Index into {@link TelemetryGovernor#ladder} of the adaptive verbosity.
+   */
+  private              int                  level               = 0;
+  /**
+   * Averaged fraction of the loop period used by the robot loop.
+   */
+  private              double               utilization         = 0;
+  /**
+   * Loops which overran since the last decision.
+   */
+  private              int                  overruns            = 0;
+  /**
+   * Start of the previous loop in nanoseconds.
+   */
+  private              long                 previousLoopNanos   = 0;
+  /**
+   * Time of the previous decision in seconds.
+   */
+  private              double               lastDecision        = 0;
+  /**
+   * Time of the last step down in seconds.
+   */
+  private              double               lastStepDown        = Double.NEGATIVE_INFINITY;
+  /**
+   * Time since which headroom has been large enough to step up, NaN while it is not.
+   */
+  private              double               headroomSince       = Double.NaN;
+  /**
+   * Buffer {@link TelemetryGovernor#netDev} is read into, only used by the sampler thread.
+   */
+  private              ByteBuffer           netDevBuffer        = ByteBuffer.allocate(netDevBufferSize);
+  /**
+   * Transmitted bytes at the previous sample, negative when unknown. Only used by the sampler thread.
+   */
+  private              long                 previousTxBytes     = -1;
+  /**
+   * {@link System#nanoTime()} of the previous sample. Only used by the sampler thread.
+   */
+  private              long                 previousTxNanos;
+  /**
+   * Network bandwidth in bytes per second over the last sample period, 0 when unknown. Written by the sampler thread.
+   */
+  private volatile     double               bandwidth           = 0;
+  /**
+   * Verbosity applied by the governor, null before the first update.
+   */
+  private              TelemetryVerbosity   appliedVerbosity;
+
+  /**
+   * Create the governor with test mode fixed at {@link TelemetryVerbosity#HIGH} and the other modes adaptive.
+   *
+   * @param loopPeriod Nominal loop period in seconds.
+   */
+  public TelemetryGovernor(double loopPeriod)
+  {
+    this.loopPeriod = loopPeriod;
+    fixedVerbosity[Mode.TEST.ordinal()] = TelemetryVerbosity.HIGH;
+    NetworkTable table = NetworkTableInstance.getDefault().getTable("TelemetryGovernor");
+    verbosityPublisher = table.getStringTopic("Verbosity").publish();
+    utilizationPublisher = table.getDoubleTopic("LoopUtilization").publish();
+    bandwidthPublisher = table.getDoubleTopic("BandwidthBytesPerSecond").publish();
+    // The counters of a simulation host count the workstation's traffic, not the robot's.
+    if (RobotBase.isReal() && Files.isReadable(netDev))
+    {
+      bandwidthSampler = new Notifier(this::sampleBandwidth);
+      bandwidthSampler.setName("TelemetryGovernor");
+      bandwidthSampler.startPeriodic(decisionPeriod);
+    } else
+    {
+      bandwidthSampler = null;
+    }
+  }
+
+  /**
+   * Fix the verbosity of a robot mode.
+   *
+   * @param mode      Robot mode.
+   * @param verbosity Verbosity to use in that mode.
+   */
+  public void setFixed(Mode mode, TelemetryVerbosity verbosity)
+  {
+    fixedVerbosity[mode.ordinal()] = verbosity;
+  }
+
+  /**
+   * Let the governor adapt the verbosity in a robot mode.
+   *
+   * @param mode Robot mode.
+   */
+  public void setAdaptive(Mode mode)
+  {
+    fixedVerbosity[mode.ordinal()] = null;
+  }
+
+  /**
+   * Account for one robot loop and apply the verbosity. Call every loop after the whole loop ran, so telemetry
+   * published outside the scheduler counts against the budget too.
+   *
+   * @param loopStartNanos {@link System#nanoTime()} at the start of the loop.
+   * @param loopNanos      Nanoseconds the loop took.
+   * @param nowSeconds     Current FPGA time in seconds.
+   */
+  public void update(long loopStartNanos, long loopNanos, double nowSeconds)
+  {
+    utilization += smoothing * (loopNanos * 1e-9 / loopPeriod - utilization);
+    if (previousLoopNanos != 0 && (loopStartNanos - previousLoopNanos) * 1e-9 > loopPeriod * 1.1)
+    {
+      overruns++;
+    }
+    previousLoopNanos = loopStartNanos;
+
+    if (nowSeconds - lastDecision < decisionPeriod)
+    {
+      return;
+    }
+    lastDecision = nowSeconds;
+
+    TelemetryVerbosity fixed = fixedVerbosity[currentMode().ordinal()];
+    if (fixed == null)
+    {
+      decide(nowSeconds);
+    }
+    apply(fixed != null ? fixed : ladder[level], fixed != null);
+    overruns = 0;
+
+    utilizationPublisher.set(utilization);
+    bandwidthPublisher.set(bandwidth);
+  }
+
+  /**
+   * Move along the ladder based on the headroom measured since the last decision.
+   *
+   * @param nowSeconds Current FPGA time in seconds.
+   */
+  private void decide(double nowSeconds)
+  {
+    double bandwidthUse = bandwidth / bandwidthBudget;
+    if ((utilization > stepDownThreshold || bandwidthUse > stepDownThreshold || overruns > 1) &&
+        level < ladder.length - 1 && nowSeconds - lastStepDown >= settleSeconds)
+    {
+      level++;
+      lastStepDown = nowSeconds;
+      headroomSince = Double.NaN;
+      return;
+    }
+
+    if (utilization < stepUpThreshold && bandwidthUse < stepUpThreshold && overruns == 0)
+    {
+      if (Double.isNaN(headroomSince))
+      {
+        headroomSince = nowSeconds;
+      } else if (level > 0 && nowSeconds - headroomSince >= recoverySeconds)
+      {
+        level--;
+        headroomSince = nowSeconds;
+      }
+    } else
+    {
+      headroomSince = Double.NaN;
+    }
+  }
+
+  /**
+   * Apply a verbosity and log it if it changed.
+   *
+   * @param verbosity Verbosity to apply.
+   * @param fixed     Whether the verbosity is fixed for the robot mode, for the log.
+   */
+  private void apply(TelemetryVerbosity verbosity, boolean fixed)
+  {
+    if (verbosity == appliedVerbosity)
+    {
+      return;
+    }
+    DataLogManager.log("Telemetry verbosity " + appliedVerbosity + " -> " + verbosity + " (" +
+                       (fixed ? "fixed for " + currentMode() : describe()) + ")");
+    appliedVerbosity = verbosity;
+    SwerveDriveTelemetry.verbosity = verbosity;
+    // Our debug channels are human readable extras, only worth their bandwidth at full verbosity.
+    Telemetry.setDebugMuted(verbosity != TelemetryVerbosity.HIGH);
+    verbosityPublisher.set(verbosity.name());
+  }
+
+  /**
+   * Describe the measurements behind an adaptive decision.
+   *
+   * @return Description for the transition log.
+   */
+  private String describe()
+  {
+    return "adaptive, loop " + Math.round(utilization * 100) + "%, bandwidth " + Math.round(bandwidth) +
+           " B/s, overruns " + overruns;
+  }
+
+  /**
+   * Measure the bytes sent by the robot since the last sample, from the kernel interface counters. Runs on the
+   * sampler thread.
+   */
+  private void sampleBandwidth()
+  {
+    long txBytes = readTxBytes();
+    long now     = System.nanoTime();
+    if (txBytes < 0)
+    {
+      bandwidth = 0;
+    } else if (previousTxBytes >= 0 && now > previousTxNanos)
+    {
+      bandwidth = (txBytes - previousTxBytes) / ((now - previousTxNanos) * 1e-9);
+    }
+    previousTxBytes = txBytes;
+    previousTxNanos = now;
+  }
+
+  /**
+   * Sum the transmitted bytes of every interface except loopback, parsed in place from the reused buffer.
+   *
+   * @return Transmitted bytes, or -1 if the counters are not available.
+   */
+  private long readTxBytes()
+  {
+    try (FileChannel channel = FileChannel.open(netDev))
+    {
+      netDevBuffer.clear();
+      while (channel.read(netDevBuffer) >= 0)
+      {
+        if (!netDevBuffer.hasRemaining())
+        {
+          ByteBuffer larger = ByteBuffer.allocate(netDevBuffer.capacity() * 2);
+          netDevBuffer.flip();
+          netDevBuffer = larger.put(netDevBuffer);
+        }
+      }
+    } catch (IOException e)
+    {
+      return -1;
+    }
+    return parseTxBytes(netDevBuffer, netDevBuffer.position());
+  }
+
+  /**
+   * Sum the transmitted bytes of every interface except loopback.
+   *
+   * @param buffer Contents of {@link TelemetryGovernor#netDev}.
+   * @param length Bytes of the buffer holding the contents.
+   * @return Transmitted bytes, or -1 if the contents are malformed.
+   */
+  static long parseTxBytes(ByteBuffer buffer, int length)
+  {
+    long total = 0;
+    int  line  = 0;
+    // The first two lines are headers, then "iface: rxBytes rxPackets ... txBytes ...".
+    for (int start = 0; start < length; line++)
+    {
+      int end = start;
+      while (end < length && buffer.get(end) != '\n')
+      {
+        end++;
+      }
+      if (line >= 2 && end > start)
+      {
+        long txBytes = parseLine(buffer, start, end);
+        if (txBytes < 0)
+        {
+          return -1;
+        }
+        total += txBytes;
+      }
+      start = end + 1;
+    }
+    return total;
+  }
+
+  /**
+   * Get the transmitted bytes of one interface line, the ninth counter after the colon.
+   *
+   * @param buffer Contents of {@link TelemetryGovernor#netDev}.
+   * @param start  Index of the first byte of the line.
+   * @param end    Index after the last byte of the line.
+   * @return Transmitted bytes, 0 for loopback, -1 if the line is malformed.
+   */
+  private static long parseLine(ByteBuffer buffer, int start, int end)
+  {
+    int name = start;
+    while (name < end && buffer.get(name) == ' ')
+    {
+      name++;
+    }
+    int colon = name;
+    while (colon < end && buffer.get(colon) != ':')
+    {
+      colon++;
+    }
+    if (colon == end)
+    {
+      return -1;
+    }
+    if (colon - name == 2 && buffer.get(name) == 'l' && buffer.get(name + 1) == 'o')
+    {
+      return 0;
+    }
+
+    int  field = -1;
+    long value = 0;
+    for (int i = colon + 1; i < end; i++)
+    {
+      byte b = buffer.get(i);
+      if (!isDigit(b))
+      {
+        continue;
+      }
+      if (!isDigit(buffer.get(i - 1)))
+      {
+        field++;
+        value = 0;
+      }
+      value = value * 10 + (b - '0');
+      if (field == 8 && (i + 1 == end || !isDigit(buffer.get(i + 1))))
+      {
+        return value;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Whether a byte is an ASCII digit.
+   *
+   * @param b Byte.
+   * @return True for {@code 0} to {@code 9}.
+   */
+  private static boolean isDigit(byte b)
+  {
+    return b >= '0' && b <= '9';
+  }
+
+  /**
+   * Get the current robot mode.
+   *
+   * @return The mode.
+   */
+  private static Mode currentMode()
+  {
+    if (DriverStation.isDisabled())
+    {
+      return Mode.DISABLED;
+    }
+    if (DriverStation.isAutonomous())
+    {
+      return Mode.AUTONOMOUS;
+    }
+    return DriverStation.isTest() ? Mode.TEST : Mode.TELEOP;
+  }
+}
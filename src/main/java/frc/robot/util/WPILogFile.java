@@ -0,0 +1,889 @@
+package frc.robot.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only view of a WPILog file which memory-maps it instead of reading it onto the heap, for match logs of hundreds
+ * of megabytes. Opening the file walks the record headers once to find the entries, without touching the payloads. The
+ * position of every record of an entry is only indexed when the entry is first read, and is kept in primitive arrays.
+ * Records are read through a {@link Cursor}, which decodes values straight from the mapped file and does not allocate
+ * unless asked for an array copy.
+ *
+ * <p>Nothing here needs WPILib or the HAL, so it works the same in the replay driver, offline analysis tools and unit
+ * tests. An opened file may be read from several threads, a cursor only from one. The mapping is released when the
+ * file is garbage collected, which on Windows keeps the log from being deleted until then. Logs are limited to 2 GiB,
+ * more than a full event of matches.
+ */
+public final class WPILogFile
+{
+
+  /**
+   * One entry of the log, from its start record up to its finish record.
+   */
+  public final class Entry
+  {
+
+    /**
+     * Entry ID, only unique while the entry is started.
+     */
+    private final int    id;
+    /**
+     * Entry name.
+     */
+    private final String name;
+    /**
+     * Entry type, for example {@code double[]} or {@code struct:Pose2d}.
+     */
+    private final String type;
+    /**
+     * Entry metadata, updated by set metadata records.
+     */
+    private       String metadata;
+    /**
+     * Offset of the record after the start record.
+     */
+    private final int    begin;
+    /**
+     * Offset of the finish record, or the end of the log.
+     */
+    private       int    end;
+    /**
+     * Number of records.
+     */
+    private       int    count;
+    /**
+     * Records indexed so far while indexing.
+     */
+    private       int    indexed;
+    /**
+     * Payload offset of each record, null until indexed.
+     */
+    private       int[]  offsets;
+    /**
+     * Payload size of each record in bytes.
+     */
+    private       int[]  sizes;
+    /**
+     * Timestamp of each record in microseconds.
+     */
+    private       long[] timestamps;
+
+    /**
+     * Create an entry from its start record.
+     *
+     * @param id       Entry ID.
+     * @param name     Entry name.
+     * @param type     Entry type.
+     * @param metadata Entry metadata.
+     * @param begin    Offset of the record after the start record.
+     */
+    private Entry(int id, String name, String type, String metadata, int begin)
+    {
+      this.id = id;
+      this.name = name;
+      this.type = type;
+      this.metadata = metadata;
+      this.begin = begin;
+      this.end = buffer.limit();
+    }
+
+    /**
+     * Get the entry name.
+     *
+     * @return Entry name.
+     */
+    public String getName()
+    {
+      return name;
+    }
+
+    /**
+     * Get the entry type.
+     *
+     * @return Entry type.
+     */
+    public String getType()
+    {
+      return type;
+    }
+
+    /**
+     * Get the entry metadata.
+     *
+     * @return Latest metadata of the entry.
+     */
+    public String getMetadata()
+    {
+      return metadata;
+    }
+
+    /**
+     * Get the number of records, known without indexing the entry.
+     *
+     * @return Record count.
+     */
+    public int size()
+    {
+      return count;
+    }
+
+    /**
+     * Get the timestamp of a record.
+     *
+     * @param index Record index.
+     * @return Timestamp in microseconds.
+     */
+    public long getTimestamp(int index)
+    {
+      ensureIndexed();
+      return timestamps[index];
+    }
+
+    /**
+     * Get the first record at or after a time, records being in log order and timestamps in practice increasing.
+     *
+     * @param micros Time in microseconds.
+     * @return Record index, {@link Entry#size()} if every record is earlier.
+     */
+    public int indexAt(long micros)
+    {
+      ensureIndexed();
+      int low  = 0;
+      int high = count;
+      while (low < high)
+      {
+        int middle = (low + high) >>> 1;
+        if (timestamps[middle] < micros)
+        {
+          low = middle + 1;
+        } else
+        {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * Create a cursor over every record.
+     *
+     * @return Cursor before the first record.
+     */
+    public Cursor cursor()
+    {
+      ensureIndexed();
+      return new Cursor(this, 0, count);
+    }
+
+    /**
+     * Create a cursor over the records in a time range.
+     *
+     * @param fromMicros Start of the range in microseconds, inclusive.
+     * @param toMicros   End of the range in microseconds, exclusive.
+     * @return Cursor before the first record in the range.
+     */
+    public Cursor cursor(long fromMicros, long toMicros)
+    {
+      int from = indexAt(fromMicros);
+      return new Cursor(this, from, Math.max(from, indexAt(toMicros)));
+    }
+
+    /**
+     * Index the entry if it was not yet.
+     */
+    private void ensureIndexed()
+    {
+      if (offsets == null)
+      {
+        index(List.of(this));
+      }
+    }
+  }
+
+  /**
+   * Iterator over records of an entry which reads values directly from the mapped log. Arrays are read element by
+   * element, or copied into a caller's array, so walking a log does not allocate.
+   */
+  public final class Cursor
+  {
+
+    /**
+     * Entry the records belong to.
+     */
+    private final Entry   entry;
+    /**
+     * First record index of the range.
+     */
+    private final int     from;
+    /**
+     * Record index after the range.
+     */
+    private final int     to;
+    /**
+     * Whether module states are laid out as WPILib structs, speed then angle in radians, rather than YAGSL's angle in
+     * degrees then speed.
+     */
+    private final boolean structModuleStates;
+    /**
+     * Current record index.
+     */
+    private       int     index;
+    /**
+     * Payload offset of the current record.
+     */
+    private       int     offset;
+    /**
+     * Payload size of the current record.
+     */
+    private       int     size;
+
+    /**
+     * Create a cursor over a range of records.
+     *
+     * @param entry Entry to read.
+     * @param from  First record index.
+     * @param to    Record index after the range.
+     */
+    private Cursor(Entry entry, int from, int to)
+    {
+      this.entry = entry;
+      this.from = from;
+      this.to = to;
+      this.structModuleStates = entry.type.startsWith("struct:");
+      this.index = from - 1;
+    }
+
+    /**
+     * Move to the next record.
+     *
+     * @return False when there are no more records in the range.
+     */
+    public boolean next()
+    {
+      if (index + 1 >= to)
+      {
+        index = to;
+        return false;
+      }
+      index++;
+      offset = entry.offsets[index];
+      size = entry.sizes[index];
+      return true;
+    }
+
+    /**
+     * Move back before the first record of the range.
+     */
+    public void rewind()
+    {
+      index = from - 1;
+    }
+
+    /**
+     * Get the number of records in the range.
+     *
+     * @return Record count.
+     */
+    public int size()
+    {
+      return to - from;
+    }
+
+    /**
+     * Get the current record's index within the entry.
+     *
+     * @return Record index.
+     */
+    public int getIndex()
+    {
+      return index;
+    }
+
+    /**
+     * Get the current record's timestamp.
+     *
+     * @return Timestamp in microseconds.
+     */
+    public long getTimestamp()
+    {
+      return entry.timestamps[index];
+    }
+
+    /**
+     * Get the current record's payload size.
+     *
+     * @return Size in bytes.
+     */
+    public int getSize()
+    {
+      return size;
+    }
+
+    /**
+     * Read the current record as an {@code int64}.
+     *
+     * @return Value.
+     */
+    public long getInteger()
+    {
+      return buffer.getLong(offset);
+    }
+
+    /**
+     * Read the current record as a {@code double}.
+     *
+     * @return Value.
+     */
+    public double getDouble()
+    {
+      return buffer.getDouble(offset);
+    }
+
+    /**
+     * Read the current record as a {@code float}.
+     *
+     * @return Value.
+     */
+    public float getFloat()
+    {
+      return buffer.getFloat(offset);
+    }
+
+    /**
+     * Read the current record as a {@code boolean}.
+     *
+     * @return Value.
+     */
+    public boolean getBoolean()
+    {
+      return buffer.get(offset) != 0;
+    }
+
+    /**
+     * Read the current record as a string, allocating it.
+     *
+     * @return Value.
+     */
+    public String getString()
+    {
+      return readString(offset, size);
+    }
+
+    /**
+     * Get the number of doubles in the current record, for {@code double[]} entries and structs made of doubles.
+     *
+     * @return Element count.
+     */
+    public int getDoubleCount()
+    {
+      return size / Double.BYTES;
+    }
+
+    /**
+     * Read one double of the current record.
+     *
+     * @param element Element index.
+     * @return Value.
+     */
+    public double getDouble(int element)
+    {
+      return buffer.getDouble(offset + element * Double.BYTES);
+    }
+
+    /**
+     * Copy the doubles of the current record into an array.
+     *
+     * @param into Array to fill, at least {@link Cursor#getDoubleCount()} long.
+     * @return Number of doubles copied.
+     */
+    public int readDoubles(double[] into)
+    {
+      int count = getDoubleCount();
+      for (int i = 0; i < count; i++)
+      {
+        into[i] = getDouble(i);
+      }
+      return count;
+    }
+
+    /**
+     * Copy the current record as a new array of doubles.
+     *
+     * @return Values.
+     */
+    public double[] getDoubleArray()
+    {
+      double[] values = new double[getDoubleCount()];
+      readDoubles(values);
+      return values;
+    }
+
+    /**
+     * Copy the current record's payload into an array.
+     *
+     * @param into Array to fill, at least {@link Cursor#getSize()} long.
+     */
+    public void readRaw(byte[] into)
+    {
+      buffer.get(offset, into, 0, size);
+    }
+
+    /**
+     * Copy the current record's payload as a new array.
+     *
+     * @return Payload.
+     */
+    public byte[] getRaw()
+    {
+      byte[] payload = new byte[size];
+      readRaw(payload);
+      return payload;
+    }
+
+    /**
+     * Get the number of poses in the current record, for {@code struct:Pose2d}, {@code struct:Pose2d[]} and
+     * {@code double[]} entries of X, Y and heading.
+     *
+     * @return Pose count.
+     */
+    public int getPoseCount()
+    {
+      return getDoubleCount() / 3;
+    }
+
+    /**
+     * Read the X of a pose in the current record.
+     *
+     * @param pose Pose index.
+     * @return X in meters.
+     */
+    public double getPoseX(int pose)
+    {
+      return getDouble(pose * 3);
+    }
+
+    /**
+     * Read the Y of a pose in the current record.
+     *
+     * @param pose Pose index.
+     * @return Y in meters.
+     */
+    public double getPoseY(int pose)
+    {
+      return getDouble(pose * 3 + 1);
+    }
+
+    /**
+     * Read the heading of a pose in the current record.
+     *
+     * @param pose Pose index.
+     * @return Heading in radians.
+     */
+    public double getPoseHeading(int pose)
+    {
+      return getDouble(pose * 3 + 2);
+    }
+
+    /**
+     * Get the number of module states in the current record, for {@code struct:SwerveModuleState[]} entries and the
+     * {@code double[]} states YAGSL publishes.
+     *
+     * @return Module count.
+     */
+    public int getModuleCount()
+    {
+      return getDoubleCount() / 2;
+    }
+
+    /**
+     * Read the speed of a module state in the current record.
+     *
+     * @param module Module index.
+     * @return Speed in meters per second.
+     */
+    public double getModuleSpeed(int module)
+    {
+      return getDouble(structModuleStates ? module * 2 : module * 2 + 1);
+    }
+
+    /**
+     * Read the angle of a module state in the current record.
+     *
+     * @param module Module index.
+     * @return Angle in radians.
+     */
+    public double getModuleAngle(int module)
+    {
+      return structModuleStates ? getDouble(module * 2 + 1) : Math.toRadians(getDouble(module * 2));
+    }
+  }
+
+  /**
+   * Control record type, entry start.
+   */
+  private static final int                controlStart       = 0;
+  /**
+   * Control record type, entry finish.
+   */
+  private static final int                controlFinish      = 1;
+  /**
+   * Control record type, set entry metadata.
+   */
+  private static final int                controlSetMetadata = 2;
+  /**
+   * Mapped log, little endian like the format.
+   */
+  private final        ByteBuffer         buffer;
+  /**
+   * Extra header string of the log.
+   */
+  private final        String             extraHeader;
+  /**
+   * Entries in start order.
+   */
+  private final        List<Entry>        entries            = new ArrayList<>();
+  /**
+   * First entry started with each name.
+   */
+  private final        Map<String, Entry> byName             = new HashMap<>();
+
+  /**
+   * Create a view of a mapped log and find its entries.
+   *
+   * @param buffer Mapped log.
+   * @param path   Log path, for errors.
+   * @throws IOException If the log is not a WPILog.
+   */
+  private WPILogFile(ByteBuffer buffer, Path path) throws IOException
+  {
+    this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.limit() < 12 || buffer.get(0) != 'W' || buffer.get(1) != 'P' || buffer.get(2) != 'I' ||
+        buffer.get(3) != 'L' || buffer.get(4) != 'O' || buffer.get(5) != 'G' || buffer.getShort(6) < 0x0100)
+    {
+      throw new IOException(path + " is not a WPILog");
+    }
+    int extraHeaderLength = buffer.getInt(8);
+    if (extraHeaderLength < 0 || 12 + extraHeaderLength > buffer.limit())
+    {
+      throw new IOException(path + " has a corrupt header");
+    }
+    extraHeader = readString(12, extraHeaderLength);
+    findEntries(12 + extraHeaderLength);
+  }
+
+  /**
+   * Map a log and find its entries.
+   *
+   * @param path Log to open.
+   * @return Opened log.
+   * @throws IOException If the log could not be mapped or is not a WPILog.
+   */
+  public static WPILogFile open(Path path) throws IOException
+  {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+    {
+      if (channel.size() > Integer.MAX_VALUE)
+      {
+        throw new IOException(path + " is larger than 2 GiB");
+      }
+      // The mapping stays valid after the channel is closed.
+      return new WPILogFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), path);
+    }
+  }
+
+  /**
+   * Get the extra header string of the log.
+   *
+   * @return Extra header, usually empty.
+   */
+  public String getExtraHeader()
+  {
+    return extraHeader;
+  }
+
+  /**
+   * Get every entry of the log.
+   *
+   * @return Entries in start order, unmodifiable.
+   */
+  public List<Entry> getEntries()
+  {
+    return Collections.unmodifiableList(entries);
+  }
+
+  /**
+   * Get an entry by name.
+   *
+   * @param name Entry name.
+   * @return First entry started with the name, null if there is none.
+   */
+  public Entry getEntry(String name)
+  {
+    return byName.get(name);
+  }
+
+  /**
+   * Index every entry whose name starts with a prefix in a single pass over the log, instead of one pass per entry
+   * the first time each is read.
+   *
+   * @param prefix Entry name prefix, empty for every entry.
+   */
+  public void index(String prefix)
+  {
+    List<Entry> matching = new ArrayList<>();
+    for (Entry entry : entries)
+    {
+      if (entry.name.startsWith(prefix))
+      {
+        matching.add(entry);
+      }
+    }
+    index(matching);
+  }
+
+  /**
+   * Walk the record headers, creating an entry for every start record and counting the records of each.
+   *
+   * @param position Offset of the first record.
+   */
+  private void findEntries(int position)
+  {
+    Entry[] active = new Entry[64];
+    while (position < buffer.limit())
+    {
+      int payload = payloadOffset(position);
+      if (payload < 0)
+      {
+        break;
+      }
+      int id   = (int) readUnsigned(position + 1, idLength(buffer.get(position) & 0xff));
+      int size = payloadSize(position);
+      int next = payload + size;
+      if (id != 0)
+      {
+        if (id < active.length && active[id] != null)
+        {
+          active[id].count++;
+        }
+      } else if (size >= 5)
+      {
+        int type   = buffer.get(payload);
+        int target = buffer.getInt(payload + 1);
+        if (type == controlStart && size >= 17 && target > 0)
+        {
+          int    nameLength     = buffer.getInt(payload + 5);
+          int    typeLength     = buffer.getInt(payload + 9 + nameLength);
+          int    metadataLength = buffer.getInt(payload + 13 + nameLength + typeLength);
+          String name           = readString(payload + 9, nameLength);
+          String entryType      = readString(payload + 13 + nameLength, typeLength);
+          String metadata       = readString(payload + 17 + nameLength + typeLength, metadataLength);
+          Entry  entry          = new Entry(target, name, entryType, metadata, next);
+          if (target >= active.length)
+          {
+            active = Arrays.copyOf(active, Math.max(target + 1, active.length * 2));
+          }
+          active[target] = entry;
+          entries.add(entry);
+          byName.putIfAbsent(name, entry);
+        } else if (target > 0 && target < active.length && active[target] != null)
+        {
+          if (type == controlFinish)
+          {
+            active[target].end = position;
+            active[target] = null;
+          } else if (type == controlSetMetadata && size >= 9)
+          {
+            active[target].metadata = readString(payload + 9, buffer.getInt(payload + 5));
+          }
+        }
+      }
+      position = next;
+    }
+  }
+
+  /**
+   * Record the payload offsets and timestamps of entries in one pass over the part of the log they span.
+   *
+   * @param pending Entries to index, those already indexed are skipped.
+   */
+  private synchronized void index(List<Entry> pending)
+  {
+    List<Entry> starting = new ArrayList<>();
+    int         last     = 0;
+    for (Entry entry : pending)
+    {
+      if (entry.offsets == null)
+      {
+        entry.offsets = new int[entry.count];
+        entry.sizes = new int[entry.count];
+        entry.timestamps = new long[entry.count];
+        starting.add(entry);
+        last = Math.max(last, entry.end);
+      }
+    }
+    if (starting.isEmpty())
+    {
+      return;
+    }
+    starting.sort((a, b) -> Integer.compare(a.begin, b.begin));
+
+    Entry[] byId     = new Entry[64];
+    int     next     = 0;
+    int     position = starting.get(0).begin;
+    while (position < last)
+    {
+      // An entry collects from the record after its start record up to its finish record.
+      while (next < starting.size() && starting.get(next).begin == position)
+      {
+        Entry entry = starting.get(next++);
+        if (entry.id >= byId.length)
+        {
+          byId = Arrays.copyOf(byId, Math.max(entry.id + 1, byId.length * 2));
+        }
+        byId[entry.id] = entry;
+      }
+      int payload = payloadOffset(position);
+      if (payload < 0)
+      {
+        break;
+      }
+      int bits = buffer.get(position) & 0xff;
+      int id   = (int) readUnsigned(position + 1, idLength(bits));
+      int size = payloadSize(position);
+      if (id > 0 && id < byId.length && byId[id] != null)
+      {
+        Entry entry = byId[id];
+        int   index = entry.indexed++;
+        entry.offsets[index] = payload;
+        entry.sizes[index] = size;
+        entry.timestamps[index] = timestamp(position);
+      } else if (id == 0 && size >= 5 && buffer.get(payload) == controlFinish)
+      {
+        int target = buffer.getInt(payload + 1);
+        if (target > 0 && target < byId.length && byId[target] != null && byId[target].end == position)
+        {
+          byId[target] = null;
+        }
+      }
+      position = payload + size;
+    }
+  }
+
+  /**
+   * Get the payload offset of a record.
+   *
+   * @param position Record offset.
+   * @return Payload offset, -1 if the record is cut off at the end of the log.
+   */
+  private int payloadOffset(int position)
+  {
+    int bits    = buffer.get(position) & 0xff;
+    int sizeAt  = position + 1 + idLength(bits);
+    int payload = sizeAt + sizeLength(bits) + timestampLength(bits);
+    if (payload > buffer.limit() || payload + readUnsigned(sizeAt, sizeLength(bits)) > buffer.limit())
+    {
+      return -1;
+    }
+    return payload;
+  }
+
+  /**
+   * Get the payload size of a record.
+   *
+   * @param position Record offset.
+   * @return Size in bytes.
+   */
+  private int payloadSize(int position)
+  {
+    int bits = buffer.get(position) & 0xff;
+    return (int) readUnsigned(position + 1 + idLength(bits), sizeLength(bits));
+  }
+
+  /**
+   * Get the timestamp of a record.
+   *
+   * @param position Record offset.
+   * @return Timestamp in microseconds.
+   */
+  private long timestamp(int position)
+  {
+    int bits = buffer.get(position) & 0xff;
+    return readUnsigned(position + 1 + idLength(bits) + sizeLength(bits), timestampLength(bits));
+  }
+
+  /**
+   * Get the length of a record's entry ID from its header bits.
+   *
+   * @param bits First byte of the record.
+   * @return Length in bytes.
+   */
+  private static int idLength(int bits)
+  {
+    return (bits & 0x3) + 1;
+  }
+
+  /**
+   * Get the length of a record's payload size from its header bits.
+   *
+   * @param bits First byte of the record.
+   * @return Length in bytes.
+   */
+  private static int sizeLength(int bits)
+  {
+    return ((bits >> 2) & 0x3) + 1;
+  }
+
+  /**
+   * Get the length of a record's timestamp from its header bits.
+   *
+   * @param bits First byte of the record.
+   * @return Length in bytes.
+   */
+  private static int timestampLength(int bits)
+  {
+    return ((bits >> 4) & 0x7) + 1;
+  }
+
+  /**
+   * Read a little endian unsigned integer.
+   *
+   * @param position Offset of the integer.
+   * @param length   Length in bytes, 1 to 8.
+   * @return Value.
+   */
+  private long readUnsigned(int position, int length)
+  {
+    long value = 0;
+    for (int i = 0; i < length; i++)
+    {
+      value |= (buffer.get(position + i) & 0xffL) << (i * 8);
+    }
+    return value;
+  }
+
+  /**
+   * Read a UTF-8 string.
+   *
+   * @param position Offset of the string.
+   * @param length   Length in bytes.
+   * @return String.
+   */
+  private String readString(int position, int length)
+  {
+    byte[] bytes = new byte[length];
+    buffer.get(position, bytes, 0, length);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
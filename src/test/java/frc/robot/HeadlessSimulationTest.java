@@ -0,0 +1,134 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import frc.robot.HeadlessSimulation.Mode;
+import frc.robot.HeadlessSimulation.Result;
+import frc.robot.util.AllocationMonitor;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the {@link HeadlessSimulation} script once and checks what the robot did in each segment.
+ */
+class HeadlessSimulationTest
+{
+
+  /**
+   * Meters the robot may creep while disabled, from the drive settling after it was enabled.
+   */
+  private static final double       disabledDrift = 0.1;
+  /**
+   * Results of the script, in script order.
+   */
+  private static       List<Result> results;
+
+  /**
+   * The robot program can only boot once per JVM, so every test checks the same run.
+   *
+   * @throws InterruptedException If interrupted while waiting for the robot program.
+   */
+  @BeforeAll
+  static void runScript() throws InterruptedException
+  {
+    results = HeadlessSimulation.run();
+  }
+
+  @Test
+  void runsEverySegment()
+  {
+    assertEquals(HeadlessSimulation.script.size(), results.size());
+    for (int i = 0; i < results.size(); i++)
+    {
+      assertEquals(HeadlessSimulation.script.get(i), results.get(i).segment());
+    }
+  }
+
+  @Test
+  void runsFasterThanRealTime()
+  {
+    double simulated = 0;
+    double wall      = 0;
+    for (Result result : results)
+    {
+      simulated += result.segment().seconds();
+      wall += result.wallSeconds();
+    }
+    assertTrue(simulated > wall, "simulated " + simulated + " s in " + wall + " wall s");
+  }
+
+  @Test
+  void holdsStillWhileDisabled()
+  {
+    for (Result result : results)
+    {
+      if (result.segment().mode() == Mode.DISABLED && !result.segment().name().equals("boot"))
+      {
+        assertTrue(distance(result) < disabledDrift, result.segment().name() + " moved " + distance(result) + " m");
+      }
+    }
+  }
+
+  @Test
+  void drivesForward()
+  {
+    Result result = result("drive forward");
+    assertTrue(result.endPose().getX() - result.startPose().getX() > 1.0, "moved " + distance(result) + " m");
+  }
+
+  @Test
+  void strafesLeft()
+  {
+    Result result = result("strafe left");
+    assertTrue(result.endPose().getY() - result.startPose().getY() > 0.5, "moved " + distance(result) + " m");
+  }
+
+  @Test
+  void turnsToTheHeadingAxis()
+  {
+    Result result = result("turn around");
+    double turned = Math.abs(result.endPose().getRotation().minus(result.startPose().getRotation()).getDegrees());
+    assertTrue(turned > 30, "turned " + turned + " degrees");
+  }
+
+  @Test
+  void teleopDriveStaysInAllocationBudget()
+  {
+    assumeTrue(AllocationMonitor.isSupported(), "the JVM has no per-thread allocation counters");
+    for (Result result : results)
+    {
+      if (result.segment().mode() == Mode.TELEOP)
+      {
+        assertTrue(result.allocatedPerLoop() < AllocationMonitor.getBudget(),
+                   result.segment().name() + " allocated " + result.allocatedPerLoop() + " bytes per loop");
+      }
+    }
+  }
+
+  /**
+   * Find the result of a segment.
+   *
+   * @param name Name of the segment.
+   * @return Result.
+   */
+  private static Result result(String name)
+  {
+    return results.stream().filter(result -> result.segment().name().equals(name)).findFirst().orElseThrow();
+  }
+
+  /**
+   * Distance the robot moved during a segment.
+   *
+   * @param result Result of the segment.
+   * @return Meters.
+   */
+  private static double distance(Result result)
+  {
+    Pose2d start = result.startPose();
+    return start.getTranslation().getDistance(result.endPose().getTranslation());
+  }
+}
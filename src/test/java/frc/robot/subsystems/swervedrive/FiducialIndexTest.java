@@ -0,0 +1,111 @@
+package frc.robot.subsystems.swervedrive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.geometry.Transform3d;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+/**
+ * Tests of {@link FiducialIndex}.
+ */
+class FiducialIndexTest
+{
+
+  /**
+   * Create a target of an AprilTag.
+   *
+   * @param id        Fiducial ID.
+   * @param ambiguity Pose ambiguity of the target.
+   * @return Target.
+   */
+  static PhotonTrackedTarget target(int id, double ambiguity)
+  {
+    return new PhotonTrackedTarget(0, 0, 1, 0, id, -1, -1, new Transform3d(), new Transform3d(), ambiguity,
+                                   List.of(), List.of());
+  }
+
+  /**
+   * Create a frame captured, published and received at the same instant.
+   *
+   * @param timestampSeconds Timestamp of the frame in seconds.
+   * @param targets          Targets in the frame.
+   * @return Frame.
+   */
+  static PhotonPipelineResult frame(double timestampSeconds, PhotonTrackedTarget... targets)
+  {
+    long                 micros = Math.round(timestampSeconds * 1e6);
+    PhotonPipelineResult frame  = new PhotonPipelineResult(0, micros, micros, 0, List.of(targets), Optional.empty());
+    frame.ntReceiveTimestampMicros = micros;
+    return frame;
+  }
+
+  @Test
+  void keepsNewestTargetOfEachTag()
+  {
+    PhotonTrackedTarget newest = target(7, 0.1);
+    PhotonTrackedTarget older  = target(7, 0.2);
+    PhotonTrackedTarget other  = target(3, 0.1);
+    FiducialIndex       index  = new FiducialIndex(22);
+    index.rebuild(List.of(frame(2, newest), frame(1, older, other)));
+
+    assertEquals(2, index.getVisibleCount());
+    assertEquals(7, index.getVisibleId(0));
+    assertEquals(3, index.getVisibleId(1));
+    assertSame(newest, index.getTarget(7));
+    assertSame(other, index.getTarget(3));
+    assertFalse(index.isVisible(4));
+    assertNull(index.getTarget(4));
+  }
+
+  @Test
+  void ignoresIdsOutOfRange()
+  {
+    FiducialIndex index = new FiducialIndex(10);
+    index.rebuild(List.of(frame(1, target(11, 0.1), target(-1, 0.1))));
+    assertEquals(0, index.getVisibleCount());
+    assertFalse(index.isVisible(11));
+    assertFalse(index.isVisible(-1));
+    assertNull(index.getTarget(11));
+  }
+
+  @Test
+  void forgetsPreviousBatch()
+  {
+    FiducialIndex index = new FiducialIndex(22);
+    index.rebuild(List.of(frame(1, target(5, 0.1))));
+    index.rebuild(List.of(frame(2, target(6, 0.1))));
+    assertFalse(index.isVisible(5));
+    assertNull(index.getTarget(5));
+    assertTrue(index.isVisible(6));
+    assertEquals(1, index.getVisibleCount());
+
+    index.clear();
+    assertFalse(index.isVisible(6));
+    assertEquals(0, index.getVisibleCount());
+  }
+
+  @Test
+  void indexesIdsAcrossWords()
+  {
+    FiducialIndex index = new FiducialIndex(130);
+    index.rebuild(List.of(frame(1, target(1, 0.1), target(65, 0.1), target(129, 0.1))));
+    assertTrue(index.isVisible(1));
+    assertTrue(index.isVisible(65));
+    assertTrue(index.isVisible(129));
+    assertFalse(index.isVisible(64));
+    assertFalse(index.isVisible(128));
+
+    index.rebuild(List.of());
+    assertFalse(index.isVisible(1));
+    assertFalse(index.isVisible(65));
+    assertFalse(index.isVisible(129));
+  }
+}
@@ -0,0 +1,106 @@
+package frc.robot.subsystems.swervedrive;
+
+import static frc.robot.subsystems.swervedrive.FiducialIndexTest.frame;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link FrameRingBuffer}.
+ */
+class FrameRingBufferTest
+{
+
+  /**
+   * Tolerance of frame timestamps, which round trip through microseconds.
+   */
+  private static final double epsilon = 1e-6;
+
+  @Test
+  void sortsFramesOnInsert()
+  {
+    FrameRingBuffer buffer = new FrameRingBuffer(4);
+    buffer.add(frame(3));
+    buffer.add(frame(1));
+    buffer.add(frame(2));
+    assertEquals(3, buffer.size());
+    assertEquals(1, buffer.pollOldest().getTimestampSeconds(), epsilon);
+    assertEquals(2, buffer.pollOldest().getTimestampSeconds(), epsilon);
+    assertEquals(3, buffer.pollOldest().getTimestampSeconds(), epsilon);
+    assertNull(buffer.pollOldest());
+    assertEquals(0, buffer.getEvictedCount());
+  }
+
+  @Test
+  void evictsOldestFrameWhenFull()
+  {
+    FrameRingBuffer buffer = new FrameRingBuffer(3);
+    for (int i = 1; i <= 4; i++)
+    {
+      buffer.add(frame(i));
+    }
+    assertEquals(3, buffer.size());
+    assertEquals(1, buffer.getEvictedCount());
+    assertTimestamps(buffer, 2, 3, 4);
+  }
+
+  @Test
+  void dropsNewFrameOlderThanEveryFrameWhenFull()
+  {
+    FrameRingBuffer buffer = new FrameRingBuffer(2);
+    buffer.add(frame(2));
+    buffer.add(frame(3));
+    buffer.add(frame(1));
+    assertEquals(1, buffer.getEvictedCount());
+    assertTimestamps(buffer, 2, 3);
+  }
+
+  @Test
+  void discardsOldestFrames()
+  {
+    FrameRingBuffer buffer = new FrameRingBuffer(4);
+    for (int i = 1; i <= 4; i++)
+    {
+      buffer.add(frame(i));
+    }
+    buffer.discardOldest(2);
+    assertTimestamps(buffer, 3, 4);
+    buffer.discardOldest(5);
+    assertEquals(0, buffer.size());
+    assertNull(buffer.pollOldest());
+  }
+
+  @Test
+  void keepsOrderAcrossTheWrap()
+  {
+    FrameRingBuffer buffer = new FrameRingBuffer(3);
+    buffer.add(frame(1));
+    buffer.add(frame(2));
+    buffer.add(frame(3));
+    buffer.pollOldest();
+    buffer.pollOldest();
+    buffer.add(frame(5));
+    buffer.add(frame(4));
+    assertEquals(3, buffer.capacity());
+    assertTimestamps(buffer, 3, 4, 5);
+    buffer.add(frame(3.5));
+    assertEquals(1, buffer.getEvictedCount());
+    assertTimestamps(buffer, 3.5, 4, 5);
+  }
+
+  /**
+   * Assert the frames in a buffer, oldest first.
+   *
+   * @param buffer           Buffer to check.
+   * @param timestampSeconds Expected frame timestamps in seconds.
+   */
+  private static void assertTimestamps(FrameRingBuffer buffer, double... timestampSeconds)
+  {
+    assertEquals(timestampSeconds.length, buffer.size());
+    for (int i = 0; i < timestampSeconds.length; i++)
+    {
+      assertEquals(timestampSeconds[i], buffer.get(i).getTimestampSeconds(), epsilon);
+    }
+  }
+}
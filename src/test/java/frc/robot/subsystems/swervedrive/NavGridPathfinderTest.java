@@ -0,0 +1,133 @@
+package frc.robot.subsystems.swervedrive;
+
+import static frc.robot.subsystems.swervedrive.NavGridTest.draw;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link NavGridPathfinder}, which plans on its own thread.
+ */
+class NavGridPathfinderTest
+{
+
+  /**
+   * Nanoseconds to wait for the planning thread.
+   */
+  private static final long            timeout     = TimeUnit.SECONDS.toNanos(5);
+  /**
+   * Milliseconds without a new path after which the planning thread counts as idle.
+   */
+  private static final long            idleMillis  = 100;
+  /**
+   * Constraints of the requested paths.
+   */
+  private static final PathConstraints constraints = new PathConstraints(3.0, 3.0, 2 * Math.PI, 4 * Math.PI);
+  /**
+   * End state of the requested paths.
+   */
+  private static final GoalEndState    endState    = new GoalEndState(0, Rotation2d.kZero);
+
+  @Test
+  void runsPathFromLatestRequestedStart() throws InterruptedException
+  {
+    NavGridPathfinder pathfinder = new NavGridPathfinder(draw("..........",
+                                                              "....#.....",
+                                                              "....#.....",
+                                                              "....#.....",
+                                                              "....#.....",
+                                                              "....#....."));
+    pathfinder.setStartPosition(new Translation2d(0.6, 2.6));
+    pathfinder.setGoalPosition(new Translation2d(4.1, 2.6));
+    settle(pathfinder);
+
+    // A start move within its node does not replan, the path still starts at the new position.
+    Translation2d start = new Translation2d(0.7, 2.9);
+    pathfinder.setStartPosition(start);
+    assertFalse(pathfinder.isNewPathAvailable());
+    PathPlannerPath path = pathfinder.getCurrentPath(constraints, endState);
+    assertEquals(0, path.getPoint(0).position.getDistance(start), 1e-9);
+  }
+
+  @Test
+  void plansEveryRequestedGoal() throws InterruptedException
+  {
+    NavGridPathfinder pathfinder = new NavGridPathfinder(draw("..........",
+                                                              "....#.....",
+                                                              "....#.....",
+                                                              "....#.....",
+                                                              "....#.....",
+                                                              "....#....."));
+    pathfinder.setStartPosition(new Translation2d(0.6, 2.6));
+    pathfinder.setGoalPosition(new Translation2d(4.1, 2.6));
+    settle(pathfinder);
+
+    // A pathfinding command run again before the robot leaves its node sets the same start and goal nodes and waits
+    // for a new path.
+    Translation2d start = new Translation2d(0.7, 2.9);
+    Translation2d goal  = new Translation2d(4.2, 2.8);
+    pathfinder.setStartPosition(start);
+    pathfinder.setGoalPosition(goal);
+    awaitPath(pathfinder);
+    PathPlannerPath path = pathfinder.getCurrentPath(constraints, endState);
+    assertEquals(0, path.getPoint(0).position.getDistance(start), 1e-9);
+    assertEquals(0, path.getPoint(path.numPoints() - 1).position.getDistance(goal), 1e-9);
+  }
+
+  @Test
+  void replansWhenTheGoalMovesToAnotherNode() throws InterruptedException
+  {
+    NavGridPathfinder pathfinder = new NavGridPathfinder(draw("......",
+                                                              "......",
+                                                              "......"));
+    pathfinder.setStartPosition(new Translation2d(0.25, 0.25));
+    pathfinder.setGoalPosition(new Translation2d(2.75, 0.25));
+    settle(pathfinder);
+
+    pathfinder.setGoalPosition(new Translation2d(2.75, 1.25));
+    awaitPath(pathfinder);
+    PathPlannerPath path = pathfinder.getCurrentPath(constraints, endState);
+    assertEquals(0, path.getPoint(path.numPoints() - 1).position.getDistance(new Translation2d(2.75, 1.25)), 1e-9);
+  }
+
+  /**
+   * Wait until the pathfinder planned every request made so far, taking each path it planned. Setting the start and the
+   * goal are separate requests, either may be planned on its own.
+   *
+   * @param pathfinder Pathfinder to wait for.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  private static void settle(NavGridPathfinder pathfinder) throws InterruptedException
+  {
+    awaitPath(pathfinder);
+    do
+    {
+      assertNotNull(pathfinder.getCurrentPath(constraints, endState));
+      Thread.sleep(idleMillis);
+    } while (pathfinder.isNewPathAvailable());
+  }
+
+  /**
+   * Wait until the pathfinder has a new path.
+   *
+   * @param pathfinder Pathfinder to wait for.
+   */
+  private static void awaitPath(NavGridPathfinder pathfinder)
+  {
+    long deadline = System.nanoTime() + timeout;
+    while (!pathfinder.isNewPathAvailable())
+    {
+      assertTrue(System.nanoTime() < deadline, "no path planned");
+      Thread.onSpinWait();
+    }
+  }
+}
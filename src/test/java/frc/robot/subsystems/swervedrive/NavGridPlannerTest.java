@@ -0,0 +1,106 @@
+package frc.robot.subsystems.swervedrive;
+
+import static frc.robot.subsystems.swervedrive.NavGridTest.draw;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link NavGridPlanner} on small hand drawn grids.
+ */
+class NavGridPlannerTest
+{
+
+  /**
+   * Grid with a wall open only at its top row.
+   */
+  private static final String[]            wall = {"..........",
+                                                   "....#.....",
+                                                   "....#.....",
+                                                   "....#.....",
+                                                   "....#.....",
+                                                   "....#....."};
+  /**
+   * Output of the planner.
+   */
+  private final        List<Translation2d> path = new ArrayList<>();
+
+  @Test
+  void plansStraightLineInTheOpen()
+  {
+    NavGridPlanner planner = new NavGridPlanner(draw("..........",
+                                                     "..........",
+                                                     "..........",
+                                                     "..........",
+                                                     "..........",
+                                                     ".........."));
+    Translation2d start = new Translation2d(0.3, 0.3);
+    Translation2d goal  = new Translation2d(4.2, 2.7);
+    assertTrue(planner.plan(start, goal, path));
+    assertEquals(List.of(start, goal), path);
+  }
+
+  @Test
+  void plansAroundObstacles()
+  {
+    NavGrid        grid    = draw(wall);
+    NavGridPlanner planner = new NavGridPlanner(grid);
+    Translation2d  start   = new Translation2d(0.75, 2.75);
+    Translation2d  goal    = new Translation2d(4.25, 2.75);
+    assertTrue(planner.plan(start, goal, path));
+    assertEquals(start, path.get(0));
+    assertEquals(goal, path.get(path.size() - 1));
+    assertTrue(path.size() > 2, "path " + path);
+    for (int i = 1; i < path.size(); i++)
+    {
+      Translation2d from = path.get(i - 1);
+      Translation2d to   = path.get(i);
+      assertFalse(grid.isBlocked(grid.columnOf(to.getX()), grid.rowOf(to.getY())), "corner " + to);
+      assertTrue(grid.hasLineOfSight(grid.columnOf(from.getX()), grid.rowOf(from.getY()),
+                                     grid.columnOf(to.getX()), grid.rowOf(to.getY())), from + " to " + to);
+    }
+  }
+
+  @Test
+  void reportsUnreachableGoal()
+  {
+    NavGridPlanner planner = new NavGridPlanner(draw("......",
+                                                     "..###.",
+                                                     "..#.#.",
+                                                     "..###."));
+    path.add(Translation2d.kZero);
+    assertFalse(planner.plan(new Translation2d(0.25, 0.25), new Translation2d(1.75, 1.25), path));
+    assertTrue(path.isEmpty());
+  }
+
+  @Test
+  void plansFromStartInsideAnObstacle()
+  {
+    NavGrid        grid    = draw(wall);
+    NavGridPlanner planner = new NavGridPlanner(grid);
+    Translation2d  start   = new Translation2d(2.25, 1.25);
+    Translation2d  goal    = new Translation2d(4.75, 1.25);
+    assertTrue(grid.isBlocked(grid.columnOf(start.getX()), grid.rowOf(start.getY())));
+    assertTrue(planner.plan(start, goal, path));
+    assertEquals(start, path.get(0));
+    assertEquals(goal, path.get(path.size() - 1));
+  }
+
+  @Test
+  void repeatsPlansWithReusedState()
+  {
+    NavGridPlanner      planner = new NavGridPlanner(draw(wall));
+    Translation2d       start   = new Translation2d(0.75, 2.75);
+    Translation2d       goal    = new Translation2d(4.25, 2.75);
+    List<Translation2d> first   = new ArrayList<>();
+    assertTrue(planner.plan(start, goal, first));
+    assertTrue(planner.plan(goal, new Translation2d(0.25, 0.25), path));
+    assertTrue(planner.plan(start, goal, path));
+    assertEquals(first, path);
+  }
+}
@@ -0,0 +1,255 @@
+package frc.robot.subsystems.swervedrive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.Pair;
+import edu.wpi.first.math.geometry.Translation2d;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of {@link NavGrid} on small hand drawn grids.
+ */
+class NavGridTest
+{
+
+  /**
+   * Side length of the nodes of the drawn grids in meters.
+   */
+  static final         double nodeSize = 0.5;
+  /**
+   * Tolerance of computed distances.
+   */
+  private static final double epsilon  = 1e-9;
+
+  /**
+   * Directory for the navgrid files of a test.
+   */
+  @TempDir
+  Path temporary;
+
+  /**
+   * Build a grid from a drawing, {@code #} for obstacles and {@code .} for free nodes, the first line being row 0.
+   *
+   * @param rows Lines of the drawing, all the same length.
+   * @return Grid with {@link NavGridTest#nodeSize} nodes.
+   */
+  static NavGrid draw(String... rows)
+  {
+    boolean[][] obstacles = new boolean[rows.length][rows[0].length()];
+    for (int row = 0; row < rows.length; row++)
+    {
+      for (int column = 0; column < rows[row].length(); column++)
+      {
+        obstacles[row][column] = rows[row].charAt(column) == '#';
+      }
+    }
+    return new NavGrid(nodeSize, rows[0].length(), rows.length, obstacles);
+  }
+
+  @Test
+  void convertsBetweenPositionsAndNodes()
+  {
+    NavGrid grid = draw("....",
+                        "....");
+    assertEquals(4, grid.getColumns());
+    assertEquals(2, grid.getRows());
+    assertEquals(1, grid.columnOf(0.74));
+    assertEquals(-1, grid.columnOf(-0.1));
+    assertEquals(2, grid.rowOf(1.0));
+    assertEquals(0.75, grid.centerX(1), epsilon);
+    assertEquals(0.25, grid.centerY(0), epsilon);
+  }
+
+  @Test
+  void blocksObstaclesAndOutsideOfTheGrid()
+  {
+    NavGrid grid = draw("..#",
+                        "#..");
+    assertTrue(grid.isBlocked(2, 0));
+    assertTrue(grid.isBlocked(0, 1));
+    assertFalse(grid.isBlocked(1, 0));
+    assertFalse(grid.isBlocked(2, 1));
+    assertTrue(grid.isBlocked(-1, 0));
+    assertTrue(grid.isBlocked(3, 0));
+    assertTrue(grid.isBlocked(0, 2));
+  }
+
+  @Test
+  void computesExactClearance()
+  {
+    Random      random    = new Random(2025);
+    int         columns   = 23;
+    int         rows      = 17;
+    boolean[][] obstacles = new boolean[rows][columns];
+    for (int row = 0; row < rows; row++)
+    {
+      for (int column = 0; column < columns; column++)
+      {
+        obstacles[row][column] = random.nextDouble() < 0.1;
+      }
+    }
+    obstacles[rows / 2][columns / 2] = true;
+    NavGrid grid = new NavGrid(nodeSize, columns, rows, obstacles);
+
+    for (int row = 0; row < rows; row++)
+    {
+      for (int column = 0; column < columns; column++)
+      {
+        double nearest = Double.POSITIVE_INFINITY;
+        for (int obstacleRow = 0; obstacleRow < rows; obstacleRow++)
+        {
+          for (int obstacleColumn = 0; obstacleColumn < columns; obstacleColumn++)
+          {
+            if (obstacles[obstacleRow][obstacleColumn])
+            {
+              nearest = Math.min(nearest, Math.hypot(column - obstacleColumn, row - obstacleRow) * nodeSize);
+            }
+          }
+        }
+        assertEquals(nearest, grid.getClearance(row * columns + column), epsilon, "node " + column + ", " + row);
+      }
+    }
+  }
+
+  @Test
+  void capsClearanceOfAnEmptyGrid()
+  {
+    NavGrid grid = draw("....",
+                        "....",
+                        "....");
+    for (int node = 0; node < grid.getColumns() * grid.getRows(); node++)
+    {
+      assertEquals(Math.hypot(4, 3) * nodeSize, grid.getClearance(node), epsilon);
+    }
+  }
+
+  @Test
+  void checksLineOfSight()
+  {
+    NavGrid grid = draw(".....",
+                        "..#..",
+                        ".....");
+    assertTrue(grid.hasLineOfSight(0, 0, 4, 0));
+    assertFalse(grid.hasLineOfSight(0, 1, 4, 1));
+    assertFalse(grid.hasLineOfSight(4, 1, 0, 1));
+    assertFalse(grid.hasLineOfSight(0, 0, 4, 2));
+    assertTrue(grid.hasLineOfSight(0, 0, 1, 2));
+    assertTrue(grid.hasLineOfSight(3, 0, 3, 0));
+    assertFalse(grid.hasLineOfSight(2, 1, 2, 1));
+  }
+
+  @Test
+  void refusesToSqueezeThroughCorners()
+  {
+    assertTrue(draw("..",
+                    "..").hasLineOfSight(0, 0, 1, 1));
+    assertFalse(draw(".#",
+                     "..").hasLineOfSight(0, 0, 1, 1));
+    assertFalse(draw("..",
+                     "#.").hasLineOfSight(1, 1, 0, 0));
+    assertFalse(draw(".#",
+                     "#.").hasLineOfSight(0, 0, 1, 1));
+  }
+
+  @Test
+  void findsNearestFreeNode()
+  {
+    NavGrid grid = draw("#####",
+                        "#####",
+                        ".####",
+                        "#####",
+                        "####.");
+    assertEquals(10, grid.nearestFree(0, 2));
+    assertEquals(10, grid.nearestFree(1, 2));
+    assertEquals(24, grid.nearestFree(3, 3));
+    assertEquals(24, grid.nearestFree(7, 4));
+    assertEquals(-1, draw("##",
+                          "##").nearestFree(0, 0));
+  }
+
+  @Test
+  void layersDynamicObstacles()
+  {
+    NavGrid grid = draw("#.....",
+                        "......",
+                        "......",
+                        "......");
+    List<Pair<Translation2d, Translation2d>> box = List.of(Pair.of(new Translation2d(1.4, 1.4),
+                                                                   new Translation2d(1.1, 0.6)));
+    assertTrue(grid.setDynamicObstacles(box));
+    assertTrue(grid.isBlocked(2, 1));
+    assertTrue(grid.isBlocked(2, 2));
+    assertFalse(grid.isBlocked(3, 1));
+    assertFalse(grid.isBlocked(2, 3));
+    assertEquals(2 * nodeSize, grid.getClearance(1 * grid.getColumns() + 4), epsilon);
+
+    assertFalse(grid.setDynamicObstacles(box));
+
+    assertTrue(grid.setDynamicObstacles(List.of()));
+    assertFalse(grid.isBlocked(2, 1));
+    assertTrue(grid.isBlocked(0, 0));
+    assertEquals(Math.hypot(4, 1) * nodeSize, grid.getClearance(1 * grid.getColumns() + 4), epsilon);
+  }
+
+  @Test
+  void loadsNavgridFile() throws IOException
+  {
+    File file = write("{\"field_size\":{\"x\":1,\"y\":0.6},\"nodeSizeMeters\":0.3," +
+                      "\"grid\":[[false,true,false],[false,false,false]]}");
+    NavGrid grid = NavGrid.load(file);
+    assertEquals(0.3, grid.getNodeSize(), epsilon);
+    assertEquals(3, grid.getColumns());
+    assertEquals(2, grid.getRows());
+    assertTrue(grid.isBlocked(1, 0));
+    assertFalse(grid.isBlocked(1, 1));
+  }
+
+  @Test
+  void rejectsMalformedNavgridFiles() throws IOException
+  {
+    File noNodeSize = write("{\"grid\":[[false]]}");
+    assertThrows(IOException.class, () -> NavGrid.load(noNodeSize));
+    File ragged = write("{\"nodeSizeMeters\":0.3,\"grid\":[[false,false],[false]]}");
+    assertThrows(IOException.class, () -> NavGrid.load(ragged));
+  }
+
+  @Test
+  void loadsDeployedNavgrid() throws IOException
+  {
+    NavGrid grid    = NavGrid.load(new File("src/main/deploy/pathplanner/navgrid.json"));
+    int     blocked = 0;
+    for (int row = 0; row < grid.getRows(); row++)
+    {
+      for (int column = 0; column < grid.getColumns(); column++)
+      {
+        blocked += grid.isBlocked(column, row) ? 1 : 0;
+      }
+    }
+    assertTrue(blocked > 0);
+    assertTrue(blocked < grid.getColumns() * grid.getRows());
+  }
+
+  /**
+   * Write a navgrid file.
+   *
+   * @param json Contents.
+   * @return Written file.
+   * @throws IOException If the file could not be written.
+   */
+  private File write(String json) throws IOException
+  {
+    Path path = Files.createTempFile(temporary, "navgrid", ".json");
+    Files.writeString(path, json);
+    return path.toFile();
+  }
+}
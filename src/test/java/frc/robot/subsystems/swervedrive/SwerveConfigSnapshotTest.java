@@ -0,0 +1,175 @@
+package frc.robot.subsystems.swervedrive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.wpi.first.hal.HAL;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import swervelib.parser.json.ModuleJson;
+import swervelib.parser.json.SwerveDriveJson;
+
+/**
+ * Tests of {@link SwerveConfigSnapshot} against the configurations in the deploy directory.
+ */
+class SwerveConfigSnapshotTest
+{
+
+  /**
+   * Configuration directories shipped in the deploy directory.
+   */
+  private static final File swerveDirectory = new File("src/main/deploy/swerve");
+
+  /**
+   * Directory for the snapshots and copied configurations of a test.
+   */
+  @TempDir
+  Path temporary;
+
+  /**
+   * Stale snapshots are reported to the driver station.
+   */
+  @BeforeAll
+  static void initializeHal()
+  {
+    assertTrue(HAL.initialize(500, 0));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"neo", "maxSwerve", "falcon"})
+  void decodesWhatYagslParses(String config) throws Exception
+  {
+    File directory = new File(swerveDirectory, config);
+    File snapshot  = temporary.resolve("swerve.snapshot").toFile();
+    SwerveConfigSnapshot.compile(directory, snapshot, SwerveConfigSnapshot.assembledFor);
+
+    Map<String, Object> entries = SwerveConfigSnapshot.read(directory, snapshot);
+    assertNotNull(entries);
+    SwerveDriveJson swerveDriveJson = (SwerveDriveJson) entries.get("swervedrive.json");
+    assertEquals(4 + swerveDriveJson.modules.length, entries.size());
+
+    ObjectMapper mapper = new ObjectMapper();
+    for (Map.Entry<String, Object> entry : entries.entrySet())
+    {
+      Object parsed = mapper.readValue(new File(directory, entry.getKey()), entry.getValue().getClass());
+      assertSameState(parsed, entry.getValue(), entry.getKey());
+    }
+    assertTrue(entries.get("modules/" + swerveDriveJson.modules[0]) instanceof ModuleJson);
+  }
+
+  @Test
+  void ignoresSnapshotOfChangedSource() throws IOException
+  {
+    File directory = copy(new File(swerveDirectory, "neo"));
+    File snapshot  = temporary.resolve("swerve.snapshot").toFile();
+    SwerveConfigSnapshot.compile(directory, snapshot, SwerveConfigSnapshot.assembledFor);
+    assertNotNull(SwerveConfigSnapshot.read(directory, snapshot));
+
+    Path controller = directory.toPath().resolve("controllerproperties.json");
+    Files.writeString(controller, Files.readString(controller) + " ");
+    assertNull(SwerveConfigSnapshot.read(directory, snapshot));
+  }
+
+  @Test
+  void ignoresSnapshotOfEditedSource() throws IOException
+  {
+    File directory = copy(new File(swerveDirectory, "neo"));
+    File snapshot  = temporary.resolve("swerve.snapshot").toFile();
+    SwerveConfigSnapshot.compile(directory, snapshot, SwerveConfigSnapshot.assembledFor);
+
+    // Same size, but modified well after the snapshot was compiled.
+    File controller = new File(directory, "controllerproperties.json");
+    assertTrue(controller.setLastModified(snapshot.lastModified() + 120_000));
+    assertNull(SwerveConfigSnapshot.read(directory, snapshot));
+  }
+
+  @Test
+  void ignoresSnapshotOfOtherYagslVersion() throws IOException
+  {
+    File directory = new File(swerveDirectory, "neo");
+    File snapshot  = temporary.resolve("swerve.snapshot").toFile();
+    SwerveConfigSnapshot.compile(directory, snapshot, "0.0.0");
+    assertNull(SwerveConfigSnapshot.read(directory, snapshot));
+  }
+
+  /**
+   * Copy a configuration directory into the temporary directory.
+   *
+   * @param directory Configuration directory.
+   * @return Copy.
+   * @throws IOException If the copy fails.
+   */
+  private File copy(File directory) throws IOException
+  {
+    Path target = temporary.resolve(directory.getName());
+    try (Stream<Path> files = Files.walk(directory.toPath()))
+    {
+      for (Path source : (Iterable<Path>) files::iterator)
+      {
+        Files.copy(source, target.resolve(directory.toPath().relativize(source).toString()),
+                   StandardCopyOption.COPY_ATTRIBUTES);
+      }
+    }
+    return target.toFile();
+  }
+
+  /**
+   * Assert two values hold the same state, field by field.
+   *
+   * @param expected Value parsed by Jackson.
+   * @param actual   Value decoded from the snapshot.
+   * @param path     Path of the value for failure messages.
+   * @throws IllegalAccessException If a field cannot be read.
+   */
+  private static void assertSameState(Object expected, Object actual, String path) throws IllegalAccessException
+  {
+    if (expected == null || actual == null)
+    {
+      assertEquals(expected, actual, path);
+      return;
+    }
+    assertEquals(expected.getClass(), actual.getClass(), path);
+    Class<?> type = expected.getClass();
+    if (type.isArray())
+    {
+      assertEquals(Array.getLength(expected), Array.getLength(actual), path);
+      for (int i = 0; i < Array.getLength(expected); i++)
+      {
+        assertSameState(Array.get(expected, i), Array.get(actual, i), path + "[" + i + "]");
+      }
+    } else if (type.getName().startsWith("swervelib.") && !type.isEnum())
+    {
+      for (Class<?> c = type; c != Object.class; c = c.getSuperclass())
+      {
+        for (Field field : c.getDeclaredFields())
+        {
+          int modifiers = field.getModifiers();
+          if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic())
+          {
+            field.setAccessible(true);
+            assertSameState(field.get(expected), field.get(actual), path + "." + field.getName());
+          }
+        }
+      }
+    } else
+    {
+      assertEquals(expected, actual, path);
+    }
+  }
+}
@@ -0,0 +1,193 @@
+package frc.robot.subsystems.swervedrive;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.photonvision.EstimatedRobotPose;
+import org.photonvision.PhotonPoseEstimator.PoseStrategy;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+/**
+ * Tests of {@link VisionFusion} against a sink recording what reaches the pose estimator.
+ */
+class VisionFusionTest
+{
+
+  /**
+   * Measurement as submitted to the pose estimator.
+   *
+   * @param pose             Robot pose from vision.
+   * @param timestampSeconds Timestamp of the measurement in seconds.
+   * @param stdDevs          Copy of the standard deviations, the fusion stage reuses its matrix.
+   */
+  private record Submission(Pose2d pose, double timestampSeconds, double[] stdDevs)
+  {
+
+  }
+
+  /**
+   * Tolerance of fused values.
+   */
+  private static final double            epsilon     = 1e-9;
+  /**
+   * Measurements submitted to the pose estimator, oldest first.
+   */
+  private final        List<Submission>  submissions = new ArrayList<>();
+  /**
+   * Pose estimator recording into {@link VisionFusionTest#submissions}.
+   */
+  private final        VisionFusion.Sink sink        = (Pose2d pose, double timestampSeconds, Matrix<N3, N1> stdDevs) ->
+      submissions.add(new Submission(pose, timestampSeconds,
+                                     new double[]{stdDevs.get(0, 0), stdDevs.get(1, 0), stdDevs.get(2, 0)}));
+
+  /**
+   * Create a measurement from a camera.
+   *
+   * @param timestampSeconds Timestamp of the frame in seconds.
+   * @param pose             Estimated robot pose.
+   * @param targets          Targets the estimate used.
+   * @param stdDev           Standard deviation of every axis.
+   * @return Measurement.
+   */
+  static VisionMeasurement measurement(double timestampSeconds, Pose3d pose, List<PhotonTrackedTarget> targets,
+                                       double stdDev)
+  {
+    return new VisionMeasurement(null,
+                                 new EstimatedRobotPose(pose, timestampSeconds, targets,
+                                                        PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR),
+                                 VecBuilder.fill(stdDev, stdDev, stdDev));
+  }
+
+  /**
+   * Create a measurement of a robot on the carpet.
+   *
+   * @param timestampSeconds Timestamp of the frame in seconds.
+   * @param x                X of the robot in meters.
+   * @param y                Y of the robot in meters.
+   * @param theta            Heading of the robot in radians.
+   * @param stdDev           Standard deviation of every axis.
+   * @return Measurement.
+   */
+  private static VisionMeasurement measurement(double timestampSeconds, double x, double y, double theta,
+                                               double stdDev)
+  {
+    return measurement(timestampSeconds, new Pose3d(new Pose2d(x, y, Rotation2d.fromRadians(theta))), List.of(),
+                       stdDev);
+  }
+
+  @Test
+  void submitsOldestFirst()
+  {
+    VisionFusion      fusion = new VisionFusion(8, 0.001);
+    VisionMeasurement newest = measurement(0.3, 3, 0, 0, 1);
+    fusion.add(newest);
+    fusion.add(measurement(0.1, 1, 0, 0, 1));
+    fusion.add(measurement(0.2, 2, 0, 0, 1));
+    assertSame(newest, fusion.flush(sink));
+
+    assertEquals(3, submissions.size());
+    for (int i = 0; i < 3; i++)
+    {
+      assertEquals(0.1 * (i + 1), submissions.get(i).timestampSeconds(), epsilon);
+      assertEquals(i + 1, submissions.get(i).pose().getX(), epsilon);
+    }
+    assertEquals(3, fusion.getSubmittedCount());
+    assertEquals(0, fusion.getMergedCount());
+    assertEquals(0, fusion.getOutOfOrderCount());
+  }
+
+  @Test
+  void mergesWithInverseVarianceWeights()
+  {
+    VisionFusion fusion = new VisionFusion(8, 0.01);
+    fusion.add(measurement(1.000, 1, 2, 0, 1));
+    fusion.add(measurement(1.004, 3, 4, 0, 0.5));
+    fusion.flush(sink);
+
+    assertEquals(1, submissions.size());
+    Submission merged = submissions.get(0);
+    assertEquals((1 * 1 + 4 * 3) / 5.0, merged.pose().getX(), epsilon);
+    assertEquals((1 * 2 + 4 * 4) / 5.0, merged.pose().getY(), epsilon);
+    assertEquals(0, merged.pose().getRotation().getRadians(), epsilon);
+    assertEquals(1.002, merged.timestampSeconds(), epsilon);
+    double stdDev = 1 / Math.sqrt(5);
+    assertArrayEquals(new double[]{stdDev, stdDev, stdDev}, merged.stdDevs(), epsilon);
+    assertEquals(1, fusion.getSubmittedCount());
+    assertEquals(1, fusion.getMergedCount());
+  }
+
+  @Test
+  void mergesHeadingsTheShortWayAround()
+  {
+    VisionFusion fusion = new VisionFusion(8, 0.01);
+    fusion.add(measurement(1, 0, 0, Math.PI - 0.1, 1));
+    fusion.add(measurement(1, 0, 0, -Math.PI + 0.1, 1));
+    fusion.flush(sink);
+    double heading = submissions.get(0).pose().getRotation().getRadians();
+    assertEquals(0, MathUtil.angleModulus(heading - Math.PI), epsilon);
+  }
+
+  @Test
+  void submitsNewestWhenNothingIsTrusted()
+  {
+    VisionFusion fusion = new VisionFusion(8, 0.01);
+    fusion.add(measurement(1.000, 1, 0, 0, Double.MAX_VALUE));
+    fusion.add(measurement(1.005, 2, 0, 0, Double.MAX_VALUE));
+    fusion.flush(sink);
+
+    assertEquals(1, submissions.size());
+    assertEquals(2, submissions.get(0).pose().getX(), epsilon);
+    assertEquals(1.005, submissions.get(0).timestampSeconds(), epsilon);
+    assertEquals(Double.MAX_VALUE, submissions.get(0).stdDevs()[0]);
+  }
+
+  @Test
+  void countsSubmissionsOlderThanAnEarlierLoop()
+  {
+    VisionFusion fusion = new VisionFusion(8, 0.01);
+    fusion.add(measurement(2, 0, 0, 0, 1));
+    fusion.flush(sink);
+    fusion.add(measurement(1, 0, 0, 0, 1));
+    fusion.flush(sink);
+    fusion.add(measurement(3, 0, 0, 0, 1));
+    fusion.flush(sink);
+    assertEquals(3, fusion.getSubmittedCount());
+    assertEquals(1, fusion.getOutOfOrderCount());
+  }
+
+  @Test
+  void dropsMeasurementsBeyondCapacity()
+  {
+    VisionFusion fusion = new VisionFusion(2, 0.001);
+    fusion.add(measurement(1, 0, 0, 0, 1));
+    fusion.add(measurement(2, 0, 0, 0, 1));
+    fusion.add(measurement(3, 0, 0, 0, 1));
+    fusion.flush(sink);
+    assertEquals(1, fusion.getDroppedCount());
+    assertEquals(2, submissions.size());
+  }
+
+  @Test
+  void flushesNothingWhenEmpty()
+  {
+    VisionFusion fusion = new VisionFusion(2, 0.001);
+    assertNull(fusion.flush(sink));
+    fusion.add(measurement(1, 0, 0, 0, 1));
+    fusion.flush(sink);
+    assertNull(fusion.flush(sink));
+    assertEquals(1, submissions.size());
+  }
+}
@@ -0,0 +1,125 @@
+package frc.robot.subsystems.swervedrive;
+
+import static frc.robot.subsystems.swervedrive.FiducialIndexTest.target;
+import static frc.robot.subsystems.swervedrive.VisionFusionTest.measurement;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import frc.robot.subsystems.swervedrive.VisionGate.RejectReason;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+/**
+ * Tests of {@link VisionGate} on a 16 by 8 meter field.
+ */
+class VisionGateTest
+{
+
+  /**
+   * Targets of a multi tag estimate.
+   */
+  private static final List<PhotonTrackedTarget> twoTags = List.of(target(1, 0.1), target(2, 0.1));
+  /**
+   * Gate under test.
+   */
+  private              VisionGate                gate;
+
+  @BeforeEach
+  void createGate()
+  {
+    gate = new VisionGate(new AprilTagFieldLayout(List.of(), 16, 8));
+  }
+
+  @Test
+  void acceptsPlausibleEstimate()
+  {
+    assertTrue(gate.accept(estimate(1, new Pose3d(4, 4, 0.05, new Rotation3d(0.01, -0.01, 2)))));
+    assertTrue(gate.accept(estimate(1, new Pose3d(16.4, -0.4, 0, Rotation3d.kZero))));
+    assertEquals(2, gate.getAcceptedCount());
+  }
+
+  @Test
+  void rejectsAmbiguousSingleTagEstimate()
+  {
+    Pose3d pose = new Pose3d(4, 4, 0, Rotation3d.kZero);
+    assertFalse(gate.accept(measurement(1, pose, List.of(target(1, 0.4)), 1)));
+    assertTrue(gate.accept(measurement(1, pose, List.of(target(1, 0.2)), 1)));
+    assertTrue(gate.accept(measurement(1, pose, List.of(target(1, 0.4), target(2, 0.4)), 1)));
+    assertEquals(1, gate.getRejectCount(RejectReason.AMBIGUITY));
+  }
+
+  @Test
+  void rejectsRobotOffTheCarpet()
+  {
+    assertFalse(gate.accept(estimate(1, new Pose3d(4, 4, 0.8, Rotation3d.kZero))));
+    assertFalse(gate.accept(estimate(1, new Pose3d(4, 4, -0.8, Rotation3d.kZero))));
+    assertEquals(2, gate.getRejectCount(RejectReason.HEIGHT));
+  }
+
+  @Test
+  void rejectsTiltedRobot()
+  {
+    assertFalse(gate.accept(estimate(1, new Pose3d(4, 4, 0, new Rotation3d(Math.toRadians(20), 0, 0)))));
+    assertFalse(gate.accept(estimate(1, new Pose3d(4, 4, 0, new Rotation3d(0, Math.toRadians(-20), 0)))));
+    assertEquals(2, gate.getRejectCount(RejectReason.TILT));
+  }
+
+  @Test
+  void rejectsRobotOutsideOfTheField()
+  {
+    assertFalse(gate.accept(estimate(1, new Pose3d(-1, 4, 0, Rotation3d.kZero))));
+    assertFalse(gate.accept(estimate(1, new Pose3d(4, 8.6, 0, Rotation3d.kZero))));
+    assertEquals(2, gate.getRejectCount(RejectReason.OUT_OF_FIELD));
+    assertEquals(0, gate.getAcceptedCount());
+  }
+
+  @Test
+  void rejectsDisagreementWithOdometryUntilItPersists()
+  {
+    gate.recordOdometry(0, new Pose2d(4, 4, Rotation2d.kZero));
+    gate.recordOdometry(1, new Pose2d(5, 4, Rotation2d.kZero));
+    // Odometry was at 4.5 m halfway between its samples.
+    assertTrue(gate.accept(estimate(0.5, new Pose3d(4.5, 4.9, 0, Rotation3d.kZero))));
+
+    Pose3d far = new Pose3d(4.5, 6, 0, Rotation3d.kZero);
+    for (int i = 1; i < 10; i++)
+    {
+      assertFalse(gate.accept(estimate(0.5, far)), "outlier " + i);
+    }
+    assertTrue(gate.accept(estimate(0.5, far)));
+    assertTrue(gate.accept(estimate(0.5, far)));
+    assertEquals(9, gate.getRejectCount(RejectReason.ODOMETRY_DISAGREEMENT));
+
+    // An estimate agreeing with odometry resets the count.
+    assertTrue(gate.accept(estimate(0.5, new Pose3d(4.5, 4, 0, Rotation3d.kZero))));
+    assertFalse(gate.accept(estimate(0.5, far)));
+  }
+
+  @Test
+  void skipsOdometryCheckOlderThanHistory()
+  {
+    gate.recordOdometry(1, new Pose2d(4, 4, Rotation2d.kZero));
+    assertTrue(gate.accept(estimate(0.5, new Pose3d(12, 4, 0, Rotation3d.kZero))));
+    assertEquals(0, gate.getRejectCount(RejectReason.ODOMETRY_DISAGREEMENT));
+  }
+
+  /**
+   * Create a multi tag estimate.
+   *
+   * @param timestampSeconds Timestamp of the frame in seconds.
+   * @param pose             Estimated robot pose.
+   * @return Measurement.
+   */
+  private static VisionMeasurement estimate(double timestampSeconds, Pose3d pose)
+  {
+    return measurement(timestampSeconds, pose, twoTags, 1);
+  }
+}
@@ -0,0 +1,101 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link PoseHistory}.
+ */
+class PoseHistoryTest
+{
+
+  /**
+   * Tolerance of interpolated values.
+   */
+  private static final double   epsilon = 1e-9;
+  /**
+   * Output of the history.
+   */
+  private final        double[] out     = new double[3];
+
+  @Test
+  void samplesNothingWhenEmpty()
+  {
+    PoseHistory history = new PoseHistory(4);
+    assertTrue(history.isEmpty());
+    assertFalse(history.sample(1, out));
+  }
+
+  @Test
+  void interpolatesBetweenSamples()
+  {
+    PoseHistory history = new PoseHistory(8);
+    history.record(1, 0, 0, 0);
+    history.record(2, 2, -4, 1);
+    history.record(3, new Pose2d(3, -4, Rotation2d.fromRadians(1)));
+    assertFalse(history.isEmpty());
+
+    assertTrue(history.sample(1.25, out));
+    assertArrayEquals(new double[]{0.5, -1, 0.25}, out, epsilon);
+    assertTrue(history.sample(2.5, out));
+    assertArrayEquals(new double[]{2.5, -4, 1}, out, epsilon);
+    assertTrue(history.sample(1, out));
+    assertArrayEquals(new double[]{0, 0, 0}, out, epsilon);
+  }
+
+  @Test
+  void holdsNewestAndRejectsOlderThanOldest()
+  {
+    PoseHistory history = new PoseHistory(4);
+    history.record(1, 0, 0, 0);
+    history.record(2, 1, 1, 1);
+    assertTrue(history.sample(5, out));
+    assertArrayEquals(new double[]{1, 1, 1}, out, epsilon);
+    assertFalse(history.sample(0.5, out));
+  }
+
+  @Test
+  void interpolatesHeadingTheShortWayAround()
+  {
+    PoseHistory history = new PoseHistory(4);
+    history.record(0, 0, 0, Math.PI - 0.1);
+    history.record(1, 0, 0, -Math.PI + 0.1);
+    assertTrue(history.sample(0.5, out));
+    assertEquals(0, MathUtil.angleModulus(out[2] - Math.PI), epsilon);
+  }
+
+  @Test
+  void forgetsSamplesBeyondCapacity()
+  {
+    PoseHistory history = new PoseHistory(3);
+    for (int i = 0; i < 5; i++)
+    {
+      history.record(i, i, 0, 0);
+    }
+    assertFalse(history.sample(1.5, out));
+    assertTrue(history.sample(2.5, out));
+    assertEquals(2.5, out[0], epsilon);
+    assertTrue(history.sample(4, out));
+    assertEquals(4, out[0], epsilon);
+  }
+
+  @Test
+  void clearsSamples()
+  {
+    PoseHistory history = new PoseHistory(3);
+    history.record(1, 1, 1, 1);
+    history.clear();
+    assertTrue(history.isEmpty());
+    assertFalse(history.sample(1, out));
+    history.record(2, 2, 2, 2);
+    assertTrue(history.sample(3, out));
+    assertArrayEquals(new double[]{2, 2, 2}, out, epsilon);
+  }
+}
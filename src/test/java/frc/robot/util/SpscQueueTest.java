@@ -0,0 +1,98 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link SpscQueue}.
+ */
+class SpscQueueTest
+{
+
+  @Test
+  void pollsInOfferOrder()
+  {
+    SpscQueue<Integer> queue = new SpscQueue<>(4);
+    assertTrue(queue.isEmpty());
+    assertNull(queue.poll());
+    queue.offer(1);
+    queue.offer(2);
+    queue.offer(3);
+    assertFalse(queue.isEmpty());
+    assertEquals(1, queue.poll().intValue());
+    assertEquals(2, queue.poll().intValue());
+    assertEquals(3, queue.poll().intValue());
+    assertNull(queue.poll());
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  void roundsCapacityUpAndDropsWhenFull()
+  {
+    SpscQueue<Integer> queue = new SpscQueue<>(3);
+    for (int i = 0; i < 4; i++)
+    {
+      assertTrue(queue.offer(i));
+    }
+    assertFalse(queue.offer(4));
+    assertFalse(queue.offer(5));
+    assertEquals(2, queue.getDroppedCount());
+    assertEquals(0, queue.poll().intValue());
+    assertTrue(queue.offer(6));
+    assertEquals(2, queue.getDroppedCount());
+
+    SpscQueue<Integer> smallest = new SpscQueue<>(0);
+    assertTrue(smallest.offer(0));
+    assertTrue(smallest.offer(1));
+    assertFalse(smallest.offer(2));
+  }
+
+  @Test
+  void wrapsAroundTheBuffer()
+  {
+    SpscQueue<Integer> queue = new SpscQueue<>(4);
+    for (int i = 0; i < 100; i++)
+    {
+      assertTrue(queue.offer(2 * i));
+      assertTrue(queue.offer(2 * i + 1));
+      assertEquals(2 * i, queue.poll().intValue());
+      assertEquals(2 * i + 1, queue.poll().intValue());
+    }
+    assertTrue(queue.isEmpty());
+    assertEquals(0, queue.getDroppedCount());
+  }
+
+  @Test
+  void handsElementsToAnotherThread() throws InterruptedException
+  {
+    int                count    = 100_000;
+    SpscQueue<Integer> queue    = new SpscQueue<>(64);
+    Thread             producer = new Thread(() -> {
+      for (int i = 0; i < count; i++)
+      {
+        while (!queue.offer(i))
+        {
+          Thread.onSpinWait();
+        }
+      }
+    });
+    producer.start();
+
+    for (int expected = 0; expected < count; )
+    {
+      Integer element = queue.poll();
+      if (element == null)
+      {
+        Thread.onSpinWait();
+        continue;
+      }
+      assertEquals(expected++, element.intValue());
+    }
+    producer.join();
+    assertTrue(queue.isEmpty());
+  }
+}
@@ -0,0 +1,244 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DataLogWriter;
+import edu.wpi.first.util.datalog.StructArrayLogEntry;
+import edu.wpi.first.util.datalog.StructLogEntry;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of {@link WPILogFile} against logs written by WPILib's {@link DataLogWriter}.
+ */
+class WPILogFileTest
+{
+
+  /**
+   * Tolerance of decoded doubles, which are stored exactly.
+   */
+  private static final double epsilon = 1e-12;
+
+  /**
+   * Directory for the logs of a test.
+   */
+  @TempDir
+  Path temporary;
+
+  @Test
+  void readsHeaderAndEntries() throws IOException
+  {
+    WPILogFile file = write(log -> {
+      int value = log.start("/value", "double", "{\"source\":\"test\"}", 1000);
+      log.appendDouble(value, 1.5, 1100);
+      log.appendDouble(value, 2.5, 1200);
+      int count = log.start("/count", "int64", "", 1000);
+      log.appendInteger(count, 42, 1300);
+    });
+
+    assertEquals("extra", file.getExtraHeader());
+    WPILogFile.Entry value = file.getEntry("/value");
+    assertNotNull(value);
+    assertEquals("double", value.getType());
+    assertEquals("{\"source\":\"test\"}", value.getMetadata());
+    assertEquals(2, value.size());
+    assertNull(file.getEntry("/missing"));
+
+    WPILogFile.Cursor record = value.cursor();
+    assertTrue(record.next());
+    assertEquals(1100, record.getTimestamp());
+    assertEquals(1.5, record.getDouble(), epsilon);
+    assertTrue(record.next());
+    assertEquals(2.5, record.getDouble(), epsilon);
+    assertFalse(record.next());
+
+    record = file.getEntry("/count").cursor();
+    assertTrue(record.next());
+    assertEquals(42, record.getInteger());
+  }
+
+  @Test
+  void splitsRecordsOfRestartedEntry() throws IOException
+  {
+    WPILogFile file = write(log -> {
+      int first = log.start("/reused", "double", "first", 1000);
+      // Starting an entry which is already started shares it instead of starting another.
+      assertEquals(first, log.start("/reused", "double", "ignored", 1050));
+      log.appendDouble(first, 1, 1100);
+      log.finish(first, 1150);
+      log.finish(first, 1200);
+      int other = log.start("/other", "double", "", 1300);
+      log.appendDouble(other, -1, 1400);
+      // The restarted entry comes back under the same ID.
+      int second = log.start("/reused", "double", "second", 2000);
+      assertEquals(first, second);
+      log.appendDouble(second, 2, 2100);
+      log.appendDouble(second, 3, 2200);
+    });
+
+    List<WPILogFile.Entry> reused = file.getEntries().stream()
+                                        .filter(entry -> entry.getName().equals("/reused"))
+                                        .toList();
+    assertEquals(2, reused.size());
+    assertSame(reused.get(0), file.getEntry("/reused"));
+    assertEquals("first", reused.get(0).getMetadata());
+    assertEquals("second", reused.get(1).getMetadata());
+
+    file.index("");
+    assertDoubles(reused.get(0).cursor(), 1);
+    assertDoubles(reused.get(1).cursor(), 2, 3);
+    assertDoubles(file.getEntry("/other").cursor(), -1);
+  }
+
+  @Test
+  void keepsLatestMetadata() throws IOException
+  {
+    WPILogFile file = write(log -> {
+      int entry = log.start("/metadata", "double", "first", 1000);
+      log.appendDouble(entry, 1, 1100);
+      log.setMetadata(entry, "second", 1200);
+      log.appendDouble(entry, 2, 1300);
+      log.setMetadata(entry, "third", 1400);
+    });
+
+    WPILogFile.Entry entry = file.getEntry("/metadata");
+    assertEquals("third", entry.getMetadata());
+    // Metadata records are not records of the entry.
+    assertDoubles(entry.cursor(), 1, 2);
+  }
+
+  @Test
+  void readsTimeRanges() throws IOException
+  {
+    WPILogFile file = write(log -> {
+      int entry = log.start("/range", "double", "", 500);
+      for (int i = 1; i <= 5; i++)
+      {
+        log.appendDouble(entry, i, i * 1000);
+      }
+    });
+
+    WPILogFile.Entry entry = file.getEntry("/range");
+    assertEquals(0, entry.indexAt(0));
+    assertEquals(2, entry.indexAt(2500));
+    assertEquals(2, entry.indexAt(3000));
+    assertEquals(5, entry.indexAt(9000));
+
+    WPILogFile.Cursor range = entry.cursor(2000, 4000);
+    assertEquals(2, range.size());
+    assertDoubles(range, 2, 3);
+    range.rewind();
+    assertTrue(range.next());
+    assertEquals(1, range.getIndex());
+    assertEquals(2000, range.getTimestamp());
+
+    assertEquals(0, entry.cursor(6000, 7000).size());
+    assertFalse(entry.cursor(6000, 7000).next());
+    assertEquals(0, entry.cursor(4000, 2000).size());
+  }
+
+  @Test
+  void decodesStructAndArrayPoses() throws IOException
+  {
+    WPILogFile file = write(log -> {
+      StructLogEntry<Pose2d> struct = StructLogEntry.create(log, "/struct", Pose2d.struct, 1000);
+      struct.append(new Pose2d(1, 2, Rotation2d.fromRadians(0.5)), 1100);
+      int array = log.start("/array", "double[]", "", 1000);
+      log.appendDoubleArray(array, new double[]{3, 4, -1, 5, 6, 2}, 1100);
+    });
+
+    WPILogFile.Entry struct = file.getEntry("/struct");
+    assertEquals("struct:Pose2d", struct.getType());
+    WPILogFile.Cursor record = struct.cursor();
+    assertTrue(record.next());
+    assertEquals(1, record.getPoseCount());
+    assertEquals(1, record.getPoseX(0), epsilon);
+    assertEquals(2, record.getPoseY(0), epsilon);
+    assertEquals(0.5, record.getPoseHeading(0), epsilon);
+
+    record = file.getEntry("/array").cursor();
+    assertTrue(record.next());
+    assertEquals(2, record.getPoseCount());
+    assertEquals(3, record.getPoseX(0), epsilon);
+    assertEquals(-1, record.getPoseHeading(0), epsilon);
+    assertEquals(5, record.getPoseX(1), epsilon);
+    assertEquals(6, record.getPoseY(1), epsilon);
+    assertEquals(2, record.getPoseHeading(1), epsilon);
+  }
+
+  @Test
+  void decodesStructAndYagslModuleStates() throws IOException
+  {
+    WPILogFile file = write(log -> {
+      StructArrayLogEntry<SwerveModuleState> struct = StructArrayLogEntry.create(log, "/struct",
+                                                                                 SwerveModuleState.struct, 1000);
+      struct.append(new SwerveModuleState[]{new SwerveModuleState(1.5, Rotation2d.fromRadians(0.25)),
+                                            new SwerveModuleState(-2, Rotation2d.fromRadians(-1))}, 1100);
+      // YAGSL publishes the angle in degrees before the speed.
+      int yagsl = log.start("/yagsl", "double[]", "", 1000);
+      log.appendDoubleArray(yagsl, new double[]{90, 1.5, -45, -2}, 1100);
+    });
+
+    WPILogFile.Cursor record = file.getEntry("/struct").cursor();
+    assertTrue(record.next());
+    assertEquals(2, record.getModuleCount());
+    assertEquals(1.5, record.getModuleSpeed(0), epsilon);
+    assertEquals(0.25, record.getModuleAngle(0), epsilon);
+    assertEquals(-2, record.getModuleSpeed(1), epsilon);
+    assertEquals(-1, record.getModuleAngle(1), epsilon);
+
+    record = file.getEntry("/yagsl").cursor();
+    assertTrue(record.next());
+    assertEquals(2, record.getModuleCount());
+    assertEquals(1.5, record.getModuleSpeed(0), epsilon);
+    assertEquals(Math.PI / 2, record.getModuleAngle(0), epsilon);
+    assertEquals(-2, record.getModuleSpeed(1), epsilon);
+    assertEquals(-Math.PI / 4, record.getModuleAngle(1), epsilon);
+  }
+
+  /**
+   * Write a log and open it.
+   *
+   * @param records Writes the records, timestamps must not be 0 since the writer replaces 0 with the current time.
+   * @return Opened log.
+   * @throws IOException If the log could not be written or opened.
+   */
+  private WPILogFile write(Consumer<DataLog> records) throws IOException
+  {
+    Path path = temporary.resolve("test.wpilog");
+    try (DataLogWriter log = new DataLogWriter(path.toString(), "extra"))
+    {
+      records.accept(log);
+    }
+    return WPILogFile.open(path);
+  }
+
+  /**
+   * Assert the remaining records of a cursor are the given doubles.
+   *
+   * @param record Cursor to read.
+   * @param values Expected values in order.
+   */
+  private static void assertDoubles(WPILogFile.Cursor record, double... values)
+  {
+    for (double value : values)
+    {
+      assertTrue(record.next());
+      assertEquals(value, record.getDouble(), epsilon);
+    }
+    assertFalse(record.next());
+  }
+}